@@ -0,0 +1,87 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Reads the corpora of the data directory, and derives the keys that the
+ * benchmarks query from them.
+ *
+ * The keys are drawn with a fixed seed, so that every run of a benchmark, and
+ * the runs of different versions of the library, query the same keys.
+ */
+final class Corpora {
+
+  /**
+   * Directory of the corpora, relative to the root of the project.
+   */
+  static final String DATA_DIR = "data";
+
+  /**
+   * Seed of the random choices of keys.
+   */
+  static final long SEED = 42;
+
+  private Corpora() { }
+
+  /**
+   * Returns the contents of the specified file of the data directory.
+   *
+   * @param name the name of the corpus
+   * @return the text of the corpus
+   * @throws IOException if the file cannot be read
+   */
+  static String read(String name) throws IOException {
+    return new String(Files.readAllBytes(Paths.get(DATA_DIR, name)), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns count substrings of the specified length, taken at random offsets
+   * of the text.
+   *
+   * @param text the text
+   * @param count the number of substrings
+   * @param length the length of each substring
+   * @return the substrings
+   * @throws IllegalArgumentException if the text is shorter than length
+   */
+  static String[] substrings(String text, int count, int length) {
+    if (text.length() < length) {
+      throw new IllegalArgumentException("The text is shorter than " + length);
+    }
+
+    Random   random = new Random(SEED);
+    String[] keys   = new String[count];
+
+    for (int i = 0; i < count; i++) {
+      int offset = random.nextInt(text.length() - length + 1);
+      keys[i] = text.substring(offset, offset + length);
+    }
+
+    return keys;
+  }
+
+  /**
+   * Returns the distinct words of the text, lower-cased, in the order of their
+   * first occurrence. A word is a maximal run of ASCII letters.
+   *
+   * @param text the text
+   * @return the distinct words of text
+   */
+  static String[] words(String text) {
+    Set<String> words = new LinkedHashSet<String>();
+
+    for (String word : text.split("[^A-Za-z]+")) {
+      if (!word.isEmpty()) {
+        words.add(word.toLowerCase());
+      }
+    }
+
+    return words.toArray(new String[0]);
+  }
+}
@@ -0,0 +1,90 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the batch search of SuffixArrayOptimized.ranges() against loops
+ * over rank() and range(), for batches of keys of increasing size:
+ *   - rankLoop: one rank() per key, which only finds the start of the range;
+ *   - rangeLoop: one range() per key, the same result as ranges();
+ *   - ranges: the shared narrowing search over the sorted keys;
+ *   - rangesParallel: the same on 4 threads.
+ *
+ * The keys are substrings of the text, so each one matches a long prefix of
+ * the suffixes visited by the searches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuffixArrayBatchBenchmark {
+
+  /**
+   * Length of the keys.
+   */
+  private static final int KEY_LENGTH = 16;
+
+  @Param({ "brave_new_world.txt" })
+  public String corpus;
+
+  @Param({ "1000", "10000", "100000" })
+  public int batch;
+
+  private SuffixArrayOptimized suffixes;
+  private String[] keys;
+
+  @Setup
+  public void setUp() throws IOException {
+    String text = Corpora.read(corpus);
+
+    suffixes = new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+    keys     = Corpora.substrings(text, batch, KEY_LENGTH);
+  }
+
+  @Benchmark
+  public long rankLoop() {
+    long sum = 0;
+
+    for (String key : keys) {
+      sum += suffixes.rank(key);
+    }
+
+    return sum;
+  }
+
+  @Benchmark
+  public RankRange[] rangeLoop() {
+    RankRange[] ranges = new RankRange[keys.length];
+
+    for (int i = 0; i < keys.length; i++) {
+      ranges[i] = suffixes.range(keys[i]);
+    }
+
+    return ranges;
+  }
+
+  @Benchmark
+  public RankRange[] ranges() {
+    return suffixes.ranges(keys);
+  }
+
+  @Benchmark
+  public RankRange[] rangesParallel() {
+    return suffixes.ranges(keys, 4);
+  }
+}
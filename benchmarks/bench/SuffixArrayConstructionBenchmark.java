@@ -0,0 +1,67 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the construction of the suffix array of each corpus of the data
+ * directory: SuffixArray, which sorts an array of Suffix objects, against
+ * SuffixArrayOptimized with each of its sort algorithms, and with the
+ * algorithm chosen by SuffixIndexFactory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuffixArrayConstructionBenchmark {
+
+  @Param({ "abra.txt", "peter_piper.txt", "tiny_tale.txt", "words.txt",
+           "words_with_typos.txt", "the_doors_of_perception.txt", "brave_new_world.txt" })
+  public String corpus;
+
+  private String text;
+
+  @Setup
+  public void setUp() throws IOException {
+    text = Corpora.read(corpus);
+  }
+
+  @Benchmark
+  public SuffixArray suffixArray() {
+    return new SuffixArray(text);
+  }
+
+  @Benchmark
+  public SuffixArrayOptimized radixQuicksort() {
+    return new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.RADIX_QUICKSORT);
+  }
+
+  @Benchmark
+  public SuffixArrayOptimized inducedSorting() {
+    return new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+  }
+
+  @Benchmark
+  public SuffixArrayOptimized prefixDoubling() {
+    return new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.PREFIX_DOUBLING);
+  }
+
+  @Benchmark
+  public SuffixIndex factory() {
+    return SuffixIndexFactory.create(text);
+  }
+}
@@ -0,0 +1,83 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a scan of longestCommonPreffix() over the whole suffix array, as
+ * done by the repeat analytics: SuffixArray and SuffixArrayOptimized compare
+ * the characters of adjacent suffixes unless their LCP array was computed at
+ * construction time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuffixArrayLcpBenchmark {
+
+  @Param({ "the_doors_of_perception.txt", "brave_new_world.txt" })
+  public String corpus;
+
+  private SuffixArray suffixArray;
+  private SuffixArray suffixArrayWithLcp;
+  private SuffixArrayOptimized optimized;
+  private SuffixArrayOptimized optimizedWithLcp;
+
+  @Setup
+  public void setUp() throws IOException {
+    String text = Corpora.read(corpus);
+
+    suffixArray        = new SuffixArray(text);
+    suffixArrayWithLcp = new SuffixArray(text, true);
+    optimized          = new SuffixArrayOptimized(text);
+    optimizedWithLcp   = new SuffixArrayOptimized(
+      text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+  }
+
+  /**
+   * Returns the sum of the LCP array of the specified suffix array.
+   */
+  private static long scan(SuffixIndex index) {
+    long sum = 0;
+
+    for (int i = 1; i < index.length(); i++) {
+      sum += index.longestCommonPreffix(i);
+    }
+
+    return sum;
+  }
+
+  @Benchmark
+  public long suffixArray() {
+    return scan(suffixArray);
+  }
+
+  @Benchmark
+  public long suffixArrayWithLcp() {
+    return scan(suffixArrayWithLcp);
+  }
+
+  @Benchmark
+  public long optimized() {
+    return scan(optimized);
+  }
+
+  @Benchmark
+  public long optimizedWithLcp() {
+    return scan(optimizedWithLcp);
+  }
+}
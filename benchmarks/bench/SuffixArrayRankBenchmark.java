@@ -0,0 +1,81 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of rank() by key length, on SuffixArray and on
+ * SuffixArrayOptimized without and with the LCP array (which lets rank() skip
+ * the characters that the key is known to share with the suffixes).
+ *
+ * The keys are substrings of the text, so each one matches a long prefix of
+ * the suffixes visited by the binary search. Each invocation ranks the next
+ * of KEYS keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuffixArrayRankBenchmark {
+
+  /**
+   * Number of distinct keys queried (a power of two).
+   */
+  private static final int KEYS = 1024;
+
+  @Param({ "the_doors_of_perception.txt", "brave_new_world.txt" })
+  public String corpus;
+
+  @Param({ "1", "4", "16", "64", "256" })
+  public int keyLength;
+
+  private SuffixArray suffixArray;
+  private SuffixArrayOptimized optimized;
+  private SuffixArrayOptimized optimizedWithLcp;
+  private String[] keys;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    String text = Corpora.read(corpus);
+
+    suffixArray      = new SuffixArray(text);
+    optimized        = new SuffixArrayOptimized(text);
+    optimizedWithLcp = new SuffixArrayOptimized(
+      text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+    keys             = Corpora.substrings(text, KEYS, keyLength);
+  }
+
+  private String nextKey() {
+    return keys[next++ & (KEYS - 1)];
+  }
+
+  @Benchmark
+  public int suffixArray() {
+    return suffixArray.rank(nextKey());
+  }
+
+  @Benchmark
+  public int optimized() {
+    return optimized.rank(nextKey());
+  }
+
+  @Benchmark
+  public int optimizedWithLcp() {
+    return optimizedWithLcp.rank(nextKey());
+  }
+}
@@ -0,0 +1,89 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the construction of SuffixArrayOptimized with each of its sort
+ * algorithms on synthetic texts of increasing length (see CorpusGenerator):
+ *   - random: uniform text over 26 letters;
+ *   - run: copies of a single character, the worst case of the radix sort;
+ *   - fibonacci and thueMorse: long repeats at every scale;
+ *   - dna: a 4-letter alphabet with mutated copies of long segments;
+ *   - zipf: words of a 10000-word dictionary drawn with Zipf's law.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuffixArrayScalingBenchmark {
+
+  @Param({ "random", "run", "fibonacci", "thueMorse", "dna", "zipf" })
+  public String kind;
+
+  @Param({ "65536", "1048576" })
+  public int length;
+
+  private String text;
+
+  @Setup
+  public void setUp() {
+    CorpusGenerator generator = new CorpusGenerator(Corpora.SEED);
+
+    switch (kind) {
+      case "random":
+        text = generator.random(length, CorpusGenerator.LETTERS);
+        break;
+      case "run":
+        text = CorpusGenerator.run(length, 'a');
+        break;
+      case "fibonacci":
+        text = CorpusGenerator.fibonacci(length);
+        break;
+      case "thueMorse":
+        text = CorpusGenerator.thueMorse(length);
+        break;
+      case "dna":
+        text = generator.dna(length);
+        break;
+      case "zipf":
+        text = generator.text(generator.dictionary(10000), length, 1.0);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown corpus " + kind);
+    }
+  }
+
+  @Benchmark
+  public SuffixArrayOptimized radixQuicksort() {
+    return new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.RADIX_QUICKSORT);
+  }
+
+  @Benchmark
+  public SuffixArrayOptimized inducedSorting() {
+    return new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+  }
+
+  @Benchmark
+  public SuffixArrayOptimized prefixDoubling() {
+    return new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.PREFIX_DOUBLING);
+  }
+
+  @Benchmark
+  public SuffixIndex factory() {
+    return SuffixIndexFactory.create(text);
+  }
+}
@@ -0,0 +1,114 @@
+package bench;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures TrieST on the dictionary of the distinct words of a corpus:
+ *   - put: building the trie of the whole dictionary;
+ *   - get: looking up every word of the dictionary;
+ *   - keysWithPrefix: collecting the words that start with the next of
+ *     QUERIES prefixes of PREFIX_LENGTH letters;
+ *   - wildKeys: collecting the words that match the next of QUERIES words
+ *     with one letter replaced by the '_' wildcard.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrieSTBenchmark {
+
+  /**
+   * Number of distinct prefixes and patterns queried (a power of two).
+   */
+  private static final int QUERIES = 256;
+
+  /**
+   * Length of the prefixes queried by keysWithPrefix().
+   */
+  private static final int PREFIX_LENGTH = 2;
+
+  @Param({ "the_doors_of_perception.txt", "brave_new_world.txt" })
+  public String corpus;
+
+  private String[] words;
+  private TrieST<Integer> trie;
+  private String[] prefixes;
+  private String[] patterns;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    words    = Corpora.words(Corpora.read(corpus));
+    trie     = put();
+    prefixes = new String[QUERIES];
+    patterns = new String[QUERIES];
+
+    Random random = new Random(Corpora.SEED);
+    for (int i = 0; i < QUERIES; i++) {
+      String word = words[random.nextInt(words.length)];
+      prefixes[i] = word.substring(0, Math.min(PREFIX_LENGTH, word.length()));
+
+      char[] pattern = word.toCharArray();
+      pattern[random.nextInt(pattern.length)] = '_';
+      patterns[i] = new String(pattern);
+    }
+  }
+
+  @Benchmark
+  public TrieST<Integer> put() {
+    TrieST<Integer> trie = new TrieST<Integer>();
+
+    for (int i = 0; i < words.length; i++) {
+      trie.put(words[i], i);
+    }
+
+    return trie;
+  }
+
+  @Benchmark
+  public long get() {
+    long sum = 0;
+
+    for (String word : words) {
+      sum += trie.get(word);
+    }
+
+    return sum;
+  }
+
+  @Benchmark
+  public int keysWithPrefix() {
+    return count(trie.keysWithPrefix(prefixes[next++ & (QUERIES - 1)]));
+  }
+
+  @Benchmark
+  public int wildKeys() {
+    return count(trie.wildKeys(patterns[next++ & (QUERIES - 1)]));
+  }
+
+  private static int count(Iterable<String> keys) {
+    int count = 0;
+
+    for (String key : keys) {
+      count++;
+    }
+
+    return count;
+  }
+}
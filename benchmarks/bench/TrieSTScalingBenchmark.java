@@ -0,0 +1,78 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures TrieST on synthetic dictionaries of increasing size (see
+ * CorpusGenerator.dictionary()):
+ *   - put: building the trie of the whole dictionary;
+ *   - get: looking up QUERIES words drawn with Zipf's law, so that the
+ *     frequent words are looked up most, as in natural language.
+ *
+ * Every distinct prefix takes a 256-way node, about 1 KB, so a dictionary of
+ * millions of words needs a few GB of heap, e.g.
+ * -Djmh.args="-p size=1000000 -jvmArgs -Xmx8g TrieSTScaling".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrieSTScalingBenchmark {
+
+  /**
+   * Number of words looked up by get().
+   */
+  private static final int QUERIES = 100000;
+
+  @Param({ "10000", "100000" })
+  public int size;
+
+  private String[] words;
+  private String[] queries;
+  private TrieST<Integer> trie;
+
+  @Setup
+  public void setUp() {
+    CorpusGenerator generator = new CorpusGenerator(Corpora.SEED);
+
+    words   = generator.dictionary(size);
+    queries = generator.zipf(words, QUERIES, 1.0);
+    trie    = put();
+  }
+
+  @Benchmark
+  public TrieST<Integer> put() {
+    TrieST<Integer> trie = new TrieST<Integer>();
+
+    for (int i = 0; i < words.length; i++) {
+      trie.put(words[i], i);
+    }
+
+    return trie;
+  }
+
+  @Benchmark
+  public long get() {
+    long sum = 0;
+
+    for (String query : queries) {
+      sum += trie.get(query);
+    }
+
+    return sum;
+  }
+}
@@ -0,0 +1,118 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Measures the throughput of SuffixArrayOptimized.ranges() on
+ * brave_new_world.txt, against a loop that calls range() for every key.
+ *
+ * The keys are random substrings of the text, so every one of them occurs at
+ * least once. The table shows the average time per key for batches of
+ * increasing size.
+ */
+public class BatchRankBenchmark {
+
+  /**
+   * Number of timed runs per batch size (the best one is reported).
+   */
+  private static final int RUNS = 5;
+
+  /**
+   * Number of threads of the parallel batches.
+   */
+  private static final int THREADS = 4;
+
+  /**
+   * Reads the contents of the specified file and returns them as a string.
+   *
+   * @param filePath the path to the input file
+   */
+  private static String readFileAsString(String filePath) {
+    File f = new File(filePath);
+    BufferedReader reader = null;
+    StringBuilder text = new StringBuilder();
+    String line = null;
+
+    try {
+      reader = new BufferedReader(new FileReader(f));
+      while ((line = reader.readLine()) != null) {
+        text.append(line);
+      }
+    } catch (FileNotFoundException e) {
+      e.printStackTrace();
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      try {
+        if (reader != null) {
+          reader.close();
+        }
+      } catch (IOException e) {
+      }
+    }
+
+    return text.toString();
+  }
+
+  public static void main(String[] args) {
+    String text = readFileAsString("./data/brave_new_world.txt");
+
+    SuffixArrayOptimized sa =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+    System.out.println("Text length: " + text.length());
+    System.out.println();
+    System.out.println("keys		range() loop (ns)	ranges() (ns)	ranges(" + THREADS + ") (ns)");
+    System.out.println("------------------------------------------------------------------------");
+
+    long checksum = 0;
+    int[] batchSizes = { 1000, 10000, 100000 };
+    for (int batchSize : batchSizes) {
+      Random random = new Random(batchSize);
+      String[] keys = new String[batchSize];
+      for (int q = 0; q < batchSize; q++) {
+        int from = random.nextInt(text.length() - 20);
+        keys[q] = text.substring(from, from + 5 + random.nextInt(16));
+      }
+
+      RankRange[] batch = sa.ranges(keys);
+      for (int q = 0; q < batchSize; q++) {
+        if (!batch[q].equals(sa.range(keys[q]))) {
+          throw new IllegalStateException("ranges() mismatch for: " + keys[q]);
+        }
+      }
+
+      // Run every method several times and keep the best run, to let the JIT
+      // compile the code first.
+      long loop = Long.MAX_VALUE, sequential = Long.MAX_VALUE, parallel = Long.MAX_VALUE;
+      for (int run = 0; run < RUNS; run++) {
+        long start = System.nanoTime();
+        for (String key : keys) {
+          checksum += sa.range(key).size();
+        }
+        loop = Math.min(loop, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (RankRange range : sa.ranges(keys)) {
+          checksum += range.size();
+        }
+        sequential = Math.min(sequential, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (RankRange range : sa.ranges(keys, THREADS)) {
+          checksum += range.size();
+        }
+        parallel = Math.min(parallel, System.nanoTime() - start);
+      }
+
+      System.out.printf("%d\t\t%d\t\t\t%d\t\t%d\n", batchSize,
+                        loop / batchSize, sequential / batchSize, parallel / batchSize);
+    }
+
+    System.out.println();
+    System.out.println("(checksum " + checksum + ")");
+  }
+}
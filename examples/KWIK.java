@@ -54,15 +54,13 @@ public class KWIK {
     // query string
     String query = "world";
 
-    int length = text.length();
-
     // build suffix array
-    SuffixArray sa = new SuffixArray(text);
+    SuffixArrayOptimized sa =
+      SuffixIndexFactory.createOptimized(text, SuffixIndexFactory.Strategy.AUTO, false);
 
-    for (int i = sa.rank(query); i < length && sa.selectAsString(i).startsWith(query); i++) {
-      int from = Math.max(0, sa.indexOf(i) - context);
-      int to   = Math.min(length-1, from + query.length() + 2*context);
-      System.out.println(text.substring(from, to));
-    }
+    // The windows are views over the text of the suffix array, produced one
+    // at a time in text order; only println() copies their characters.
+    KeywordInContext kwic = new KeywordInContext(sa, context);
+    kwic.windows(query, KeywordInContext.Order.POSITION).forEach(System.out::println);
   }
 }
@@ -0,0 +1,120 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Measures the memory/latency trade-off of the sampled suffix array of
+ * FMIndex on brave_new_world.txt.
+ *
+ * For each sample rate k, the FM-index keeps one offset of the suffix array
+ * (and one rank of its inverse) out of k, and recovers the others with up to
+ * k - 1 LF-mapping steps. The table shows the memory taken by the samples and
+ * the average time of indexOf() at random ranks, against the int[] index of
+ * SuffixArrayOptimized (4 bytes per character, one array access per lookup).
+ */
+public class LocateBenchmark {
+
+  /**
+   * Number of indexOf() calls per sample rate.
+   */
+  private static final int QUERIES = 200000;
+
+  /**
+   * Number of timed runs per sample rate (the best one is reported).
+   */
+  private static final int RUNS = 5;
+
+  /**
+   * Reads the contents of the specified file and returns them as a string.
+   *
+   * @param filePath the path to the input file
+   */
+  private static String readFileAsString(String filePath) {
+    File f = new File(filePath);
+    BufferedReader reader = null;
+    StringBuilder text = new StringBuilder();
+    String line = null;
+
+    try {
+      reader = new BufferedReader(new FileReader(f));
+      while ((line = reader.readLine()) != null) {
+        text.append(line);
+      }
+    } catch (FileNotFoundException e) {
+      e.printStackTrace();
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      try {
+        if (reader != null) {
+          reader.close();
+        }
+      } catch (IOException e) {
+      }
+    }
+
+    return text.toString();
+  }
+
+  public static void main(String[] args) {
+    String text = readFileAsString("./data/brave_new_world.txt");
+    int n = text.length();
+
+    SuffixArrayOptimized sa =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+
+    Random random = new Random(42);
+    int[] ranks = new int[QUERIES];
+    for (int q = 0; q < QUERIES; q++) {
+      ranks[q] = random.nextInt(n);
+    }
+
+    System.out.println("Text length: " + n);
+    System.out.println();
+    System.out.println("index\t\t\tmemory (bytes)\tindexOf (ns)");
+    System.out.println("------------------------------------------------------");
+
+    long checksum = 0;
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      for (int rank : ranks) {
+        checksum += sa.indexOf(rank);
+      }
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    System.out.printf("int[] index\t\t%d\t\t%d\n", 4L * n, best / QUERIES);
+
+    int[] rates = { 1, 2, 4, 8, 16, 32, 64 };
+    for (int rate : rates) {
+      FMIndex fm = new FMIndex(sa, rate);
+
+      for (int rank : ranks) {
+        if (fm.indexOf(rank) != sa.indexOf(rank)) {
+          throw new IllegalStateException("indexOf() mismatch at rank " + rank);
+        }
+      }
+
+      // Suffix array and inverse suffix array samples, plus one bit per rank
+      // for the marks.
+      long memory = 8L * ((n + rate - 1) / rate) + n / 8;
+
+      best = Long.MAX_VALUE;
+      for (int run = 0; run < RUNS; run++) {
+        long start = System.nanoTime();
+        for (int rank : ranks) {
+          checksum += fm.indexOf(rank);
+        }
+        best = Math.min(best, System.nanoTime() - start);
+      }
+
+      System.out.printf("FMIndex (k = %d)\t%d\t\t%d\n", rate, memory, best / QUERIES);
+    }
+
+    System.out.println();
+    System.out.println("(checksum " + checksum + ")");
+  }
+}
@@ -48,36 +48,17 @@ public class LongestCommonSubstring {
    * Returns the longest common string of the two specified strings.
    */
   private static String lcs(String s, String t) {
-    int sLength = s.length();
+    // Each suffix ends at the end of its own document, so a common prefix of
+    // two suffixes never crosses from s into t.
+    GeneralizedSuffixArray suffixes =
+      new GeneralizedSuffixArray(new String[] { s, t }, true);
 
-    String text = s + t;
-    int length = text.length();
-
-    SuffixArray suffixes = new SuffixArray(text);
-
-    // Search for longest common substring
-    String lcs = "";
-    for (int i = 1; i < length; i++) {
-
-      // Adjacent suffixes from first string
-      if (suffixes.indexOf(i) < sLength && suffixes.indexOf(i-1) < sLength) {
-        continue;
-      }
-
-      // Adjacent suffixes from second string
-      if (suffixes.indexOf(i) > sLength && suffixes.indexOf(i-1) > sLength) {
-        continue;
-      }
-
-      // Are adjancent suffixes longer than common substring?
-      int _length = suffixes.longestCommonPreffix(i);
-      if (_length > lcs.length()) {
-        int index = suffixes.indexOf(i);
-        lcs = text.substring(index, index + _length);
-      }
+    Repeat lcs = suffixes.longestCommonSubstring(2);
+    if (lcs == null) {
+      return "";
     }
 
-    return lcs;
+    return (s + t).substring(lcs.offset(), lcs.offset() + lcs.length());
   }
 
   public static void main(String[] args) {
@@ -5,8 +5,9 @@ import java.util.Scanner;
 /**
  * This class is an example of how to find the longest repeated substring.
  *
- * Using this example for a sequence with millions of characters would require
- * trillions of longestCommonPreffix() calls, which is unfeasible.
+ * The suffix array is built together with its LCP array, so finding the
+ * longest repeated substring takes linear time, even for a sequence with
+ * millions of characters.
  */
 public class LongestRepeatedSubstring {
   public static void main(String[] args) {
@@ -31,16 +32,13 @@ public class LongestRepeatedSubstring {
       }
     }
 
-    int length = text.length();
-    SuffixArray suffixes = new SuffixArray(text.toString());
-    String lrs = "";
+    SuffixArrayOptimized suffixes =
+      SuffixIndexFactory.createOptimized(text.toString(), SuffixIndexFactory.Strategy.AUTO, true);
 
-    for (int i = 1; i < length; i++) {
-      int _length = suffixes.longestCommonPreffix(i);
-      if (_length > lrs.length()) {
-        lrs = text.substring(suffixes.indexOf(i), suffixes.indexOf(i) + _length);
-      }
-    }
+    // The repeat only holds its offset and length, so it is copied once here.
+    Repeat repeat = suffixes.longestRepeatedSubstring();
+    String lrs = (repeat == null) ? ""
+               : text.substring(repeat.offset(), repeat.offset() + repeat.length());
 
     System.out.println("LRS: '" + lrs + "'");
   }
@@ -0,0 +1,160 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Measures the cost of rank() queries on brave_new_world.txt.
+ *
+ * Three binary searches are compared for keys of increasing length, all of
+ * them taken from the text itself (so that each one matches a long prefix of
+ * the suffixes it visits):
+ *   - plain: restarts the comparison from the first character at every step
+ *     (this is how rank() used to work);
+ *   - mlr: rank() without the LCP array, which skips min(l, r) characters;
+ *   - llcp/rlcp: rank() with the LCP array, which skips max(l, r) characters.
+ */
+public class RankBenchmark {
+
+  /**
+   * Number of queries per key length.
+   */
+  private static final int QUERIES = 20000;
+
+  /**
+   * Number of timed runs per key length (the best one is reported).
+   */
+  private static final int RUNS = 5;
+
+  /**
+   * Reads the contents of the specified file and returns them as a string.
+   *
+   * @param filePath the path to the input file
+   */
+  private static String readFileAsString(String filePath) {
+    File f = new File(filePath);
+    BufferedReader reader = null;
+    StringBuilder text = new StringBuilder();
+    String line = null;
+
+    try {
+      reader = new BufferedReader(new FileReader(f));
+      while ((line = reader.readLine()) != null) {
+        text.append(line);
+      }
+    } catch (FileNotFoundException e) {
+      e.printStackTrace();
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      try {
+        if (reader != null) {
+          reader.close();
+        }
+      } catch (IOException e) {
+      }
+    }
+
+    return text.toString();
+  }
+
+  /**
+   * Binary search that compares the key against each suffix from scratch.
+   */
+  private static int plainRank(SuffixArrayOptimized sa, String text, String key) {
+    int lo = 0;
+    int hi = text.length() - 1;
+
+    while (lo <= hi) {
+      int mid = lo + (hi - lo) / 2;
+      int i   = sa.indexOf(mid);
+      int j   = 0;
+
+      while (j < key.length() && i + j < text.length()
+             && key.charAt(j) == text.charAt(i + j)) {
+        j++;
+      }
+
+      int cmp;
+      if (j < key.length() && i + j < text.length()) {
+        cmp = key.charAt(j) - text.charAt(i + j);
+      } else {
+        cmp = (i + j < text.length()) ? -1 : key.length() - j;
+      }
+
+      if (cmp < 0) {
+        hi = mid - 1;
+      } else if (cmp > 0) {
+        lo = mid + 1;
+      } else {
+        return mid;
+      }
+    }
+
+    return lo;
+  }
+
+  public static void main(String[] args) {
+    String text = readFileAsString("./data/brave_new_world.txt");
+
+    SuffixArrayOptimized sa =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+    SuffixArrayOptimized saLcp =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+    System.out.println("Text length: " + text.length());
+    System.out.println();
+    System.out.println("key length\tplain (ns)\tmlr (ns)\tllcp/rlcp (ns)");
+    System.out.println("--------------------------------------------------------------");
+
+    long checksum = 0;
+    int[] keyLengths = { 10, 100, 1000, 10000 };
+    for (int keyLength : keyLengths) {
+      Random random = new Random(keyLength);
+      String[] keys = new String[QUERIES];
+      for (int q = 0; q < QUERIES; q++) {
+        int from = random.nextInt(text.length() - keyLength);
+        keys[q] = text.substring(from, from + keyLength);
+      }
+
+      for (String key : keys) {
+        int expected = plainRank(sa, text, key);
+        if (sa.rank(key) != expected || saLcp.rank(key) != expected) {
+          throw new IllegalStateException("rank() mismatch for: " + key);
+        }
+      }
+
+      // Run every search several times and keep the best run, to let the JIT
+      // compile the code first. The sum of the ranks is kept so that the
+      // searches are not optimized away.
+      long plain = Long.MAX_VALUE, mlr = Long.MAX_VALUE, lcp = Long.MAX_VALUE;
+      for (int run = 0; run < RUNS; run++) {
+        long start = System.nanoTime();
+        for (String key : keys) {
+          checksum += plainRank(sa, text, key);
+        }
+        plain = Math.min(plain, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (String key : keys) {
+          checksum += sa.rank(key);
+        }
+        mlr = Math.min(mlr, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (String key : keys) {
+          checksum += saLcp.rank(key);
+        }
+        lcp = Math.min(lcp, System.nanoTime() - start);
+      }
+
+      System.out.printf("%d\t\t%d\t\t%d\t\t%d\n", keyLength,
+                        plain / QUERIES, mlr / QUERIES, lcp / QUERIES);
+    }
+
+    System.out.println();
+    System.out.println("(checksum " + checksum + ")");
+  }
+}
@@ -14,8 +14,8 @@ public class SuffixArrayExample {
       reader = new BufferedReader(new FileReader(f));
       String text = reader.readLine();
 
-      SuffixArrayOptimized suffix1 = new SuffixArrayOptimized(text);
-      SuffixArray suffix2 = new SuffixArray(text);
+      SuffixIndex suffix1 = SuffixIndexFactory.create(text);
+      SuffixIndex suffix2 = new SuffixArray(text);
 
       boolean check = true;
       for (int i = 0; check && i < text.length(); i++) {
@@ -0,0 +1,358 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The CorpusGenerator class generates synthetic texts and dictionaries, for
+ * the scaling and worst-case workloads that the corpora of the data directory
+ * are too small or too regular to exercise.
+ *
+ * It supports the following texts: random() text over an alphabet, run() of a
+ * single character and runs() of random characters, the fibonacci() and
+ * thueMorse() words, and dna(), a DNA-like sequence with mutated copies of
+ * its own segments. It also generates dictionary() of distinct words, and
+ * zipf() sequences and text() of words whose frequencies follow Zipf's law,
+ * as in natural language.
+ *
+ * The output is a function of the seed and of the sequence of calls: two
+ * generators created with the same seed return the same corpora when the
+ * same methods are called in the same order. The run(), fibonacci() and
+ * thueMorse() texts do not depend on the seed.
+ *
+ * The N copies of a single character make the 3-way radix quicksort of
+ * SuffixArrayOptimized fall back on prefix doubling for almost all the
+ * suffixes; the Fibonacci and Thue-Morse words have many long repeats at
+ * every scale; and large dictionaries make TrieST allocate one 256-way node
+ * per distinct prefix.
+ */
+public final class CorpusGenerator {
+
+  /**
+   * The bases of the DNA-like sequences.
+   */
+  public static final String DNA = "ACGT";
+
+  /**
+   * The letters of the dictionary words.
+   */
+  public static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+  /**
+   * Bounds of the length of the dictionary words.
+   */
+  private static final int MIN_WORD = 2;
+  private static final int MAX_WORD = 12;
+
+  /**
+   * Probability that the next segment of a DNA-like sequence is a copy of an
+   * earlier one, bounds of the length of the segments, and probability that
+   * a base of a copy is mutated.
+   */
+  private static final double DNA_REPEAT = 0.3;
+  private static final int DNA_MIN_SEGMENT = 20;
+  private static final int DNA_MAX_SEGMENT = 1000;
+  private static final double DNA_MUTATION = 0.01;
+
+  private final Random random;
+
+  /**
+   * Creates a generator with the specified seed.
+   *
+   * @param seed the seed of the pseudo-random choices
+   */
+  public CorpusGenerator(long seed) {
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Returns a text of the specified length whose characters are drawn
+   * uniformly and independently from the alphabet.
+   *
+   * @param length the length of the text
+   * @param alphabet the characters of the text
+   * @return the random text
+   * @throws IllegalArgumentException if length is negative or the alphabet is
+   *         empty
+   */
+  public String random(int length, String alphabet) {
+    checkLength(length);
+    checkAlphabet(alphabet);
+
+    char[] text = new char[length];
+    for (int i = 0; i < length; i++) {
+      text[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+    }
+
+    return new String(text);
+  }
+
+  /**
+   * Returns length copies of the specified character.
+   *
+   * @param length the length of the text
+   * @param ch the character
+   * @return the run of ch
+   * @throws IllegalArgumentException if length is negative
+   */
+  public static String run(int length, char ch) {
+    checkLength(length);
+
+    char[] text = new char[length];
+    Arrays.fill(text, ch);
+
+    return new String(text);
+  }
+
+  /**
+   * Returns a text of the specified length made of runs of a character drawn
+   * from the alphabet, of geometrically distributed length with the
+   * specified mean.
+   *
+   * @param length the length of the text
+   * @param alphabet the characters of the text
+   * @param meanRun the mean length of the runs
+   * @return the text of runs
+   * @throws IllegalArgumentException if length is negative, the alphabet is
+   *         empty or meanRun is less than 1
+   */
+  public String runs(int length, String alphabet, double meanRun) {
+    checkLength(length);
+    checkAlphabet(alphabet);
+    if (meanRun < 1) {
+      throw new IllegalArgumentException("Mean run length must be at least 1");
+    }
+
+    char[] text = new char[length];
+    char   ch   = alphabet.charAt(random.nextInt(alphabet.length()));
+
+    for (int i = 0; i < length; i++) {
+      if (random.nextDouble() < 1 / meanRun) {
+        ch = alphabet.charAt(random.nextInt(alphabet.length()));
+      }
+      text[i] = ch;
+    }
+
+    return new String(text);
+  }
+
+  /**
+   * Returns the prefix of the specified length of the Fibonacci word
+   * abaababaabaab..., the limit of the words s(k) = s(k-1) s(k-2), with
+   * s(0) = a and s(1) = ab.
+   *
+   * @param length the length of the text
+   * @return the prefix of the Fibonacci word
+   * @throws IllegalArgumentException if length is negative
+   */
+  public static String fibonacci(int length) {
+    checkLength(length);
+
+    // Each s(k) is a prefix of s(k+1), so the text is extended in place.
+    StringBuilder text     = new StringBuilder("ab");
+    int           previous = 1;
+
+    while (text.length() < length) {
+      int current = text.length();
+      text.append(text, 0, Math.min(previous, length - current));
+      previous = current;
+    }
+
+    text.setLength(length);
+    return text.toString();
+  }
+
+  /**
+   * Returns the prefix of the specified length of the Thue-Morse word
+   * abbabaabbaababba..., whose ith character is b if the binary expansion of
+   * i has an odd number of ones. It contains no overlapping repeats, but a
+   * square of every power of two length.
+   *
+   * @param length the length of the text
+   * @return the prefix of the Thue-Morse word
+   * @throws IllegalArgumentException if length is negative
+   */
+  public static String thueMorse(int length) {
+    checkLength(length);
+
+    char[] text = new char[length];
+    for (int i = 0; i < length; i++) {
+      text[i] = (Integer.bitCount(i) & 1) == 0 ? 'a' : 'b';
+    }
+
+    return new String(text);
+  }
+
+  /**
+   * Returns a DNA-like sequence of the specified length over the bases ACGT.
+   *
+   * The sequence is made of segments of DNA_MIN_SEGMENT to DNA_MAX_SEGMENT
+   * bases. With probability DNA_REPEAT, a segment is a copy of an earlier part
+   * of the sequence in which each base is mutated with probability
+   * DNA_MUTATION; otherwise, its bases are random. So, like a genome, the
+   * sequence has a small alphabet, and many long approximate repeats.
+   *
+   * @param length the length of the sequence
+   * @return the DNA-like sequence
+   * @throws IllegalArgumentException if length is negative
+   */
+  public String dna(int length) {
+    checkLength(length);
+
+    char[] text = new char[length];
+    int    n    = 0;
+
+    while (n < length) {
+      int segment = Math.min(length - n,
+        DNA_MIN_SEGMENT + random.nextInt(DNA_MAX_SEGMENT - DNA_MIN_SEGMENT + 1));
+
+      if (n >= segment && random.nextDouble() < DNA_REPEAT) {
+        int from = random.nextInt(n - segment + 1);
+
+        for (int i = 0; i < segment; i++) {
+          boolean mutated = random.nextDouble() < DNA_MUTATION;
+          text[n + i] = mutated ? DNA.charAt(random.nextInt(DNA.length())) : text[from + i];
+        }
+      } else {
+        for (int i = 0; i < segment; i++) {
+          text[n + i] = DNA.charAt(random.nextInt(DNA.length()));
+        }
+      }
+
+      n += segment;
+    }
+
+    return new String(text);
+  }
+
+  /**
+   * Returns the specified number of distinct words of MIN_WORD to MAX_WORD
+   * random lowercase letters, in the order they were generated.
+   *
+   * @param size the number of words
+   * @return the distinct words
+   * @throws IllegalArgumentException if size is negative
+   */
+  public String[] dictionary(int size) {
+    checkLength(size);
+
+    Set<String> seen  = new HashSet<String>();
+    String[]    words = new String[size];
+    char[]      word  = new char[MAX_WORD];
+
+    for (int i = 0; i < size; ) {
+      int length = MIN_WORD + random.nextInt(MAX_WORD - MIN_WORD + 1);
+      for (int j = 0; j < length; j++) {
+        word[j] = LETTERS.charAt(random.nextInt(LETTERS.length()));
+      }
+
+      String candidate = new String(word, 0, length);
+      if (seen.add(candidate)) {
+        words[i++] = candidate;
+      }
+    }
+
+    return words;
+  }
+
+  /**
+   * Returns count words drawn from the dictionary with Zipf's law: the kth
+   * word of the dictionary is drawn with probability proportional to
+   * 1 / k^exponent.
+   *
+   * @param dictionary the words, from the most to the least frequent
+   * @param count the number of words to draw
+   * @param exponent the exponent of the law (about 1 in natural language)
+   * @return the words drawn
+   * @throws IllegalArgumentException if the dictionary is empty, count is
+   *         negative or exponent is negative
+   */
+  public String[] zipf(String[] dictionary, int count, double exponent) {
+    checkLength(count);
+
+    double[] cumulative = cumulative(dictionary, exponent);
+    String[] words      = new String[count];
+
+    for (int i = 0; i < count; i++) {
+      words[i] = draw(dictionary, cumulative);
+    }
+
+    return words;
+  }
+
+  /**
+   * Returns a text of the specified length made of words drawn from the
+   * dictionary with Zipf's law (see zipf()), separated by spaces. The last
+   * word may be cut.
+   *
+   * @param dictionary the words, from the most to the least frequent
+   * @param length the length of the text
+   * @param exponent the exponent of the law
+   * @return the text
+   * @throws IllegalArgumentException if the dictionary is empty, length is
+   *         negative or exponent is negative
+   */
+  public String text(String[] dictionary, int length, double exponent) {
+    checkLength(length);
+
+    double[]      cumulative = cumulative(dictionary, exponent);
+    StringBuilder text       = new StringBuilder(length + MAX_WORD);
+
+    while (text.length() < length) {
+      if (text.length() > 0) {
+        text.append(' ');
+      }
+      text.append(draw(dictionary, cumulative));
+    }
+
+    text.setLength(length);
+    return text.toString();
+  }
+
+  /**
+   * Returns the cumulative weights of the words of the dictionary under
+   * Zipf's law: cumulative[k] is the sum of 1 / (i + 1)^exponent for i in
+   * 0..k.
+   */
+  private static double[] cumulative(String[] dictionary, double exponent) {
+    if (dictionary.length == 0) {
+      throw new IllegalArgumentException("Dictionary must not be empty");
+    }
+    if (exponent < 0) {
+      throw new IllegalArgumentException("Exponent must not be negative");
+    }
+
+    double[] cumulative = new double[dictionary.length];
+    double   sum        = 0;
+
+    for (int k = 0; k < dictionary.length; k++) {
+      sum += 1 / Math.pow(k + 1, exponent);
+      cumulative[k] = sum;
+    }
+
+    return cumulative;
+  }
+
+  /**
+   * Returns a word of the dictionary drawn with the specified cumulative
+   * weights.
+   */
+  private String draw(String[] dictionary, double[] cumulative) {
+    double x = random.nextDouble() * cumulative[cumulative.length - 1];
+    int    k = Arrays.binarySearch(cumulative, x);
+
+    return dictionary[Math.min(dictionary.length - 1, k >= 0 ? k : -k - 1)];
+  }
+
+  private static void checkLength(int length) {
+    if (length < 0) {
+      throw new IllegalArgumentException("Length must not be negative");
+    }
+  }
+
+  private static void checkAlphabet(String alphabet) {
+    if (alphabet.isEmpty()) {
+      throw new IllegalArgumentException("Alphabet must not be empty");
+    }
+  }
+}
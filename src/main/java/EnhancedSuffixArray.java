@@ -0,0 +1,568 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * The EnhancedSuffixArray class represents a suffix array augmented with the
+ * LCP array and a child table (Abouelhoda, Kurtz and Ohlebusch, "Replacing
+ * suffix trees with enhanced suffix arrays"), which together simulate a
+ * top-down traversal of the suffix tree of a string.
+ *
+ * It supports the following operations: computing the length() of the text,
+ * getting the indexOf() the ith smallest suffix, the range() of ranks of the
+ * suffixes that start with a key, the count() of its occurrences and their
+ * offsets, the longestMatch() of a key (its longest prefix that occurs in the
+ * text), enumerating the lcpIntervals() of the text, and finding the
+ * approximateOccurrences() of a key within a Hamming or edit distance.
+ *
+ * The suffixes of ranks i..j form an lcp-interval of value l if they all
+ * share a prefix of l characters, and the suffixes i - 1 and j + 1 do not. The
+ * lcp-intervals are the internal nodes of the suffix tree: the children of
+ * [i..j] are split at its l-indices, the ranks k in i+1..j with lcp[k] = l.
+ * The child table stores, in a single int per suffix, pointers to the first
+ * l-index of every interval (up and down values) and from each l-index to the
+ * next one of the same interval (next l-index values). This works because at
+ * most one of them is needed at each rank: up[k] is stored in child[k - 1],
+ * and down[k] is only stored when next[k] is undefined.
+ *
+ * Hence, the children of an interval are enumerated in constant time each,
+ * and search for a key of length M walks down from the root, comparing each
+ * character of the key once, and choosing among at most sigma children at
+ * each node, where sigma is the number of distinct characters. It takes time
+ * proportional to M sigma, instead of M + lg N for the binary search of
+ * SuffixArrayOptimized, which makes no difference in the number of character
+ * compares but avoids the lg N random accesses to the text.
+ *
+ * The index takes 14 bytes per character: the text, the suffix array, the LCP
+ * array and the child table, which is far less than a pointer-based suffix
+ * tree.
+ */
+public class EnhancedSuffixArray {
+
+  /**
+   * Distances between a key and a substring of the text.
+   */
+  public enum Distance {
+    /** Number of mismatched characters, between strings of the same length. */
+    HAMMING,
+    /** Number of substituted, inserted or deleted characters (Levenshtein). */
+    EDIT
+  }
+
+  /**
+   * The characters of the text.
+   */
+  private final char[] text;
+
+  /**
+   * Number of characters in the text.
+   */
+  private final int length;
+
+  /**
+   * index[i] is the offset of the ith smallest suffix.
+   */
+  private final int[] index;
+
+  /**
+   * lcp[i] is the length of the longest common prefix of the suffixes of
+   * ranks i - 1 and i, and lcp[0] = lcp[length] = -1.
+   */
+  private final int[] lcp;
+
+  /**
+   * The child table: up, down and next l-index values, as described above.
+   */
+  private final int[] child;
+
+  /**
+   * Builds the enhanced suffix array of the given text String.
+   *
+   * @param text the input String
+   */
+  public EnhancedSuffixArray(String text) {
+    this(new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true));
+  }
+
+  /**
+   * Builds the enhanced suffix array of the text of the given suffix array.
+   * The suffix array is only read during construction and can be discarded
+   * afterwards. It should have been built with the LCP array, or it is
+   * computed here by comparing the adjacent suffixes.
+   *
+   * @param suffixArray the suffix array of the text
+   */
+  public EnhancedSuffixArray(SuffixArrayOptimized suffixArray) {
+    this.length = suffixArray.length();
+    this.text   = new char[length];
+    this.index  = new int[length];
+    this.lcp    = new int[length + 1];
+    this.child  = new int[length];
+
+    for (int i = 0; i < length; i++) {
+      text[i]  = suffixArray.charAt(i);
+      index[i] = suffixArray.indexOf(i);
+    }
+
+    for (int i = 1; i < length; i++) {
+      lcp[i] = suffixArray.longestCommonPreffix(i);
+    }
+    lcp[0]      = -1;
+    lcp[length] = -1;
+
+    buildChildTable();
+  }
+
+  /**
+   * Fills the child table with two passes over the LCP array, each with a
+   * stack of ranks of non-decreasing lcp values.
+   */
+  private void buildChildTable() {
+    int[] stack = new int[length + 1];
+    int   top   = 0;
+
+    // Up and down values: when the interval that starts at the top of the
+    // stack is closed, its first l-index is the last rank popped.
+    stack[0] = 0;
+    for (int i = 1; i <= length; i++) {
+      int last = -1;
+
+      while (lcp[i] < lcp[stack[top]]) {
+        last = stack[top--];
+
+        if (lcp[i] <= lcp[stack[top]] && lcp[stack[top]] != lcp[last]) {
+          child[stack[top]] = last;
+        }
+      }
+
+      if (last != -1) {
+        child[i - 1] = last;
+      }
+
+      stack[++top] = i;
+    }
+
+    // Next l-index values, which take precedence over the down values.
+    top      = 0;
+    stack[0] = 0;
+    for (int i = 1; i < length; i++) {
+      while (lcp[i] < lcp[stack[top]]) {
+        top--;
+      }
+
+      if (lcp[i] == lcp[stack[top]]) {
+        child[stack[top--]] = i;
+      }
+
+      stack[++top] = i;
+    }
+  }
+
+  /**
+   * Returns the first l-index of the lcp-interval [i..j], with i < j.
+   */
+  private int firstIndex(int i, int j) {
+    int up = child[j];
+    return (i < up && up <= j) ? up : child[i];
+  }
+
+  /**
+   * Returns the next l-index of the interval after the l-index k, or -1 if k
+   * is the last one.
+   */
+  private int nextIndex(int k) {
+    int next = child[k];
+    return (next > k && lcp[next] == lcp[k]) ? next : -1;
+  }
+
+  /**
+   * Returns the length of the input text.
+   *
+   * @return the length of the input text
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Returns the index into the original string of the ith smallest suffix.
+   *
+   * @param i an integer between 0 and length - 1
+   * @return the index into the original string of the ith smallest suffix
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= i < length
+   */
+  public int indexOf(int i) {
+    if (i < 0 || i >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return index[i];
+  }
+
+  /**
+   * Returns the range of ranks of the suffixes that start with the specified
+   * key. If there is none, the range is empty and starts at the rank of the
+   * key, as in SuffixArrayOptimized.range(). Takes time proportional to M
+   * sigma.
+   *
+   * @param key the query string
+   * @return the range of ranks of the suffixes that start with key
+   */
+  public RankRange range(String key) {
+    int[] match = match(key);
+
+    if (match[2] == key.length()) {
+      return new RankRange(match[0], match[1]);
+    }
+
+    return new RankRange(match[3], match[3]);
+  }
+
+  /**
+   * Returns the number of occurrences of the specified key in the text.
+   *
+   * @param key the query string
+   * @return the number of occurrences of key in the text
+   */
+  public int count(String key) {
+    return range(key).size();
+  }
+
+  /**
+   * Returns the offsets of all the occurrences of the specified key in the
+   * text, in the order of their suffixes.
+   *
+   * @param key the query string
+   * @return a stream of the offsets of the occurrences of key in the text
+   */
+  public IntStream occurrences(String key) {
+    RankRange range = range(key);
+    return IntStream.range(range.from(), range.to()).map(i -> index[i]);
+  }
+
+  /**
+   * Returns the longest prefix of the specified key that occurs in the text,
+   * with the range of ranks of its occurrences. The prefix is empty if the
+   * first character of the key is not in the text, and then its range covers
+   * all the suffixes. Takes time proportional to M sigma.
+   *
+   * @param key the query string
+   * @return the longest prefix of key that occurs in the text
+   */
+  public Repeat longestMatch(String key) {
+    int[] match = match(key);
+    int   from  = match[0];
+
+    return new Repeat(from < length ? index[from] : 0, match[2],
+                      new RankRange(from, match[1]));
+  }
+
+  /**
+   * Walks down the virtual suffix tree along the specified key, and returns
+   * the range from..to of the last node reached, the number of characters of
+   * the key matched by all its suffixes, and the rank of the key.
+   */
+  private int[] match(String key) {
+    int m     = key.length();
+    int i     = 0;
+    int j     = length - 1;
+    int depth = 0;
+
+    while (i <= j) {
+      // A leaf matches up to the end of its suffix, an interval up to its
+      // lcp value.
+      int end = (i == j) ? length - index[i] : lcp[firstIndex(i, j)];
+      int offset = index[i];
+
+      for (; depth < end && depth < m; depth++) {
+        char ch = text[offset + depth];
+
+        if (key.charAt(depth) != ch) {
+          int rank = (key.charAt(depth) < ch) ? i : j + 1;
+          return new int[] { i, j + 1, depth, rank };
+        }
+      }
+
+      if (depth == m) {
+        return new int[] { i, j + 1, depth, i };
+      }
+
+      if (i == j) {
+        // The suffix is a proper prefix of the key.
+        return new int[] { i, j + 1, depth, j + 1 };
+      }
+
+      // Find the child whose suffixes continue with the next character. The
+      // first suffix of the first child may end at this depth, and then it
+      // is the only one in its child.
+      char next  = key.charAt(depth);
+      int  rank  = j + 1;
+      int  found = -1;
+
+      for (int lb = i, k = firstIndex(i, j); rank > j; lb = k, k = nextIndex(k)) {
+        int rb = (k == -1) ? j : k - 1;
+
+        if (index[lb] + depth < length) {
+          char ch = text[index[lb] + depth];
+
+          if (ch == next) {
+            found = lb;
+            j     = rb;
+            break;
+          }
+
+          if (ch > next) {
+            rank = lb;
+          }
+        }
+
+        if (k == -1) {
+          break;
+        }
+      }
+
+      if (found == -1) {
+        return new int[] { i, j + 1, depth, rank };
+      }
+
+      i = found;
+    }
+
+    return new int[] { 0, 0, 0, 0 };
+  }
+
+  /**
+   * Returns all the lcp-intervals of the text whose value is at least the
+   * specified length, each as the Repeat of its common prefix. The intervals
+   * are visited top-down with the child table, so that each one comes before
+   * its children, and the children of an interval are in the order of their
+   * ranks. Takes linear time, plus the time to build the returned list.
+   *
+   * @param minLength the minimum length of the common prefixes
+   * @return the lcp-intervals of value at least minLength, in preorder
+   * @throws IllegalArgumentException if minLength is negative
+   */
+  public List<Repeat> lcpIntervals(int minLength) {
+    if (minLength < 0) {
+      throw new IllegalArgumentException("Minimum length must not be negative");
+    }
+
+    List<Repeat> intervals = new ArrayList<Repeat>();
+    if (length < 2) {
+      return intervals;
+    }
+
+    // The stack of intervals left to visit, as pairs of ranks.
+    int[] stack = new int[2 * length];
+    int   top   = 0;
+
+    stack[top++] = 0;
+    stack[top++] = length - 1;
+
+    while (top > 0) {
+      int j = stack[--top];
+      int i = stack[--top];
+      int l = lcp[firstIndex(i, j)];
+
+      if (l >= minLength) {
+        intervals.add(new Repeat(index[i], l, new RankRange(i, j + 1)));
+      }
+
+      // Push the children that are intervals, last one first.
+      int mark = top;
+      for (int lb = i, k = firstIndex(i, j); lb <= j; ) {
+        int rb = (k == -1) ? j : k - 1;
+
+        if (lb < rb) {
+          stack[top++] = lb;
+          stack[top++] = rb;
+        }
+
+        if (k == -1) {
+          break;
+        }
+
+        lb = k;
+        k  = nextIndex(k);
+      }
+
+      reverse(stack, mark, top);
+    }
+
+    return intervals;
+  }
+
+  /**
+   * Returns the occurrences of the specified key in the text within the
+   * specified distance, one per offset, in text order.
+   *
+   * With the Hamming distance, an occurrence is a substring of the same
+   * length as the key with at most k mismatches. With the edit distance, it
+   * is the substring that starts at the offset with the fewest edits from the
+   * key (the shortest one on ties), if there are at most k.
+   *
+   * The search backtracks over the virtual suffix tree: it walks down every
+   * path from the root, one character at a time, keeping the number of
+   * mismatches (or the last column of the edit distance matrix between the
+   * key and the path), and abandons a path as soon as every way to extend it
+   * is more than k away. All the suffixes below a node share its path, so
+   * each distinct substring of the text is only examined once. The number of
+   * paths explored grows like (M sigma)^k, so this is fast for small k.
+   *
+   * @param key the query string
+   * @param k the maximum distance
+   * @param distance the distance between the key and the substrings
+   * @return the approximate occurrences of key, in text order
+   * @throws IllegalArgumentException if k is negative
+   */
+  public List<Match> approximateOccurrences(String key, int k, Distance distance) {
+    if (k < 0) {
+      throw new IllegalArgumentException("Distance must not be negative");
+    }
+
+    boolean edits = (distance == Distance.EDIT);
+    int m = key.length();
+
+    // columns[d] describes the path of depth d: for the Hamming distance,
+    // columns[d][0] is the number of mismatches, and for the edit distance,
+    // columns[d][q] is the distance between key[0..q) and the path.
+    int depth = edits ? m + k : m;
+    int[][] columns = new int[depth + 1][edits ? m + 1 : 1];
+    for (int q = 0; q <= m && edits; q++) {
+      columns[0][q] = q;
+    }
+
+    Map<Integer, Match> matches = new HashMap<Integer, Match>();
+
+    if (length > 0) {
+      if (!report(0, length - 1, 0, columns[0], key, k, edits, matches)) {
+        approximate(0, length - 1, 0, columns, key, k, edits, matches);
+      }
+    }
+
+    List<Match> sorted = new ArrayList<Match>(matches.values());
+    sorted.sort((a, b) -> Integer.compare(a.offset(), b.offset()));
+    return sorted;
+  }
+
+  /**
+   * Extends the path of the specified depth down the suffixes i..j, which
+   * share it, and then down each of their child intervals.
+   */
+  private void approximate(int i, int j, int depth, int[][] columns, String key, int k,
+                           boolean edits, Map<Integer, Match> matches) {
+    int end    = (i == j) ? length - index[i] : lcp[firstIndex(i, j)];
+    int limit  = columns.length - 1;
+    int offset = index[i];
+
+    for (; depth < end && depth < limit; depth++) {
+      char ch = text[offset + depth];
+
+      if (edits ? !editStep(columns[depth], columns[depth + 1], key, ch, depth + 1, k)
+                : !hammingStep(columns[depth], columns[depth + 1], key, ch, depth, k)) {
+        return;
+      }
+
+      if (report(i, j, depth + 1, columns[depth + 1], key, k, edits, matches)) {
+        return;
+      }
+    }
+
+    if (i == j || depth == limit) {
+      return;
+    }
+
+    for (int lb = i, next = firstIndex(i, j); ; lb = next, next = nextIndex(next)) {
+      approximate(lb, (next == -1) ? j : next - 1, depth, columns, key, k, edits, matches);
+
+      if (next == -1) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Computes the number of mismatches of the path of depth d + 1 that ends
+   * with ch, and returns false if it exceeds k.
+   */
+  private static boolean hammingStep(int[] previous, int[] column, String key, char ch,
+                                     int d, int k) {
+    column[0] = previous[0] + (key.charAt(d) == ch ? 0 : 1);
+    return column[0] <= k;
+  }
+
+  /**
+   * Computes the column of the edit distance matrix of the path of depth d
+   * that ends with ch, and returns false if all its entries exceed k (then no
+   * extension of the path can be within k of the key).
+   */
+  private static boolean editStep(int[] previous, int[] column, String key, char ch,
+                                  int d, int k) {
+    column[0] = d;
+    int min   = d;
+
+    for (int q = 1; q < column.length; q++) {
+      int cost  = (key.charAt(q - 1) == ch) ? 0 : 1;
+      column[q] = Math.min(previous[q - 1] + cost,
+                           Math.min(previous[q], column[q - 1]) + 1);
+      min       = Math.min(min, column[q]);
+    }
+
+    return min <= k;
+  }
+
+  /**
+   * Records the suffixes i..j as occurrences if the path of the specified
+   * depth is within k of the key, and returns true if no extension of the
+   * path can be any closer.
+   */
+  private boolean report(int i, int j, int depth, int[] column, String key, int k,
+                         boolean edits, Map<Integer, Match> matches) {
+    if (!edits) {
+      if (depth < key.length()) {
+        return false;
+      }
+
+      for (int r = i; r <= j; r++) {
+        matches.put(index[r], new Match(index[r], depth, column[0]));
+      }
+      return true;
+    }
+
+    int d = column[column.length - 1];
+    if (d > k) {
+      return false;
+    }
+
+    // Keep the first match of the smallest distance for each offset.
+    for (int r = i; r <= j; r++) {
+      Match match = matches.get(index[r]);
+      if (match == null || d < match.distance()) {
+        matches.put(index[r], new Match(index[r], depth, d));
+      }
+    }
+
+    // The minimum of the column never decreases as the path grows.
+    int min = d;
+    for (int value : column) {
+      min = Math.min(min, value);
+    }
+    return d == min;
+  }
+
+  /**
+   * Reverses the order of the pairs stack[from..to).
+   */
+  private static void reverse(int[] stack, int from, int to) {
+    for (int a = from, b = to - 2; a < b; a += 2, b -= 2) {
+      int i = stack[a];
+      int j = stack[a + 1];
+      stack[a]     = stack[b];
+      stack[a + 1] = stack[b + 1];
+      stack[b]     = i;
+      stack[b + 1] = j;
+    }
+  }
+}
@@ -0,0 +1,890 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The ExternalSuffixArrayBuilder class builds the suffix array of a Latin-1
+ * text file that is too large to be sorted in the heap, and saves it in the
+ * format read by MappedSuffixArray or, for texts of 2^31 characters or more,
+ * in the format with 40-bit positions read by LargeSuffixArray.
+ *
+ * The text is never loaded in the heap: it is memory-mapped, so it lives in
+ * the page cache. Construction works in up to three phases:
+ *   - sort: the starting positions of the suffixes are split in runs that fit
+ *     in the memory limit (12 bytes per suffix: an offset in the run and a
+ *     sort key). Each run is sorted by the first DEPTH_LIMIT characters of
+ *     its suffixes with the 3-way radix quicksort on packed keys of
+ *     SuffixArrayCompact, and spilled to a temporary file;
+ *   - merge: the sorted runs are merged with a priority queue on the first
+ *     DEPTH_LIMIT characters of their heads, packed in PREFIX_KEYS keys, and
+ *     the merged suffix array is streamed to the output file together with
+ *     the text. The same keys give the LCP of consecutive suffixes, up to
+ *     DEPTH_LIMIT, without reading the text again. If there are more runs
+ *     than can be open at once (the fan-in, bounded by the memory limit and
+ *     MAX_FAN_IN files), they are first merged in passes of at most fan-in
+ *     runs into longer runs, which keep the LCP of each suffix with the
+ *     previous one, so that the keys it shares with it are not read again;
+ *   - refine: only if some suffixes share their first DEPTH_LIMIT
+ *     characters, their groups are sorted in place in a mapping of the output
+ *     file by prefix doubling (see PrefixDoubling.refine()), with the ranks in
+ *     a temporary file. The LCPs of DEPTH_LIMIT or more are then completed
+ *     with the algorithm of Kasai et al., which takes linear time given the
+ *     ranks.
+ *
+ * No suffix is compared beyond its first DEPTH_LIMIT characters before the
+ * refine phase, so long repeats (as in logs) do not make the construction
+ * quadratic. Only the offsets and keys of one run, plus one read buffer and
+ * one key prefix for each of the at most fan-in runs open during the merge,
+ * are kept in the heap, so the memory limit bounds the heap used by the construction
+ * regardless of the size of the text; a larger text takes more merge passes.
+ *
+ * The progress of each phase can be reported to a Progress listener. The
+ * merge phase is reported once per pass, from 0 to the length of the text.
+ */
+public class ExternalSuffixArrayBuilder {
+
+  /**
+   * Receives progress reports from the builder.
+   */
+  public interface Progress {
+    /**
+     * Called periodically while building the suffix array.
+     *
+     * @param phase the current phase ("sort", "merge", or "refine" if some
+     *        suffixes share DEPTH_LIMIT characters)
+     * @param done the number of suffixes processed so far in this phase,
+     *        or in this pass of the merge phase
+     * @param total the total number of suffixes
+     */
+    void report(String phase, long done, long total);
+  }
+
+  /**
+   * Smallest memory limit accepted, in bytes.
+   */
+  public static final long MIN_MEMORY_LIMIT = 1 << 12;
+
+  /**
+   * Number of suffixes merged between two progress reports.
+   */
+  private static final int REPORT_INTERVAL = 1 << 20;
+
+  /**
+   * Smallest read buffer of a run during the merge, in bytes, and estimate
+   * of the other heap used by each open run (its prefix keys, the objects
+   * and the queue entry).
+   */
+  private static final int MIN_BUFFER   = 1 << 10;
+  private static final int RUN_OVERHEAD = 256;
+
+  /**
+   * Largest number of runs merged at once, which keeps the number of open
+   * files well below the usual limit of 1024 file descriptors.
+   */
+  private static final int MAX_FAN_IN = 256;
+
+  /**
+   * Number of bytes per suffix in the runs of the intermediate merge passes:
+   * a 40-bit position and the LCP with the previous suffix of the run.
+   */
+  private static final int MERGED_ENTRY_SIZE = 6;
+
+  /**
+   * Cut-off to insertion sort (see SuffixArrayOptimized.java).
+   */
+  private static final int CUT_OFF = 8;
+
+  /**
+   * Number of characters packed into each sort key.
+   */
+  private static final int KEY_CHARS = 8;
+
+  /**
+   * Number of characters by which the suffixes are sorted before the refine
+   * phase (a multiple of KEY_CHARS), and number of keys that hold them.
+   */
+  private static final int DEPTH_LIMIT = 64;
+  private static final int PREFIX_KEYS = DEPTH_LIMIT / KEY_CHARS;
+
+  /**
+   * The text is mapped in chunks of 2^TEXT_BITS characters, and the arrays of
+   * the refine phase in chunks of 2^INDEX_BITS values.
+   */
+  private static final int  TEXT_BITS  = 30;
+  private static final long TEXT_MASK  = (1L << TEXT_BITS) - 1;
+  private static final int  INDEX_BITS = 28;
+
+  /**
+   * Maximum number of bytes of heap to use.
+   */
+  private final long memoryLimit;
+
+  /**
+   * Directory for the temporary run files.
+   */
+  private final File tempDirectory;
+
+  /**
+   * Progress listener, or null.
+   */
+  private final Progress progress;
+
+  /**
+   * Mappings of the text being indexed, and its length.
+   */
+  private ByteBuffer[] text;
+  private long length;
+
+  /**
+   * Number of bytes per position in the output file: 4, or 5 for the format
+   * with 40-bit positions.
+   */
+  private int width;
+
+  /**
+   * The run being sorted: the offsets of its suffixes from its first one,
+   * their sort keys, and the position of its first suffix.
+   */
+  private int[]  offsets;
+  private long[] keys;
+  private long   start;
+
+  /**
+   * Number of suffixes written so far by the current merge pass.
+   */
+  private long passDone;
+
+  /**
+   * Creates a builder that uses at most the specified amount of heap.
+   *
+   * @param memoryLimit the maximum number of bytes of heap to use
+   * @param tempDirectory the directory for the temporary run files
+   * @param progress the progress listener, or null
+   * @throws IllegalArgumentException if memoryLimit is less than
+   *         MIN_MEMORY_LIMIT
+   */
+  public ExternalSuffixArrayBuilder(long memoryLimit, File tempDirectory, Progress progress) {
+    if (memoryLimit < MIN_MEMORY_LIMIT) {
+      throw new IllegalArgumentException("Memory limit must be at least " + MIN_MEMORY_LIMIT);
+    }
+
+    this.memoryLimit   = memoryLimit;
+    this.tempDirectory = tempDirectory;
+    this.progress      = progress;
+  }
+
+  /**
+   * Builds the suffix array of the specified Latin-1 text file, writes it to
+   * the output file, and opens it.
+   *
+   * @param input the text file
+   * @param output the suffix array file to write
+   * @param withLcp whether to also write the LCP array
+   * @return the suffix array, mapped from the output file
+   * @throws IOException if a file cannot be read or written
+   * @throws IllegalArgumentException if the text has 2^31 or more characters
+   *         (see buildLarge())
+   */
+  public MappedSuffixArray build(File input, File output, boolean withLcp) throws IOException {
+    if (input.length() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+        "Text files must have less than 2^31 characters, use buildLarge()");
+    }
+
+    write(input, output, withLcp, false);
+    return MappedSuffixArray.open(output);
+  }
+
+  /**
+   * Builds the suffix array of the specified Latin-1 text file, writes it to
+   * the output file with 40-bit positions, and opens it.
+   *
+   * @param input the text file
+   * @param output the suffix array file to write
+   * @param withLcp whether to also write the LCP array
+   * @return the suffix array, mapped from the output file
+   * @throws IOException if a file cannot be read or written
+   * @throws IllegalArgumentException if the text has more than 2^40
+   *         characters
+   */
+  public LargeSuffixArray buildLarge(File input, File output, boolean withLcp) throws IOException {
+    if (input.length() > LargeSuffixArray.MAX_LENGTH) {
+      throw new IllegalArgumentException("Text files must have at most 2^40 characters");
+    }
+
+    write(input, output, withLcp, true);
+    return LargeSuffixArray.open(output);
+  }
+
+  /**
+   * Builds the suffix array of the specified text file and writes it to the
+   * output file, with 40-bit positions if large is true.
+   */
+  private void write(File input, File output, boolean withLcp, boolean large) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(input, "r");
+         FileChannel channel = raf.getChannel()) {
+      this.length = channel.size();
+      this.width  = large ? 5 : 4;
+      this.text   = new ByteBuffer[(int) ((length + TEXT_MASK) >>> TEXT_BITS)];
+
+      for (int c = 0; c < text.length; c++) {
+        long offset = (long) c << TEXT_BITS;
+        text[c] = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                              Math.min(TEXT_MASK + 1, length - offset));
+      }
+
+      List<File> runs = new ArrayList<File>();
+      File lcpFile  = null;
+      File rankFile = null;
+      try {
+        sortRuns(runs);
+        boolean merged = mergePasses(runs);
+
+        lcpFile = File.createTempFile("suffix-lcp", ".tmp", tempDirectory);
+        if (merge(runs, merged, output, lcpFile, withLcp, large)) {
+          rankFile = File.createTempFile("suffix-rank", ".tmp", tempDirectory);
+          refine(output, lcpFile, rankFile, withLcp);
+        }
+      } finally {
+        for (File run : runs) {
+          run.delete();
+        }
+        if (lcpFile != null) {
+          lcpFile.delete();
+        }
+        if (rankFile != null) {
+          rankFile.delete();
+        }
+        this.text = null;
+      }
+    }
+  }
+
+  /**
+   * Sorts the suffixes in runs of consecutive starting positions, and writes
+   * each sorted run to a temporary file.
+   */
+  private void sortRuns(List<File> runs) throws IOException {
+    int runLength = runLength();
+    int capacity  = (int) Math.min(runLength, Math.max(length, 1));
+
+    this.offsets = new int[capacity];
+    this.keys    = new long[capacity];
+
+    try {
+      for (start = 0; start < length; start += runLength) {
+        int size = (int) Math.min(runLength, length - start);
+
+        for (int i = 0; i < size; i++) {
+          offsets[i] = i;
+        }
+        sort(0, size - 1);
+
+        File run = File.createTempFile("suffix-run", ".tmp", tempDirectory);
+        runs.add(run);
+
+        try (DataOutputStream out = new DataOutputStream(
+               new BufferedOutputStream(new FileOutputStream(run), 1 << 16))) {
+          for (int i = 0; i < size; i++) {
+            out.writeInt(offsets[i]);
+          }
+        }
+
+        report("sort", start + size);
+      }
+    } finally {
+      this.offsets = null;
+      this.keys    = null;
+    }
+  }
+
+  /**
+   * Returns the number of suffixes per run: each one takes an int offset and
+   * a long key while its run is sorted.
+   */
+  private int runLength() {
+    return (int) Math.min(Integer.MAX_VALUE - 8, memoryLimit / 12);
+  }
+
+  /**
+   * Returns the largest number of runs merged at once: every open run takes
+   * a read buffer of at least MIN_BUFFER bytes plus RUN_OVERHEAD, and at most
+   * half of the memory limit goes to them, the rest being left to the output
+   * buffers. The fan-in never exceeds MAX_FAN_IN open files.
+   */
+  private int fanIn() {
+    return (int) Math.max(2, Math.min(MAX_FAN_IN,
+                                      memoryLimit / (2 * (MIN_BUFFER + RUN_OVERHEAD))));
+  }
+
+  /**
+   * Returns the size of the read buffer of each of the specified number of
+   * runs merged at once.
+   */
+  private int bufferSize(int runs) {
+    return (int) Math.max(MIN_BUFFER, Math.min(1 << 20, memoryLimit / (2 * runs + 2)));
+  }
+
+  /**
+   * Sorted run being read during the merge.
+   */
+  private final class Run {
+    private final DataInputStream in;
+    private final long start;
+    private final boolean merged;
+    private long remaining;
+
+    /**
+     * Position of the head of the run, and its first DEPTH_LIMIT characters
+     * packed into keys.
+     */
+    private long head;
+    private final long[] prefix = new long[PREFIX_KEYS];
+
+    /**
+     * Opens a run file: either a run of the sort phase, whose offsets are
+     * relative to its first suffix at start, or a run of an intermediate
+     * merge pass, with a position and an LCP per suffix.
+     */
+    private Run(File file, long start, boolean merged, int bufferSize) throws IOException {
+      this.in        = new DataInputStream(
+                         new BufferedInputStream(new FileInputStream(file), bufferSize));
+      this.start     = start;
+      this.merged    = merged;
+      this.remaining = file.length() / (merged ? MERGED_ENTRY_SIZE : 4);
+    }
+
+    /**
+     * Reads the next suffix of this run into head, or returns false if the
+     * run is exhausted.
+     */
+    private boolean advance() throws IOException {
+      if (remaining == 0) {
+        return false;
+      }
+
+      remaining--;
+      if (!merged) {
+        head = start + in.readInt();
+        for (int c = 0; c < PREFIX_KEYS; c++) {
+          prefix[c] = key(head + c * KEY_CHARS);
+        }
+        return true;
+      }
+
+      // The keys within the LCP with the previous head are the same, so only
+      // the others are read from the text.
+      head = (long) in.readUnsignedByte() << 32 | (in.readInt() & 0xffffffffL);
+      int lcp = in.readUnsignedByte();
+      for (int c = lcp / KEY_CHARS; c < PREFIX_KEYS; c++) {
+        prefix[c] = key(head + c * KEY_CHARS);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Receives the suffixes of a merge in sorted order, with the LCP of each
+   * one and the previous one, up to DEPTH_LIMIT.
+   */
+  private interface Sink {
+    void write(long position, int lcp) throws IOException;
+  }
+
+  /**
+   * Merges the runs in passes of at most fanIn() runs, each into a run of
+   * the next pass, until there are few enough to be merged into the output.
+   * The runs of the list are replaced with those of the last pass. Returns
+   * true if it ran any pass.
+   */
+  private boolean mergePasses(List<File> runs) throws IOException {
+    int fanIn = fanIn();
+    boolean merged = false;
+
+    while (runs.size() > fanIn) {
+      List<File> next = new ArrayList<File>();
+      int bufferSize = bufferSize(fanIn);
+
+      try {
+        this.passDone = 0;
+
+        for (int from = 0; from < runs.size(); from += fanIn) {
+          File file = File.createTempFile("suffix-run", ".tmp", tempDirectory);
+          next.add(file);
+
+          List<Run> open = new ArrayList<Run>();
+          try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(file), bufferSize))) {
+            open(runs, from, Math.min(runs.size(), from + fanIn), merged, bufferSize, open);
+            merge(open, (position, lcp) -> {
+              out.writeByte((int) (position >>> 32));
+              out.writeInt((int) position);
+              out.writeByte(lcp);
+            });
+          } finally {
+            for (Run run : open) {
+              run.in.close();
+            }
+          }
+        }
+
+        report("merge", length);
+      } catch (IOException | RuntimeException e) {
+        for (File file : next) {
+          file.delete();
+        }
+        throw e;
+      }
+
+      for (File run : runs) {
+        run.delete();
+      }
+      runs.clear();
+      runs.addAll(next);
+      merged = true;
+    }
+
+    return merged;
+  }
+
+  /**
+   * Opens the runs runs[from..to) and adds them to the list of open runs.
+   * The runs of the sort phase start every runLength() suffixes.
+   */
+  private void open(List<File> runs, int from, int to, boolean merged, int bufferSize,
+                    List<Run> open) throws IOException {
+    for (int r = from; r < to; r++) {
+      open.add(new Run(runs.get(r), merged ? 0 : (long) r * runLength(), merged, bufferSize));
+    }
+  }
+
+  /**
+   * Merges the open runs into the sink with a priority queue on the first
+   * DEPTH_LIMIT characters of their heads. Returns true if some suffixes
+   * share DEPTH_LIMIT characters, which are left in any order.
+   */
+  private boolean merge(List<Run> open, Sink sink) throws IOException {
+    PriorityQueue<Run> queue = new PriorityQueue<Run>(Math.max(1, open.size()), this::compare);
+    boolean tied = false;
+
+    for (Run run : open) {
+      if (run.advance()) {
+        queue.add(run);
+      }
+    }
+
+    long[] previous = new long[PREFIX_KEYS];
+    long   end      = 0;
+    while (!queue.isEmpty()) {
+      Run  run   = queue.poll();
+      long depth = Math.min(DEPTH_LIMIT, length - run.head);
+      long lcp   = 0;
+
+      for (int c = 0; c < PREFIX_KEYS; c++) {
+        long diff = previous[c] ^ run.prefix[c];
+        if (diff != 0) {
+          lcp += Long.numberOfLeadingZeros(diff) / 8;
+          break;
+        }
+        lcp += KEY_CHARS;
+      }
+      lcp = Math.min(lcp, Math.min(depth, end));
+
+      tied |= lcp == DEPTH_LIMIT;
+      sink.write(run.head, (int) lcp);
+
+      System.arraycopy(run.prefix, 0, previous, 0, PREFIX_KEYS);
+      end = depth;
+
+      if (run.advance()) {
+        queue.add(run);
+      }
+
+      if (++passDone % REPORT_INTERVAL == 0) {
+        report("merge", passDone);
+      }
+    }
+
+    return tied;
+  }
+
+  /**
+   * Merges the last runs and writes the suffix array file, with the LCP of
+   * each suffix and the previous one, up to DEPTH_LIMIT, in one byte per
+   * suffix of lcpFile. Returns true if some suffixes share DEPTH_LIMIT
+   * characters, which are left in any order.
+   */
+  private boolean merge(List<File> runs, boolean merged, File output, File lcpFile,
+                        boolean withLcp, boolean large) throws IOException {
+    int bufferSize = bufferSize(runs.size());
+    List<Run> open = new ArrayList<Run>();
+    boolean tied;
+
+    try (MappedSuffixArray.Output out = new MappedSuffixArray.Output(output);
+         DataOutputStream lcpOut = new DataOutputStream(
+           new BufferedOutputStream(new FileOutputStream(lcpFile), bufferSize))) {
+      if (large) {
+        out.writeLargeHeader(MappedSuffixArray.LATIN_1, withLcp, length);
+      } else {
+        out.writeHeader(MappedSuffixArray.LATIN_1, withLcp, (int) length);
+      }
+      for (long i = 0; i < length; i++) {
+        out.writeByte((byte) byteAt(i));
+      }
+      out.pad();
+
+      this.passDone = 0;
+      open(runs, 0, runs.size(), merged, bufferSize, open);
+      tied = merge(open, (position, lcp) -> {
+        lcpOut.writeByte(lcp);
+        writePosition(out, position, large);
+      });
+
+      if (withLcp) {
+        lcpOut.flush();
+        try (DataInputStream in = new DataInputStream(
+               new BufferedInputStream(new FileInputStream(lcpFile), bufferSize))) {
+          for (long i = 0; i < length; i++) {
+            writePosition(out, in.readUnsignedByte(), large);
+          }
+        } catch (EOFException e) {
+          throw new IOException("Truncated LCP file: " + lcpFile, e);
+        }
+      }
+
+      report("merge", length);
+    } finally {
+      for (Run run : open) {
+        run.in.close();
+      }
+    }
+
+    return tied;
+  }
+
+  private static void writePosition(MappedSuffixArray.Output out, long value, boolean large)
+      throws IOException {
+    if (large) {
+      out.writeInt40(value);
+    } else {
+      out.writeInt((int) value);
+    }
+  }
+
+  /**
+   * Sorts the groups of suffixes of the output file that share DEPTH_LIMIT
+   * characters, and completes the LCPs of DEPTH_LIMIT or more if the LCP
+   * array is present. The groups are the runs of suffixes whose LCP in
+   * lcpFile is DEPTH_LIMIT: merge() left them in any order, but every other
+   * suffix is in its final place and every LCP below DEPTH_LIMIT is exact.
+   */
+  private void refine(File output, File lcpFile, File rankFile, boolean withLcp)
+      throws IOException {
+    report("refine", 0);
+
+    long indexOffset = MappedSuffixArray.HEADER_SIZE + MappedSuffixArray.padding(length);
+
+    try (FileChannel out = FileChannel.open(output.toPath(), StandardOpenOption.READ,
+                                            StandardOpenOption.WRITE);
+         FileChannel prefixes = FileChannel.open(lcpFile.toPath(), StandardOpenOption.READ);
+         RandomAccessFile ranks = new RandomAccessFile(rankFile, "rw")) {
+      ranks.setLength(length * width);
+
+      PackedArray index = PackedArray.map(out, FileChannel.MapMode.READ_WRITE, indexOffset,
+                                          length, width, INDEX_BITS);
+      PackedArray rank  = PackedArray.map(ranks.getChannel(), FileChannel.MapMode.READ_WRITE,
+                                          0, length, width, INDEX_BITS);
+      PackedArray prefix = PackedArray.map(prefixes, FileChannel.MapMode.READ_ONLY, 0,
+                                           length, 1, TEXT_BITS);
+
+      // Mark the groups for PrefixDoubling.refine(): each suffix gets the
+      // rank of the last suffix of its group, which is its own rank if it is
+      // in its final place.
+      for (long i = length - 1, hi = i; i >= 0; i--) {
+        rank.set(index.get(i), hi);
+        if (prefix.get(i) < DEPTH_LIMIT) {
+          hi = i - 1;
+        }
+      }
+
+      PrefixDoubling.refine(index, rank, DEPTH_LIMIT);
+      index.force();
+
+      if (withLcp) {
+        PackedArray lcp = PackedArray.map(out, FileChannel.MapMode.READ_WRITE,
+                                          indexOffset + length * width,
+                                          length, width, INDEX_BITS);
+
+        // Kasai et al.: the LCP of the suffix at offset j + 1 and its
+        // predecessor is at least the one of the suffix at offset j minus 1.
+        // The LCPs below DEPTH_LIMIT are known, so only the others are
+        // extended by comparing characters.
+        for (long j = 0, h = 0; j < length; j++) {
+          long r = rank.get(j);
+
+          if (r == 0) {
+            h = 0;
+            continue;
+          }
+
+          long known = prefix.get(r);
+          if (known < DEPTH_LIMIT) {
+            h = known;
+          } else {
+            long i = index.get(r - 1);
+
+            h = Math.max(h, DEPTH_LIMIT);
+            while (i + h < length && j + h < length && byteAt(i + h) == byteAt(j + h)) {
+              h++;
+            }
+            lcp.set(r, h);
+          }
+
+          if (h > 0) {
+            h--;
+          }
+        }
+
+        lcp.force();
+      }
+    }
+
+    report("refine", length);
+  }
+
+  private void report(String phase, long done) {
+    if (progress != null) {
+      progress.report(phase, done, length);
+    }
+  }
+
+  /**
+   * Compares the heads of two runs by their first DEPTH_LIMIT characters.
+   * The suffix that ends first, possibly within the keys, is the smaller; if
+   * both have DEPTH_LIMIT characters or more, they are tied.
+   */
+  private int compare(Run a, Run b) {
+    for (int c = 0; c < PREFIX_KEYS; c++) {
+      if (a.prefix[c] != b.prefix[c]) {
+        return a.prefix[c] < b.prefix[c] ? -1 : 1;
+      }
+    }
+
+    return Long.compare(Math.min(DEPTH_LIMIT, length - a.head),
+                        Math.min(DEPTH_LIMIT, length - b.head));
+  }
+
+  /**
+   * Returns the character at the specified offset of the text, as an
+   * unsigned value.
+   */
+  private int byteAt(long offset) {
+    return text[(int) (offset >>> TEXT_BITS)].get((int) (offset & TEXT_MASK)) & 0xff;
+  }
+
+  /**
+   * Returns the unsigned bytes of the text at p..p+KEY_CHARS packed into a
+   * long, the first one in the high bits, and the bytes past the end of the
+   * text replaced with 0 (see SuffixArrayCompact.key()).
+   */
+  private long key(long p) {
+    int offset = (int) (p & TEXT_MASK);
+
+    if (p + KEY_CHARS <= length && offset + KEY_CHARS <= TEXT_MASK + 1) {
+      return text[(int) (p >>> TEXT_BITS)].getLong(offset) ^ Long.MIN_VALUE;
+    }
+
+    long key = 0;
+    for (int c = 0; c < KEY_CHARS; c++) {
+      key = key << 8 | (p + c < length ? byteAt(p + c) : 0);
+    }
+
+    return key ^ Long.MIN_VALUE;
+  }
+
+  /**
+   * Sorts offsets[lo..hi] by the first DEPTH_LIMIT characters of their
+   * suffixes, with the 3-way radix quicksort on packed keys of
+   * SuffixArrayCompact.sort(). The subarrays whose suffixes share
+   * DEPTH_LIMIT characters are left in any order, for the refine phase.
+   */
+  private void sort(int lo, int hi) {
+    int[] stack = new int[64];
+    int   top   = push(stack, 0, lo, hi, 0, false);
+
+    while (top > 0) {
+      boolean filled = stack[--top] != 0;
+      int     k      = stack[--top];
+      hi             = stack[--top];
+      lo             = stack[--top];
+
+      if (k >= DEPTH_LIMIT) {
+        continue;
+      }
+
+      if (!filled) {
+        for (int i = lo; i <= hi; i++) {
+          keys[i] = key(start + offsets[i] + k);
+        }
+      }
+
+      if (hi <= lo + CUT_OFF) {
+        insertionSort(lo, hi, k);
+        continue;
+      }
+
+      // 3-way partitioning around the median of three keys.
+      swap(lo, median(lo, lo + (hi - lo) / 2, hi));
+      long v  = keys[lo];
+      int  lt = lo;
+      int  gt = hi;
+      int  i  = lo + 1;
+
+      while (i <= gt) {
+        long t = keys[i];
+
+        if (t < v) {
+          swap(lt++, i++);
+        } else if (t > v) {
+          swap(i, gt--);
+        } else {
+          i++;
+        }
+      }
+
+      int from = skipEnded(v, lt, gt, k);
+
+      if (top + 12 > stack.length) {
+        stack = Arrays.copyOf(stack, 2 * stack.length);
+      }
+
+      // keys[lo..lt-1] < keys[lt..gt] < keys[gt+1..hi].
+      top = push(stack, top, lo, lt - 1, k, true);
+      top = push(stack, top, gt + 1, hi, k, true);
+      top = push(stack, top, from, gt, k + KEY_CHARS, false);
+    }
+  }
+
+  /**
+   * Pushes the subarray lo..hi onto the stack, unless it is already sorted,
+   * and returns the new top of the stack.
+   */
+  private static int push(int[] stack, int top, int lo, int hi, int k, boolean filled) {
+    if (hi > lo) {
+      stack[top++] = lo;
+      stack[top++] = hi;
+      stack[top++] = k;
+      stack[top++] = filled ? 1 : 0;
+    }
+
+    return top;
+  }
+
+  /**
+   * Returns the one of i, j and k whose key is the median of the three.
+   */
+  private int median(int i, int j, int k) {
+    if (keys[i] < keys[j]) {
+      return keys[j] < keys[k] ? j : (keys[i] < keys[k] ? k : i);
+    }
+
+    return keys[k] < keys[j] ? j : (keys[k] < keys[i] ? k : i);
+  }
+
+  /**
+   * Moves the suffixes of offsets[lt..gt], whose keys are all v, that end
+   * within the key to the front of the range, shortest first, and returns
+   * the start of the others (see SuffixArrayCompact.skipEnded()).
+   */
+  private int skipEnded(long v, int lt, int gt, int k) {
+    if ((v & 0xff) != 0) {
+      return lt;
+    }
+
+    int from = lt;
+
+    for (int i = lt; i <= gt; i++) {
+      if (start + offsets[i] + k + KEY_CHARS > length) {
+        swap(from++, i);
+      }
+    }
+
+    for (int i = lt + 1; i < from; i++) {
+      for (int j = i; j > lt && offsets[j] > offsets[j-1]; j--) {
+        swap(j, j - 1);
+      }
+    }
+
+    return from;
+  }
+
+  /**
+   * Sorts offsets[lo..hi], whose keys hold the characters at depth k, using
+   * insertion sort on the first DEPTH_LIMIT characters of their suffixes.
+   */
+  private void insertionSort(int lo, int hi, int k) {
+    for (int i = lo + 1; i <= hi; i++) {
+      for (int j = i; j > lo && compare(j, j - 1, k) < 0; j--) {
+        swap(j, j - 1);
+      }
+    }
+  }
+
+  /**
+   * Compares the first DEPTH_LIMIT characters of the suffixes of offsets[a]
+   * and offsets[b], knowing that they share their first k characters.
+   */
+  private int compare(int a, int b, int k) {
+    if (keys[a] != keys[b]) {
+      return keys[a] < keys[b] ? -1 : 1;
+    }
+
+    long i = start + offsets[a];
+    long j = start + offsets[b];
+
+    // The suffix that ends first, possibly within the key, is the smaller.
+    for (long d = k + KEY_CHARS; ; d++) {
+      if (i + d >= length || j + d >= length) {
+        return Long.compare(j, i);
+      }
+
+      if (d == DEPTH_LIMIT) {
+        return 0;
+      }
+
+      int x = byteAt(i + d);
+      int y = byteAt(j + d);
+
+      if (x != y) {
+        return x - y;
+      }
+    }
+  }
+
+  /**
+   * Swaps offsets[i] and offsets[j], and keys[i] and keys[j].
+   */
+  private void swap(int i, int j) {
+    int tmp    = offsets[i];
+    offsets[i] = offsets[j];
+    offsets[j] = tmp;
+
+    long key = keys[i];
+    keys[i]  = keys[j];
+    keys[j]  = key;
+  }
+}
@@ -0,0 +1,542 @@
+import java.util.stream.IntStream;
+
+/**
+ * The FMIndex class represents a compressed full-text index of a string
+ * (Ferragina and Manzini, "Opportunistic Data Structures with Applications").
+ *
+ * It supports the following operations: computing the length() of the text,
+ * getting the indexOf() the ith smallest suffix and the inverseIndexOf() an
+ * offset, extracting a substring() of the text, the count() of occurrences of
+ * a key, and the offsets of its occurrences().
+ *
+ * Instead of the text and the int[] suffix array, the index stores:
+ *   - the Burrows-Wheeler transform of the text: bwt(i) is the character that
+ *     precedes the ith smallest suffix, with its alphabet mapped to the codes
+ *     0..sigma-1, stored in a byte[] if sigma <= 256 and in a char[]
+ *     otherwise;
+ *   - the C table: c[x] is the number of characters of the text whose code is
+ *     smaller than x;
+ *   - a blocked occurrence table, with the number of occurrences of every code
+ *     in bwt[0..i) for every i that is a multiple of 128 (relative to the last
+ *     multiple of 65536, so that it fits in a char);
+ *   - a sampled suffix array, with the offsets that are multiples of the
+ *     sample rate k, and a bit vector that marks their ranks;
+ *   - a sampled inverse suffix array, with the ranks of the suffixes at these
+ *     same offsets.
+ *
+ * The number of occurrences of code x in bwt[0..i) is then found with two
+ * table lookups and a scan of less than 128 characters, which is a constant
+ * amount of work. Given the range of ranks of the suffixes that start with a
+ * string s, the range of the suffixes that start with xs is computed with two
+ * such lookups (LF-mapping), so count() runs a backward search that takes time
+ * proportional to the length M of the key.
+ *
+ * The suffix array is not stored: indexOf(i) walks backwards in the text with
+ * the LF-mapping until it reaches a sampled offset, which takes less than k
+ * steps. Hence, occurrences() takes time proportional to M plus k times the
+ * number of occurrences. Conversely, inverseIndexOf() starts from the first
+ * sampled offset after the one requested and walks backwards to it, and
+ * substring() decodes the text backwards from there, one character per step.
+ * The text itself is not stored either.
+ *
+ * The text does not need a sentinel: the suffix at offset 0 has no preceding
+ * character, so its rank is excluded from the occurrence counts, and the last
+ * character of the text (which precedes the empty suffix) is accounted for
+ * when mapping ranks.
+ *
+ * The index takes about 1 + sigma / 64 + 8 / k bytes per character (plus one
+ * bit for the marks), where sigma is the number of distinct characters, or
+ * one more byte per character if sigma > 256,
+ * against 6 bytes per character for the text and the suffix array of
+ * SuffixArrayOptimized. The sample rate trades memory for the latency of
+ * indexOf(): with k = 4 the samples take 4x less memory than the int[] index,
+ * and every lookup takes at most 3 LF-mapping steps.
+ */
+public class FMIndex {
+
+  /**
+   * Default distance between the sampled offsets of the suffix array.
+   */
+  public static final int DEFAULT_SAMPLE_RATE = 32;
+
+  /**
+   * Number of positions of the BWT covered by each block (and superblock) of
+   * the occurrence table, as powers of two.
+   */
+  private static final int BLOCK_BITS      = 7;
+  private static final int SUPERBLOCK_BITS = 16;
+
+  /**
+   * Number of characters in the text.
+   */
+  private final int length;
+
+  /**
+   * Distance between the sampled offsets of the suffix array.
+   */
+  private final int sampleRate;
+
+  /**
+   * Number of distinct characters in the text.
+   */
+  private final int sigma;
+
+  /**
+   * alphabet[x] is the character whose code is x.
+   */
+  private final char[] alphabet;
+
+  /**
+   * codes[ch] is one plus the code of the character ch, or 0 if ch does not
+   * appear in the text.
+   */
+  private final char[] codes;
+
+  /**
+   * Code of the last character of the text, or -1 if the text is empty.
+   */
+  private final int last;
+
+  /**
+   * The Burrows-Wheeler transform of the text, as codes: in bytes if there are
+   * at most 256 distinct characters (the other array is then null), and in
+   * chars otherwise.
+   */
+  private final byte[] bwtBytes;
+  private final char[] bwtChars;
+
+  /**
+   * Rank of the suffix at offset 0, whose bwt[] entry is not a character.
+   */
+  private final int primary;
+
+  /**
+   * c[x] is the number of characters of the text whose code is less than x.
+   */
+  private final int[] c;
+
+  /**
+   * blocks[(i >> BLOCK_BITS) * sigma + x] and superblocks[(i >>
+   * SUPERBLOCK_BITS) * sigma + x] add up to the number of occurrences of code
+   * x in bwt[0..i), if i is a multiple of 2^BLOCK_BITS.
+   */
+  private final char[] blocks;
+  private final int[]  superblocks;
+
+  /**
+   * Bit i of marks is set if the offset of the ith smallest suffix is a
+   * multiple of sampleRate. ranks[w] is the number of bits set in the words
+   * marks[0..w).
+   */
+  private final long[] marks;
+  private final int[]  ranks;
+
+  /**
+   * samples[j] is the offset of the suffix marked by the jth bit set.
+   */
+  private final int[] samples;
+
+  /**
+   * inverseSamples[j] is the rank of the suffix at offset j * sampleRate.
+   */
+  private final int[] inverseSamples;
+
+  /**
+   * Builds the FM-index of the given text String.
+   *
+   * @param text the input String
+   */
+  public FMIndex(String text) {
+    this(text, DEFAULT_SAMPLE_RATE);
+  }
+
+  /**
+   * Builds the FM-index of the given text String, sampling one offset of the
+   * suffix array out of sampleRate.
+   *
+   * @param text the input String
+   * @param sampleRate the distance between the sampled offsets
+   * @throws IllegalArgumentException if sampleRate is not positive
+   */
+  public FMIndex(String text, int sampleRate) {
+    this(new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING),
+         sampleRate);
+  }
+
+  /**
+   * Builds the FM-index of the text of the given suffix array. The suffix
+   * array is only read during construction and can be discarded afterwards.
+   *
+   * @param suffixArray the suffix array of the text
+   */
+  public FMIndex(SuffixArrayOptimized suffixArray) {
+    this(suffixArray, DEFAULT_SAMPLE_RATE);
+  }
+
+  /**
+   * Builds the FM-index of the text of the given suffix array, sampling one
+   * offset of the suffix array out of sampleRate.
+   *
+   * @param suffixArray the suffix array of the text
+   * @param sampleRate the distance between the sampled offsets
+   * @throws IllegalArgumentException if sampleRate is not positive
+   */
+  public FMIndex(SuffixArrayOptimized suffixArray, int sampleRate) {
+    if (sampleRate < 1) {
+      throw new IllegalArgumentException("Sample rate must be positive");
+    }
+
+    this.sampleRate = sampleRate;
+    this.length     = suffixArray.length();
+
+    // Map the alphabet to the codes 0..sigma-1, in the order of the chars.
+    int max = 0;
+    for (int i = 0; i < length; i++) {
+      max = Math.max(max, suffixArray.charAt(i));
+    }
+
+    this.codes = new char[length == 0 ? 0 : max + 1];
+    for (int i = 0; i < length; i++) {
+      codes[suffixArray.charAt(i)] = 1;
+    }
+
+    // codes[] holds one plus the code of every character, in a char.
+    int distinct = 0;
+    for (int ch = 0; ch < codes.length; ch++) {
+      if (codes[ch] != 0) {
+        if (distinct == Character.MAX_VALUE) {
+          throw new IllegalArgumentException("Text must have less than 65536 distinct characters");
+        }
+        codes[ch] = (char) ++distinct;
+      }
+    }
+
+    this.sigma    = distinct;
+    this.alphabet = new char[sigma];
+    for (int ch = 0; ch < codes.length; ch++) {
+      if (codes[ch] != 0) {
+        alphabet[codes[ch] - 1] = (char) ch;
+      }
+    }
+
+    this.last  = length == 0 ? -1 : codes[suffixArray.charAt(length - 1)] - 1;
+    this.c     = new int[sigma + 1];
+
+    for (int i = 0; i < length; i++) {
+      c[codes[suffixArray.charAt(i)]]++;
+    }
+    for (int x = 0; x < sigma; x++) {
+      c[x+1] += c[x];
+    }
+
+    // Burrows-Wheeler transform and sampled suffix array.
+    this.bwtBytes = sigma <= 256 ? new byte[length] : null;
+    this.bwtChars = sigma <= 256 ? null : new char[length];
+    this.marks = new long[(length >> 6) + 1];
+    this.ranks = new int[marks.length];
+    this.inverseSamples = new int[(length + sampleRate - 1) / sampleRate];
+
+    int sampled = 0;
+    int primary = -1;
+    for (int i = 0; i < length; i++) {
+      int offset = suffixArray.indexOf(i);
+
+      if (offset == 0) {
+        primary = i;
+      } else {
+        int x = codes[suffixArray.charAt(offset - 1)] - 1;
+
+        if (bwtBytes != null) {
+          bwtBytes[i] = (byte) x;
+        } else {
+          bwtChars[i] = (char) x;
+        }
+      }
+
+      if (offset % sampleRate == 0) {
+        marks[i >> 6] |= 1L << i;
+        inverseSamples[offset / sampleRate] = i;
+        sampled++;
+      }
+    }
+    this.primary = primary;
+
+    for (int w = 1; w < marks.length; w++) {
+      ranks[w] = ranks[w-1] + Long.bitCount(marks[w-1]);
+    }
+
+    this.samples = new int[sampled];
+    for (int i = 0, j = 0; i < length; i++) {
+      if (isMarked(i)) {
+        samples[j++] = suffixArray.indexOf(i);
+      }
+    }
+
+    // Occurrence table.
+    this.blocks      = new char[((length >> BLOCK_BITS) + 1) * sigma];
+    this.superblocks = new int[((length >> SUPERBLOCK_BITS) + 1) * sigma];
+
+    int[] counts = new int[sigma];
+    for (int i = 0; i <= length; i++) {
+      if ((i & ((1 << SUPERBLOCK_BITS) - 1)) == 0) {
+        System.arraycopy(counts, 0, superblocks, (i >> SUPERBLOCK_BITS) * sigma, sigma);
+      }
+
+      if ((i & ((1 << BLOCK_BITS) - 1)) == 0) {
+        int superblock = (i >> SUPERBLOCK_BITS) * sigma;
+        int block      = (i >> BLOCK_BITS) * sigma;
+
+        for (int x = 0; x < sigma; x++) {
+          blocks[block + x] = (char) (counts[x] - superblocks[superblock + x]);
+        }
+      }
+
+      if (i < length && i != primary) {
+        counts[bwt(i)]++;
+      }
+    }
+  }
+
+  /**
+   * Returns the code of the specified character, or -1 if it does not appear
+   * in the text.
+   */
+  private int code(char ch) {
+    return ch < codes.length ? codes[ch] - 1 : -1;
+  }
+
+  /**
+   * Returns the code at position i of the BWT.
+   */
+  private int bwt(int i) {
+    return bwtBytes != null ? bwtBytes[i] & 0xff : bwtChars[i];
+  }
+
+  /**
+   * Returns the number of occurrences of code x in bwt[0..i).
+   */
+  private int occ(int x, int i) {
+    int count = superblocks[(i >> SUPERBLOCK_BITS) * sigma + x]
+              + blocks[(i >> BLOCK_BITS) * sigma + x];
+    int from  = (i >> BLOCK_BITS) << BLOCK_BITS;
+
+    // One loop per array, so that the scan does not test which one is used.
+    if (bwtBytes != null) {
+      for (int j = from; j < i; j++) {
+        if ((bwtBytes[j] & 0xff) == x) {
+          count++;
+        }
+      }
+    } else {
+      for (int j = from; j < i; j++) {
+        if (bwtChars[j] == x) {
+          count++;
+        }
+      }
+    }
+
+    // The entry of the primary rank is 0 but is not a character.
+    if (x == 0 && primary >= from && primary < i) {
+      count--;
+    }
+
+    return count;
+  }
+
+  /**
+   * Returns the rank of the suffix that starts with code x followed by the
+   * suffix of rank i, plus the number of such suffixes of smaller rank.
+   *
+   * Since the empty suffix is not in the suffix array, the suffix that
+   * consists of the last character alone is counted separately.
+   */
+  private int lf(int x, int i) {
+    return c[x] + occ(x, i) + (x == last ? 1 : 0);
+  }
+
+  /**
+   * Returns the rank of the suffix at the specified offset, which must be
+   * either a multiple of sampleRate or the last offset of the text.
+   */
+  private int sampledRank(int offset) {
+    if (offset % sampleRate == 0) {
+      return inverseSamples[offset / sampleRate];
+    }
+
+    // The last character alone is the first suffix that starts with it.
+    return c[last];
+  }
+
+  /**
+   * Returns the smallest offset that is either a multiple of sampleRate and
+   * not less than the specified offset, or the last offset of the text.
+   */
+  private int nextSample(int offset) {
+    int sample = (offset + sampleRate - 1) / sampleRate * sampleRate;
+    return Math.min(sample, length - 1);
+  }
+
+  /**
+   * Returns true if the offset of the ith smallest suffix is sampled.
+   */
+  private boolean isMarked(int i) {
+    return (marks[i >> 6] & (1L << i)) != 0;
+  }
+
+  /**
+   * Returns the backward search for the specified key, as the range of ranks
+   * packed in a long ((from << 32) | to). The range is empty if the key does
+   * not occur in the text.
+   */
+  private long search(String key) {
+    int m = key.length();
+
+    if (m == 0) {
+      return length;
+    }
+
+    int x = code(key.charAt(m - 1));
+    if (x < 0) {
+      return 0;
+    }
+
+    int from = c[x];
+    int to   = c[x+1];
+
+    for (int j = m - 2; j >= 0 && from < to; j--) {
+      x = code(key.charAt(j));
+      if (x < 0) {
+        return 0;
+      }
+
+      from = lf(x, from);
+      to   = lf(x, to);
+    }
+
+    return from < to ? ((long) from << 32) | to : 0;
+  }
+
+  /**
+   * Returns the length of the input text.
+   *
+   * @return the length of the input text
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Returns the index into the original string of the ith smallest suffix.
+   * Takes less than sampleRate LF-mapping steps.
+   *
+   * @param i an integer between 0 and length - 1
+   * @return the index into the original string of the ith smallest suffix
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= i < length
+   */
+  public int indexOf(int i) {
+    if (i < 0 || i >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    // Offset 0 is always sampled, so the walk never reaches the primary rank.
+    int steps = 0;
+    while (!isMarked(i)) {
+      i = lf(bwt(i), i);
+      steps++;
+    }
+
+    int sample = ranks[i >> 6] + Long.bitCount(marks[i >> 6] & ((1L << i) - 1));
+    return samples[sample] + steps;
+  }
+
+  /**
+   * Returns the rank of the suffix that starts at the specified offset of the
+   * text. Takes less than sampleRate LF-mapping steps.
+   *
+   * @param offset an integer between 0 and length - 1
+   * @return the rank of the suffix that starts at offset
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= offset < length
+   */
+  public int inverseIndexOf(int offset) {
+    if (offset < 0 || offset >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    int p = nextSample(offset);
+    int i = sampledRank(p);
+
+    for (; p > offset; p--) {
+      i = lf(bwt(i), i);
+    }
+
+    return i;
+  }
+
+  /**
+   * Returns the substring text[from..to) of the text. Takes time proportional
+   * to to - from + sampleRate.
+   *
+   * @param from the offset of the first character
+   * @param to one plus the offset of the last character
+   * @return the substring text[from..to)
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= from <= to <=
+   *         length
+   */
+  public String substring(int from, int to) {
+    if (from < 0 || from > to || to > length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    if (from == to) {
+      return "";
+    }
+
+    char[] chars = new char[to - from];
+    int p = nextSample(to);
+    int i = sampledRank(p);
+
+    if (p < to) {
+      // Only the last offset of the text can be before to.
+      chars[p - from] = alphabet[last];
+    }
+
+    // bwt(i) is the character at offset p - 1.
+    for (; p > from; p--) {
+      int x = bwt(i);
+
+      if (p <= to) {
+        chars[p - 1 - from] = alphabet[x];
+      }
+
+      i = lf(x, i);
+    }
+
+    return new String(chars);
+  }
+
+  /**
+   * Returns the number of occurrences of the specified key in the text. Takes
+   * time proportional to the length of the key.
+   *
+   * @param key the query string
+   * @return the number of occurrences of key in the text
+   */
+  public int count(String key) {
+    long range = search(key);
+    return (int) range - (int) (range >>> 32);
+  }
+
+  /**
+   * Returns the offsets of all the occurrences of the specified key in the
+   * text, in the order of their suffixes (not in text order).
+   *
+   * The offsets are located lazily, each one with indexOf().
+   *
+   * @param key the query string
+   * @return a stream of the offsets of the occurrences of key in the text
+   */
+  public IntStream occurrences(String key) {
+    long range = search(key);
+    return IntStream.range((int) (range >>> 32), (int) range).map(this::indexOf);
+  }
+}
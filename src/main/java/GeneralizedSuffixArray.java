@@ -0,0 +1,576 @@
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * The GeneralizedSuffixArray class represents the suffix array of a collection
+ * of documents, so that a single structure answers queries over all of them.
+ *
+ * It supports the same operations as SuffixArrayOptimized: computing the
+ * length() of the text, selectAsString() the ith smallest suffix, getting the
+ * indexOf() select(i), the length of longestCommonPrefix() of select(i), and
+ * the rank(), range(), count() and occurrences() of a key. In addition, it
+ * maps every offset to the documentOf() it belongs to, and computes the
+ * documentFrequency() of a key (the number of distinct documents that contain
+ * it) and the ids of these documents(). If the LCP array was built, it finds
+ * the longestCommonSubstring() of any k documents in linear time.
+ *
+ * The documents are concatenated into a single text, and offsets refer to this
+ * text. The first character of document d is at documentStart(d), so the
+ * offset of an occurrence within its document is offset - documentStart(d).
+ * The map from offsets to documents is the array of document starts (4 bytes
+ * per document), and documentOf() runs a binary search over it.
+ *
+ * Every suffix ends at the end of its document: when the suffixes are sorted,
+ * document d is followed by a unique sentinel d that is smaller than every
+ * character (and than the sentinels of the following documents). This is done
+ * by running SA-IS over an integer alphabet where sentinel d is mapped to d,
+ * and character c to c + N, where N is the number of documents (see
+ * InducedSorting.java). Hence, no occurrence of a key ever crosses the
+ * boundary between two documents, and equal suffixes of different documents
+ * are sorted by document.
+ *
+ * Construction takes time proportional to the length of the text plus the
+ * size of the alphabet, and then lg N per suffix for mapping it back to its
+ * document. The queries take the same time as the ones of
+ * SuffixArrayOptimized without the LCP array, times lg N for finding the end
+ * of the document of each suffix that is compared. documentFrequency() and
+ * documents() take time proportional to M lg N plus the number of
+ * occurrences times lg N.
+ */
+public class GeneralizedSuffixArray {
+
+  /**
+   * The documents, concatenated.
+   */
+  private final char[] text;
+
+  /**
+   * Number of characters in the concatenated text.
+   */
+  private final int length;
+
+  /**
+   * starts[d] is the offset of the first character of document d, and
+   * starts[N] is the length of the text.
+   */
+  private final int[] starts;
+
+  /**
+   * index[i] refers to the offset of the ith sorted suffix.
+   */
+  private final int[] index;
+
+  /**
+   * lcp[i] is the length of the longest common prefix of the ith and the
+   * i-1st sorted suffixes (lcp[0] is 0), or null if it was not computed.
+   */
+  private final int[] lcp;
+
+  /**
+   * Builds the suffix array of the given documents.
+   *
+   * @param documents the input documents
+   */
+  public GeneralizedSuffixArray(String[] documents) {
+    this(documents, false);
+  }
+
+  /**
+   * Builds the suffix array of the given documents, and optionally its LCP
+   * array.
+   *
+   * @param documents the input documents
+   * @param withLcp whether to compute the LCP array
+   * @throws IllegalArgumentException if the documents have 2^31 or more
+   *         characters (including one sentinel per document)
+   */
+  public GeneralizedSuffixArray(String[] documents, boolean withLcp) {
+    int n = documents.length;
+    long total = 0;
+
+    this.starts = new int[n + 1];
+    for (int d = 0; d < n; d++) {
+      starts[d] = (int) total;
+      total += documents[d].length();
+    }
+
+    if (total + n > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Documents must have less than 2^31 characters");
+    }
+
+    this.length    = (int) total;
+    this.starts[n] = length;
+    this.text      = new char[length];
+
+    for (int d = 0; d < n; d++) {
+      documents[d].getChars(0, documents[d].length(), text, starts[d]);
+    }
+
+    int max = 0;
+    for (int i = 0; i < length; i++) {
+      max = Math.max(max, text[i]);
+    }
+
+    // Document d is at s[starts[d] + d..starts[d+1] + d), followed by the
+    // sentinel d.
+    int[] s = new int[length + n];
+    for (int d = 0; d < n; d++) {
+      for (int i = starts[d]; i < starts[d+1]; i++) {
+        s[i + d] = text[i] + n;
+      }
+      s[starts[d+1] + d] = d;
+    }
+
+    int[] sa = InducedSorting.sort(s, max + n);
+
+    // The suffixes that start with a sentinel are the n smallest ones.
+    this.index = new int[length];
+    for (int i = n; i < sa.length; i++) {
+      int p = sa[i];
+      index[i - n] = p - documentOfShifted(p);
+    }
+
+    this.lcp = withLcp ? kasai() : null;
+  }
+
+  /**
+   * Returns the document of the specified offset of the text with sentinels,
+   * where document d starts at starts[d] + d.
+   */
+  private int documentOfShifted(int p) {
+    int lo = 0;
+    int hi = starts.length - 2;
+
+    while (lo < hi) {
+      int mid = lo + (hi - lo + 1) / 2;
+
+      if (starts[mid] + mid <= p) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+
+    return lo;
+  }
+
+  /**
+   * Computes the LCP array using the algorithm of Kasai et al. (see
+   * SuffixArrayOptimized.java), one document at a time.
+   */
+  private int[] kasai() {
+    int[] inverse = new int[length];
+    int[] lcp     = new int[length];
+
+    for (int i = 0; i < length; i++) {
+      inverse[index[i]] = i;
+    }
+
+    for (int d = 0; d + 1 < starts.length; d++) {
+      int end = starts[d+1];
+      int h   = 0;
+
+      for (int j = starts[d]; j < end; j++) {
+        int r = inverse[j];
+
+        if (r == 0) {
+          h = 0;
+          continue;
+        }
+
+        int i    = index[r-1];
+        int endI = end(i);
+        while (j + h < end && i + h < endI && text[j+h] == text[i+h]) {
+          h++;
+        }
+
+        lcp[r] = h;
+
+        if (h > 0) {
+          h--;
+        }
+      }
+    }
+
+    return lcp;
+  }
+
+  /**
+   * Returns the offset just past the end of the document of offset i.
+   */
+  private int end(int i) {
+    return starts[documentOf(i) + 1];
+  }
+
+  /**
+   * Returns the length of the concatenated text.
+   *
+   * @return the length of the concatenated text
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Returns the number of documents.
+   *
+   * @return the number of documents
+   */
+  public int documentCount() {
+    return starts.length - 1;
+  }
+
+  /**
+   * Returns the offset of the first character of the specified document in
+   * the concatenated text.
+   *
+   * @param d an integer between 0 and documentCount() - 1
+   * @return the offset of the first character of document d
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= d <
+   *         documentCount()
+   */
+  public int documentStart(int d) {
+    if (d < 0 || d >= starts.length - 1) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return starts[d];
+  }
+
+  /**
+   * Returns the document that contains the specified offset of the
+   * concatenated text. Takes time proportional to lg N.
+   *
+   * @param offset an integer between 0 and length - 1
+   * @return the document that contains offset
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= offset < length
+   */
+  public int documentOf(int offset) {
+    if (offset < 0 || offset >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    // Find the last document that starts at or before offset (empty documents
+    // start at the same offset as the next one, and are skipped).
+    int lo = 0;
+    int hi = starts.length - 2;
+
+    while (lo < hi) {
+      int mid = lo + (hi - lo + 1) / 2;
+
+      if (starts[mid] <= offset) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+
+    return lo;
+  }
+
+  /**
+   * Returns the index into the concatenated text of the ith smallest suffix.
+   *
+   * @param i an integer between 0 and length - 1
+   * @return the index into the concatenated text of the ith smallest suffix
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= i < length
+   */
+  public int indexOf(int i) {
+    if (i < 0 || i >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return index[i];
+  }
+
+  /**
+   * Returns the ith smallest suffix (up to the end of its document) as a
+   * String. Note: this method should be used primarily for debugging
+   * purposes.
+   *
+   * @param i an integer between 0 and length - 1
+   * @return the ith smallest suffix as a String
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= i < length
+   */
+  public String selectAsString(int i) {
+    if (i < 0 || i >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return new String(text, index[i], end(index[i]) - index[i]);
+  }
+
+  /**
+   * Returns the length of the longest common prefix of the ith smallest suffix
+   * and the i-1st smallest suffix (both up to the end of their documents).
+   *
+   * @param i an integer between 1 and length - 1
+   * @return the length of the longest common prefix of the ith smallest suffix
+   *         and the i-1st smallest suffix.
+   * @throws java.lang.IndexOutOfBoundsException unless 1 <= i < length
+   */
+  public int longestCommonPreffix(int i) {
+    if (i < 1 || i >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    if (lcp != null) {
+      return lcp[i];
+    }
+
+    int a    = index[i];
+    int b    = index[i-1];
+    int endA = end(a);
+    int endB = end(b);
+    int size = 0;
+
+    while (a < endA && b < endB && text[a] == text[b]) {
+      a++;
+      b++;
+      size++;
+    }
+
+    return size;
+  }
+
+  /**
+   * Returns the number of suffixes strictly less than the specified key (see
+   * SuffixArrayOptimized.java).
+   *
+   * @param key the query string
+   * @return the number of suffixes strictly less than key
+   */
+  public int rank(String key) {
+    return search(key, false);
+  }
+
+  /**
+   * Returns the range of ranks of the suffixes that start with the specified
+   * key.
+   *
+   * @param key the query string
+   * @return the range [from, to) of ranks of the suffixes that start with key
+   */
+  public RankRange range(String key) {
+    return new RankRange(search(key, false), search(key, true));
+  }
+
+  /**
+   * Returns the number of occurrences of the specified key in all the
+   * documents.
+   *
+   * @param key the query string
+   * @return the number of occurrences of key
+   */
+  public int count(String key) {
+    return search(key, true) - search(key, false);
+  }
+
+  /**
+   * Returns the offsets of all the occurrences of the specified key in the
+   * concatenated text, in the order of their suffixes (not in text order).
+   *
+   * @param key the query string
+   * @return a stream of the offsets of the occurrences of key
+   */
+  public IntStream occurrences(String key) {
+    int from = search(key, false);
+    int to   = search(key, true);
+
+    return IntStream.range(from, to).map(i -> index[i]);
+  }
+
+  /**
+   * Returns the number of distinct documents that contain the specified key.
+   *
+   * @param key the query string
+   * @return the number of documents that contain key
+   */
+  public int documentFrequency(String key) {
+    return documentSet(key).cardinality();
+  }
+
+  /**
+   * Returns the ids of the distinct documents that contain the specified key,
+   * in increasing order.
+   *
+   * @param key the query string
+   * @return a stream of the documents that contain key
+   */
+  public IntStream documents(String key) {
+    return documentSet(key).stream();
+  }
+
+  /**
+   * Returns the longest substring that occurs in at least k distinct
+   * documents, or null if there is none. Takes linear time.
+   *
+   * A window of consecutive ranks slides over the suffix array, and is shrunk
+   * from the left as long as its suffixes still come from k documents. The
+   * suffixes of the window share the minimum of the LCP values inside it,
+   * which is maintained with a monotone queue of ranks.
+   *
+   * @param k the number of documents
+   * @return the longest substring common to at least k documents
+   * @throws IllegalArgumentException unless 2 <= k <= documentCount()
+   * @throws IllegalStateException if the suffix array was built without the
+   *         LCP array
+   */
+  public Repeat longestCommonSubstring(int k) {
+    if (lcp == null) {
+      throw new IllegalStateException("LCP array was not built");
+    }
+
+    if (k < 2 || k > starts.length - 1) {
+      throw new IllegalArgumentException("Number of documents must be between 2 and "
+                                         + (starts.length - 1));
+    }
+
+    // documents[j] is the document of offset j.
+    int[] documents = new int[length];
+    for (int d = 0; d + 1 < starts.length; d++) {
+      for (int j = starts[d]; j < starts[d+1]; j++) {
+        documents[j] = d;
+      }
+    }
+
+    int[] counts   = new int[starts.length - 1];
+    int   distinct = 0;
+
+    // queue[head..tail) holds ranks in (lo, hi] with increasing lcp values,
+    // so lcp[queue[head]] is the minimum over the window.
+    int[] queue = new int[length];
+    int   head  = 0;
+    int   tail  = 0;
+
+    int best     = 0;
+    int bestRank = 0;
+
+    for (int lo = 0, hi = 0; hi < length; hi++) {
+      if (counts[documents[index[hi]]]++ == 0) {
+        distinct++;
+      }
+
+      if (hi > lo) {
+        while (tail > head && lcp[queue[tail - 1]] >= lcp[hi]) {
+          tail--;
+        }
+        queue[tail++] = hi;
+      }
+
+      // Drop the leftmost suffix while the window keeps k documents.
+      while (lo < hi) {
+        int d = documents[index[lo]];
+
+        if (counts[d] == 1 && distinct <= k) {
+          break;
+        }
+
+        if (--counts[d] == 0) {
+          distinct--;
+        }
+        lo++;
+
+        while (head < tail && queue[head] <= lo) {
+          head++;
+        }
+      }
+
+      if (distinct >= k && lcp[queue[head]] > best) {
+        best     = lcp[queue[head]];
+        bestRank = queue[head];
+      }
+    }
+
+    if (best == 0) {
+      return null;
+    }
+
+    return SuffixArrayOptimized.repeat(lcp, index, bestRank, best);
+  }
+
+  /**
+   * Returns the set of documents of the occurrences of the specified key.
+   */
+  private BitSet documentSet(String key) {
+    BitSet documents = new BitSet(starts.length - 1);
+    int from = search(key, false);
+    int to   = search(key, true);
+
+    for (int i = from; i < to; i++) {
+      documents.set(documentOf(index[i]));
+    }
+
+    return documents;
+  }
+
+  /**
+   * Binary search for the specified key (see SuffixArrayCompact.java).
+   *
+   * If prefix is false, returns the number of suffixes strictly less than the
+   * key. Otherwise, returns the number of suffixes that are either less than
+   * the key or start with it.
+   *
+   * Unlike in a single text, several suffixes (of different documents) can be
+   * equal to the key, so the search does not stop at the first one found.
+   */
+  private int search(String key, boolean prefix) {
+    int lo = 0;
+    int hi = length - 1;
+    int l  = 0;
+    int r  = 0;
+
+    while (lo <= hi) {
+      int mid   = lo + (hi - lo) / 2;
+      int i     = index[mid];
+      int end   = end(i);
+      int match = matchLength(key, i, end, Math.min(l, r));
+      int cmp   = (prefix && match == key.length()) ? 1 : compare(key, i, end, match);
+
+      if (cmp > 0) {
+        lo = mid + 1;
+        l  = match;
+      } else {
+        hi = mid - 1;
+        r  = match;
+      }
+    }
+
+    return lo;
+  }
+
+  /**
+   * Returns the length of the longest common prefix of the specified key and
+   * text[i..end), knowing that they share at least the first from characters.
+   */
+  private int matchLength(String key, int i, int end, int from) {
+    int keyLength = key.length();
+    int j = from;
+
+    while (j < keyLength && i + j < end && key.charAt(j) == text[i + j]) {
+      j++;
+    }
+
+    return j;
+  }
+
+  /**
+   * Checks if the specified key is less than text[i..end), given the length
+   * of their longest common prefix.
+   */
+  private int compare(String key, int i, int end, int match) {
+    if (match < key.length() && i + match < end) {
+      return key.charAt(match) - text[i + match];
+    }
+
+    if (i + match < end) {
+      return -1;
+    }
+
+    if (match < key.length()) {
+      return 1;
+    }
+
+    return 0;
+  }
+}
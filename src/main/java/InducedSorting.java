@@ -0,0 +1,219 @@
+/**
+ * The InducedSorting class builds the suffix array of a sequence of integers
+ * using the SA-IS algorithm (Nong, Zhang and Chan, "Two Efficient Algorithms
+ * for Linear Time Suffix Array Construction").
+ *
+ * The algorithm classifies every suffix as either S-type (smaller than the
+ * suffix that follows it) or L-type (larger than the suffix that follows it).
+ * The leftmost S-type suffixes (LMS) of each run are sorted first, which
+ * allows the order of every other suffix to be induced with two linear scans
+ * over the buckets of the alphabet. When two LMS substrings are equal, the
+ * problem is reduced to a string made of their names (which is at most half
+ * the length of the input) and solved recursively.
+ *
+ * No sentinel is required: a suffix that is a proper prefix of another suffix
+ * is considered to be the smaller one, which matches the ordering used by the
+ * compare() methods of the suffix array classes.
+ *
+ * Construction takes time and extra space proportional to N + R, where R is
+ * the size of the alphabet, in the worst case.
+ */
+final class InducedSorting {
+
+  private InducedSorting() { }
+
+  /**
+   * Returns the suffix array of the specified text.
+   *
+   * @param text the input text
+   * @return the suffix array of text
+   */
+  static int[] sort(char[] text) {
+    int[] s = new int[text.length];
+    int upper = 0;
+
+    for (int i = 0; i < text.length; i++) {
+      s[i] = text[i];
+      upper = Math.max(upper, s[i]);
+    }
+
+    return sort(s, upper);
+  }
+
+  /**
+   * Returns the suffix array of the specified text, where each byte is an
+   * unsigned character.
+   *
+   * @param text the input text
+   * @return the suffix array of text
+   */
+  static int[] sort(byte[] text) {
+    int[] s = new int[text.length];
+    int upper = 0;
+
+    for (int i = 0; i < text.length; i++) {
+      s[i] = text[i] & 0xff;
+      upper = Math.max(upper, s[i]);
+    }
+
+    return sort(s, upper);
+  }
+
+  /**
+   * Returns the suffix array of s, where every value of s is in the range
+   * 0..upper.
+   *
+   * @param s the input sequence
+   * @param upper the largest value that may appear in s
+   * @return the suffix array of s
+   */
+  static int[] sort(int[] s, int upper) {
+    int n = s.length;
+
+    if (n == 0) {
+      return new int[0];
+    }
+
+    if (n == 1) {
+      return new int[] { 0 };
+    }
+
+    if (n == 2) {
+      return s[0] < s[1] ? new int[] { 0, 1 } : new int[] { 1, 0 };
+    }
+
+    int[] sa = new int[n];
+
+    // ls[i] is true when the ith suffix is S-type.
+    boolean[] ls = new boolean[n];
+    for (int i = n - 2; i >= 0; i--) {
+      ls[i] = (s[i] == s[i+1]) ? ls[i+1] : (s[i] < s[i+1]);
+    }
+
+    // sumL[c] and sumS[c] are the heads of the L-type and S-type parts of the
+    // bucket for character c.
+    int[] sumL = new int[upper + 1];
+    int[] sumS = new int[upper + 1];
+    for (int i = 0; i < n; i++) {
+      if (!ls[i]) {
+        sumS[s[i]]++;
+      } else if (s[i] < upper) {
+        sumL[s[i] + 1]++;
+      }
+    }
+    for (int c = 0; c <= upper; c++) {
+      sumS[c] += sumL[c];
+      if (c < upper) {
+        sumL[c + 1] += sumS[c];
+      }
+    }
+
+    int[] lmsMap = new int[n + 1];
+    int m = 0;
+    for (int i = 0; i <= n; i++) {
+      lmsMap[i] = -1;
+    }
+    for (int i = 1; i < n; i++) {
+      if (!ls[i-1] && ls[i]) {
+        lmsMap[i] = m++;
+      }
+    }
+
+    int[] lms = new int[m];
+    for (int i = 1, j = 0; i < n; i++) {
+      if (!ls[i-1] && ls[i]) {
+        lms[j++] = i;
+      }
+    }
+
+    int[] buffer = new int[upper + 1];
+    induce(s, upper, sa, ls, sumL, sumS, buffer, lms);
+
+    if (m > 0) {
+      int[] sortedLms = new int[m];
+      for (int i = 0, j = 0; i < n; i++) {
+        if (lmsMap[sa[i]] != -1) {
+          sortedLms[j++] = sa[i];
+        }
+      }
+
+      // Name every LMS substring by its rank among the distinct ones.
+      int[] reduced = new int[m];
+      int reducedUpper = 0;
+      reduced[lmsMap[sortedLms[0]]] = 0;
+
+      for (int i = 1; i < m; i++) {
+        int l = sortedLms[i-1];
+        int r = sortedLms[i];
+        int endL = (lmsMap[l] + 1 < m) ? lms[lmsMap[l] + 1] : n;
+        int endR = (lmsMap[r] + 1 < m) ? lms[lmsMap[r] + 1] : n;
+        boolean same = true;
+
+        if (endL - l != endR - r) {
+          same = false;
+        } else {
+          while (l < endL && s[l] == s[r]) {
+            l++;
+            r++;
+          }
+          if (l == n || s[l] != s[r]) {
+            same = false;
+          }
+        }
+
+        if (!same) {
+          reducedUpper++;
+        }
+        reduced[lmsMap[sortedLms[i]]] = reducedUpper;
+      }
+
+      int[] reducedSa = sort(reduced, reducedUpper);
+
+      for (int i = 0; i < m; i++) {
+        sortedLms[i] = lms[reducedSa[i]];
+      }
+
+      induce(s, upper, sa, ls, sumL, sumS, buffer, sortedLms);
+    }
+
+    return sa;
+  }
+
+  /**
+   * Places the specified LMS suffixes at the end of their buckets, and then
+   * induces the order of the L-type suffixes (left-to-right scan) and of the
+   * S-type suffixes (right-to-left scan).
+   */
+  private static void induce(int[] s, int upper, int[] sa, boolean[] ls,
+                             int[] sumL, int[] sumS, int[] buffer, int[] lms) {
+    int n = s.length;
+
+    for (int i = 0; i < n; i++) {
+      sa[i] = -1;
+    }
+
+    System.arraycopy(sumS, 0, buffer, 0, upper + 1);
+    for (int d : lms) {
+      if (d != n) {
+        sa[buffer[s[d]]++] = d;
+      }
+    }
+
+    System.arraycopy(sumL, 0, buffer, 0, upper + 1);
+    sa[buffer[s[n-1]]++] = n - 1;
+    for (int i = 0; i < n; i++) {
+      int v = sa[i];
+      if (v >= 1 && !ls[v-1]) {
+        sa[buffer[s[v-1]]++] = v - 1;
+      }
+    }
+
+    System.arraycopy(sumL, 0, buffer, 0, upper + 1);
+    for (int i = n - 1; i >= 0; i--) {
+      int v = sa[i];
+      if (v >= 1 && ls[v-1]) {
+        sa[--buffer[s[v-1] + 1]] = v - 1;
+      }
+    }
+  }
+}
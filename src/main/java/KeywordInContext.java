@@ -0,0 +1,207 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The KeywordInContext class represents a keyword-in-context (KWIC) service
+ * over the text of a suffix array: for each occurrence of a keyword, it
+ * returns a window of text around it.
+ *
+ * It supports the following operations: the count() of the occurrences of a
+ * keyword, and its windows(), in the order of the suffix array (RANK) or of
+ * the text (POSITION), optionally skipping some of them and limiting their
+ * number, so that results can be paginated.
+ *
+ * The windows are produced lazily, as a Stream of CharSequence views over the
+ * text of the suffix array: no characters are copied unless toString() is
+ * called on a window, so previewing the first page of a keyword with
+ * thousands of occurrences only allocates the windows of that page. In RANK
+ * order, a page is found in constant time from the range of the keyword; in
+ * POSITION order, the offsets of all the occurrences are sorted first, which
+ * takes 4 bytes per occurrence.
+ */
+public class KeywordInContext {
+
+  /**
+   * The orders in which windows can be returned.
+   */
+  public enum Order {
+    /** The order of the suffixes that start with the keyword. */
+    RANK,
+    /** The order of the offsets of the occurrences in the text. */
+    POSITION
+  }
+
+  /**
+   * A window of text around an occurrence of a keyword, which reads the
+   * characters from the text of the suffix array.
+   */
+  public static final class Window implements CharSequence {
+    private final SuffixArrayOptimized suffixArray;
+    private final int offset;
+    private final int from;
+    private final int to;
+
+    private Window(SuffixArrayOptimized suffixArray, int offset, int from, int to) {
+      this.suffixArray = suffixArray;
+      this.offset      = offset;
+      this.from        = from;
+      this.to          = to;
+    }
+
+    /**
+     * Returns the offset of the occurrence of the keyword in the text.
+     *
+     * @return the offset of the occurrence
+     */
+    public int offset() {
+      return offset;
+    }
+
+    /**
+     * Returns the offset of the first character of the window in the text.
+     *
+     * @return the offset of the start of the window
+     */
+    public int from() {
+      return from;
+    }
+
+    /**
+     * Returns the offset after the last character of the window in the text.
+     *
+     * @return the offset of the end of the window
+     */
+    public int to() {
+      return to;
+    }
+
+    @Override
+    public int length() {
+      return to - from;
+    }
+
+    @Override
+    public char charAt(int i) {
+      if (i < 0 || i >= to - from) {
+        throw new IndexOutOfBoundsException();
+      }
+
+      return suffixArray.charAt(from + i);
+    }
+
+    /**
+     * Returns a view of the specified part of this window, without copying
+     * it. The offset of the occurrence is unchanged.
+     */
+    @Override
+    public Window subSequence(int start, int end) {
+      if (start < 0 || end > to - from || start > end) {
+        throw new IndexOutOfBoundsException();
+      }
+
+      return new Window(suffixArray, offset, from + start, from + end);
+    }
+
+    /**
+     * Returns a copy of the characters of the window.
+     */
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(to - from);
+      for (int i = from; i < to; i++) {
+        sb.append(suffixArray.charAt(i));
+      }
+      return sb.toString();
+    }
+  }
+
+  /**
+   * The suffix array of the text.
+   */
+  private final SuffixArrayOptimized suffixArray;
+
+  /**
+   * Number of characters of context on each side of an occurrence.
+   */
+  private final int context;
+
+  /**
+   * Creates a KWIC service over the text of the specified suffix array, with
+   * the specified number of characters of context on each side of the
+   * occurrences.
+   *
+   * @param suffixArray the suffix array of the text
+   * @param context the number of characters of context on each side
+   * @throws IllegalArgumentException if context is negative
+   */
+  public KeywordInContext(SuffixArrayOptimized suffixArray, int context) {
+    if (context < 0) {
+      throw new IllegalArgumentException("Context must not be negative");
+    }
+
+    this.suffixArray = suffixArray;
+    this.context     = context;
+  }
+
+  /**
+   * Returns the number of occurrences of the specified keyword.
+   *
+   * @param keyword the query string
+   * @return the number of occurrences of keyword in the text
+   */
+  public int count(String keyword) {
+    return suffixArray.count(keyword);
+  }
+
+  /**
+   * Returns the windows around all the occurrences of the specified keyword,
+   * in the specified order.
+   *
+   * @param keyword the query string
+   * @param order the order of the windows
+   * @return a stream of the windows around the occurrences of keyword
+   */
+  public Stream<Window> windows(String keyword, Order order) {
+    return windows(keyword, order, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns the windows around the occurrences of the specified keyword, in
+   * the specified order, skipping the first skip ones and returning at most
+   * limit of them.
+   *
+   * @param keyword the query string
+   * @param order the order of the windows
+   * @param skip the number of windows to skip
+   * @param limit the maximum number of windows to return
+   * @return a stream of at most limit windows around the occurrences of
+   *         keyword
+   * @throws IllegalArgumentException if skip or limit is negative
+   */
+  public Stream<Window> windows(String keyword, Order order, int skip, int limit) {
+    if (skip < 0 || limit < 0) {
+      throw new IllegalArgumentException("Skip and limit must not be negative");
+    }
+
+    RankRange range = suffixArray.range(keyword);
+    int from = (int) Math.min(range.to(), (long) range.from() + skip);
+    int to   = (int) Math.min(range.to(), (long) from + limit);
+
+    IntStream offsets;
+    if (order == Order.RANK) {
+      offsets = IntStream.range(from, to).map(suffixArray::indexOf);
+    } else {
+      int[] sorted = IntStream.range(range.from(), range.to()).map(suffixArray::indexOf).toArray();
+      Arrays.sort(sorted);
+      offsets = Arrays.stream(sorted, from - range.from(), to - range.from());
+    }
+
+    int length = suffixArray.length();
+    int size   = keyword.length();
+
+    return offsets.mapToObj(offset ->
+      new Window(suffixArray, offset, Math.max(0, offset - context),
+                 (int) Math.min(length, (long) offset + size + context)));
+  }
+}
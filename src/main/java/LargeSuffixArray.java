@@ -0,0 +1,576 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * The LargeSuffixArray class represents a suffix array of a Latin-1 text file
+ * that may have 2^31 characters or more, up to 2^40.
+ *
+ * It supports the following operations: computing the length() of the text,
+ * getting the charAt() an offset and the indexOf() the ith smallest suffix,
+ * the longestCommonPreffix() of consecutive suffixes, determining the rank()
+ * of a key string, and the count() and offsets of the occurrences() of a
+ * key. Positions and ranks are longs.
+ *
+ * Nothing proportional to the length of the text is stored in the heap, so
+ * the garbage collector never scans (or copies) it:
+ *   - the text is memory-mapped read-only from the file, so it lives in the
+ *     page cache;
+ *   - the suffix array is stored in direct ByteBuffers, as 40-bit positions
+ *     packed in 5 bytes each (instead of 8 for a long[]).
+ * Since a single buffer cannot hold more than 2 GB, both are split in chunks:
+ * the text in chunks of 2^30 characters, and the suffix array in chunks of
+ * 2^28 positions. The suffix array takes 5 bytes of direct memory per
+ * character, which may require raising -XX:MaxDirectMemorySize.
+ *
+ * The suffixes are sorted in place with a 3-way radix quicksort, and the
+ * groups of suffixes that share DEPTH_LIMIT characters are finished by prefix
+ * doubling (see PrefixDoubling.refine()), so that long repeats do not make
+ * the construction quadratic. Prefix doubling takes 5 more bytes of direct
+ * memory per character, only while the suffix array is built and only if
+ * the text has such repeats.
+ *
+ * Suffix arrays of texts too large to sort in memory are built by
+ * ExternalSuffixArrayBuilder.buildLarge(), which saves them to a file with
+ * their text (and optionally their LCP array), and reopened with open(),
+ * which maps the file instead of allocating direct buffers.
+ *
+ * The suffixes are searched with the same binary search as
+ * MappedSuffixArray. Keys may contain any character: a character above 255 is
+ * greater than every character of the text.
+ */
+public class LargeSuffixArray {
+
+  /**
+   * Largest supported text length: positions are stored in 40 bits.
+   */
+  public static final long MAX_LENGTH = 1L << 40;
+
+  /**
+   * Number of bytes per position of the suffix array.
+   */
+  private static final int POSITION_SIZE = 5;
+
+  /**
+   * Default number of bits of the chunks of the text and of the suffix array
+   * (see textBits and indexBits).
+   */
+  private static final int TEXT_BITS  = 30;
+  private static final int INDEX_BITS = 28;
+
+  /**
+   * Cut-off to insertion sort (see SuffixArrayOptimized.java).
+   */
+  private static final int CUT_OFF = 8;
+
+  /**
+   * Number of characters that the suffixes of a subarray may share before the
+   * 3-way radix quicksort leaves it to prefix doubling.
+   */
+  private static final int DEPTH_LIMIT = 64;
+
+  /**
+   * The text is split in chunks of 2^textBits characters, and the suffix
+   * array in chunks of 2^indexBits positions.
+   */
+  private final int  textBits;
+  private final long textMask;
+  private final int  indexBits;
+
+  /**
+   * Number of characters in the text.
+   */
+  private final long length;
+
+  /**
+   * Mappings of the text file.
+   */
+  private final ByteBuffer[] text;
+
+  /**
+   * Direct buffers with the packed positions of the sorted suffixes.
+   */
+  private final PackedArray index;
+
+  /**
+   * Packed LCP array, or null if the suffix array was not opened from a file
+   * saved with it.
+   */
+  private final PackedArray lcp;
+
+  /**
+   * Ranks of the suffixes while the groups left by the radix quicksort are
+   * marked (see PrefixDoubling.refine()), or null if there are none.
+   */
+  private PackedArray rank;
+
+  /**
+   * Builds the suffix array of the specified Latin-1 text file.
+   *
+   * @param file the text file
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the file has more than 2^40
+   *         characters
+   */
+  public LargeSuffixArray(File file) throws IOException {
+    this(file, TEXT_BITS, INDEX_BITS);
+  }
+
+  /**
+   * Builds the suffix array of the specified text file, with the text in
+   * chunks of 2^textBits characters and the suffix array in chunks of
+   * 2^indexBits positions. Small chunks let tests cross chunk boundaries with
+   * small texts.
+   */
+  LargeSuffixArray(File file, int textBits, int indexBits) throws IOException {
+    this.textBits  = textBits;
+    this.textMask  = (1L << textBits) - 1;
+    this.indexBits = indexBits;
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      if (channel.size() > MAX_LENGTH) {
+        throw new IllegalArgumentException("Text files must have at most 2^40 characters");
+      }
+
+      this.length = channel.size();
+      this.text   = new ByteBuffer[(int) ((length + textMask) >>> textBits)];
+
+      for (int c = 0; c < text.length; c++) {
+        long offset = (long) c << textBits;
+        text[c] = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                              Math.min(textMask + 1, length - offset));
+      }
+    }
+
+    this.index = PackedArray.allocate(length, POSITION_SIZE, indexBits);
+    this.lcp   = null;
+
+    for (long i = 0; i < length; i++) {
+      index.set(i, i);
+    }
+
+    sort();
+
+    if (rank != null) {
+      // The suffixes outside the groups are in their final place. They are
+      // the ones whose rank is still 0, since a group ends at some hi > 0.
+      for (long i = 0; i < length; i++) {
+        long position = index.get(i);
+        if (rank.get(position) == 0) {
+          rank.set(position, i);
+        }
+      }
+
+      PrefixDoubling.refine(index, rank, DEPTH_LIMIT);
+      rank = null;
+    }
+  }
+
+  private LargeSuffixArray(long length, ByteBuffer[] text, PackedArray index, PackedArray lcp) {
+    this.textBits  = TEXT_BITS;
+    this.textMask  = (1L << textBits) - 1;
+    this.indexBits = INDEX_BITS;
+    this.length    = length;
+    this.text      = text;
+    this.index     = index;
+    this.lcp       = lcp;
+  }
+
+  /**
+   * Opens the suffix array saved in the specified file by
+   * ExternalSuffixArrayBuilder.buildLarge() (version 2 of the format of
+   * MappedSuffixArray). Like MappedSuffixArray.open(), it only reads the
+   * header: the text, the suffix array and the LCP array are mapped.
+   *
+   * @param file the suffix array file
+   * @return the suffix array, mapped in memory
+   * @throws IOException if the file cannot be read or is not a suffix array
+   *         file with 40-bit positions of a Latin-1 text
+   */
+  public static LargeSuffixArray open(File file) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      if (channel.size() < MappedSuffixArray.HEADER_SIZE) {
+        throw new IOException("Not a suffix array file: " + file);
+      }
+
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                      MappedSuffixArray.HEADER_SIZE);
+      if (header.getInt() != MappedSuffixArray.MAGIC) {
+        throw new IOException("Not a suffix array file: " + file);
+      }
+
+      int version = header.getInt();
+      if (version != MappedSuffixArray.LARGE_VERSION) {
+        throw new IOException("Unsupported suffix array file version: " + version);
+      }
+
+      int encoding = header.getInt();
+      if (encoding != MappedSuffixArray.LATIN_1) {
+        throw new IOException("Unsupported text encoding: " + encoding);
+      }
+
+      int     flags     = header.getInt();
+      long    length    = header.getLong();
+      long    textSize  = MappedSuffixArray.padding(length);
+      long    arraySize = POSITION_SIZE * length;
+      boolean withLcp   = (flags & MappedSuffixArray.FLAG_LCP) != 0;
+
+      long expected = MappedSuffixArray.HEADER_SIZE + textSize + arraySize
+                      + (withLcp ? arraySize : 0);
+      if (length < 0 || length > MAX_LENGTH || channel.size() < expected) {
+        throw new IOException("Truncated suffix array file: " + file);
+      }
+
+      long         position = MappedSuffixArray.HEADER_SIZE;
+      long         chunk    = 1L << TEXT_BITS;
+      ByteBuffer[] text     = new ByteBuffer[(int) ((length + chunk - 1) >>> TEXT_BITS)];
+
+      for (int c = 0; c < text.length; c++) {
+        long offset = (long) c << TEXT_BITS;
+        text[c] = channel.map(FileChannel.MapMode.READ_ONLY, position + offset,
+                              Math.min(chunk, length - offset));
+      }
+      position += textSize;
+
+      PackedArray index = PackedArray.map(channel, FileChannel.MapMode.READ_ONLY, position,
+                                          length, POSITION_SIZE, INDEX_BITS);
+      position += arraySize;
+      PackedArray lcp = withLcp
+        ? PackedArray.map(channel, FileChannel.MapMode.READ_ONLY, position,
+                          length, POSITION_SIZE, INDEX_BITS)
+        : null;
+
+      return new LargeSuffixArray(length, text, index, lcp);
+    }
+  }
+
+  /**
+   * Returns the character at the specified offset of the text, as an
+   * unsigned value.
+   */
+  private int byteAt(long offset) {
+    return text[(int) (offset >>> textBits)].get((int) (offset & textMask)) & 0xff;
+  }
+
+  /**
+   * Returns the kth character of the suffix that starts at offset i, or -1 if
+   * the suffix has less than k + 1 characters.
+   */
+  private int charAt(long i, long k) {
+    return i + k < length ? byteAt(i + k) : -1;
+  }
+
+  /**
+   * Sorts the whole suffix array using a 3-way radix quicksort around the
+   * median of three characters, with an explicit stack of (lo, hi, k)
+   * triples and insertion sort for tiny subarrays. The subarrays whose
+   * suffixes share DEPTH_LIMIT characters are marked as groups for
+   * PrefixDoubling.refine().
+   *
+   * Unlike SuffixArrayCompact, the characters are not packed into keys: the
+   * keys would take 8 more bytes per character, and without them each
+   * partitioning pass reads the text anyway.
+   */
+  private void sort() {
+    long[] stack = new long[3 * 16];
+    int    top   = push(stack, 0, 0, length - 1, 0);
+
+    while (top > 0) {
+      long k  = stack[--top];
+      long hi = stack[--top];
+      long lo = stack[--top];
+
+      if (k >= DEPTH_LIMIT) {
+        group(lo, hi);
+        continue;
+      }
+
+      if (hi <= lo + CUT_OFF) {
+        insertionSort(lo, hi, k);
+        continue;
+      }
+
+      long mid = lo + (hi - lo) / 2;
+      int  a   = charAt(index.get(lo), k);
+      int  b   = charAt(index.get(mid), k);
+      int  c   = charAt(index.get(hi), k);
+      int  v   = a < b ? (b < c ? b : Math.max(a, c)) : (c < b ? b : Math.min(a, c));
+      long lt  = lo;
+      long gt  = hi;
+      long i   = lo;
+
+      while (i <= gt) {
+        int t = charAt(index.get(i), k);
+
+        if (t < v) {
+          index.swap(lt++, i++);
+        } else if (t > v) {
+          index.swap(i, gt--);
+        } else {
+          i++;
+        }
+      }
+
+      if (top + 9 > stack.length) {
+        stack = Arrays.copyOf(stack, 2 * stack.length);
+      }
+
+      top = push(stack, top, lo, lt - 1, k);
+      top = push(stack, top, gt + 1, hi, k);
+
+      // The suffixes that end at depth k (v = -1) are all equal.
+      if (v >= 0) {
+        top = push(stack, top, lt, gt, k + 1);
+      }
+    }
+  }
+
+  /**
+   * Pushes the subarray lo..hi onto the stack, unless it is already sorted,
+   * and returns the new top of the stack.
+   */
+  private static int push(long[] stack, int top, long lo, long hi, long k) {
+    if (hi > lo) {
+      stack[top++] = lo;
+      stack[top++] = hi;
+      stack[top++] = k;
+    }
+
+    return top;
+  }
+
+  /**
+   * Sorts the suffixes lo..hi, which share their first k characters, using
+   * insertion sort on their first DEPTH_LIMIT characters, and marks the runs
+   * of suffixes that share them as groups.
+   */
+  private void insertionSort(long lo, long hi, long k) {
+    boolean tied = false;
+
+    for (long i = lo + 1; i <= hi; i++) {
+      for (long j = i; j > lo; j--) {
+        int cmp = compare(index.get(j), index.get(j - 1), k);
+        tied |= cmp == 0;
+
+        if (cmp >= 0) {
+          break;
+        }
+        index.swap(j, j - 1);
+      }
+    }
+
+    for (long a = lo, b; tied && a < hi; a = b + 1) {
+      for (b = a; b < hi && compare(index.get(b + 1), index.get(b), k) == 0; b++) { }
+
+      if (b > a) {
+        group(a, b);
+      }
+    }
+  }
+
+  /**
+   * Compares the first DEPTH_LIMIT characters of the suffixes that start at
+   * offsets i and j of the text, knowing that they share their first k
+   * characters.
+   */
+  private int compare(long i, long j, long k) {
+    // The suffix that ends first is the smaller one.
+    for (long d = k; ; d++) {
+      if (i + d >= length || j + d >= length) {
+        return Long.compare(j, i);
+      }
+
+      if (d == DEPTH_LIMIT) {
+        return 0;
+      }
+
+      int a = byteAt(i + d);
+      int b = byteAt(j + d);
+
+      if (a != b) {
+        return a - b;
+      }
+    }
+  }
+
+  /**
+   * Marks the suffixes lo..hi, which share their first DEPTH_LIMIT
+   * characters, as a group left to PrefixDoubling.refine().
+   */
+  private void group(long lo, long hi) {
+    if (rank == null) {
+      rank = PackedArray.allocate(length, POSITION_SIZE, indexBits);
+    }
+
+    for (long i = lo; i <= hi; i++) {
+      rank.set(index.get(i), hi);
+    }
+  }
+
+  /**
+   * Returns the length of the input text.
+   *
+   * @return the length of the input text
+   */
+  public long length() {
+    return length;
+  }
+
+  /**
+   * Returns the character at the specified offset of the text.
+   *
+   * @param offset an integer between 0 and length - 1
+   * @return the character at offset
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= offset < length
+   */
+  public char charAt(long offset) {
+    if (offset < 0 || offset >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return (char) byteAt(offset);
+  }
+
+  /**
+   * Returns the index into the original text of the ith smallest suffix.
+   *
+   * @param i an integer between 0 and length - 1
+   * @return the index into the original text of the ith smallest suffix
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= i < length
+   */
+  public long indexOf(long i) {
+    if (i < 0 || i >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return index.get(i);
+  }
+
+  /**
+   * Returns true if the LCP array was saved with this suffix array.
+   *
+   * @return true if the LCP array is present
+   */
+  public boolean hasLcp() {
+    return lcp != null;
+  }
+
+  /**
+   * Returns the length of the longest common prefix of the ith smallest suffix
+   * and the i-1st smallest suffix.
+   *
+   * @param i an integer between 1 and length - 1
+   * @return the length of the longest common prefix of the ith smallest suffix
+   *         and the i-1st smallest suffix.
+   * @throws java.lang.IndexOutOfBoundsException unless 1 <= i < length
+   */
+  public long longestCommonPreffix(long i) {
+    if (i < 1 || i >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    if (lcp != null) {
+      return lcp.get(i);
+    }
+
+    long a = index.get(i);
+    long b = index.get(i - 1);
+    long size = 0;
+
+    while (a + size < length && b + size < length && byteAt(a + size) == byteAt(b + size)) {
+      size++;
+    }
+
+    return size;
+  }
+
+  /**
+   * Returns the number of suffixes strictly less than the key.
+   *
+   * @param key the query string
+   * @return the number of suffixes strictly less than key
+   */
+  public long rank(String key) {
+    return search(key, false);
+  }
+
+  /**
+   * Returns the number of occurrences of the specified key in the text.
+   *
+   * @param key the query string
+   * @return the number of occurrences of key in the text
+   */
+  public long count(String key) {
+    return search(key, true) - search(key, false);
+  }
+
+  /**
+   * Returns the offsets of all the occurrences of the specified key in the
+   * text, in the order of their suffixes.
+   *
+   * @param key the query string
+   * @return a stream of the offsets of the occurrences of key in the text
+   */
+  public LongStream occurrences(String key) {
+    long from = search(key, false);
+    long to   = search(key, true);
+
+    return LongStream.range(from, to).map(index::get);
+  }
+
+  /**
+   * Binary search for the specified key, skipping the min(l, r) characters
+   * that are known to match (see SuffixArrayOptimized.rank()).
+   *
+   * If prefix is false, returns the number of suffixes strictly less than the
+   * key. Otherwise, returns the number of suffixes that are either less than
+   * the key or start with it.
+   */
+  private long search(String key, boolean prefix) {
+    int  keyLength = key.length();
+    long lo = 0;
+    long hi = length - 1;
+    int  l  = 0;
+    int  r  = 0;
+
+    while (lo <= hi) {
+      long mid    = lo + (hi - lo) / 2;
+      long offset = index.get(mid);
+      int  match  = Math.min(l, r);
+
+      while (match < keyLength && offset + match < length
+             && key.charAt(match) == byteAt(offset + match)) {
+        match++;
+      }
+
+      int cmp;
+      if (match == keyLength && prefix) {
+        cmp = 1;
+      } else if (match == keyLength) {
+        cmp = (offset + match < length) ? -1 : 0;
+      } else if (offset + match == length) {
+        cmp = 1;
+      } else {
+        cmp = key.charAt(match) - byteAt(offset + match);
+      }
+
+      if (cmp < 0) {
+        hi = mid - 1;
+        r  = match;
+      } else if (cmp > 0) {
+        lo = mid + 1;
+        l  = match;
+      } else {
+        return mid;
+      }
+    }
+
+    return lo;
+  }
+}
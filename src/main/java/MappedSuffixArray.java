@@ -0,0 +1,521 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * The MappedSuffixArray class represents a suffix array that was saved to a
+ * file and is read directly from a memory mapping of that file.
+ *
+ * Suffix arrays are saved with SuffixArrayOptimized.save() or
+ * SuffixArrayCompact.save(), and reopened with open(). Opening a file only
+ * reads its header: the text, the suffix array and the (optional) LCP array are
+ * paged in by the operating system as the queries touch them, so startup takes
+ * constant time and several processes that open the same file share the same
+ * pages of the page cache.
+ *
+ * It supports the same queries as the SuffixArrayOptimized class: length(),
+ * indexOf(), selectAsString(), longestCommonPreffix(), rank(), range(), count()
+ * and occurrences().
+ *
+ * The file format (version 1) is made of big-endian values:
+ *   - header (32 bytes): magic number, version, encoding of the text (1 for
+ *     Latin-1, one byte per character, or 2 for UTF-16, two bytes per
+ *     character), flags (1 if the LCP array is present), length of the text,
+ *     and 12 reserved bytes;
+ *   - the text, padded with zeros to a multiple of 4 bytes;
+ *   - the suffix array, one int per character;
+ *   - the LCP array, one int per character, if present.
+ *
+ * Version 2 of the format, written by ExternalSuffixArrayBuilder.buildLarge()
+ * for texts of 2^31 characters or more, stores the length of the text as a
+ * long (followed by 8 reserved bytes) and the suffix array and LCP array as
+ * 40-bit values of 5 bytes. It is opened with LargeSuffixArray.open().
+ *
+ * Since a single mapping cannot be larger than 2 GB, each section is mapped in
+ * chunks of 1 GB.
+ */
+public class MappedSuffixArray implements SuffixIndex {
+
+  /**
+   * Magic number at the start of every suffix array file ("SUFA").
+   */
+  static final int MAGIC = 0x53554641;
+
+  /**
+   * Current version of the file format.
+   */
+  static final int VERSION = 1;
+
+  /**
+   * Version of the file format with 40-bit positions.
+   */
+  static final int LARGE_VERSION = 2;
+
+  /**
+   * Size of the header, in bytes.
+   */
+  static final int HEADER_SIZE = 32;
+
+  /**
+   * Text encodings.
+   */
+  static final int LATIN_1 = 1;
+  static final int UTF_16  = 2;
+
+  /**
+   * Set in the flags when the LCP array is present.
+   */
+  static final int FLAG_LCP = 1;
+
+  /**
+   * Each section is mapped in chunks of 2^CHUNK_BITS bytes.
+   */
+  private static final int  CHUNK_BITS = 30;
+  private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+  /**
+   * Number of characters in this text.
+   */
+  private final int length;
+
+  /**
+   * Whether the text uses two bytes (UTF-16) or one byte (Latin-1) per
+   * character.
+   */
+  private final boolean wide;
+
+  /**
+   * Mappings of the text, the suffix array and the LCP array (null if the LCP
+   * array is not present).
+   */
+  private final ByteBuffer[] text;
+  private final ByteBuffer[] index;
+  private final ByteBuffer[] lcp;
+
+  private MappedSuffixArray(int length, boolean wide, ByteBuffer[] text,
+                            ByteBuffer[] index, ByteBuffer[] lcp) {
+    this.length = length;
+    this.wide   = wide;
+    this.text   = text;
+    this.index  = index;
+    this.lcp    = lcp;
+  }
+
+  /**
+   * Opens the suffix array saved in the specified file.
+   *
+   * @param file the suffix array file
+   * @return the suffix array, mapped in memory
+   * @throws IOException if the file cannot be read or is not a suffix array
+   *         file of a supported version
+   */
+  public static MappedSuffixArray open(File file) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      if (channel.size() < HEADER_SIZE) {
+        throw new IOException("Not a suffix array file: " + file);
+      }
+
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      if (header.getInt() != MAGIC) {
+        throw new IOException("Not a suffix array file: " + file);
+      }
+
+      int version = header.getInt();
+      if (version == LARGE_VERSION) {
+        throw new IOException("Suffix array file with 40-bit positions, "
+                              + "open it with LargeSuffixArray.open(): " + file);
+      }
+      if (version != VERSION) {
+        throw new IOException("Unsupported suffix array file version: " + version);
+      }
+
+      int encoding = header.getInt();
+      if (encoding != LATIN_1 && encoding != UTF_16) {
+        throw new IOException("Unsupported text encoding: " + encoding);
+      }
+
+      int     flags     = header.getInt();
+      int     length    = header.getInt();
+      long    textSize  = padding((long) length * encoding);
+      long    arraySize = 4L * length;
+      boolean withLcp   = (flags & FLAG_LCP) != 0;
+
+      long expected = HEADER_SIZE + textSize + arraySize + (withLcp ? arraySize : 0);
+      if (length < 0 || channel.size() < expected) {
+        throw new IOException("Truncated suffix array file: " + file);
+      }
+
+      long position = HEADER_SIZE;
+      ByteBuffer[] text = map(channel, position, textSize);
+      position += textSize;
+      ByteBuffer[] index = map(channel, position, arraySize);
+      position += arraySize;
+      ByteBuffer[] lcp = withLcp ? map(channel, position, arraySize) : null;
+
+      return new MappedSuffixArray(length, encoding == UTF_16, text, index, lcp);
+    }
+  }
+
+  /**
+   * Maps the specified section of the file in chunks of 2^CHUNK_BITS bytes.
+   */
+  private static ByteBuffer[] map(FileChannel channel, long position, long size)
+      throws IOException {
+    int chunks = (int) ((size + CHUNK_MASK) >>> CHUNK_BITS);
+    ByteBuffer[] buffers = new ByteBuffer[chunks];
+
+    for (int c = 0; c < chunks; c++) {
+      long offset = (long) c << CHUNK_BITS;
+      long chunk  = Math.min(CHUNK_MASK + 1, size - offset);
+      buffers[c]  = channel.map(FileChannel.MapMode.READ_ONLY, position + offset, chunk);
+    }
+
+    return buffers;
+  }
+
+  /**
+   * Rounds the specified size up to a multiple of 4 bytes.
+   */
+  static long padding(long size) {
+    return (size + 3) & ~3L;
+  }
+
+  /**
+   * Writes the suffix array of a UTF-16 text to the specified file.
+   */
+  static void write(File file, char[] text, int[] index, int[] lcp) throws IOException {
+    try (Output out = new Output(file)) {
+      out.writeHeader(UTF_16, lcp != null, text.length);
+
+      for (char c : text) {
+        out.writeChar(c);
+      }
+      out.pad();
+
+      out.writeInts(index);
+      if (lcp != null) {
+        out.writeInts(lcp);
+      }
+    }
+  }
+
+  /**
+   * Writes the suffix array of a Latin-1 text to the specified file.
+   */
+  static void write(File file, byte[] text, int[] index, int[] lcp) throws IOException {
+    try (Output out = new Output(file)) {
+      out.writeHeader(LATIN_1, lcp != null, text.length);
+
+      for (byte b : text) {
+        out.writeByte(b);
+      }
+      out.pad();
+
+      out.writeInts(index);
+      if (lcp != null) {
+        out.writeInts(lcp);
+      }
+    }
+  }
+
+  /**
+   * Buffered, sequential writer of the sections of a suffix array file.
+   */
+  static final class Output implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer  buffer = ByteBuffer.allocateDirect(1 << 16);
+    private long written;
+
+    Output(File file) throws IOException {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                                 StandardOpenOption.TRUNCATE_EXISTING,
+                                 StandardOpenOption.WRITE);
+    }
+
+    void writeHeader(int encoding, boolean withLcp, int length) throws IOException {
+      writeInt(MAGIC);
+      writeInt(VERSION);
+      writeInt(encoding);
+      writeInt(withLcp ? FLAG_LCP : 0);
+      writeInt(length);
+      writeInt(0);
+      writeInt(0);
+      writeInt(0);
+    }
+
+    void writeLargeHeader(int encoding, boolean withLcp, long length) throws IOException {
+      writeInt(MAGIC);
+      writeInt(LARGE_VERSION);
+      writeInt(encoding);
+      writeInt(withLcp ? FLAG_LCP : 0);
+      writeInt((int) (length >>> 32));
+      writeInt((int) length);
+      writeInt(0);
+      writeInt(0);
+    }
+
+    void writeByte(byte value) throws IOException {
+      ensure(1);
+      buffer.put(value);
+    }
+
+    void writeChar(char value) throws IOException {
+      ensure(2);
+      buffer.putChar(value);
+    }
+
+    void writeInt(int value) throws IOException {
+      ensure(4);
+      buffer.putInt(value);
+    }
+
+    /**
+     * Writes the low 40 bits of the value in 5 bytes.
+     */
+    void writeInt40(long value) throws IOException {
+      ensure(5);
+      buffer.put((byte) (value >>> 32));
+      buffer.putInt((int) value);
+    }
+
+    void writeInts(int[] values) throws IOException {
+      for (int value : values) {
+        writeInt(value);
+      }
+    }
+
+    /**
+     * Pads the file with zeros to a multiple of 4 bytes.
+     */
+    void pad() throws IOException {
+      while (((written + buffer.position()) & 3) != 0) {
+        writeByte((byte) 0);
+      }
+    }
+
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        written += channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        flush();
+      } finally {
+        channel.close();
+      }
+    }
+  }
+
+  /**
+   * Returns the ith character of the text.
+   */
+  private int charAt(int i) {
+    if (wide) {
+      long offset = 2L * i;
+      return text[(int) (offset >>> CHUNK_BITS)].getChar((int) (offset & CHUNK_MASK));
+    }
+
+    return text[i >>> CHUNK_BITS].get(i & (int) CHUNK_MASK) & 0xff;
+  }
+
+  /**
+   * Returns the ith int of the specified mapped array.
+   */
+  private static int intAt(ByteBuffer[] array, int i) {
+    long offset = 4L * i;
+    return array[(int) (offset >>> CHUNK_BITS)].getInt((int) (offset & CHUNK_MASK));
+  }
+
+  /**
+   * Returns the length of the input text.
+   *
+   * @return the length of the input text
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Returns true if the LCP array was saved with this suffix array.
+   *
+   * @return true if the LCP array is present
+   */
+  public boolean hasLcp() {
+    return lcp != null;
+  }
+
+  /**
+   * Returns the index into the original text of the ith smallest suffix.
+   *
+   * @param i an integer between 0 and length - 1
+   * @return the index into the original text of the ith smallest suffix
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= i < length
+   */
+  public int indexOf(int i) {
+    if (i < 0 || i >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return intAt(index, i);
+  }
+
+  /**
+   * Returns the ith smallest suffix as a String. Note: this method should be
+   * used primarily for debugging purposes.
+   *
+   * @param i an integer between 0 and length - 1
+   * @return the ith smallest suffix as a String
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= i < length
+   */
+  public String selectAsString(int i) {
+    int offset = indexOf(i);
+    StringBuilder suffix = new StringBuilder(length - offset);
+
+    for (int j = offset; j < length; j++) {
+      suffix.append((char) charAt(j));
+    }
+
+    return suffix.toString();
+  }
+
+  /**
+   * Returns the length of the longest common prefix of the ith smallest suffix
+   * and the i-1st smallest suffix.
+   *
+   * @param i an integer between 1 and length - 1
+   * @return the length of the longest common prefix of the ith smallest suffix
+   *         and the i-1st smallest suffix.
+   * @throws java.lang.IndexOutOfBoundsException unless 1 <= i < length
+   */
+  public int longestCommonPreffix(int i) {
+    if (i < 1 || i >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    if (lcp != null) {
+      return intAt(lcp, i);
+    }
+
+    int a = intAt(index, i);
+    int b = intAt(index, i-1);
+    int size = 0;
+
+    while (a + size < length && b + size < length && charAt(a + size) == charAt(b + size)) {
+      size++;
+    }
+
+    return size;
+  }
+
+  /**
+   * Returns the number of suffixes strictly less than the specified key.
+   *
+   * @param key the query string
+   * @return the number of suffixes strictly less than key
+   */
+  public int rank(String key) {
+    return search(key, false);
+  }
+
+  /**
+   * Returns the range of ranks of the suffixes that start with the specified
+   * key.
+   *
+   * @param key the query string
+   * @return the range [from, to) of ranks of the suffixes that start with key
+   */
+  public RankRange range(String key) {
+    return new RankRange(search(key, false), search(key, true));
+  }
+
+  /**
+   * Returns the number of occurrences of the specified key in the text.
+   *
+   * @param key the query string
+   * @return the number of occurrences of key in the text
+   */
+  public int count(String key) {
+    return search(key, true) - search(key, false);
+  }
+
+  /**
+   * Returns the offsets of all the occurrences of the specified key in the
+   * text, in the order of their suffixes.
+   *
+   * @param key the query string
+   * @return a stream of the offsets of the occurrences of key in the text
+   */
+  public IntStream occurrences(String key) {
+    int from = search(key, false);
+    int to   = search(key, true);
+
+    return IntStream.range(from, to).map(i -> intAt(index, i));
+  }
+
+  /**
+   * Binary search for the specified key, skipping the min(l, r) characters
+   * that are known to match (see SuffixArrayOptimized.rank()).
+   *
+   * If prefix is false, returns the number of suffixes strictly less than the
+   * key. Otherwise, returns the number of suffixes that are either less than
+   * the key or start with it.
+   */
+  private int search(String key, boolean prefix) {
+    int keyLength = key.length();
+    int lo = 0;
+    int hi = length - 1;
+    int l  = 0;
+    int r  = 0;
+
+    while (lo <= hi) {
+      int mid    = lo + (hi - lo) / 2;
+      int offset = intAt(index, mid);
+      int match  = Math.min(l, r);
+
+      while (match < keyLength && offset + match < length
+             && key.charAt(match) == charAt(offset + match)) {
+        match++;
+      }
+
+      int cmp;
+      if (match == keyLength && prefix) {
+        cmp = 1;
+      } else if (match == keyLength) {
+        cmp = (offset + match < length) ? -1 : 0;
+      } else if (offset + match == length) {
+        cmp = 1;
+      } else {
+        cmp = key.charAt(match) - charAt(offset + match);
+      }
+
+      if (cmp < 0) {
+        hi = mid - 1;
+        r  = match;
+      } else if (cmp > 0) {
+        lo = mid + 1;
+        l  = match;
+      } else {
+        return mid;
+      }
+    }
+
+    return lo;
+  }
+}
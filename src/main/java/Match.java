@@ -0,0 +1,95 @@
+/**
+ * The Match class represents an approximate occurrence of a key in a text:
+ * the substring text[offset..offset + length) is at the given distance from
+ * the key (number of mismatches, or of edits).
+ */
+public final class Match {
+
+  /**
+   * The offset of the occurrence in the text.
+   */
+  private final int offset;
+
+  /**
+   * The length of the occurrence.
+   */
+  private final int length;
+
+  /**
+   * The distance between the occurrence and the key.
+   */
+  private final int distance;
+
+  /**
+   * Creates the occurrence text[offset..offset + length) at the specified
+   * distance from the key.
+   *
+   * @param offset the offset of the occurrence in the text
+   * @param length the length of the occurrence
+   * @param distance the distance between the occurrence and the key
+   * @throws IllegalArgumentException if offset, length or distance is
+   *         negative
+   */
+  public Match(int offset, int length, int distance) {
+    if (offset < 0 || length < 0 || distance < 0) {
+      throw new IllegalArgumentException("Invalid match at " + offset + " of length " + length
+                                         + " and distance " + distance);
+    }
+
+    this.offset   = offset;
+    this.length   = length;
+    this.distance = distance;
+  }
+
+  /**
+   * Returns the offset of the occurrence in the text.
+   *
+   * @return the offset of the occurrence in the text
+   */
+  public int offset() {
+    return offset;
+  }
+
+  /**
+   * Returns the length of the occurrence.
+   *
+   * @return the length of the occurrence
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Returns the distance between the occurrence and the key.
+   *
+   * @return the distance between the occurrence and the key
+   */
+  public int distance() {
+    return distance;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+
+    if (!(other instanceof Match)) {
+      return false;
+    }
+
+    Match that = (Match) other;
+    return this.offset == that.offset && this.length == that.length
+        && this.distance == that.distance;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * offset + length) + distance;
+  }
+
+  @Override
+  public String toString() {
+    return offset + "+" + length + " d=" + distance;
+  }
+}
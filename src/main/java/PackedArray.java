@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The PackedArray class represents an array of unsigned integers of 1, 4 or 5
+ * bytes each (5 bytes hold the 40-bit positions of LargeSuffixArray), stored
+ * outside the heap: either in direct ByteBuffers, or in a memory mapping of a
+ * section of a file.
+ *
+ * Since a single buffer cannot hold more than 2 GB, the array is split in
+ * chunks of 2^bits values. Values are big-endian, as in the suffix array
+ * files of MappedSuffixArray.
+ */
+final class PackedArray {
+
+  /**
+   * Number of values in this array.
+   */
+  private final long length;
+
+  /**
+   * Number of bytes per value: 1, 4 or 5.
+   */
+  private final int width;
+
+  /**
+   * The array is split in chunks of 2^bits values.
+   */
+  private final int  bits;
+  private final long mask;
+
+  private final ByteBuffer[] chunks;
+
+  private PackedArray(long length, int width, int bits) {
+    if (width != 1 && width != 4 && width != 5) {
+      throw new IllegalArgumentException("Unsupported width: " + width);
+    }
+    if (((long) width << bits) > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Chunks must be smaller than 2 GB");
+    }
+
+    this.length = length;
+    this.width  = width;
+    this.bits   = bits;
+    this.mask   = (1L << bits) - 1;
+    this.chunks = new ByteBuffer[(int) ((length + mask) >>> bits)];
+  }
+
+  /**
+   * Allocates an array of length values of the specified width, in direct
+   * buffers of 2^bits values. The values are initially 0.
+   */
+  static PackedArray allocate(long length, int width, int bits) {
+    PackedArray array = new PackedArray(length, width, bits);
+
+    for (int c = 0; c < array.chunks.length; c++) {
+      array.chunks[c] = ByteBuffer.allocateDirect(array.chunkSize(c));
+    }
+
+    return array;
+  }
+
+  /**
+   * Maps an array of length values of the specified width, stored at the
+   * specified position of a file, in mappings of 2^bits values.
+   */
+  static PackedArray map(FileChannel channel, FileChannel.MapMode mode, long position,
+                         long length, int width, int bits) throws IOException {
+    PackedArray array = new PackedArray(length, width, bits);
+
+    for (int c = 0; c < array.chunks.length; c++) {
+      long offset = position + ((long) c << bits) * width;
+      array.chunks[c] = channel.map(mode, offset, array.chunkSize(c));
+    }
+
+    return array;
+  }
+
+  /**
+   * Returns the size in bytes of the cth chunk.
+   */
+  private int chunkSize(int c) {
+    return (int) (Math.min(mask + 1, length - ((long) c << bits)) * width);
+  }
+
+  /**
+   * Returns the number of values in this array.
+   */
+  long length() {
+    return length;
+  }
+
+  /**
+   * Returns the ith value.
+   */
+  long get(long i) {
+    ByteBuffer chunk  = chunks[(int) (i >>> bits)];
+    int        offset = (int) (i & mask) * width;
+
+    if (width == 5) {
+      return ((chunk.get(offset) & 0xffL) << 32) | (chunk.getInt(offset + 1) & 0xffffffffL);
+    } else if (width == 4) {
+      return chunk.getInt(offset) & 0xffffffffL;
+    } else {
+      return chunk.get(offset) & 0xffL;
+    }
+  }
+
+  /**
+   * Sets the ith value, which must fit in the width of the array.
+   */
+  void set(long i, long value) {
+    ByteBuffer chunk  = chunks[(int) (i >>> bits)];
+    int        offset = (int) (i & mask) * width;
+
+    if (width == 5) {
+      chunk.put(offset, (byte) (value >>> 32));
+      chunk.putInt(offset + 1, (int) value);
+    } else if (width == 4) {
+      chunk.putInt(offset, (int) value);
+    } else {
+      chunk.put(offset, (byte) value);
+    }
+  }
+
+  /**
+   * Swaps the ith and jth values.
+   */
+  void swap(long i, long j) {
+    long tmp = get(i);
+    set(i, get(j));
+    set(j, tmp);
+  }
+
+  /**
+   * Writes the changes made to a mapped array back to its file.
+   */
+  void force() {
+    for (ByteBuffer chunk : chunks) {
+      if (chunk instanceof MappedByteBuffer) {
+        ((MappedByteBuffer) chunk).force();
+      }
+    }
+  }
+}
@@ -0,0 +1,580 @@
+import java.util.Arrays;
+
+/**
+ * The PrefixDoubling class builds the suffix array of a sequence of integers
+ * by prefix doubling (Manber and Myers, "Suffix Arrays: A New Method for
+ * On-Line String Searches").
+ *
+ * After the round of length h, the suffixes are sorted by their first h
+ * characters,
+ * and rank[i] is the number of distinct h-prefixes smaller than the one of
+ * the suffix at offset i. The 2h-prefix of a suffix is the pair of the
+ * h-prefixes at offsets i and i + h, so the next round sorts the suffixes by
+ * the pairs (rank[i], rank[i + h]) with two counting sorts: the order by the
+ * second rank is read directly from the current suffix array, and a stable
+ * counting sort by the first rank completes it. The rounds stop when all the
+ * ranks are distinct.
+ *
+ * A suffix that is a proper prefix of another suffix is the smaller one, as
+ * in the compare() methods of the suffix array classes: a suffix with less
+ * than h characters after offset i + h has an empty second half, which sorts
+ * before every other.
+ *
+ * Each round takes linear time, and there are at most lg L + 1 rounds, where
+ * L is the length of the longest repeated substring, so construction takes
+ * O(N lg N) time in the worst case and four int arrays of extra space. It
+ * does not degrade on repetitive text like a plain 3-way radix quicksort, but
+ * it is usually slower than SA-IS (see InducedSorting.java).
+ *
+ * The refine() method finishes a suffix array that another sort left
+ * partially sorted, with the variant of Larsson and Sadakane ("Faster Suffix
+ * Sorting"): only the groups of suffixes that are not sorted yet are visited
+ * in each round, so the parts of the text without long repeats cost nothing.
+ * The 3-way radix quicksort hands it the groups of suffixes that share a long
+ * prefix, on which it would otherwise take time proportional to the length of
+ * the repeats. An overload works on suffix arrays stored outside the heap
+ * (see PackedArray.java), for LargeSuffixArray and ExternalSuffixArrayBuilder.
+ */
+final class PrefixDoubling {
+
+  /**
+   * The groups of a partially sorted suffix array that are left to sort.
+   * Groups can be added concurrently by the tasks of a parallel sort.
+   */
+  static final class Groups {
+    // bounds[0..size) holds the pairs lo, hi of the groups.
+    private int[] bounds = new int[16];
+    private int   size;
+
+    /**
+     * Adds the group sa[lo..hi].
+     */
+    synchronized void add(int lo, int hi) {
+      if (size + 2 > bounds.length) {
+        bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+      }
+
+      bounds[size++] = lo;
+      bounds[size++] = hi;
+    }
+  }
+
+  /**
+   * Cut-off to insertion sort in split(), and size of the ranges whose pivot
+   * is the ninther rather than the median of three.
+   */
+  private static final int CUT_OFF = 8;
+  private static final int NINTHER = 40;
+
+  private PrefixDoubling() { }
+
+  /**
+   * Returns the suffix array of the specified text.
+   *
+   * @param text the input text
+   * @return the suffix array of text
+   */
+  static int[] sort(char[] text) {
+    int[] s = new int[text.length];
+    int upper = 0;
+
+    for (int i = 0; i < text.length; i++) {
+      s[i] = text[i];
+      upper = Math.max(upper, s[i]);
+    }
+
+    return sort(s, upper);
+  }
+
+  /**
+   * Returns the suffix array of the specified text, where each byte is an
+   * unsigned character.
+   *
+   * @param text the input text
+   * @return the suffix array of text
+   */
+  static int[] sort(byte[] text) {
+    int[] s = new int[text.length];
+    int upper = 0;
+
+    for (int i = 0; i < text.length; i++) {
+      s[i] = text[i] & 0xff;
+      upper = Math.max(upper, s[i]);
+    }
+
+    return sort(s, upper);
+  }
+
+  /**
+   * Returns the suffix array of s, where every value of s is in the range
+   * 0..upper.
+   *
+   * @param s the input sequence
+   * @param upper the largest value that may appear in s
+   * @return the suffix array of s
+   */
+  static int[] sort(int[] s, int upper) {
+    int   n     = s.length;
+    int[] sa    = new int[n];
+    int[] rank  = new int[n];
+    int[] next  = new int[n];
+    int[] count = new int[Math.max(upper + 1, n) + 1];
+
+    if (n == 0) {
+      return sa;
+    }
+
+    // Sort by the first character, and rank the 1-prefixes.
+    for (int i = 0; i < n; i++) {
+      next[i] = i;
+    }
+    countingSort(next, sa, s, count, upper + 1);
+
+    int classes = 1;
+    rank[sa[0]] = 0;
+    for (int j = 1; j < n; j++) {
+      if (s[sa[j]] != s[sa[j - 1]]) {
+        classes++;
+      }
+      rank[sa[j]] = classes - 1;
+    }
+
+    for (int h = 1; classes < n; h <<= 1) {
+      // Order by the second half: the suffixes without one come first, and
+      // then the others in the order of the suffixes that start h later.
+      int[] order = next;
+      int   k     = 0;
+
+      for (int i = Math.max(0, n - h); i < n; i++) {
+        order[k++] = i;
+      }
+      for (int j = 0; j < n; j++) {
+        if (sa[j] >= h) {
+          order[k++] = sa[j] - h;
+        }
+      }
+
+      countingSort(order, sa, rank, count, classes);
+
+      // Rank the 2h-prefixes.
+      classes = 1;
+      next[sa[0]] = 0;
+      for (int j = 1; j < n; j++) {
+        int a = sa[j - 1];
+        int b = sa[j];
+
+        if (rank[a] != rank[b] || second(rank, a, h) != second(rank, b, h)) {
+          classes++;
+        }
+        next[b] = classes - 1;
+      }
+
+      int[] tmp = rank;
+      rank = next;
+      next = tmp;
+    }
+
+    return sa;
+  }
+
+  /**
+   * Sorts the specified groups of sa, whose suffixes share at least their
+   * first h characters. The rest of sa must already be sorted.
+   *
+   * The rank of a suffix is the position of the last suffix of its group, so
+   * the ranks of the sorted suffixes are final, and the order of the ranks is
+   * the order of the suffixes. Each round sorts the suffixes of every group
+   * by the rank of the suffix h characters later, splits the group into the
+   * runs of equal ranks, which share at least 2h characters, and doubles h.
+   * The ranks of a group are updated as soon as it is split, which only
+   * refines the ranks that the next groups of the round read.
+   *
+   * Each group is sorted with the ternary-split quicksort of Larsson and
+   * Sadakane (see split()), which leaves the suffixes of equal rank in the
+   * middle part instead of sorting them further: splitting a group of G
+   * suffixes into subgroups of sizes g takes O(G + sum of g lg(G / g)) time,
+   * and a group that does not split takes a single pass. Summed over the
+   * rounds, these costs telescope to O(lg N) per suffix, so refine() takes
+   * O(N lg N) time for the N suffixes left in groups, however long the
+   * repeats (with good pivots, see pivot()).
+   *
+   * @param sa the partially sorted suffix array
+   * @param groups the groups of sa left to sort
+   * @param h the number of characters shared by the suffixes of each group
+   * @param keys scratch space, at least as long as sa
+   */
+  static void refine(int[] sa, Groups groups, int h, long[] keys) {
+    int size = groups.size;
+    if (size == 0) {
+      return;
+    }
+
+    int   n       = sa.length;
+    int[] pending = Arrays.copyOf(groups.bounds, size);
+    int[] rank    = new int[n];
+    for (int j = 0; j < n; j++) {
+      rank[sa[j]] = j;
+    }
+    for (int g = 0; g < size; g += 2) {
+      for (int j = pending[g]; j <= pending[g + 1]; j++) {
+        rank[sa[j]] = pending[g + 1];
+      }
+    }
+
+    int[] split = new int[pending.length];
+    int[] stack = new int[64];
+
+    while (size > 0) {
+      int next = 0;
+
+      for (int g = 0; g < size; g += 2) {
+        int lo = pending[g];
+        int hi = pending[g + 1];
+
+        // Sort the suffixes by the rank of their second half, packed above
+        // them in the keys.
+        for (int j = lo; j <= hi; j++) {
+          keys[j] = (long) (second(rank, sa[j], h) + 1) << 32 | sa[j];
+        }
+        stack = split(keys, lo, hi, stack);
+
+        for (int a = lo, b; a <= hi; a = b + 1) {
+          for (b = a; b < hi && (keys[b + 1] >>> 32) == (keys[a] >>> 32); b++) { }
+
+          // The last run keeps the rank of the group.
+          for (int j = a; j <= b; j++) {
+            sa[j] = (int) keys[j];
+            if (b < hi) {
+              rank[sa[j]] = b;
+            }
+          }
+
+          if (b > a) {
+            if (next + 2 > split.length) {
+              split = Arrays.copyOf(split, 2 * split.length);
+            }
+            split[next++] = a;
+            split[next++] = b;
+          }
+        }
+      }
+
+      int[] tmp = pending;
+      pending = split;
+      split   = tmp;
+      size    = next;
+      h       = (int) Math.min(Integer.MAX_VALUE, 2L * h);
+    }
+  }
+
+  /**
+   * Sorts the groups of a partially sorted suffix array of up to 2^40
+   * suffixes, stored outside the heap, whose suffixes share at least their
+   * first h characters (see refine() above).
+   *
+   * The groups are not listed, since there may be too many to keep in the
+   * heap; they are marked in the ranks instead: rank[sa[j]] must be j for
+   * the suffixes in their final place, and hi for the suffixes of a group
+   * sa[lo..hi]. Each round scans sa for the suffixes whose rank is beyond
+   * their position, which start a group, as Larsson and Sadakane do with
+   * the negated lengths of the sorted runs.
+   *
+   * A group is split with the same ternary-split quicksort as above, but
+   * the ranks of the second halves are read on the fly rather than copied,
+   * and the ranks of the suffixes of the group being split, which it
+   * updates, are read as the rank of the whole group (see key()). This takes
+   * O(N lg N) time for the N suffixes left in groups, plus a scan of the
+   * length of sa per round.
+   *
+   * @param sa the partially sorted suffix array
+   * @param rank the ranks of the suffixes, as described above
+   * @param h the number of characters shared by the suffixes of each group
+   */
+  static void refine(PackedArray sa, PackedArray rank, long h) {
+    long   n     = sa.length();
+    long[] stack = new long[64];
+
+    for (boolean grouped = true; grouped; h *= 2) {
+      grouped = false;
+
+      for (long lo = 0; lo < n; ) {
+        long hi = rank.get(sa.get(lo));
+
+        if (hi == lo) {
+          lo++;
+          continue;
+        }
+
+        stack = split(sa, rank, lo, hi, h, stack);
+
+        // Rank each run of equal keys by its last suffix.
+        long a  = lo;
+        long ka = key(sa, rank, lo, hi, a, h);
+
+        for (long b = lo + 1; b <= hi + 1; b++) {
+          long kb = b <= hi ? key(sa, rank, lo, hi, b, h) : Long.MAX_VALUE;
+
+          if (kb != ka) {
+            for (long j = a; j < b; j++) {
+              rank.set(sa.get(j), b - 1);
+            }
+
+            grouped |= b - 1 > a;
+            a  = b;
+            ka = kb;
+          }
+        }
+
+        lo = hi + 1;
+      }
+    }
+  }
+
+  /**
+   * Returns the rank of the second half of the suffix sa[j] of the group
+   * sa[lo..hi], for halves of length h, or -1 if it is empty. The ranks
+   * within lo..hi are those of the suffixes of the group itself, which are
+   * all read as hi, the rank of the group before it is split.
+   */
+  private static long key(PackedArray sa, PackedArray rank, long lo, long hi, long j, long h) {
+    long i = sa.get(j) + h;
+
+    if (i >= sa.length()) {
+      return -1;
+    }
+
+    long r = rank.get(i);
+    return r >= lo && r <= hi ? hi : r;
+  }
+
+  /**
+   * Sorts the group sa[lo..hi] by key() with a 3-way quicksort (see
+   * split(long[], ...)). Returns the stack, which may have grown.
+   */
+  private static long[] split(PackedArray sa, PackedArray rank, long lo, long hi, long h,
+                              long[] stack) {
+    long[] small = new long[2 * (CUT_OFF + 1)];
+    int    top   = 0;
+
+    stack[top++] = lo;
+    stack[top++] = hi;
+
+    while (top > 0) {
+      long gh = stack[--top];
+      long gl = stack[--top];
+
+      if (gh - gl < CUT_OFF) {
+        // Insertion sort of the (key, suffix) pairs, copied to the heap.
+        int m = (int) (gh - gl + 1);
+
+        for (int i = 0; i < m; i++) {
+          long key = key(sa, rank, lo, hi, gl + i, h);
+          long pos = sa.get(gl + i);
+          int  j   = i;
+
+          for (; j > 0 && small[2 * (j - 1)] > key; j--) {
+            small[2 * j]     = small[2 * (j - 1)];
+            small[2 * j + 1] = small[2 * (j - 1) + 1];
+          }
+          small[2 * j]     = key;
+          small[2 * j + 1] = pos;
+        }
+
+        for (int i = 0; i < m; i++) {
+          sa.set(gl + i, small[2 * i + 1]);
+        }
+        continue;
+      }
+
+      long mid = gl + (gh - gl) / 2;
+      long v;
+
+      if (gh - gl < NINTHER) {
+        v = median(key(sa, rank, lo, hi, gl, h), key(sa, rank, lo, hi, mid, h),
+                   key(sa, rank, lo, hi, gh, h));
+      } else {
+        long d = (gh - gl) / 8;
+
+        v = median(median(key(sa, rank, lo, hi, gl, h), key(sa, rank, lo, hi, gl + d, h),
+                          key(sa, rank, lo, hi, gl + 2 * d, h)),
+                   median(key(sa, rank, lo, hi, mid - d, h), key(sa, rank, lo, hi, mid, h),
+                          key(sa, rank, lo, hi, mid + d, h)),
+                   median(key(sa, rank, lo, hi, gh - 2 * d, h), key(sa, rank, lo, hi, gh - d, h),
+                          key(sa, rank, lo, hi, gh, h)));
+      }
+
+      long lt = gl;
+      long gt = gh;
+      long i  = gl;
+
+      while (i <= gt) {
+        long t = key(sa, rank, lo, hi, i, h);
+
+        if (t < v) {
+          sa.swap(lt++, i++);
+        } else if (t > v) {
+          sa.swap(i, gt--);
+        } else {
+          i++;
+        }
+      }
+
+      if (top + 4 > stack.length) {
+        stack = Arrays.copyOf(stack, 2 * stack.length);
+      }
+
+      // The larger part is pushed first, so that the stack stays logarithmic.
+      if (lt - gl > gh - gt) {
+        top = push(stack, top, gl, lt - 1);
+        top = push(stack, top, gt + 1, gh);
+      } else {
+        top = push(stack, top, gt + 1, gh);
+        top = push(stack, top, gl, lt - 1);
+      }
+    }
+
+    return stack;
+  }
+
+  private static int push(long[] stack, int top, long lo, long hi) {
+    if (hi > lo) {
+      stack[top++] = lo;
+      stack[top++] = hi;
+    }
+
+    return top;
+  }
+
+  /**
+   * Sorts keys[lo..hi] by their high 32 bits with a 3-way quicksort: the keys
+   * equal to the pivot are gathered in the middle and left there, and the
+   * smaller and larger parts are sorted the same way, with an explicit stack.
+   * Returns the stack, which may have grown.
+   */
+  private static int[] split(long[] keys, int lo, int hi, int[] stack) {
+    int top = 0;
+
+    stack[top++] = lo;
+    stack[top++] = hi;
+
+    while (top > 0) {
+      hi = stack[--top];
+      lo = stack[--top];
+
+      if (hi - lo < CUT_OFF) {
+        for (int i = lo + 1; i <= hi; i++) {
+          long t = keys[i];
+          int  j = i;
+
+          for (; j > lo && (keys[j - 1] >>> 32) > (t >>> 32); j--) {
+            keys[j] = keys[j - 1];
+          }
+          keys[j] = t;
+        }
+        continue;
+      }
+
+      long v  = pivot(keys, lo, hi);
+      int  lt = lo;
+      int  gt = hi;
+      int  i  = lo;
+
+      while (i <= gt) {
+        long t = keys[i] >>> 32;
+
+        if (t < v) {
+          swap(keys, lt++, i++);
+        } else if (t > v) {
+          swap(keys, i, gt--);
+        } else {
+          i++;
+        }
+      }
+
+      if (top + 4 > stack.length) {
+        stack = Arrays.copyOf(stack, 2 * stack.length);
+      }
+
+      // The larger part is pushed first, so that the stack stays logarithmic.
+      if (lt - lo > hi - gt) {
+        top = push(stack, top, lo, lt - 1);
+        top = push(stack, top, gt + 1, hi);
+      } else {
+        top = push(stack, top, gt + 1, hi);
+        top = push(stack, top, lo, lt - 1);
+      }
+    }
+
+    return stack;
+  }
+
+  private static int push(int[] stack, int top, int lo, int hi) {
+    if (hi > lo) {
+      stack[top++] = lo;
+      stack[top++] = hi;
+    }
+
+    return top;
+  }
+
+  /**
+   * Returns the median of three high halves of keys[lo..hi], or the median of
+   * three medians of three (Tukey's ninther) for large ranges: the ranks of
+   * a group often come in long monotone runs, which leave the median of
+   * three unbalanced parts.
+   */
+  private static long pivot(long[] keys, int lo, int hi) {
+    int mid = lo + (hi - lo) / 2;
+
+    if (hi - lo < NINTHER) {
+      return median(keys[lo] >>> 32, keys[mid] >>> 32, keys[hi] >>> 32);
+    }
+
+    int d = (hi - lo) / 8;
+
+    return median(median(keys[lo] >>> 32, keys[lo + d] >>> 32, keys[lo + 2 * d] >>> 32),
+                  median(keys[mid - d] >>> 32, keys[mid] >>> 32, keys[mid + d] >>> 32),
+                  median(keys[hi - 2 * d] >>> 32, keys[hi - d] >>> 32, keys[hi] >>> 32));
+  }
+
+  private static long median(long a, long b, long c) {
+    if (a < b) {
+      return b < c ? b : Math.max(a, c);
+    }
+
+    return c < b ? b : Math.min(a, c);
+  }
+
+  private static void swap(long[] keys, int i, int j) {
+    long tmp = keys[i];
+    keys[i]  = keys[j];
+    keys[j]  = tmp;
+  }
+
+  /**
+   * Returns the rank of the second half of the suffix at offset i, for
+   * halves of length h, or -1 if it is empty.
+   */
+  private static int second(int[] rank, int i, int h) {
+    return i + h < rank.length ? rank[i + h] : -1;
+  }
+
+  /**
+   * Stable counting sort of the offsets in order[] by their rank, which is
+   * in the range 0..classes - 1, into sa[].
+   */
+  private static void countingSort(int[] order, int[] sa, int[] rank, int[] count,
+                                   int classes) {
+    Arrays.fill(count, 0, classes + 1, 0);
+
+    for (int i : order) {
+      count[rank[i] + 1]++;
+    }
+    for (int c = 0; c < classes; c++) {
+      count[c + 1] += count[c];
+    }
+    for (int i : order) {
+      sa[count[rank[i]]++] = i;
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * The RankRange class represents the interval [from, to) of ranks of the
+ * sorted suffixes of a text that start with a given key.
+ *
+ * The number of occurrences of the key in the text is to - from. If the key
+ * does not occur in the text, the range is empty and from (which is equal to
+ * to) is the number of suffixes less than the key.
+ */
+public final class RankRange {
+
+  /**
+   * The rank of the first suffix that starts with the key.
+   */
+  private final int from;
+
+  /**
+   * One plus the rank of the last suffix that starts with the key.
+   */
+  private final int to;
+
+  /**
+   * Creates the range of ranks [from, to).
+   *
+   * @param from the first rank in the range
+   * @param to one plus the last rank in the range
+   * @throws IllegalArgumentException if from is negative or greater than to
+   */
+  public RankRange(int from, int to) {
+    if (from < 0 || from > to) {
+      throw new IllegalArgumentException("Invalid range [" + from + ", " + to + ")");
+    }
+
+    this.from = from;
+    this.to   = to;
+  }
+
+  /**
+   * Returns the first rank in this range.
+   *
+   * @return the first rank in this range
+   */
+  public int from() {
+    return from;
+  }
+
+  /**
+   * Returns one plus the last rank in this range.
+   *
+   * @return one plus the last rank in this range
+   */
+  public int to() {
+    return to;
+  }
+
+  /**
+   * Returns the number of ranks in this range.
+   *
+   * @return the number of ranks in this range
+   */
+  public int size() {
+    return to - from;
+  }
+
+  /**
+   * Returns true if this range contains no ranks.
+   *
+   * @return true if this range contains no ranks
+   */
+  public boolean isEmpty() {
+    return from == to;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+
+    if (!(other instanceof RankRange)) {
+      return false;
+    }
+
+    RankRange that = (RankRange) other;
+    return this.from == that.from && this.to == that.to;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * from + to;
+  }
+
+  @Override
+  public String toString() {
+    return "[" + from + ", " + to + ")";
+  }
+}
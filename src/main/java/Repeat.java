@@ -0,0 +1,105 @@
+/**
+ * The Repeat class represents a substring that occurs several times in a
+ * text, without copying it: the substring is text[offset..offset + length),
+ * and its occurrences are the suffixes whose ranks are in range().
+ *
+ * The offset is the one of the suffix with the smallest rank in the range, so
+ * it is not necessarily the first occurrence in text order.
+ */
+public final class Repeat {
+
+  /**
+   * The offset of one occurrence of the substring.
+   */
+  private final int offset;
+
+  /**
+   * The length of the substring.
+   */
+  private final int length;
+
+  /**
+   * The ranks of the suffixes that start with the substring.
+   */
+  private final RankRange range;
+
+  /**
+   * Creates the repeat text[offset..offset + length), whose occurrences are
+   * the suffixes in the specified range of ranks.
+   *
+   * @param offset the offset of one occurrence of the substring
+   * @param length the length of the substring
+   * @param range the ranks of the suffixes that start with the substring
+   * @throws IllegalArgumentException if offset or length is negative
+   */
+  public Repeat(int offset, int length, RankRange range) {
+    if (offset < 0 || length < 0) {
+      throw new IllegalArgumentException("Invalid repeat at " + offset + " of length " + length);
+    }
+
+    this.offset = offset;
+    this.length = length;
+    this.range  = range;
+  }
+
+  /**
+   * Returns the offset of one occurrence of the substring.
+   *
+   * @return the offset of one occurrence of the substring
+   */
+  public int offset() {
+    return offset;
+  }
+
+  /**
+   * Returns the length of the substring.
+   *
+   * @return the length of the substring
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Returns the range of ranks of the suffixes that start with the substring.
+   *
+   * @return the range of ranks of the occurrences of the substring
+   */
+  public RankRange range() {
+    return range;
+  }
+
+  /**
+   * Returns the number of occurrences of the substring.
+   *
+   * @return the number of occurrences of the substring
+   */
+  public int count() {
+    return range.size();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+
+    if (!(other instanceof Repeat)) {
+      return false;
+    }
+
+    Repeat that = (Repeat) other;
+    return this.offset == that.offset && this.length == that.length
+        && this.range.equals(that.range);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * offset + length) + range.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return offset + "+" + length + " " + range;
+  }
+}
@@ -0,0 +1,395 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * The SegmentedSuffixIndex class represents an index of a text that grows by
+ * appending new chunks, in the manner of a log-structured merge tree.
+ *
+ * It supports the following operations: append() a chunk of text, computing
+ * the length() of the whole text, the rank() of a key, the count() of the
+ * occurrences of a key and the offsets of its occurrences().
+ *
+ * Every appended chunk becomes a new segment: the suffix array of the chunk
+ * alone (a SuffixArrayOptimized built with induced sorting), so the cost of
+ * an append is proportional to the length of the chunk, regardless of the
+ * length of the text. A background thread then merges the segments by size
+ * tier: the tier of a segment of length L is floor(log_F(L)), where F is the
+ * fan-out, and whenever F adjacent segments are in the same tier, they are
+ * replaced by a single segment built from their concatenated text. Hence, the
+ * text is covered by O(F log_F N) segments, and each character is sorted
+ * again O(log_F N) times.
+ *
+ * Queries fan out over a snapshot of the segments, and add up their results.
+ * An occurrence that crosses the boundary between two (or more) segments is
+ * not in any of them, so the queries also scan the text around each boundary:
+ * an occurrence of a key of length M that starts in segment [a, b) and ends
+ * after b starts in [max(a, b - M + 1), b), and is counted at boundary b only.
+ * A query takes time proportional to the number of segments times M (lg L +
+ * M), plus the number of occurrences.
+ *
+ * The suffixes of the whole text are not sorted across segments, so there is
+ * no global suffix array to select from, and rank() is computed from the
+ * segments instead: the suffixes of a segment are the suffixes of the text
+ * cut at the end of the segment, and a suffix cut to less than M characters
+ * may compare differently with the key than the whole suffix. These are the
+ * last M - 1 suffixes of each segment but the last, the same ones that the
+ * queries scan for occurrences across boundaries, so they are compared again
+ * against the text.
+ *
+ * Appends and queries can run concurrently: the segments are replaced
+ * atomically, and a query always sees the text as it was when it started.
+ */
+public class SegmentedSuffixIndex implements AutoCloseable {
+
+  /**
+   * Default number of segments of a tier that are merged together.
+   */
+  public static final int DEFAULT_FAN_OUT = 4;
+
+  /**
+   * A suffix array of the text[start..start + length).
+   */
+  private static final class Segment {
+    private final int start;
+    private final int length;
+    private final int tier;
+    private final SuffixArrayOptimized suffixes;
+
+    private Segment(int start, SuffixArrayOptimized suffixes, int fanOut) {
+      this.start    = start;
+      this.length   = suffixes.length();
+      this.suffixes = suffixes;
+
+      int tier = 0;
+      for (long size = fanOut; size <= length; size *= fanOut) {
+        tier++;
+      }
+      this.tier = tier;
+    }
+
+    private int end() {
+      return start + length;
+    }
+  }
+
+  /**
+   * Number of segments of a tier that are merged together.
+   */
+  private final int fanOut;
+
+  /**
+   * The segments, in text order. The array is never modified: appends and
+   * merges replace it with a new one, while holding the lock of this index.
+   */
+  private volatile Segment[] segments = new Segment[0];
+
+  /**
+   * Runs the merges, one at a time.
+   */
+  private final ExecutorService merger = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "segment-merger");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Creates an empty index with the default fan-out.
+   */
+  public SegmentedSuffixIndex() {
+    this(DEFAULT_FAN_OUT);
+  }
+
+  /**
+   * Creates an empty index that merges the specified number of segments of
+   * the same tier together.
+   *
+   * @param fanOut the number of segments of a tier that are merged together
+   * @throws IllegalArgumentException if fanOut is less than 2
+   */
+  public SegmentedSuffixIndex(int fanOut) {
+    if (fanOut < 2) {
+      throw new IllegalArgumentException("Fan-out must be at least 2");
+    }
+
+    this.fanOut = fanOut;
+  }
+
+  /**
+   * Appends the specified chunk to the text. Takes time proportional to the
+   * length of the chunk; the merges it may trigger run in the background.
+   *
+   * @param chunk the text to append
+   * @throws IllegalArgumentException if the text would have 2^31 or more
+   *         characters
+   * @throws IllegalStateException if the index is closed
+   */
+  public void append(String chunk) {
+    if (chunk.isEmpty()) {
+      return;
+    }
+
+    // The chunk is sorted before taking the lock, so that concurrent appends
+    // and merges only wait for each other to publish their segments.
+    SuffixArrayOptimized suffixes =
+      new SuffixArrayOptimized(chunk, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+
+    // The merge is scheduled while holding the lock, so that close() cannot
+    // shut the merger down between the check and the new segment.
+    synchronized (this) {
+      if (merger.isShutdown()) {
+        throw new IllegalStateException("The index is closed");
+      }
+
+      int start = length();
+      if ((long) start + chunk.length() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Text must have less than 2^31 characters");
+      }
+
+      Segment segment = new Segment(start, suffixes, fanOut);
+      Segment[] current = segments;
+      Segment[] next = new Segment[current.length + 1];
+      System.arraycopy(current, 0, next, 0, current.length);
+      next[current.length] = segment;
+      segments = next;
+
+      merger.execute(this::merge);
+    }
+  }
+
+  /**
+   * Merges groups of fanOut adjacent segments of the same tier until there is
+   * none left.
+   */
+  private void merge() {
+    while (true) {
+      Segment[] snapshot = segments;
+      int from = -1;
+
+      for (int i = 0, run = 1; i + 1 < snapshot.length; i++) {
+        run = (snapshot[i].tier == snapshot[i+1].tier) ? run + 1 : 1;
+
+        if (run == fanOut) {
+          from = i + 2 - fanOut;
+          break;
+        }
+      }
+
+      if (from < 0) {
+        return;
+      }
+
+      StringBuilder text = new StringBuilder();
+      for (int i = from; i < from + fanOut; i++) {
+        SuffixArrayOptimized suffixes = snapshot[i].suffixes;
+        for (int j = 0; j < suffixes.length(); j++) {
+          text.append(suffixes.charAt(j));
+        }
+      }
+
+      SuffixArrayOptimized suffixes =
+        new SuffixArrayOptimized(text.toString(), SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+      Segment merged = new Segment(snapshot[from].start, suffixes, fanOut);
+
+      // Only this thread removes segments, so the merged ones are still at
+      // the same positions (appends only add segments at the end).
+      synchronized (this) {
+        Segment[] current = segments;
+        Segment[] next = new Segment[current.length - fanOut + 1];
+        System.arraycopy(current, 0, next, 0, from);
+        next[from] = merged;
+        System.arraycopy(current, from + fanOut, next, from + 1,
+                         current.length - from - fanOut);
+        segments = next;
+      }
+    }
+  }
+
+  /**
+   * Waits until all the pending merges are done.
+   *
+   * @throws InterruptedException if the current thread is interrupted
+   */
+  public void awaitMerges() throws InterruptedException {
+    try {
+      merger.submit(() -> { }).get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Stops the background merges. The index can still be queried, but no more
+   * text can be appended.
+   */
+  @Override
+  public synchronized void close() {
+    merger.shutdownNow();
+  }
+
+  /**
+   * Returns the length of the text.
+   *
+   * @return the length of the text
+   */
+  public int length() {
+    Segment[] snapshot = segments;
+    return snapshot.length == 0 ? 0 : snapshot[snapshot.length - 1].end();
+  }
+
+  /**
+   * Returns the number of segments that currently cover the text.
+   *
+   * @return the number of segments
+   */
+  public int segmentCount() {
+    return segments.length;
+  }
+
+  /**
+   * Returns the number of suffixes of the text strictly less than the
+   * specified key, as in the suffix array of the whole text.
+   *
+   * @param key the query string
+   * @return the number of suffixes strictly less than key
+   */
+  public int rank(String key) {
+    Segment[] snapshot = segments;
+    int rank = 0;
+
+    for (Segment segment : snapshot) {
+      rank += segment.suffixes.rank(key);
+    }
+
+    if (snapshot.length < 2) {
+      return rank;
+    }
+
+    int length = snapshot[snapshot.length - 1].end();
+
+    for (int k = 0; k + 1 < snapshot.length; k++) {
+      int boundary = snapshot[k].end();
+
+      // The suffixes cut to less than M characters by the boundary.
+      for (int i = Math.max(snapshot[k].start, boundary - key.length() + 1); i < boundary; i++) {
+        if (isLess(snapshot, k, i, boundary, key)) {
+          rank--;
+        }
+        if (isLess(snapshot, k, i, length, key)) {
+          rank++;
+        }
+      }
+    }
+
+    return rank;
+  }
+
+  /**
+   * Returns the number of occurrences of the specified key in the text.
+   *
+   * @param key the query string
+   * @return the number of occurrences of key in the text
+   */
+  public int count(String key) {
+    Segment[] snapshot = segments;
+    int count = 0;
+
+    for (Segment segment : snapshot) {
+      count += segment.suffixes.count(key);
+    }
+
+    return count + (int) crossings(snapshot, key).count();
+  }
+
+  /**
+   * Returns the offsets of all the occurrences of the specified key in the
+   * text. The offsets of each segment are in the order of their suffixes,
+   * followed by the ones that cross segment boundaries (so they are not in
+   * text order).
+   *
+   * @param key the query string
+   * @return a stream of the offsets of the occurrences of key in the text
+   */
+  public IntStream occurrences(String key) {
+    Segment[] snapshot = segments;
+    IntStream occurrences = IntStream.empty();
+
+    for (Segment segment : snapshot) {
+      int start = segment.start;
+      occurrences = IntStream.concat(occurrences,
+                                     segment.suffixes.occurrences(key).map(i -> i + start));
+    }
+
+    return IntStream.concat(occurrences, crossings(snapshot, key));
+  }
+
+  /**
+   * Returns the offsets of the occurrences of the specified key that start in
+   * a segment and end in a following one.
+   */
+  private static IntStream crossings(Segment[] snapshot, String key) {
+    int m = key.length();
+
+    if (m < 2 || snapshot.length < 2) {
+      return IntStream.empty();
+    }
+
+    int length = snapshot[snapshot.length - 1].end();
+    IntStream.Builder crossings = IntStream.builder();
+
+    for (int k = 0; k + 1 < snapshot.length; k++) {
+      int boundary = snapshot[k].end();
+
+      for (int i = Math.max(snapshot[k].start, boundary - m + 1); i < boundary; i++) {
+        if (i + m <= length && matches(snapshot, k, i, key)) {
+          crossings.add(i);
+        }
+      }
+    }
+
+    return crossings.build();
+  }
+
+  /**
+   * Returns true if the text between offsets i and end, where i is in the
+   * kth segment, is strictly less than the key.
+   */
+  private static boolean isLess(Segment[] snapshot, int k, int i, int end, String key) {
+    for (int j = 0; j < key.length(); j++, i++) {
+      // A proper prefix of the key is less than the key.
+      if (i == end) {
+        return true;
+      }
+
+      while (i >= snapshot[k].end()) {
+        k++;
+      }
+
+      char ch = snapshot[k].suffixes.charAt(i - snapshot[k].start);
+      if (ch != key.charAt(j)) {
+        return ch < key.charAt(j);
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Returns true if the key occurs at offset i of the text, which is in the
+   * kth segment.
+   */
+  private static boolean matches(Segment[] snapshot, int k, int i, String key) {
+    for (int j = 0; j < key.length(); j++, i++) {
+      while (i >= snapshot[k].end()) {
+        k++;
+      }
+
+      if (snapshot[k].suffixes.charAt(i - snapshot[k].start) != key.charAt(j)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
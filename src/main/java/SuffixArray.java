@@ -5,8 +5,9 @@ import java.util.Arrays;
  *
  * It supports the following operations: computing the length() of the text,
  * selectAsString() the ith smallest suffix, getting the indexOf() select(i),
- * the length of longestCommonPrefix() of select(i), and determining the rank()
- * of a key string (number of suffixes less than the specified key).
+ * the length of longestCommonPrefix() of select(i), determining the rank()
+ * of a key string (number of suffixes less than the specified key), and the
+ * range() of the suffixes that start with a key.
  *
  * This implementation uses a nested class Suffix to represent a suffix of the
  * specified text (using constant time and space) and relies on Arrays.sort() to
@@ -17,16 +18,32 @@ import java.util.Arrays;
  * longest common prefix. The selectAsString() method takes time proportional to
  * the length of the suffix.
  *
+ * Optionally, the LCP array and the inverse suffix array can be computed in
+ * linear time at construction, so that longestCommonPrefix() takes constant
+ * time.
+ *
  * See SuffixArrayOptimzed.java for an optimized version that uses 3-way radix
  * quicksort and does not use the nested class Suffix.
  */
-public class SuffixArray {
+public class SuffixArray implements SuffixIndex {
 
   /**
    * The array of suffixes.
    */
   private Suffix[] suffixes;
 
+  /**
+   * lcp[i] is the length of the longest common prefix of suffixes[i] and
+   * suffixes[i-1], or null if it was not computed.
+   */
+  private int[] lcp;
+
+  /**
+   * inverse[j] is the rank of the suffix that starts at offset j of the text,
+   * or null if it was not computed.
+   */
+  private int[] inverse;
+
   /**
    * Build an array of Suffix objects for the given text String, and sort them.
    *
@@ -51,6 +68,59 @@ public class SuffixArray {
     Arrays.sort(suffixes);
   }
 
+  /**
+   * Build an array of Suffix objects for the given text String, sort them, and
+   * optionally compute the LCP array.
+   *
+   * @param text the input String
+   * @param withLcp whether to compute the LCP and inverse suffix arrays
+   */
+  public SuffixArray(String text, boolean withLcp) {
+    this(text);
+
+    if (withLcp) {
+      buildLcp(text);
+    }
+  }
+
+  /**
+   * Computes the inverse suffix array and the LCP array (using the algorithm of
+   * Kasai et al.) in linear time.
+   */
+  private void buildLcp(String text) {
+    int length = suffixes.length;
+    int h = 0;
+
+    inverse = new int[length];
+    for (int i = 0; i < length; i++) {
+      inverse[suffixes[i].index] = i;
+    }
+
+    lcp = new int[length];
+    for (int j = 0; j < length; j++) {
+      int r = inverse[j];
+
+      if (r == 0) {
+        h = 0;
+        continue;
+      }
+
+      // The suffix at offset j+1 shares at least h-1 characters with its
+      // predecessor, so there is no need to compare them again.
+      int i = suffixes[r-1].index;
+      while (j + h < length && i + h < length
+             && text.charAt(j + h) == text.charAt(i + h)) {
+        h++;
+      }
+
+      lcp[r] = h;
+
+      if (h > 0) {
+        h--;
+      }
+    }
+  }
+
   /**
    * This nested class represents a suffix of a text string.
    *
@@ -182,9 +252,36 @@ public class SuffixArray {
       throw new IndexOutOfBoundsException();
     }
 
+    if (lcp != null) {
+      return lcp[i];
+    }
+
     return longestCommonPreffix(suffixes[i], suffixes[i-1]);
   }
 
+  /**
+   * Returns the rank of the suffix that starts at the specified offset of the
+   * text, that is, the inverse of indexOf().
+   *
+   * @param offset an integer between 0 and suffixes.length - 1
+   * @return the rank of the suffix that starts at offset
+   * @throws java.lang.IndexOutOfBoundsException unless
+   *         0 <= offset < suffixes.length
+   * @throws IllegalStateException if the suffix array was built without the
+   *         LCP array
+   */
+  public int inverseIndexOf(int offset) {
+    if (inverse == null) {
+      throw new IllegalStateException("Inverse suffix array was not built");
+    }
+
+    if (offset < 0 || offset >= suffixes.length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return inverse[offset];
+  }
+
   /**
    * Find the longest common prefix of the two specified suffixes.
    *
@@ -206,23 +303,34 @@ public class SuffixArray {
   /**
    * Returns the number of suffixes strictly less that the specified key.
    *
+   * The binary search keeps track of the lengths l and r of the longest common
+   * prefixes of the key with the suffixes just below lo and just above hi.
+   * Every suffix in suffixes[lo..hi] shares at least min(l, r) characters
+   * with the key, so each comparison starts from there instead of from the
+   * first character.
+   *
    * @param key the query string
    * @return the number of suffixes strictly less than key
    */
   public int rank(String key) {
     int lo = 0;
     int hi = suffixes.length - 1;
+    int l  = 0;
+    int r  = 0;
 
     // Perform a binary search
     while (lo <= hi) {
       // Key is in suffixes[lo..hi] or not present.
-      int mid = lo + (hi - lo) / 2;
-      int cmp = compare(key, suffixes[mid]);
+      int mid   = lo + (hi - lo) / 2;
+      int match = matchLength(key, suffixes[mid], Math.min(l, r));
+      int cmp   = compare(key, suffixes[mid], match);
 
       if (cmp < 0) {
         hi = mid - 1;
+        r  = match;
       } else if (cmp > 0) {
         lo = mid + 1;
+        l  = match;
       } else {
         return mid;
       }
@@ -232,21 +340,55 @@ public class SuffixArray {
   }
 
   /**
-   * Compares key string to this suffix.
+   * Returns the range of ranks of the suffixes that start with the specified
+   * key. The suffixes that start with key follow the rank() of key, so the
+   * end of the range is found with a second binary search from there.
+   *
+   * @param key the query string
+   * @return the range [from, to) of ranks of the suffixes that start with key
    */
-  private int compare(String key, Suffix suffix) {
-    int length = Math.min(key.length(), suffix.length());
+  public RankRange range(String key) {
+    int from = rank(key);
+    int lo   = from;
+    int hi   = suffixes.length - 1;
 
-    for (int i = 0; i < length; i++) {
-      if (key.charAt(i) < suffix.charAt(i)) {
-        return -1;
-      }
+    while (lo <= hi) {
+      int mid = lo + (hi - lo) / 2;
 
-      if (key.charAt(i) > suffix.charAt(i)) {
-        return 1;
+      if (matchLength(key, suffixes[mid], 0) == key.length()) {
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
       }
     }
 
+    return new RankRange(from, lo);
+  }
+
+  /**
+   * Returns the length of the longest common prefix of the key and the
+   * suffix, knowing that they share at least the first from characters.
+   */
+  private int matchLength(String key, Suffix suffix, int from) {
+    int length = Math.min(key.length(), suffix.length());
+    int i = from;
+
+    while (i < length && key.charAt(i) == suffix.charAt(i)) {
+      i++;
+    }
+
+    return i;
+  }
+
+  /**
+   * Compares key string to this suffix, given the length of their longest
+   * common prefix.
+   */
+  private int compare(String key, Suffix suffix, int match) {
+    if (match < key.length() && match < suffix.length()) {
+      return key.charAt(match) < suffix.charAt(match) ? -1 : 1;
+    }
+
     return key.length() - suffix.length();
   }
 }
@@ -0,0 +1,641 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The SuffixArrayCompact class represents a suffix array of a Latin-1 (or
+ * ASCII) text, using one byte per character to store the text.
+ *
+ * It supports the same operations as the SuffixArrayOptimized class: computing
+ * the length() of the text, selectAsString() the ith smallest suffix, getting
+ * the indexOf() select(i), the length of longestCommonPrefix() of select(i),
+ * determining the rank() of a key string, and the range(), count() and
+ * occurrences() of a key.
+ *
+ * The text is stored as a byte[] instead of a char[], which halves the memory
+ * used by the text, and twice as many characters fit in each cache line while
+ * sorting and comparing suffixes. Bytes are compared as unsigned values, so
+ * the suffixes are sorted in the same order as the equivalent Latin-1 String.
+ * Keys may contain any character: a character above 255 is greater than every
+ * character of the text.
+ *
+ * The suffixes are sorted with a 3-way radix quicksort, SA-IS induced sorting
+ * or prefix doubling (see SuffixArrayOptimized.java, InducedSorting.java and
+ * PrefixDoubling.java), and the LCP array can optionally be computed at
+ * construction time.
+ */
+public class SuffixArrayCompact implements SuffixIndex {
+
+  /**
+   * The input text, one byte per character.
+   */
+  private final byte[] text;
+
+  /**
+   * Number of characters in this text.
+   */
+  private final int length;
+
+  /**
+   * index[i] refers to the offset of the ith sorted suffix.
+   */
+  private final int[] index;
+
+  /**
+   * lcp[i] is the length of the longest common prefix of the ith and the
+   * i-1st sorted suffixes (lcp[0] is 0), or null if it was not computed.
+   */
+  private final int[] lcp;
+
+  /**
+   * inverse[j] is the rank of the suffix text[j..length), or null if it was
+   * not computed.
+   */
+  private final int[] inverse;
+
+  /**
+   * Cut-off to insertion sort (see SuffixArrayOptimized.java).
+   */
+  private static final int CUT_OFF = 8;
+
+  /**
+   * Number of characters packed into each sort key.
+   */
+  private static final int KEY_CHARS = 8;
+
+  /**
+   * Number of characters that the suffixes of a subarray may share before the
+   * 3-way radix quicksort leaves it to prefix doubling (a multiple of
+   * KEY_CHARS).
+   */
+  private static final int DEPTH_LIMIT = 64;
+
+  /**
+   * Build the suffix array of the given Latin-1 text, and sort it with a 3-way
+   * radix quicksort.
+   *
+   * @param text the input bytes
+   */
+  public SuffixArrayCompact(byte[] text) {
+    this(text, SuffixArrayOptimized.Algorithm.RADIX_QUICKSORT, false);
+  }
+
+  /**
+   * Build the suffix array of the given Latin-1 text, sorting the suffixes
+   * with the specified algorithm, and optionally its LCP array.
+   *
+   * @param text the input bytes
+   * @param algorithm the algorithm used to sort the suffixes
+   * @param withLcp whether to compute the LCP and inverse suffix arrays
+   */
+  public SuffixArrayCompact(byte[] text, SuffixArrayOptimized.Algorithm algorithm,
+                            boolean withLcp) {
+    this(text, algorithm, withLcp, true);
+  }
+
+  /**
+   * Build the suffix array of the given String.
+   *
+   * @param text the input String
+   * @throws IllegalArgumentException if text has characters outside Latin-1
+   */
+  public SuffixArrayCompact(String text) {
+    this(latin1(text), SuffixArrayOptimized.Algorithm.RADIX_QUICKSORT, false, false);
+  }
+
+  /**
+   * Build the suffix array of the contents of the given file, read as Latin-1
+   * text.
+   *
+   * @param file the input file
+   * @param algorithm the algorithm used to sort the suffixes
+   * @param withLcp whether to compute the LCP and inverse suffix arrays
+   * @throws IOException if the file cannot be read
+   */
+  public SuffixArrayCompact(File file, SuffixArrayOptimized.Algorithm algorithm,
+                            boolean withLcp) throws IOException {
+    this(Files.readAllBytes(file.toPath()), algorithm, withLcp, false);
+  }
+
+  /**
+   * Builds the suffix array of the specified text, which is copied unless it
+   * was created by the caller itself.
+   */
+  private SuffixArrayCompact(byte[] text, SuffixArrayOptimized.Algorithm algorithm,
+                             boolean withLcp, boolean copy) {
+    this.text   = copy ? text.clone() : text;
+    this.length = text.length;
+
+    if (algorithm == SuffixArrayOptimized.Algorithm.INDUCED_SORTING) {
+      this.index = InducedSorting.sort(this.text);
+    } else if (algorithm == SuffixArrayOptimized.Algorithm.PREFIX_DOUBLING) {
+      this.index = PrefixDoubling.sort(this.text);
+    } else {
+      this.index = new int[length];
+
+      for (int i = 0; i < length; i++) {
+        this.index[i] = i;
+      }
+
+      long[]                keys   = new long[length];
+      PrefixDoubling.Groups groups = new PrefixDoubling.Groups();
+
+      sort(keys, 0, length - 1, 0, false, groups);
+      PrefixDoubling.refine(this.index, groups, DEPTH_LIMIT, keys);
+    }
+
+    if (withLcp) {
+      this.inverse = new int[length];
+      for (int i = 0; i < length; i++) {
+        this.inverse[index[i]] = i;
+      }
+      this.lcp = kasai();
+    } else {
+      this.inverse = null;
+      this.lcp     = null;
+    }
+  }
+
+  /**
+   * Encodes the specified String as Latin-1.
+   */
+  private static byte[] latin1(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) > 0xff) {
+        throw new IllegalArgumentException("Not a Latin-1 character at " + i);
+      }
+    }
+
+    return text.getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * Computes the LCP array using the algorithm of Kasai et al. (see
+   * SuffixArrayOptimized.java).
+   */
+  private int[] kasai() {
+    int[] lcp = new int[length];
+    int   h   = 0;
+
+    for (int j = 0; j < length; j++) {
+      int r = inverse[j];
+
+      if (r == 0) {
+        h = 0;
+        continue;
+      }
+
+      int i = index[r-1];
+      while (j + h < length && i + h < length && text[j+h] == text[i+h]) {
+        h++;
+      }
+
+      lcp[r] = h;
+
+      if (h > 0) {
+        h--;
+      }
+    }
+
+    return lcp;
+  }
+
+  /**
+   * Sorts index[lo..hi], whose suffixes share their first k characters, with
+   * a 3-way radix quicksort on keys that pack the next KEY_CHARS unsigned
+   * bytes of each suffix into a long, an explicit stack and insertion sort
+   * for tiny subarrays. The subarrays whose suffixes share DEPTH_LIMIT
+   * characters are added to groups, and left to PrefixDoubling.refine() (see
+   * SuffixArrayOptimized.sort()).
+   */
+  private void sort(long[] keys, int lo, int hi, int k, boolean filled,
+                    PrefixDoubling.Groups groups) {
+    int[] stack = new int[64];
+    int   top   = push(stack, 0, lo, hi, k, filled);
+
+    while (top > 0) {
+      filled = stack[--top] != 0;
+      k      = stack[--top];
+      hi     = stack[--top];
+      lo     = stack[--top];
+
+      if (k >= DEPTH_LIMIT) {
+        groups.add(lo, hi);
+        continue;
+      }
+
+      if (!filled) {
+        for (int i = lo; i <= hi; i++) {
+          keys[i] = key(index[i], k);
+        }
+      }
+
+      if (hi <= lo + CUT_OFF) {
+        insertionSort(keys, lo, hi, k, groups);
+        continue;
+      }
+
+      // 3-way partitioning around the median of three keys.
+      swap(keys, lo, median(keys, lo, lo + (hi - lo) / 2, hi));
+      long v  = keys[lo];
+      int  lt = lo;
+      int  gt = hi;
+      int  i  = lo + 1;
+
+      while (i <= gt) {
+        long t = keys[i];
+
+        if (t < v) {
+          swap(keys, lt++, i++);
+        }
+        else if (t > v) {
+          swap(keys, i, gt--);
+        }
+        else {
+          i++;
+        }
+      }
+
+      int from = skipEnded(v, lt, gt, k);
+
+      if (top + 12 > stack.length) {
+        stack = Arrays.copyOf(stack, 2 * stack.length);
+      }
+
+      // keys[lo..lt-1] < keys[lt..gt] < keys[gt+1..hi].
+      top = push(stack, top, lo, lt - 1, k, true);
+      top = push(stack, top, gt + 1, hi, k, true);
+      top = push(stack, top, from, gt, k + KEY_CHARS, false);
+    }
+  }
+
+  /**
+   * Pushes the subarray lo..hi onto the stack, unless it is already sorted,
+   * and returns the new top of the stack.
+   */
+  private static int push(int[] stack, int top, int lo, int hi, int k, boolean filled) {
+    if (hi > lo) {
+      stack[top++] = lo;
+      stack[top++] = hi;
+      stack[top++] = k;
+      stack[top++] = filled ? 1 : 0;
+    }
+
+    return top;
+  }
+
+  /**
+   * Returns the one of i, j and k whose key is the median of the three.
+   */
+  private static int median(long[] keys, int i, int j, int k) {
+    if (keys[i] < keys[j]) {
+      return keys[j] < keys[k] ? j : (keys[i] < keys[k] ? k : i);
+    }
+
+    return keys[k] < keys[j] ? j : (keys[k] < keys[i] ? k : i);
+  }
+
+  /**
+   * Moves the suffixes of index[lt..gt], whose keys are all v, that end within
+   * the key to the front of the range, shortest first, and returns the start
+   * of the others. None of them does unless the last byte of v is 0.
+   */
+  private int skipEnded(long v, int lt, int gt, int k) {
+    if ((v & 0xff) != 0) {
+      return lt;
+    }
+
+    int from = lt;
+
+    for (int i = lt; i <= gt; i++) {
+      if (index[i] + k + KEY_CHARS > length) {
+        swap(from++, i);
+      }
+    }
+
+    for (int i = lt + 1; i < from; i++) {
+      for (int j = i; j > lt && index[j] > index[j-1]; j--) {
+        swap(j, j - 1);
+      }
+    }
+
+    return from;
+  }
+
+  /**
+   * Returns the unsigned bytes text[i+k..i+k+KEY_CHARS) packed into a long,
+   * the first one in the high bits, and the bytes past the end of the text
+   * replaced with 0. The sign bit is flipped so that comparing keys as signed
+   * longs compares the bytes as unsigned.
+   */
+  private long key(int i, int k) {
+    int  p   = i + k;
+    int  end = Math.min(length, p + KEY_CHARS);
+    long key = 0;
+
+    for (int c = p; c < end; c++) {
+      key = key << 8 | (text[c] & 0xff);
+    }
+    key <<= 8 * (p + KEY_CHARS - Math.max(p, end));
+
+    return key ^ Long.MIN_VALUE;
+  }
+
+  /**
+   * Sorts the range index[lo..hi], whose keys hold the characters at depth k,
+   * using insertion sort on the first DEPTH_LIMIT characters of the suffixes,
+   * and adds the runs of suffixes that share them to groups (see
+   * SuffixArrayOptimized.insertionSort()).
+   */
+  private void insertionSort(long[] keys, int lo, int hi, int k, PrefixDoubling.Groups groups) {
+    boolean tied = false;
+
+    for (int i = lo + 1; i <= hi; i++) {
+      for (int j = i; j > lo; j--) {
+        int cmp = compare(keys, j, j - 1, k);
+        tied |= cmp == 0;
+
+        if (cmp >= 0) {
+          break;
+        }
+        swap(keys, j, j - 1);
+      }
+    }
+
+    for (int a = lo, b; tied && a < hi; a = b + 1) {
+      for (b = a; b < hi && compare(keys, b + 1, b, k) == 0; b++) { }
+
+      if (b > a) {
+        groups.add(a, b);
+      }
+    }
+  }
+
+  /**
+   * Compares the first DEPTH_LIMIT characters of the suffixes index[a] and
+   * index[b], knowing that they share their first k characters.
+   */
+  private int compare(long[] keys, int a, int b, int k) {
+    if (keys[a] != keys[b]) {
+      return keys[a] < keys[b] ? -1 : 1;
+    }
+
+    int i = index[a];
+    int j = index[b];
+
+    // The suffix that ends first, possibly within the key, is the smaller.
+    for (int d = k + KEY_CHARS; ; d++) {
+      if (i + d >= length || j + d >= length) {
+        return j - i;
+      }
+
+      if (d == DEPTH_LIMIT) {
+        return 0;
+      }
+
+      if (text[i + d] != text[j + d]) {
+        return (text[i + d] & 0xff) - (text[j + d] & 0xff);
+      }
+    }
+  }
+
+  /**
+   * Swaps index[i] and index[j].
+   */
+  private void swap(int i, int j) {
+    int tmp  = index[i];
+    index[i] = index[j];
+    index[j] = tmp;
+  }
+
+  /**
+   * Swaps index[i] and index[j], and keys[i] and keys[j].
+   */
+  private void swap(long[] keys, int i, int j) {
+    swap(i, j);
+
+    long tmp = keys[i];
+    keys[i]  = keys[j];
+    keys[j]  = tmp;
+  }
+
+  /**
+   * Returns the length of the input text.
+   *
+   * @return the length of the input text
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Returns the index into the original text of the ith smallest suffix.
+   *
+   * @param i an integer between 0 and length - 1
+   * @return the index into the original text of the ith smallest suffix
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= i < length
+   */
+  public int indexOf(int i) {
+    if (i < 0 || i >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return index[i];
+  }
+
+  /**
+   * Returns the ith smallest suffix as a String. Note: this method should be
+   * used primarily for debugging purposes.
+   *
+   * @param i an integer between 0 and length - 1
+   * @return the ith smallest suffix as a String
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= i < length
+   */
+  public String selectAsString(int i) {
+    if (i < 0 || i >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return new String(text, index[i], length - index[i], StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * Returns the length of the longest common prefix of the ith smallest suffix
+   * and the i-1st smallest suffix.
+   *
+   * @param i an integer between 1 and length - 1
+   * @return the length of the longest common prefix of the ith smallest suffix
+   *         and the i-1st smallest suffix.
+   * @throws java.lang.IndexOutOfBoundsException unless 1 <= i < length
+   */
+  public int longestCommonPreffix(int i) {
+    if (i < 1 || i >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    if (lcp != null) {
+      return lcp[i];
+    }
+
+    int a = index[i];
+    int b = index[i-1];
+    int size = 0;
+
+    while (a + size < length && b + size < length && text[a + size] == text[b + size]) {
+      size++;
+    }
+
+    return size;
+  }
+
+  /**
+   * Returns the rank of the suffix that starts at the specified offset of the
+   * text, that is, the inverse of indexOf().
+   *
+   * @param offset an integer between 0 and length - 1
+   * @return the rank of the suffix text[offset..length)
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= offset < length
+   * @throws IllegalStateException if the suffix array was built without the
+   *         LCP array
+   */
+  public int inverseIndexOf(int offset) {
+    if (inverse == null) {
+      throw new IllegalStateException("Inverse suffix array was not built");
+    }
+
+    if (offset < 0 || offset >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return inverse[offset];
+  }
+
+  /**
+   * Saves the text, the suffix array and, if it was built, the LCP array to
+   * the specified file, so that they can be reopened without sorting the
+   * suffixes again (see MappedSuffixArray.java).
+   *
+   * @param file the file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void save(File file) throws IOException {
+    MappedSuffixArray.write(file, text, index, lcp);
+  }
+
+  /**
+   * Returns the number of suffixes strictly less than the specified key.
+   *
+   * @param key the query string
+   * @return the number of suffixes strictly less than key
+   */
+  public int rank(String key) {
+    return search(key, false);
+  }
+
+  /**
+   * Returns the range of ranks of the suffixes that start with the specified
+   * key.
+   *
+   * @param key the query string
+   * @return the range [from, to) of ranks of the suffixes that start with key
+   */
+  public RankRange range(String key) {
+    return new RankRange(search(key, false), search(key, true));
+  }
+
+  /**
+   * Returns the number of occurrences of the specified key in the text.
+   *
+   * @param key the query string
+   * @return the number of occurrences of key in the text
+   */
+  public int count(String key) {
+    return search(key, true) - search(key, false);
+  }
+
+  /**
+   * Returns the offsets of all the occurrences of the specified key in the
+   * text, in the order of their suffixes.
+   *
+   * @param key the query string
+   * @return a stream of the offsets of the occurrences of key in the text
+   */
+  public IntStream occurrences(String key) {
+    int from = search(key, false);
+    int to   = search(key, true);
+
+    return IntStream.range(from, to).map(i -> index[i]);
+  }
+
+  /**
+   * Binary search for the specified key, skipping the min(l, r) characters
+   * that are known to match (see SuffixArrayOptimized.rank()).
+   *
+   * If prefix is false, returns the number of suffixes strictly less than the
+   * key. Otherwise, returns the number of suffixes that are either less than
+   * the key or start with it.
+   */
+  private int search(String key, boolean prefix) {
+    int lo = 0;
+    int hi = length - 1;
+    int l  = 0;
+    int r  = 0;
+
+    while (lo <= hi) {
+      int mid   = lo + (hi - lo) / 2;
+      int match = matchLength(key, index[mid], Math.min(l, r));
+      int cmp   = (prefix && match == key.length()) ? 1 : compare(key, index[mid], match);
+
+      if (cmp < 0) {
+        hi = mid - 1;
+        r  = match;
+      } else if (cmp > 0) {
+        lo = mid + 1;
+        l  = match;
+      } else {
+        return mid;
+      }
+    }
+
+    return lo;
+  }
+
+  /**
+   * Returns the length of the longest common prefix of the specified key and
+   * text[i..length), knowing that they share at least the first from
+   * characters.
+   */
+  private int matchLength(String key, int i, int from) {
+    int keyLength = key.length();
+    int j = from;
+
+    while (j < keyLength && i + j < length && key.charAt(j) == (text[i + j] & 0xff)) {
+      j++;
+    }
+
+    return j;
+  }
+
+  /**
+   * Checks if the specified key is less than text[i..length), given the
+   * length of their longest common prefix.
+   */
+  private int compare(String key, int i, int match) {
+    if (match < key.length() && i + match < length) {
+      return key.charAt(match) - (text[i + match] & 0xff);
+    }
+
+    if (i + match < length) {
+      return -1;
+    }
+
+    if (match < key.length()) {
+      return 1;
+    }
+
+    return 0;
+  }
+}
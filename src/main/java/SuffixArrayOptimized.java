@@ -1,3 +1,15 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
 /**
  * The SuffixArrayOptimized class represents a suffix array of a string, but
  * with less memory usage than the SuffixArray class.
@@ -7,6 +19,13 @@
  * the length of longestCommonPrefix() of select(i), and determining the rank()
  * of a key string (number of suffixes less than the specified key).
  *
+ * It also supports occurrence queries: the range() of ranks of the suffixes
+ * that start with a key, the count() of its occurrences, and the offsets of
+ * its occurrences(), none of which copies any part of the text. The ranges()
+ * of many keys can be computed at once, optionally on several threads, and
+ * the substrings that match a restricted regular expression can be found
+ * with find().
+ *
  * Instead of using an array of substrings, where suffixes[i] refers to the ith
  * sorted suffix, this class maintains an array of integers so that index[i]
  * refers to the offset of the ith sorted suffix. In order to compare the
@@ -19,18 +38,68 @@
  * longest common prefix. The selectAsString() method takes time proportional to
  * the length of the suffix.
  *
+ * Optionally, the LCP array (and the inverse suffix array it depends on) can be
+ * computed at construction time in linear time, using the algorithm of Kasai
+ * et al. In that case, longestCommonPrefix() takes constant time and scanning
+ * the whole LCP array takes linear time. The LCP array is also used to
+ * precompute the llcp[] and rlcp[] arrays of Manber and Myers, so that rank()
+ * takes at most M + lg N character compares for a key of length M. This costs
+ * 16 extra bytes per character.
+ *
+ * The LCP array also supports repeat analytics in linear time: the
+ * longestRepeatedSubstring() and all the maximalRepeats() above a length
+ * threshold. These return Repeat objects, which hold offsets and ranks rather
+ * than copies of the substrings.
+ *
  * Furthermore, this implementation uses a 3-way radix quicksort to sort the
  * array of suffixes. By doing so, this implementation builds a suffix array
  * from a random string of length N with space proportional to N an ~2N ln N
  * character compares, on the average. This follows from the fact that the cost
  * of sorting the suffixes is asymptotically the same as the cost of sorting N
  * random strings (see proposition E on page 723 of Algorithms 4th Edition).
+ * The sort compares the suffixes 4 characters at a time, packed into a long
+ * per suffix, and keeps the subarrays left to sort on an explicit stack, so it
+ * takes 8 extra bytes per character while it runs, and the length of the
+ * repeats of the text is not limited by the call stack (see sort()).
  *
- * In real-world usage, this algorithm runs very fast. However, it can be poor
- * on the worst case (for instance, when the input string consists of N copies
- * of the same character).
+ * In real-world usage, this algorithm runs very fast. However, it would be
+ * quadratic on the worst case (for instance, when the input string consists
+ * of N copies of the same character), so the subarrays whose suffixes share
+ * DEPTH_LIMIT characters are finished by prefix doubling, where long repeats
+ * cost O(N lg N) time each time their length doubles, instead of time
+ * proportional to their length. On such inputs, the suffix array is still
+ * built faster with Algorithm.INDUCED_SORTING, which takes linear time and
+ * space in the worst case (see InducedSorting.java). Algorithm.PREFIX_DOUBLING
+ * takes O(N lg N) time (see PrefixDoubling.java). SuffixIndexFactory picks
+ * one of them by sampling the text.
+ *
+ * The 3-way radix quicksort can also run on several cores: each partitioning
+ * step leaves three independent subarrays, which are sorted concurrently by a
+ * ForkJoinPool until they are smaller than a sequential cut-off. The resulting
+ * index is exactly the same as the one built by the sequential sort.
  */
-public class SuffixArrayOptimized {
+public class SuffixArrayOptimized implements SuffixIndex {
+
+  /**
+   * The algorithms that can be used to sort the suffixes of the text.
+   */
+  public enum Algorithm {
+    /**
+     * 3-way radix quicksort. Fast on real-world text, and finished by prefix
+     * doubling on long repeats.
+     */
+    RADIX_QUICKSORT,
+
+    /**
+     * SA-IS induced sorting. Linear time and space in the worst case.
+     */
+    INDUCED_SORTING,
+
+    /**
+     * Manber-Myers prefix doubling. O(N lg N) time in the worst case.
+     */
+    PREFIX_DOUBLING
+  }
 
   /**
    * The input text.
@@ -47,6 +116,27 @@ public class SuffixArrayOptimized {
    */
   private final int[] index;
 
+  /**
+   * lcp[i] is the length of the longest common prefix of the ith and the
+   * i-1st sorted suffixes (lcp[0] is 0), or null if it was not computed.
+   */
+  private final int[] lcp;
+
+  /**
+   * inverse[j] is the rank of the suffix text[j..length), or null if it was
+   * not computed.
+   */
+  private final int[] inverse;
+
+  /**
+   * For the ith suffix visited by the binary search of rank() over the range
+   * lo..hi, llcp[i] is the length of its longest common prefix with the suffix
+   * lo - 1 and rlcp[i] with the suffix hi + 1 (or null if the LCP array was
+   * not computed).
+   */
+  private final int[] llcp;
+  private final int[] rlcp;
+
   /**
    * Cut-off to insertion sort.
    *
@@ -60,122 +150,555 @@ public class SuffixArrayOptimized {
    */
   private static final int CUT_OFF = 8;
 
+  /**
+   * Number of characters packed into each sort key.
+   */
+  private static final int KEY_CHARS = 4;
+
+  /**
+   * Number of characters that the suffixes of a subarray may share before the
+   * 3-way radix quicksort leaves it to prefix doubling (a multiple of
+   * KEY_CHARS).
+   */
+  private static final int DEPTH_LIMIT = 64;
+
+  /**
+   * Default number of suffixes below which the parallel sort stops forking
+   * tasks and sorts the subarray sequentially.
+   */
+  public static final int PARALLEL_CUT_OFF = 8192;
+
+  /**
+   * Minimum number of keys searched by each task of ranges().
+   */
+  private static final int BATCH_CUT_OFF = 256;
+
+  /**
+   * Left contexts of an LCP interval: none seen yet, or more than one.
+   */
+  private static final int NONE = -1;
+  private static final int MANY = -2;
+
   /**
    * Build an array of Suffix objects for the given text String, and sort them.
    *
    * @param text the input String
    */
   public SuffixArrayOptimized(String text) {
+    this(text, Algorithm.RADIX_QUICKSORT);
+  }
+
+  /**
+   * Build the suffix array of the given text String, sorting the suffixes
+   * with the specified algorithm.
+   *
+   * @param text the input String
+   * @param algorithm the algorithm used to sort the suffixes
+   */
+  public SuffixArrayOptimized(String text, Algorithm algorithm) {
+    this(text, algorithm, false);
+  }
+
+  /**
+   * Build the suffix array of the given text String, sorting the suffixes
+   * with the specified algorithm, and optionally its LCP array.
+   *
+   * @param text the input String
+   * @param algorithm the algorithm used to sort the suffixes
+   * @param withLcp whether to compute the LCP and inverse suffix arrays
+   */
+  public SuffixArrayOptimized(String text, Algorithm algorithm, boolean withLcp) {
     this.text   = text.toCharArray();
     this.length = text.length();
-    this.index  = new int[this.length];
 
-    for (int i = 0; i < this.length; i++) {
-      this.index[i] = i;
+    if (algorithm == Algorithm.INDUCED_SORTING) {
+      this.index = InducedSorting.sort(this.text);
+    } else if (algorithm == Algorithm.PREFIX_DOUBLING) {
+      this.index = PrefixDoubling.sort(this.text);
+    } else {
+      long[]                keys   = new long[this.length];
+      PrefixDoubling.Groups groups = new PrefixDoubling.Groups();
+
+      this.index = identity(this.length);
+      sort(keys, 0, this.length - 1, 0, false, groups);
+      PrefixDoubling.refine(this.index, groups, DEPTH_LIMIT, keys);
     }
 
-    sort(0, this.length - 1, 0);
+    if (withLcp) {
+      this.inverse = inverse(this.index);
+      this.lcp     = kasai(this.text, this.index, this.inverse);
+      this.llcp    = new int[this.length];
+      this.rlcp    = new int[this.length];
+      searchLcp(0, this.length - 1);
+    } else {
+      this.inverse = null;
+      this.lcp     = null;
+      this.llcp    = null;
+      this.rlcp    = null;
+    }
   }
 
   /**
-   * Sorts this text in the range lo..hi, starting at the kth character.
+   * Build the suffix array of the given text String, sorting the suffixes
+   * with a 3-way radix quicksort that runs on up to the specified number of
+   * threads.
    *
-   * This implementation adds an improvement that uses the cutoff to insertion
-   * sort idea. That is, a possible way to improve the performance of quicksort
-   * is based on the two following observations:
-   *   - Quicksort is slower than insertion sort for tiny subarrays;
-   *   - Being recursive, quicksort's sort() is certain to call itself for tiny
-   *     subarrays.
+   * @param text the input String
+   * @param parallelism the number of worker threads
+   * @param sequentialCutOff the size of the subarrays below which the
+   *        suffixes are sorted sequentially
+   * @throws IllegalArgumentException if parallelism or sequentialCutOff is not
+   *         positive
+   */
+  public SuffixArrayOptimized(String text, int parallelism, int sequentialCutOff) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive");
+    }
+
+    if (sequentialCutOff < 1) {
+      throw new IllegalArgumentException("Sequential cut-off must be positive");
+    }
+
+    this.text    = text.toCharArray();
+    this.length  = text.length();
+    this.index   = identity(this.length);
+    this.lcp     = null;
+    this.inverse = null;
+    this.llcp    = null;
+    this.rlcp    = null;
+
+    long[]                keys   = new long[this.length];
+    PrefixDoubling.Groups groups = new PrefixDoubling.Groups();
+
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(new SortTask(keys, 0, this.length - 1, 0, false, groups, sequentialCutOff));
+    } finally {
+      pool.shutdown();
+    }
+
+    PrefixDoubling.refine(this.index, groups, DEPTH_LIMIT, keys);
+  }
+
+  /**
+   * Returns the array 0, 1, ..., length - 1.
+   */
+  private static int[] identity(int length) {
+    int[] index = new int[length];
+
+    for (int i = 0; i < length; i++) {
+      index[i] = i;
+    }
+
+    return index;
+  }
+
+  /**
+   * Returns the inverse permutation of the specified suffix array.
+   */
+  private static int[] inverse(int[] index) {
+    int[] inverse = new int[index.length];
+
+    for (int i = 0; i < index.length; i++) {
+      inverse[index[i]] = i;
+    }
+
+    return inverse;
+  }
+
+  /**
+   * Computes the LCP array using the algorithm of Kasai et al.
    *
-   * Hence, this implementation makes use of insertion sort for tiny subarrays,
-   * whereas the quicksort is used for bigger subarrays.
+   * The suffixes are visited in text order. If the suffix at offset j shares
+   * h > 0 characters with its predecessor in sorted order, then the suffix at
+   * offset j+1 shares at least h-1 characters with its own predecessor. Hence,
+   * h decreases by at most one per step and the total number of character
+   * compares is at most 2N.
+   */
+  private static int[] kasai(char[] text, int[] index, int[] inverse) {
+    int   length = text.length;
+    int[] lcp    = new int[length];
+    int   h      = 0;
+
+    for (int j = 0; j < length; j++) {
+      int r = inverse[j];
+
+      if (r == 0) {
+        h = 0;
+        continue;
+      }
+
+      int i = index[r-1];
+      while (j + h < length && i + h < length && text[j+h] == text[i+h]) {
+        h++;
+      }
+
+      lcp[r] = h;
+
+      if (h > 0) {
+        h--;
+      }
+    }
+
+    return lcp;
+  }
+
+  /**
+   * Fills llcp[] and rlcp[] for the binary search over the range lo..hi, and
+   * returns the length of the longest common prefix of the suffixes lo - 1 and
+   * hi + 1, where the suffixes -1 and length are empty.
    *
-   * The quicksort implementation is based on the idea of partition the array
-   * into three parts, one each for items with keys smaller than, equal to, and
-   * larger than the partitioning item's key. The partition idea (thanks E. W.
-   * Dijkstra) is based on a single left-to-right pass through the array that
-   * maintains a pointer lt such that text[lo..lt-1] is less than v, a pointer
-   * gt such that text[gt+1..hi] is greater than v, and a pointer i such that
-   * text[lt..i-1] is equal to v, where text[i..gt] are yet to be examined.
-   * There are three possible cases:
-   *   - text[i] less than v: swap text[i] with text[i] and increment both lt
-   *     and i;
-   *   - text[i] great than v: swap text[i] with text[gt] and decrement gt;
-   *   - text[i] equal to v: just increment i.
+   * Every range lo..hi visited by rank() is visited exactly once, so this
+   * takes linear time.
    */
-  private void sort(int lo, int hi, int k) {
-    if (hi <= lo + CUT_OFF) {
-      insertionSort(lo, hi, k);
-      return;
+  private int searchLcp(int lo, int hi) {
+    if (lo > hi) {
+      return (lo > 0 && lo < length) ? lcp[lo] : 0;
     }
 
-    // quicksort: 3-way partitioning
-    char v  = text[index[lo] + k];
+    int mid = lo + (hi - lo) / 2;
+    llcp[mid] = searchLcp(lo, mid - 1);
+    rlcp[mid] = searchLcp(mid + 1, hi);
+
+    return Math.min(llcp[mid], rlcp[mid]);
+  }
+
+  /**
+   * Sorts index[lo..hi], whose suffixes share their first k characters, with
+   * a 3-way radix quicksort on the next KEY_CHARS characters of each suffix.
+   *
+   * The characters are packed into one long per suffix, keys[i] for index[i]
+   * (see key()), so each partitioning step compares longs that are read in
+   * order, instead of chasing text[index[i] + k] for every character. The
+   * keys are read from the text once per KEY_CHARS characters of depth: the
+   * parts that are smaller and larger than the partitioning key are sorted on
+   * the same keys, and only the middle part needs the next KEY_CHARS
+   * characters. Within the middle part, the suffixes that end before these
+   * characters are prefixes of the others, so they are set aside first (see
+   * skipEnded()).
+   *
+   * The subarrays left to sort are kept on an explicit stack rather than on
+   * the call stack, whose depth would grow with the length of the longest
+   * repeat (N / KEY_CHARS on N copies of the same character). Tiny subarrays
+   * are finished with insertion sort.
+   *
+   * The subarrays whose suffixes share DEPTH_LIMIT characters are added to
+   * groups instead of being sorted, and are left to PrefixDoubling.refine():
+   * sorting them character by character would take time proportional to the
+   * length of their repeats, which makes the sort quadratic on N copies of
+   * the same character.
+   *
+   * @param keys the sort keys, parallel to index
+   * @param filled whether keys[lo..hi] already hold the characters at depth k
+   * @param groups the subarrays left to prefix doubling
+   */
+  private void sort(long[] keys, int lo, int hi, int k, boolean filled,
+                    PrefixDoubling.Groups groups) {
+    int[] stack = new int[64];
+    int   top   = push(stack, 0, lo, hi, k, filled);
+
+    while (top > 0) {
+      filled = stack[--top] != 0;
+      k      = stack[--top];
+      hi     = stack[--top];
+      lo     = stack[--top];
+
+      if (k >= DEPTH_LIMIT) {
+        groups.add(lo, hi);
+        continue;
+      }
+
+      if (!filled) {
+        fill(keys, lo, hi, k);
+      }
+
+      if (hi <= lo + CUT_OFF) {
+        insertionSort(keys, lo, hi, k, groups);
+        continue;
+      }
+
+      long bounds = partition(keys, lo, hi);
+      int  lt     = (int) (bounds >>> 32);
+      int  gt     = (int) bounds;
+      int  from   = skipEnded(keys, lt, gt, k);
+
+      if (top + 12 > stack.length) {
+        stack = Arrays.copyOf(stack, 2 * stack.length);
+      }
+
+      // keys[lo..lt-1] < keys[lt..gt] < keys[gt+1..hi].
+      top = push(stack, top, lo, lt - 1, k, true);
+      top = push(stack, top, gt + 1, hi, k, true);
+      top = push(stack, top, from, gt, k + KEY_CHARS, false);
+    }
+  }
+
+  /**
+   * Pushes the subarray lo..hi onto the stack, unless it is already sorted,
+   * and returns the new top of the stack.
+   */
+  private static int push(int[] stack, int top, int lo, int hi, int k, boolean filled) {
+    if (hi > lo) {
+      stack[top++] = lo;
+      stack[top++] = hi;
+      stack[top++] = k;
+      stack[top++] = filled ? 1 : 0;
+    }
+
+    return top;
+  }
+
+  /**
+   * Partitions index[lo..hi] around the median key of its first, middle and
+   * last suffixes, and returns the bounds lt and gt of the middle part, packed
+   * as (lt << 32 | gt).
+   *
+   * The partition idea (thanks E. W. Dijkstra) is based on a single
+   * left-to-right pass through the array that maintains a pointer lt such that
+   * keys[lo..lt-1] are less than v, a pointer gt such that keys[gt+1..hi] are
+   * greater than v, and a pointer i such that keys[lt..i-1] are equal to v,
+   * where keys[i..gt] are yet to be examined.
+   */
+  private long partition(long[] keys, int lo, int hi) {
+    swap(keys, lo, median(keys, lo, lo + (hi - lo) / 2, hi));
+
+    long v  = keys[lo];
     int  lt = lo;
     int  gt = hi;
     int  i  = lo + 1;
 
     while (i <= gt) {
-      char t = text[index[i] + k];
+      long t = keys[i];
 
       if (t < v) {
-        swap(lt++, i++);
+        swap(keys, lt++, i++);
       }
       else if (t > v) {
-        swap(i, gt--);
+        swap(keys, i, gt--);
       }
       else {
         i++;
       }
     }
 
-    // text[lo..lt-1] < v = text[lt..gt] < text[gt+1..hi].
-    sort(lo, lt-1, k);
+    return ((long) lt << 32) | (gt & 0xffffffffL);
+  }
 
-    if (v > 0) {
-      sort(lt, gt, k+1);
+  /**
+   * Returns the one of i, j and k whose key is the median of the three.
+   */
+  private static int median(long[] keys, int i, int j, int k) {
+    if (keys[i] < keys[j]) {
+      return keys[j] < keys[k] ? j : (keys[i] < keys[k] ? k : i);
     }
 
-    sort(gt+1, hi, k);
+    return keys[k] < keys[j] ? j : (keys[k] < keys[i] ? k : i);
   }
 
   /**
-   * Sorts the range index[lo..hi], starting at the kth character, using
-   * insertion sort.
+   * Moves the suffixes of index[lt..gt] that end within the next KEY_CHARS
+   * characters to the front of the range, shortest first, and returns the
+   * start of the others.
+   *
+   * All the suffixes of the range have the same key, so the ones that end
+   * within it are prefixes of the others, and of each other: they are sorted
+   * by length, which is the reverse order of their offsets. There are at most
+   * KEY_CHARS of them, and none unless the last character of the key is 0.
    */
-  private void insertionSort(int lo, int hi, int k) {
-    for (int i = lo; i <= hi; i++) {
-      for (int j = i; j < lo && isLessThan(index[j], index[j-1], k); j--) {
+  private int skipEnded(long[] keys, int lt, int gt, int k) {
+    if ((keys[lt] & 0xffff) != 0) {
+      return lt;
+    }
+
+    int from = lt;
+
+    for (int i = lt; i <= gt; i++) {
+      if (index[i] + k + KEY_CHARS > length) {
+        swap(from++, i);
+      }
+    }
+
+    for (int i = lt + 1; i < from; i++) {
+      for (int j = i; j > lt && index[j] > index[j-1]; j--) {
         swap(j, j - 1);
       }
     }
+
+    return from;
   }
 
   /**
-   * Returns true if text[i+k..length) is less than text[j+k..length).
+   * Parallel version of sort(): the three subarrays left by each partitioning
+   * step are disjoint, so the smaller and larger ones are sorted by
+   * concurrent tasks, while this task goes on with the middle one. Subarrays
+   * with less than cutOff suffixes are handed to the sequential sort().
    */
-  private boolean isLessThan(int i, int j, int k) {
-    if (i == j) {
-      return false;
+  private final class SortTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final long[] keys;
+    private final int lo;
+    private final int hi;
+    private final int k;
+    private final boolean filled;
+    private final PrefixDoubling.Groups groups;
+    private final int cutOff;
+
+    private SortTask(long[] keys, int lo, int hi, int k, boolean filled,
+                     PrefixDoubling.Groups groups, int cutOff) {
+      this.keys   = keys;
+      this.lo     = lo;
+      this.hi     = hi;
+      this.k      = k;
+      this.filled = filled;
+      this.groups = groups;
+      this.cutOff = cutOff;
     }
 
-    i += k;
-    j += k;
+    @Override
+    protected void compute() {
+      List<SortTask> tasks = new ArrayList<SortTask>();
+      int     lo     = this.lo;
+      int     hi     = this.hi;
+      int     k      = this.k;
+      boolean filled = this.filled;
 
-    while (i < length && j < length) {
-      if (text[i] < text[j]) {
-        return true;
+      // Looping on the middle part keeps the depth of the tasks independent
+      // of the length of the repeats.
+      while (k < DEPTH_LIMIT && hi - lo >= cutOff && hi > lo + CUT_OFF) {
+        if (!filled) {
+          fill(keys, lo, hi, k);
+        }
+
+        long bounds = partition(keys, lo, hi);
+        int  lt     = (int) (bounds >>> 32);
+        int  gt     = (int) bounds;
+        int  from   = skipEnded(keys, lt, gt, k);
+
+        if (lt - 1 > lo) {
+          tasks.add(new SortTask(keys, lo, lt - 1, k, true, groups, cutOff));
+        }
+        if (hi > gt + 1) {
+          tasks.add(new SortTask(keys, gt + 1, hi, k, true, groups, cutOff));
+        }
+
+        lo     = from;
+        hi     = gt;
+        k     += KEY_CHARS;
+        filled = false;
       }
 
-      if (text[i] > text[j]) {
-        return false;
+      for (SortTask task : tasks) {
+        task.fork();
       }
 
-      i++;
-      j++;
+      if (hi > lo) {
+        sort(keys, lo, hi, k, filled, groups);
+      }
+
+      for (SortTask task : tasks) {
+        task.join();
+      }
+    }
+  }
+
+  /**
+   * Sets keys[lo..hi] to the keys of the suffixes of index[lo..hi] at depth
+   * k.
+   */
+  private void fill(long[] keys, int lo, int hi, int k) {
+    for (int i = lo; i <= hi; i++) {
+      keys[i] = key(index[i], k);
+    }
+  }
+
+  /**
+   * Returns the characters text[i+k..i+k+KEY_CHARS) packed into a long, 16
+   * bits per character, the first one in the high bits, and the characters
+   * past the end of the text replaced with 0. The sign bit is flipped so that
+   * comparing keys as signed longs compares the characters as unsigned.
+   *
+   * A character 0 and the end of the text have the same key, which
+   * skipEnded() sorts out.
+   */
+  private long key(int i, int k) {
+    int  p = i + k;
+    long key;
+
+    if (p + KEY_CHARS <= length) {
+      key = (long) text[p] << 48 | (long) text[p + 1] << 32 | (long) text[p + 2] << 16 | text[p + 3];
+    } else {
+      key = 0;
+      for (int c = 0; c < KEY_CHARS; c++) {
+        key = key << 16 | (p + c < length ? text[p + c] : 0);
+      }
+    }
+
+    return key ^ Long.MIN_VALUE;
+  }
+
+  /**
+   * Sorts the range index[lo..hi], whose keys hold the characters at depth k,
+   * using insertion sort.
+   *
+   * The suffixes are only compared on their first DEPTH_LIMIT characters. Each
+   * pair of suffixes that ends up adjacent was compared while inserting one
+   * of them, so if no compare was a tie, the range is sorted. Otherwise, the
+   * runs of suffixes that share DEPTH_LIMIT characters are added to groups.
+   */
+  private void insertionSort(long[] keys, int lo, int hi, int k, PrefixDoubling.Groups groups) {
+    boolean tied = false;
+
+    for (int i = lo + 1; i <= hi; i++) {
+      for (int j = i; j > lo; j--) {
+        int cmp = compare(keys, j, j - 1, k);
+        tied |= cmp == 0;
+
+        if (cmp >= 0) {
+          break;
+        }
+        swap(keys, j, j - 1);
+      }
+    }
+
+    for (int a = lo, b; tied && a < hi; a = b + 1) {
+      for (b = a; b < hi && compare(keys, b + 1, b, k) == 0; b++) { }
+
+      if (b > a) {
+        groups.add(a, b);
+      }
     }
+  }
+
+  /**
+   * Compares the first DEPTH_LIMIT characters of the suffixes index[a] and
+   * index[b], knowing that they share their first k characters: their keys
+   * decide, unless they are equal. Past the key, compare() also orders the
+   * suffixes that ended within it, which are the ones past the end of the
+   * text.
+   */
+  private int compare(long[] keys, int a, int b, int k) {
+    if (keys[a] != keys[b]) {
+      return keys[a] < keys[b] ? -1 : 1;
+    }
+
+    int i = index[a];
+    int j = index[b];
+
+    // The suffix that ends first, possibly within the key, is the smaller.
+    for (int d = k + KEY_CHARS; ; d++) {
+      if (i + d >= length || j + d >= length) {
+        return j - i;
+      }
 
-    return i > j;
+      if (d == DEPTH_LIMIT) {
+        return 0;
+      }
+
+      if (text[i + d] != text[j + d]) {
+        return text[i + d] - text[j + d];
+      }
+    }
   }
 
   /**
@@ -187,6 +710,17 @@ public class SuffixArrayOptimized {
     index[j] = tmp;
   }
 
+  /**
+   * Swaps index[i] and index[j], and keys[i] and keys[j].
+   */
+  private void swap(long[] keys, int i, int j) {
+    swap(i, j);
+
+    long tmp = keys[i];
+    keys[i]  = keys[j];
+    keys[j]  = tmp;
+  }
+
   /**
    * Returns the length of the input text.
    *
@@ -242,9 +776,322 @@ public class SuffixArrayOptimized {
       throw new IndexOutOfBoundsException();
     }
 
+    if (lcp != null) {
+      return lcp[i];
+    }
+
     return longestCommonPreffix(index[i], index[i-1]);
   }
 
+  /**
+   * Returns the rank of the suffix that starts at the specified offset of the
+   * text, that is, the inverse of indexOf(). Takes constant time.
+   *
+   * @param offset an integer between 0 and length - 1
+   * @return the rank of the suffix text[offset..length)
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= offset < length
+   * @throws IllegalStateException if the suffix array was built without the
+   *         LCP array
+   */
+  public int inverseIndexOf(int offset) {
+    if (inverse == null) {
+      throw new IllegalStateException("Inverse suffix array was not built");
+    }
+
+    if (offset < 0 || offset >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return inverse[offset];
+  }
+
+  /**
+   * Returns the longest repeated substring of the text, or null if no
+   * character occurs twice. Takes linear time.
+   *
+   * @return the longest substring that occurs at least twice in the text
+   * @throws IllegalStateException if the suffix array was built without the
+   *         LCP array
+   */
+  public Repeat longestRepeatedSubstring() {
+    if (lcp == null) {
+      throw new IllegalStateException("LCP array was not built");
+    }
+
+    int best = 0;
+    for (int i = 1; i < length; i++) {
+      if (lcp[i] > lcp[best]) {
+        best = i;
+      }
+    }
+
+    if (best == 0) {
+      return null;
+    }
+
+    return repeat(lcp, index, best, lcp[best]);
+  }
+
+  /**
+   * Returns the repeat of the specified length that is shared by the suffixes
+   * of ranks i - 1 and i, with the range of all the suffixes that start with
+   * it.
+   */
+  static Repeat repeat(int[] lcp, int[] index, int i, int length) {
+    int from = i - 1;
+    int to   = i + 1;
+
+    while (from > 0 && lcp[from] >= length) {
+      from--;
+    }
+
+    while (to < lcp.length && lcp[to] >= length) {
+      to++;
+    }
+
+    return new Repeat(index[from], length, new RankRange(from, to));
+  }
+
+  /**
+   * Returns all the maximal repeats of the text with at least the specified
+   * length. Takes linear time, plus the time to build the returned list.
+   *
+   * A maximal repeat is a substring that occurs at least twice, and that
+   * cannot be extended to the left or to the right without losing one of its
+   * occurrences. The repeats are found with a bottom-up traversal of the LCP
+   * intervals (Abouelhoda, Kurtz and Ohlebusch, "Replacing suffix trees with
+   * enhanced suffix arrays"): the suffixes of ranks lb..rb that share exactly
+   * lcp characters form an interval, which is right-maximal by definition. It
+   * is also left-maximal unless all its suffixes are preceded by the same
+   * character, which is tracked while the intervals are merged.
+   *
+   * @param minLength the minimum length of the repeats
+   * @return the maximal repeats of at least minLength characters, in the
+   *         order of the end of their ranges
+   * @throws IllegalArgumentException if minLength is not positive
+   * @throws IllegalStateException if the suffix array was built without the
+   *         LCP array
+   */
+  public List<Repeat> maximalRepeats(int minLength) {
+    if (lcp == null) {
+      throw new IllegalStateException("LCP array was not built");
+    }
+
+    if (minLength < 1) {
+      throw new IllegalArgumentException("Minimum length must be positive");
+    }
+
+    List<Repeat> repeats = new ArrayList<Repeat>();
+
+    // The stack of open intervals: their lcp, their first rank, and the
+    // character that precedes all their suffixes (or NONE, or MANY).
+    int[] lcps  = new int[length + 1];
+    int[] lbs   = new int[length + 1];
+    int[] lefts = new int[length + 1];
+    int   top   = 0;
+
+    lcps[0]  = 0;
+    lbs[0]   = 0;
+    lefts[0] = NONE;
+
+    for (int i = 1; i <= length; i++) {
+      // The suffix i - 1 belongs to the deepest open interval.
+      lefts[top] = merge(lefts[top], leftOf(i - 1));
+
+      int h  = (i < length) ? lcp[i] : -1;
+      int lb = i - 1;
+      int left = leftOf(i - 1);
+
+      while (top >= 0 && h < lcps[top]) {
+        lb   = lbs[top];
+        left = lefts[top];
+
+        if (lcps[top] >= minLength && left == MANY) {
+          repeats.add(new Repeat(index[lb], lcps[top], new RankRange(lb, i)));
+        }
+
+        top--;
+        if (top >= 0) {
+          lefts[top] = merge(lefts[top], left);
+        }
+      }
+
+      if (top < 0 || h > lcps[top]) {
+        top++;
+        lcps[top]  = h;
+        lbs[top]   = lb;
+        lefts[top] = left;
+      }
+    }
+
+    return repeats;
+  }
+
+  /**
+   * Returns the k most frequent repeated substrings of the text whose length
+   * is between minLength and maxLength, from the most to the least frequent
+   * (and in the order of their ranges on ties). Takes linear time, plus
+   * O(lg k) per candidate.
+   *
+   * The suffixes that start with a substring s form an lcp-interval, and all
+   * the substrings of the interval of value l whose parent interval has value
+   * p, that is, the prefixes of lengths p+1..l of its suffixes, occur exactly
+   * as many times as the interval has suffixes. Hence, a single bottom-up
+   * traversal of the LCP intervals (see maximalRepeats()) finds every
+   * frequency, and only the longest of the prefixes in the length range is
+   * reported for each interval, since the shorter ones have the same
+   * occurrences. A heap keeps the best k candidates seen so far. Substrings
+   * that occur once are not reported.
+   *
+   * @param k the maximum number of substrings to return
+   * @param minLength the minimum length of the substrings
+   * @param maxLength the maximum length of the substrings
+   * @return the k most frequent substrings, with their occurrences
+   * @throws IllegalArgumentException if k is negative, minLength is not
+   *         positive, or maxLength is less than minLength
+   * @throws IllegalStateException if the suffix array was built without the
+   *         LCP array
+   */
+  public List<Repeat> mostFrequentSubstrings(int k, int minLength, int maxLength) {
+    if (lcp == null) {
+      throw new IllegalStateException("LCP array was not built");
+    }
+
+    if (k < 0 || minLength < 1 || maxLength < minLength) {
+      throw new IllegalArgumentException("Invalid k or length range");
+    }
+
+    // The heap of the best candidates, the worst one first.
+    Comparator<Repeat> worst = Comparator.comparingInt(Repeat::count)
+      .thenComparing(Comparator.comparingInt((Repeat r) -> r.range().from()).reversed());
+    PriorityQueue<Repeat> best = new PriorityQueue<Repeat>(worst);
+
+    // The stack of open intervals: their lcp and their first rank.
+    int[] lcps = new int[length + 1];
+    int[] lbs  = new int[length + 1];
+    int   top  = 0;
+
+    for (int i = 1; i <= length; i++) {
+      int h  = (i < length) ? lcp[i] : -1;
+      int lb = i - 1;
+
+      while (top >= 0 && h < lcps[top]) {
+        lb = lbs[top];
+        int value  = lcps[top--];
+        int parent = Math.max(h, top >= 0 ? lcps[top] : -1);
+
+        int longest = Math.min(value, maxLength);
+        if (k > 0 && longest >= Math.max(parent + 1, minLength)) {
+          best.add(new Repeat(index[lb], longest, new RankRange(lb, i)));
+          if (best.size() > k) {
+            best.poll();
+          }
+        }
+      }
+
+      if (top < 0 || h > lcps[top]) {
+        top++;
+        lcps[top] = h;
+        lbs[top]  = lb;
+      }
+    }
+
+    List<Repeat> repeats = new ArrayList<Repeat>(best);
+    repeats.sort(worst.reversed());
+    return repeats;
+  }
+
+  /**
+   * Returns all the supermaximal repeats of the text with at least the
+   * specified length, in the order of their ranges. Takes linear time.
+   *
+   * A supermaximal repeat is a maximal repeat that does not occur inside any
+   * other repeat. Its lcp-interval is a local maximum of the LCP array (its
+   * suffixes have no longer common prefix than the one they all share, so
+   * the interval has no child interval), and the characters that precede its
+   * suffixes are pairwise distinct (the suffix at offset 0 has none).
+   *
+   * @param minLength the minimum length of the repeats
+   * @return the supermaximal repeats of at least minLength characters
+   * @throws IllegalArgumentException if minLength is not positive
+   * @throws IllegalStateException if the suffix array was built without the
+   *         LCP array
+   */
+  public List<Repeat> supermaximalRepeats(int minLength) {
+    if (lcp == null) {
+      throw new IllegalStateException("LCP array was not built");
+    }
+
+    if (minLength < 1) {
+      throw new IllegalArgumentException("Minimum length must be positive");
+    }
+
+    List<Repeat> repeats = new ArrayList<Repeat>();
+
+    // seen[ch] is the last interval in which the character ch preceded a
+    // suffix. The local maxima are disjoint, so this takes linear time.
+    int[] seen = new int[Character.MAX_VALUE + 1];
+
+    for (int i = 1; i < length; i++) {
+      int value = lcp[i];
+      if (value < minLength || value <= lcp[i - 1]) {
+        continue;
+      }
+
+      // lcp[i] rises above the previous value (lcp[0] is 0): find the end of
+      // the run.
+      int j = i;
+      while (j + 1 < length && lcp[j + 1] == value) {
+        j++;
+      }
+
+      if (j + 1 < length && lcp[j + 1] > value) {
+        i = j;
+        continue;
+      }
+
+      boolean distinct = true;
+      for (int r = i - 1; r <= j && distinct; r++) {
+        if (index[r] > 0) {
+          char ch = text[index[r] - 1];
+          distinct = (seen[ch] != i);
+          seen[ch] = i;
+        }
+      }
+
+      if (distinct) {
+        repeats.add(new Repeat(index[i - 1], value, new RankRange(i - 1, j + 1)));
+      }
+
+      i = j;
+    }
+
+    return repeats;
+  }
+
+  /**
+   * Returns the character that precedes the suffix of rank i, or MANY for the
+   * suffix at offset 0 (which can never be extended to the left).
+   */
+  private int leftOf(int i) {
+    return index[i] == 0 ? MANY : text[index[i] - 1];
+  }
+
+  /**
+   * Returns the left context of the union of two intervals.
+   */
+  private static int merge(int a, int b) {
+    if (a == NONE) {
+      return b;
+    }
+
+    if (b == NONE || a == b) {
+      return a;
+    }
+
+    return MANY;
+  }
+
   /**
    * Returns the longest common prefix of text[i..length) and text[j..length)
    */
@@ -264,26 +1111,556 @@ public class SuffixArrayOptimized {
     return size;
   }
 
+  /**
+   * Returns the character at the specified offset of the text.
+   */
+  char charAt(int offset) {
+    return text[offset];
+  }
+
+  /**
+   * Saves the text, the suffix array and, if it was built, the LCP array to
+   * the specified file, so that they can be reopened without sorting the
+   * suffixes again (see MappedSuffixArray.java).
+   *
+   * @param file the file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void save(File file) throws IOException {
+    MappedSuffixArray.write(file, text, index, lcp);
+  }
+
   /**
    * Returns the number of suffixes strictly less than the specified key.
    *
+   * The binary search keeps track of l and r, the lengths of the longest
+   * common prefixes of the key with the suffixes just below lo and just above
+   * hi. Since the suffixes are sorted, every suffix in index[lo..hi] shares at
+   * least min(l, r) characters with the key, and these are not compared again.
+   *
+   * If the LCP array was built, the precomputed llcp[] and rlcp[] arrays tell
+   * how many characters the middle suffix shares with the lower and upper
+   * bounds. When l != r, they either decide the comparison without looking at
+   * the text, or allow it to start at max(l, r). In that case, a query of
+   * length M takes at most M + lg N character compares.
+   *
    * @param key the query string
    * @return the number of suffixes strictly less than key
    */
   public int rank(String key) {
+    return search(key, false);
+  }
+
+  /**
+   * Returns the range of ranks of the suffixes that start with the specified
+   * key. Takes time proportional to M lg N in the worst case, where M is the
+   * length of the key.
+   *
+   * @param key the query string
+   * @return the range [from, to) of ranks of the suffixes that start with key
+   */
+  public RankRange range(String key) {
+    return new RankRange(search(key, false), search(key, true));
+  }
+
+  /**
+   * Returns the number of occurrences of the specified key in the text. Takes
+   * time proportional to M lg N in the worst case, where M is the length of
+   * the key.
+   *
+   * @param key the query string
+   * @return the number of occurrences of key in the text
+   */
+  public int count(String key) {
+    return search(key, true) - search(key, false);
+  }
+
+  /**
+   * Returns the offsets of all the occurrences of the specified key in the
+   * text, in the order of their suffixes (not in text order).
+   *
+   * The offsets are read lazily from the suffix array, so iterating over them
+   * allocates nothing proportional to the text or to the number of
+   * occurrences.
+   *
+   * @param key the query string
+   * @return a stream of the offsets of the occurrences of key in the text
+   */
+  public IntStream occurrences(String key) {
+    int from = search(key, false);
+    int to   = search(key, true);
+
+    return IntStream.range(from, to).map(i -> index[i]);
+  }
+
+  /**
+   * Returns the ranges of ranks of the suffixes that start with each of the
+   * specified keys (see range()).
+   *
+   * The keys are sorted, and the starts of their ranges are found with a
+   * shared narrowing search: the median key is searched first, and the keys
+   * before and after it are then searched only between the ranks found for
+   * their sorted neighbours. Moreover, the suffixes between the ranks of two
+   * keys share the longest common prefix of these keys, which each search
+   * skips. For K keys, the searches take time proportional to lg(N/K)
+   * instead of lg N each. The end of each range is searched in the same way
+   * between its start and the start of the range of the next key, unless the
+   * key is a prefix of the next one: then it is found with an exponential
+   * (galloping) search from its start, which takes time proportional to
+   * M lg C for a key that occurs C times.
+   *
+   * @param keys the query strings
+   * @return the ranges of the keys, in the same order as the keys
+   */
+  public RankRange[] ranges(String[] keys) {
+    return ranges(keys, 1);
+  }
+
+  /**
+   * Returns the ranges of ranks of the suffixes that start with each of the
+   * specified keys, running the searches on up to the specified number of
+   * threads. Once the median key is searched, the keys before and after it
+   * are searched by concurrent tasks, down to runs of 256 keys.
+   *
+   * @param keys the query strings
+   * @param parallelism the number of worker threads
+   * @return the ranges of the keys, in the same order as the keys
+   * @throws IllegalArgumentException if parallelism is not positive
+   */
+  public RankRange[] ranges(String[] keys, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive");
+    }
+
+    int[] order = new int[keys.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    sortKeys(keys, order);
+
+    int[]       ranks  = new int[keys.length];
+    RankRange[] ranges = new RankRange[keys.length];
+
+    if (parallelism == 1) {
+      batch(keys, order, ranks, ranges, 0, keys.length - 1);
+    } else {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        pool.invoke(new BatchTask(keys, order, ranks, ranges, 0, keys.length - 1));
+      } finally {
+        pool.shutdown();
+      }
+    }
+
+    return ranges;
+  }
+
+  /**
+   * Finds the ranges of the sorted keys order[i..j], and stores their starts
+   * in ranks[i..j] and the ranges in ranges[] at the indices of the keys. The
+   * keys order[i-1] and order[j+1], if any, must have been searched.
+   */
+  private void batch(String[] keys, int[] order, int[] ranks, RankRange[] ranges, int i, int j) {
+    if (i > j) {
+      return;
+    }
+
+    int m = (i + j) >>> 1;
+
+    narrow(keys, order, ranks, i, j, m);
+    batch(keys, order, ranks, ranges, i, m - 1);
+    batch(keys, order, ranks, ranges, m + 1, j);
+    ranges[order[m]] = new RankRange(ranks[m], end(keys, order, ranks, m));
+  }
+
+  /**
+   * Stores in ranks[m] the start of the range of the key order[m], one of the
+   * sorted keys order[i..j]. It is between the starts of the ranges of the
+   * keys order[i-1] and order[j+1] (or the ends of the suffix array), and the
+   * suffixes in between share the longest common prefix of these keys.
+   */
+  private void narrow(String[] keys, int[] order, int[] ranks, int i, int j, int m) {
+    boolean below = i > 0;
+    boolean above = j + 1 < order.length;
+    int     lo    = below ? ranks[i - 1] : 0;
+    int     hi    = above ? ranks[j + 1] : length;
+    int     skip  = below && above ? commonPrefix(keys[order[i - 1]], keys[order[j + 1]]) : 0;
+
+    ranks[m] = search(keys[order[m]], false, lo, hi - 1, skip);
+  }
+
+  /**
+   * Returns the end of the range of the key order[m], once the start of the
+   * range of the next key is in ranks[m + 1].
+   */
+  private int end(String[] keys, int[] order, int[] ranks, int m) {
+    String key = keys[order[m]];
+
+    if (m + 1 == order.length) {
+      return gallop(key, ranks[m], true);
+    }
+
+    // Unless the key is a prefix of the next one, the suffixes that start
+    // with it are all less than the next key, and share their common prefix.
+    int skip = commonPrefix(key, keys[order[m + 1]]);
+
+    if (skip == key.length()) {
+      return gallop(key, ranks[m], true);
+    }
+
+    return search(key, true, ranks[m], ranks[m + 1] - 1, skip);
+  }
+
+  /**
+   * Returns the length of the longest common prefix of two strings.
+   */
+  private static int commonPrefix(String a, String b) {
+    int size = Math.min(a.length(), b.length());
+
+    for (int i = 0; i < size; i++) {
+      if (a.charAt(i) != b.charAt(i)) {
+        return i;
+      }
+    }
+
+    return size;
+  }
+
+  /**
+   * Parallel version of batch(): once the median key is searched, the keys
+   * before and after it are searched by concurrent tasks.
+   */
+  private final class BatchTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] keys;
+    private final int[] order;
+    private final int[] ranks;
+    private final RankRange[] ranges;
+    private final int i;
+    private final int j;
+
+    private BatchTask(String[] keys, int[] order, int[] ranks, RankRange[] ranges, int i, int j) {
+      this.keys   = keys;
+      this.order  = order;
+      this.ranks  = ranks;
+      this.ranges = ranges;
+      this.i      = i;
+      this.j      = j;
+    }
+
+    @Override
+    protected void compute() {
+      if (j - i < 2 * BATCH_CUT_OFF) {
+        batch(keys, order, ranks, ranges, i, j);
+        return;
+      }
+
+      int m = (i + j) >>> 1;
+
+      narrow(keys, order, ranks, i, j, m);
+      invokeAll(new BatchTask(keys, order, ranks, ranges, i, m - 1),
+                new BatchTask(keys, order, ranks, ranges, m + 1, j));
+      ranges[order[m]] = new RankRange(ranks[m], end(keys, order, ranks, m));
+    }
+  }
+
+  /**
+   * Sorts the indices of the keys in order[] by their keys, with a 3-way
+   * radix quicksort on their characters (see sort()) and insertion sort for
+   * tiny subarrays.
+   */
+  private static void sortKeys(String[] keys, int[] order) {
+    int[] stack = new int[3 * 16];
+    int   top   = 0;
+
+    stack[top++] = 0;
+    stack[top++] = order.length - 1;
+    stack[top++] = 0;
+
+    while (top > 0) {
+      int d  = stack[--top];
+      int hi = stack[--top];
+      int lo = stack[--top];
+
+      if (hi <= lo + CUT_OFF) {
+        for (int i = lo + 1; i <= hi; i++) {
+          for (int j = i; j > lo && keys[order[j]].compareTo(keys[order[j-1]]) < 0; j--) {
+            swap(order, j, j - 1);
+          }
+        }
+        continue;
+      }
+
+      int x  = charAt(keys[order[lo]], d);
+      int y  = charAt(keys[order[lo + (hi - lo) / 2]], d);
+      int z  = charAt(keys[order[hi]], d);
+      int v  = x < y ? (y < z ? y : Math.max(x, z)) : (z < y ? y : Math.min(x, z));
+      int lt = lo;
+      int gt = hi;
+      int i  = lo;
+
+      while (i <= gt) {
+        int t = charAt(keys[order[i]], d);
+
+        if (t < v) {
+          swap(order, lt++, i++);
+        } else if (t > v) {
+          swap(order, i, gt--);
+        } else {
+          i++;
+        }
+      }
+
+      if (top + 9 > stack.length) {
+        stack = Arrays.copyOf(stack, 2 * stack.length);
+      }
+
+      stack[top++] = lo;
+      stack[top++] = lt - 1;
+      stack[top++] = d;
+
+      stack[top++] = gt + 1;
+      stack[top++] = hi;
+      stack[top++] = d;
+
+      // The keys that end at depth d (v = -1) are all equal.
+      if (v >= 0) {
+        stack[top++] = lt;
+        stack[top++] = gt;
+        stack[top++] = d + 1;
+      }
+    }
+  }
+
+  /**
+   * Returns the dth character of the key, or -1 if the key has d characters.
+   */
+  private static int charAt(String key, int d) {
+    return d < key.length() ? key.charAt(d) : -1;
+  }
+
+  private static void swap(int[] order, int i, int j) {
+    int tmp  = order[i];
+    order[i] = order[j];
+    order[j] = tmp;
+  }
+
+  /**
+   * Returns the distinct substrings of the text that match the specified
+   * pattern (see SuffixPattern.java), each as a Repeat with the range of
+   * ranks of its occurrences, in the order of the ranges.
+   *
+   * Instead of scanning the text, the search descends the suffix array: the
+   * suffixes that start with a string s are a range of ranks, and the ones
+   * that start with sc, for a character c, are a subrange found with a binary
+   * search on the character at depth |s|. The pattern automaton is run along
+   * the way, so a range is abandoned as soon as its string cannot be extended
+   * to a match. Characters are tried one by one when the pattern allows a few
+   * of them (a literal or a small class), or else by enumerating the
+   * distinct characters at that depth.
+   *
+   * @param pattern the pattern to search
+   * @return the substrings that match the pattern, with their occurrences
+   */
+  public List<Repeat> find(SuffixPattern pattern) {
+    List<Repeat> matches = new ArrayList<Repeat>();
+    find(pattern, pattern.start(), 0, length, 0, matches);
+    return matches;
+  }
+
+  /**
+   * Compiles the specified pattern and returns the distinct substrings of the
+   * text that match it (see find(SuffixPattern)).
+   *
+   * @param pattern the restricted regular expression
+   * @return the substrings that match the pattern, with their occurrences
+   * @throws IllegalArgumentException if the pattern is malformed or uses an
+   *         unsupported construct
+   */
+  public List<Repeat> find(String pattern) {
+    return find(SuffixPattern.compile(pattern));
+  }
+
+  /**
+   * Reports the suffixes lo..hi - 1, which share the same first depth
+   * characters, if these characters match the pattern, and then descends to
+   * the subranges of the suffixes that can be extended to a match.
+   */
+  private void find(SuffixPattern pattern, BitSet states, int lo, int hi, int depth,
+                    List<Repeat> matches) {
+    if (lo < hi && pattern.accepts(states)) {
+      matches.add(new Repeat(index[lo], depth, new RankRange(lo, hi)));
+    }
+
+    // The suffix of length depth, if any, is the first one of the range.
+    if (lo < hi && index[lo] + depth == length) {
+      lo++;
+    }
+
+    char[] candidates = pattern.candidates(states);
+
+    if (candidates != null) {
+      for (char ch : candidates) {
+        int from = lowerBound(lo, hi, depth, ch);
+        int to   = lowerBound(from, hi, depth, ch + 1);
+
+        if (from < to) {
+          descend(pattern, states, ch, from, to, depth, matches);
+        }
+      }
+      return;
+    }
+
+    while (lo < hi) {
+      char ch = text[index[lo] + depth];
+      int  to = lowerBound(lo, hi, depth, ch + 1);
+
+      descend(pattern, states, ch, lo, to, depth, matches);
+      lo = to;
+    }
+  }
+
+  private void descend(SuffixPattern pattern, BitSet states, char ch, int lo, int hi,
+                       int depth, List<Repeat> matches) {
+    BitSet next = pattern.step(states, ch);
+
+    if (!next.isEmpty()) {
+      find(pattern, next, lo, hi, depth + 1, matches);
+    }
+  }
+
+  /**
+   * Returns the first rank in lo..hi - 1 whose suffix has a character at
+   * least ch at the specified depth, or hi if there is none. All the
+   * suffixes in the range have more than depth characters.
+   */
+  private int lowerBound(int lo, int hi, int depth, int ch) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+
+      if (text[index[mid] + depth] < ch) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+
+    return lo;
+  }
+
+  /**
+   * Returns the result of search(key, prefix), knowing that it is at least
+   * lo. The distance to the result is bounded by probing lo, lo + 1, lo + 3,
+   * lo + 7, and so forth, and then found with a binary search.
+   */
+  private int gallop(String key, int lo, boolean prefix) {
+    int hi   = lo;
+    int step = 1;
+
+    while (hi < length && isBelow(key, hi, prefix)) {
+      lo    = hi + 1;
+      hi   += step;
+      step <<= 1;
+    }
+
+    return search(key, prefix, lo, Math.min(hi, length) - 1, 0);
+  }
+
+  /**
+   * Returns true if the suffix of rank i is counted by search(key, prefix),
+   * that is, if it is less than the key (or, if prefix is true, starts with
+   * it).
+   */
+  private boolean isBelow(String key, int i, boolean prefix) {
+    int match = matchLength(key, index[i], 0);
+    int cmp   = (prefix && match == key.length()) ? 1 : compare(key, index[i], match);
+
+    return cmp > 0;
+  }
+
+  /**
+   * Binary search for the specified key among the suffixes lo..hi, knowing
+   * that its result is between lo and hi + 1 and that these suffixes share
+   * their first skip characters with the key. Since the llcp[] and rlcp[]
+   * arrays only describe the search over the whole suffix array, this one
+   * only skips min(l, r) characters.
+   */
+  private int search(String key, boolean prefix, int lo, int hi, int skip) {
+    int l = skip;
+    int r = skip;
+
+    while (lo <= hi) {
+      int mid   = lo + (hi - lo) / 2;
+      int match = matchLength(key, index[mid], Math.min(l, r));
+      int cmp   = (prefix && match == key.length()) ? 1 : compare(key, index[mid], match);
+
+      if (cmp < 0) {
+        hi = mid - 1;
+        r  = match;
+      } else if (cmp > 0) {
+        lo = mid + 1;
+        l  = match;
+      } else {
+        return mid;
+      }
+    }
+
+    return lo;
+  }
+
+  /**
+   * Binary search for the specified key.
+   *
+   * If prefix is false, returns the number of suffixes strictly less than the
+   * key. Otherwise, returns the number of suffixes that are either less than
+   * the key or start with it.
+   */
+  private int search(String key, boolean prefix) {
     int lo = 0;
     int hi = length - 1;
+    int l  = 0;
+    int r  = 0;
 
     // Perform a binary search
     while (lo <= hi) {
       // Key is in suffixes[lo..hi] or not present.
-      int mid = lo + (hi - lo) / 2;
-      int cmp = compare(key, index[mid]);
+      int mid  = lo + (hi - lo) / 2;
+      int from = Math.min(l, r);
+
+      if (llcp != null && l > r) {
+        if (llcp[mid] > l) {
+          lo = mid + 1;
+          continue;
+        }
+        if (llcp[mid] < l) {
+          hi = mid - 1;
+          r  = llcp[mid];
+          continue;
+        }
+        from = l;
+      } else if (llcp != null && r > l) {
+        if (rlcp[mid] > r) {
+          hi = mid - 1;
+          continue;
+        }
+        if (rlcp[mid] < r) {
+          lo = mid + 1;
+          l  = rlcp[mid];
+          continue;
+        }
+        from = r;
+      }
+
+      int match = matchLength(key, index[mid], from);
+      int cmp   = (prefix && match == key.length()) ? 1 : compare(key, index[mid], match);
 
       if (cmp < 0) {
         hi = mid - 1;
+        r  = match;
       } else if (cmp > 0) {
         lo = mid + 1;
+        l  = match;
       } else {
         return mid;
       }
@@ -293,23 +1670,35 @@ public class SuffixArrayOptimized {
   }
 
   /**
-   * Checks if the specified key is less than text[i..length).
+   * Returns the length of the longest common prefix of the specified key and
+   * text[i..length), knowing that they share at least the first from
+   * characters.
    */
-  private int compare(String key, int i) {
+  private int matchLength(String key, int i, int from) {
     int keyLength = key.length();
-    int j;
+    int j = from;
 
-    for (j = 0; i < length && j < keyLength; i++, j++) {
-      if (key.charAt(j) != text[i]) {
-        return key.charAt(j) - text[i];
-      }
+    while (j < keyLength && i + j < length && key.charAt(j) == text[i + j]) {
+      j++;
+    }
+
+    return j;
+  }
+
+  /**
+   * Checks if the specified key is less than text[i..length), given the
+   * length of their longest common prefix.
+   */
+  private int compare(String key, int i, int match) {
+    if (match < key.length() && i + match < length) {
+      return key.charAt(match) - text[i + match];
     }
 
-    if (i < length) {
+    if (i + match < length) {
       return -1;
     }
 
-    if (j < keyLength) {
+    if (match < key.length()) {
       return 1;
     }
 
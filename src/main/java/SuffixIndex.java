@@ -0,0 +1,96 @@
+import java.util.stream.IntStream;
+
+/**
+ * The SuffixIndex interface represents the queries shared by the suffix
+ * arrays of a text that fits in an int: SuffixArray, SuffixArrayOptimized,
+ * SuffixArrayCompact and MappedSuffixArray.
+ *
+ * It supports the following operations: computing the length() of the text,
+ * selectAsString() the ith smallest suffix, getting the indexOf() select(i),
+ * the length of longestCommonPreffix() of select(i), determining the rank()
+ * of a key string, and the range(), count() and occurrences() of a key.
+ *
+ * The count() and occurrences() methods are derived from range() and
+ * indexOf(), so an implementation only has to provide the other ones.
+ *
+ * Clients that only run these queries can use any of the implementations,
+ * and get one built with the fastest algorithm for their text from
+ * SuffixIndexFactory.
+ */
+public interface SuffixIndex {
+
+  /**
+   * Returns the length of the input text.
+   *
+   * @return the length of the input text
+   */
+  int length();
+
+  /**
+   * Returns the index into the original string of the ith smallest suffix.
+   *
+   * @param i an integer between 0 and length - 1
+   * @return the index into the original string of the ith smallest suffix
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= i < length
+   */
+  int indexOf(int i);
+
+  /**
+   * Returns the ith smallest suffix as a String.
+   *
+   * @param i an integer between 0 and length - 1
+   * @return the ith smallest suffix as a String
+   * @throws java.lang.IndexOutOfBoundsException unless 0 <= i < length
+   */
+  String selectAsString(int i);
+
+  /**
+   * Returns the length of the longest common prefix of the ith smallest suffix
+   * and the i-1st smallest suffix.
+   *
+   * @param i an integer between 1 and length - 1
+   * @return the length of the longest common prefix of the ith smallest suffix
+   *         and the i-1st smallest suffix
+   * @throws java.lang.IndexOutOfBoundsException unless 1 <= i < length
+   */
+  int longestCommonPreffix(int i);
+
+  /**
+   * Returns the number of suffixes strictly less than the specified key.
+   *
+   * @param key the query string
+   * @return the number of suffixes strictly less than key
+   */
+  int rank(String key);
+
+  /**
+   * Returns the range of ranks of the suffixes that start with the specified
+   * key.
+   *
+   * @param key the query string
+   * @return the range of ranks of the suffixes that start with key
+   */
+  RankRange range(String key);
+
+  /**
+   * Returns the number of occurrences of the specified key in the text.
+   *
+   * @param key the query string
+   * @return the number of occurrences of key in the text
+   */
+  default int count(String key) {
+    return range(key).size();
+  }
+
+  /**
+   * Returns the offsets of all the occurrences of the specified key in the
+   * text, in the order of their suffixes.
+   *
+   * @param key the query string
+   * @return a stream of the offsets of the occurrences of key in the text
+   */
+  default IntStream occurrences(String key) {
+    RankRange range = range(key);
+    return IntStream.range(range.from(), range.to()).map(this::indexOf);
+  }
+}
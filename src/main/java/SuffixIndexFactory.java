@@ -0,0 +1,355 @@
+import java.util.Arrays;
+
+/**
+ * The SuffixIndexFactory class builds the suffix array of a text with the
+ * construction algorithm that is likely to be the fastest for it, so that
+ * clients get good build times without knowing the trade-offs of each one.
+ *
+ * The choice is made by sampling the text:
+ *   - its length;
+ *   - the size A of its alphabet, estimated on ALPHABET_SAMPLES characters,
+ *     which gives the length 2 log_A N + 8 of the q-grams that a random text
+ *     of that alphabet is unlikely to repeat;
+ *   - a repetitiveness estimate: the fraction of SAMPLES evenly spaced q-grams
+ *     that occur more than once in the text, found with a rolling hash in a
+ *     single pass.
+ *
+ * The rules follow the measurements of the sequential algorithms (see the
+ * constants below). SA-IS (INDUCED_SORTING) takes linear time whatever the
+ * text, so it is used on repetitive text. Prefix doubling takes lg L + 1
+ * linear rounds, where L is the length of the longest repeat, so it wins when
+ * no q-gram repeats, and on small texts; SA-IS wins on larger natural
+ * language text, where some long repeats make doubling take many rounds.
+ *
+ * The sequential 3-way radix quicksort is never chosen: it is not faster
+ * than prefix doubling or SA-IS on text without long repeats, and it
+ * finishes the long repeats by prefix doubling, which is several times
+ * slower than SA-IS. The parallel one is chosen on texts longer than
+ * DOUBLING_TEXT where no sampled q-gram repeats, if there are at least
+ * PARALLEL_PROCESSORS processors: on one core it is about 1.5 times slower
+ * than SA-IS on such text (488 ms against 316 ms on 2M random characters),
+ * but it shares the work among the processors, whereas SA-IS is sequential.
+ * Since it does not compute the LCP array, it is not chosen when the LCP
+ * array is requested.
+ *
+ * A strategy can also be forced, for instance to compare the algorithms or to
+ * reproduce a build.
+ *
+ * create() returns the suffix array as a SuffixIndex, and createOptimized()
+ * as the SuffixArrayOptimized that is built, for the clients that use its
+ * other operations.
+ */
+public final class SuffixIndexFactory {
+
+  /**
+   * The strategies that can be used to build a suffix array.
+   */
+  public enum Strategy {
+    /** Chosen by sampling the text (see choose()). */
+    AUTO,
+    /** Sequential 3-way radix quicksort. */
+    RADIX_QUICKSORT,
+    /** Manber-Myers prefix doubling. */
+    PREFIX_DOUBLING,
+    /** SA-IS induced sorting. */
+    INDUCED_SORTING,
+    /** 3-way radix quicksort on all the available processors. */
+    PARALLEL_RADIX_QUICKSORT
+  }
+
+  /**
+   * Number of q-grams sampled to estimate the repetitiveness of the text.
+   */
+  static final int SAMPLES = 4096;
+
+  /**
+   * Number of characters sampled to estimate the size of the alphabet.
+   */
+  static final int ALPHABET_SAMPLES = 1 << 16;
+
+  /**
+   * Fraction of sampled q-grams that occur more than once above which the
+   * text is considered repetitive. Natural language text is around it, and
+   * prefix doubling is already several times slower than SA-IS above it.
+   */
+  static final double REPETITIVE = 0.05;
+
+  /**
+   * Length below which prefix doubling is used on texts that are not
+   * repetitive. The three algorithms are within a few percent of each other
+   * at this length.
+   */
+  static final int SMALL_TEXT = 1 << 14;
+
+  /**
+   * Length up to which prefix doubling is used on texts where no sampled
+   * q-gram repeats. Beyond it, SA-IS is as fast and uses less memory.
+   */
+  static final int DOUBLING_TEXT = 1 << 20;
+
+  /**
+   * Number of processors from which the parallel 3-way radix quicksort is
+   * used on texts longer than DOUBLING_TEXT where no sampled q-gram repeats.
+   * It needs a speedup of 1.5 to catch up with SA-IS.
+   */
+  static final int PARALLEL_PROCESSORS = 4;
+
+  /**
+   * Bounds of the length of the sampled q-grams.
+   */
+  private static final int MIN_Q = 8;
+  private static final int MAX_Q = 64;
+
+  /**
+   * Multiplier of the rolling hash (the golden ratio of 2^64, which is odd).
+   */
+  private static final long BASE = 0x9e3779b97f4a7c15L;
+
+  private SuffixIndexFactory() { }
+
+  /**
+   * Returns the suffix array of the specified text, built with the strategy
+   * chosen by sampling it.
+   *
+   * @param text the input String
+   * @return the suffix array of text
+   */
+  public static SuffixIndex create(String text) {
+    return create(text, Strategy.AUTO, false);
+  }
+
+  /**
+   * Returns the suffix array of the specified text, built with the specified
+   * strategy.
+   *
+   * @param text the input String
+   * @param strategy the strategy used to build the suffix array
+   * @return the suffix array of text
+   */
+  public static SuffixIndex create(String text, Strategy strategy) {
+    return create(text, strategy, false);
+  }
+
+  /**
+   * Returns the suffix array of the specified text, built with the specified
+   * strategy, and optionally its LCP array.
+   *
+   * @param text the input String
+   * @param strategy the strategy used to build the suffix array
+   * @param withLcp whether to compute the LCP and inverse suffix arrays
+   * @return the suffix array of text
+   * @throws IllegalArgumentException if the strategy is
+   *         PARALLEL_RADIX_QUICKSORT and withLcp is true
+   */
+  public static SuffixIndex create(String text, Strategy strategy, boolean withLcp) {
+    return createOptimized(text, strategy, withLcp);
+  }
+
+  /**
+   * Returns the suffix array of the specified text, built with the specified
+   * strategy, and optionally its LCP array, as a SuffixArrayOptimized. This
+   * is the entry point for the clients that need more than SuffixIndex, such
+   * as KeywordInContext, longestRepeatedSubstring() or ranges().
+   *
+   * @param text the input String
+   * @param strategy the strategy used to build the suffix array
+   * @param withLcp whether to compute the LCP and inverse suffix arrays
+   * @return the suffix array of text
+   * @throws IllegalArgumentException if the strategy is
+   *         PARALLEL_RADIX_QUICKSORT and withLcp is true
+   */
+  public static SuffixArrayOptimized createOptimized(String text, Strategy strategy,
+                                                     boolean withLcp) {
+    if (strategy == Strategy.AUTO) {
+      strategy = choose(text, withLcp, Runtime.getRuntime().availableProcessors());
+    }
+
+    switch (strategy) {
+      case PARALLEL_RADIX_QUICKSORT:
+        if (withLcp) {
+          throw new IllegalArgumentException("The parallel sort does not compute the LCP array");
+        }
+        return new SuffixArrayOptimized(text, Runtime.getRuntime().availableProcessors(),
+                                        SuffixArrayOptimized.PARALLEL_CUT_OFF);
+      case PREFIX_DOUBLING:
+        return new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.PREFIX_DOUBLING,
+                                        withLcp);
+      case INDUCED_SORTING:
+        return new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING,
+                                        withLcp);
+      default:
+        return new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.RADIX_QUICKSORT,
+                                        withLcp);
+    }
+  }
+
+  /**
+   * Returns the strategy that is likely to build the suffix array of the
+   * specified text the fastest. Takes time proportional to N, which is a few
+   * percent of the time to build the suffix array.
+   *
+   * @param text the input String
+   * @return the chosen strategy (never AUTO)
+   */
+  public static Strategy choose(String text) {
+    return choose(text, false, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Returns the strategy that is likely to build the suffix array of the
+   * specified text, and its LCP array if withLcp is true, the fastest on the
+   * specified number of processors.
+   */
+  static Strategy choose(String text, boolean withLcp, int processors) {
+    int    n        = text.length();
+    double repeated = repetitiveness(text, qgramLength(n, alphabetSize(text)));
+
+    if (repeated >= REPETITIVE) {
+      return Strategy.INDUCED_SORTING;
+    }
+
+    if (n < SMALL_TEXT || (repeated == 0 && n <= DOUBLING_TEXT)) {
+      return Strategy.PREFIX_DOUBLING;
+    }
+
+    // The parallel sort does not compute the LCP array.
+    if (repeated == 0 && !withLcp && processors >= PARALLEL_PROCESSORS) {
+      return Strategy.PARALLEL_RADIX_QUICKSORT;
+    }
+
+    return Strategy.INDUCED_SORTING;
+  }
+
+  /**
+   * Returns the number of distinct characters among ALPHABET_SAMPLES evenly
+   * spaced characters of the text (all of them if it is shorter).
+   */
+  static int alphabetSize(String text) {
+    long[] seen   = new long[(Character.MAX_VALUE + 1) / 64];
+    int    size   = 0;
+    long   stride = Math.max(1, text.length() / ALPHABET_SAMPLES);
+
+    for (long i = 0; i < text.length(); i += stride) {
+      char ch  = text.charAt((int) i);
+      long bit = 1L << ch;
+
+      if ((seen[ch >>> 6] & bit) == 0) {
+        seen[ch >>> 6] |= bit;
+        size++;
+      }
+    }
+
+    return size;
+  }
+
+  /**
+   * Returns the length of the q-grams sampled in a text of length n over an
+   * alphabet of the specified size: twice the expected length of the longest
+   * repeat of a random text, plus a margin.
+   */
+  static int qgramLength(int n, int alphabet) {
+    if (n < 2) {
+      return MIN_Q;
+    }
+
+    double depth = Math.log(n) / Math.log(Math.max(2, alphabet));
+    return (int) Math.min(MAX_Q, Math.max(MIN_Q, 2 * Math.ceil(depth) + 8));
+  }
+
+  /**
+   * Returns the fraction of SAMPLES evenly spaced q-grams of the text that
+   * occur at least twice in it, or 0 if the text is shorter than q.
+   *
+   * The hashes of the sampled q-grams are stored in an open-addressing table,
+   * and the rolling hashes of all the q-grams of the text are counted in it.
+   * A bitmap of the top 16 bits of the sampled hashes filters the rolling
+   * hashes first, so most positions only cost a multiplication and a bit
+   * test.
+   */
+  static double repetitiveness(String text, int q) {
+    int windows = text.length() - q + 1;
+    if (windows < 2) {
+      return 0;
+    }
+
+    int    samples = Math.min(SAMPLES, windows);
+    long   stride  = windows / samples;
+    int    bits    = 32 - Integer.numberOfLeadingZeros(2 * samples - 1);
+    long[] keys    = new long[1 << bits];
+    int[]  count   = new int[1 << bits];
+    int[]  slot    = new int[samples];
+    long[] filter  = new long[1 << 10];
+
+    Arrays.fill(count, -1);
+    for (int s = 0; s < samples; s++) {
+      long h = hash(text, (int) (s * stride), q);
+      int  k = find(keys, count, h, bits);
+
+      keys[k]  = h;
+      count[k] = 0;
+      slot[s]  = k;
+
+      int top = (int) (h >>> 48);
+      filter[top >>> 6] |= 1L << top;
+    }
+
+    long power = 1;
+    for (int i = 0; i < q; i++) {
+      power *= BASE;
+    }
+
+    long h = hash(text, 0, q);
+    for (int i = 0; ; i++) {
+      int top = (int) (h >>> 48);
+
+      if ((filter[top >>> 6] & (1L << top)) != 0) {
+        int k = find(keys, count, h, bits);
+        if (count[k] >= 0 && count[k] < 2) {
+          count[k]++;
+        }
+      }
+
+      if (i + 1 == windows) {
+        break;
+      }
+      h = h * BASE + text.charAt(i + q) - power * text.charAt(i);
+    }
+
+    int repeated = 0;
+    for (int s = 0; s < samples; s++) {
+      if (count[slot[s]] >= 2) {
+        repeated++;
+      }
+    }
+
+    return (double) repeated / samples;
+  }
+
+  /**
+   * Returns the slot of the specified hash in the open-addressing table of
+   * 2^bits keys, or the empty slot (count -1) where it would be inserted.
+   */
+  private static int find(long[] keys, int[] count, long h, int bits) {
+    int mask = (1 << bits) - 1;
+    int k    = (int) (h >>> (64 - bits));
+
+    while (count[k] >= 0 && keys[k] != h) {
+      k = (k + 1) & mask;
+    }
+
+    return k;
+  }
+
+  /**
+   * Returns the hash of text[from..from + q).
+   */
+  private static long hash(String text, int from, int q) {
+    long h = 0;
+
+    for (int i = from; i < from + q; i++) {
+      h = h * BASE + text.charAt(i);
+    }
+
+    return h;
+  }
+}
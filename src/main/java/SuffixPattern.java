@@ -0,0 +1,365 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The SuffixPattern class represents a compiled restricted regular expression,
+ * which can be searched in the text of a suffix array (see
+ * SuffixArrayOptimized.find()).
+ *
+ * A pattern is a sequence of atoms, each optionally followed by a bounded
+ * quantifier:
+ *   - atoms: a literal character, '.' (any character), a character class
+ *     such as [abc], [a-z0-9] or [^aeiou], or a character escaped with '\';
+ *   - quantifiers: '?' (0 or 1), {n} (exactly n) and {m,n} (m to n).
+ * The unbounded quantifiers '*' and '+', groups and alternatives are not
+ * supported, so every pattern matches strings of bounded length.
+ *
+ * The pattern is simulated as a nondeterministic automaton whose states are
+ * the pairs (atom, number of repetitions of the atom so far), so a set of
+ * states describes all the ways a prefix of the text can match a prefix of
+ * the pattern. The search only needs to know which sets of states accept,
+ * and which ones are dead.
+ */
+public final class SuffixPattern {
+
+  /**
+   * Largest number of explicit characters returned by candidates().
+   */
+  private static final int MAX_CANDIDATES = 16;
+
+  /**
+   * A set of characters: sorted, disjoint ranges lo[i]..hi[i], or their
+   * complement.
+   */
+  private static final class CharClass {
+    private final char[] lo;
+    private final char[] hi;
+    private final boolean negated;
+
+    private CharClass(char[] lo, char[] hi, boolean negated) {
+      this.lo      = lo;
+      this.hi      = hi;
+      this.negated = negated;
+    }
+
+    private boolean contains(char ch) {
+      for (int i = 0; i < lo.length; i++) {
+        if (lo[i] <= ch && ch <= hi[i]) {
+          return !negated;
+        }
+      }
+
+      return negated;
+    }
+
+    /**
+     * Returns the number of characters in the class, if it is not negated.
+     */
+    private int size() {
+      int size = 0;
+      for (int i = 0; i < lo.length; i++) {
+        size += hi[i] - lo[i] + 1;
+      }
+      return negated ? Character.MAX_VALUE + 1 - size : size;
+    }
+  }
+
+  /**
+   * The source of the pattern.
+   */
+  private final String source;
+
+  /**
+   * The atoms, and the bounds of their quantifiers.
+   */
+  private final CharClass[] atoms;
+  private final int[] min;
+  private final int[] max;
+
+  /**
+   * first[a] is the state of atom a with no repetition, and the state
+   * first[atoms.length] accepts. The state first[a] + c is the atom a after
+   * c repetitions.
+   */
+  private final int[] first;
+
+  private SuffixPattern(String source, List<CharClass> atoms, List<int[]> bounds) {
+    this.source = source;
+    this.atoms  = atoms.toArray(new CharClass[0]);
+    this.min    = new int[atoms.size()];
+    this.max    = new int[atoms.size()];
+    this.first  = new int[atoms.size() + 1];
+
+    for (int a = 0; a < this.atoms.length; a++) {
+      min[a]       = bounds.get(a)[0];
+      max[a]       = bounds.get(a)[1];
+      first[a + 1] = first[a] + max[a] + 1;
+    }
+  }
+
+  /**
+   * Compiles the specified pattern.
+   *
+   * @param pattern the restricted regular expression
+   * @return the compiled pattern
+   * @throws IllegalArgumentException if the pattern is malformed or uses an
+   *         unsupported construct
+   */
+  public static SuffixPattern compile(String pattern) {
+    List<CharClass> atoms  = new ArrayList<CharClass>();
+    List<int[]>     bounds = new ArrayList<int[]>();
+    int i = 0;
+
+    while (i < pattern.length()) {
+      char ch = pattern.charAt(i);
+
+      switch (ch) {
+        case '.':
+          atoms.add(new CharClass(new char[0], new char[0], true));
+          i++;
+          break;
+        case '[':
+          i = parseClass(pattern, i + 1, atoms);
+          break;
+        case '\\':
+          if (i + 1 == pattern.length()) {
+            throw new IllegalArgumentException("Trailing escape in " + pattern);
+          }
+          atoms.add(literal(pattern.charAt(i + 1)));
+          i += 2;
+          break;
+        case '?':
+        case '{':
+          throw new IllegalArgumentException("Quantifier without atom at " + i + " in " + pattern);
+        case '*':
+        case '+':
+        case '(':
+        case ')':
+        case '|':
+        case ']':
+        case '}':
+          throw new IllegalArgumentException("Unsupported '" + ch + "' at " + i + " in " + pattern);
+        default:
+          atoms.add(literal(ch));
+          i++;
+          break;
+      }
+
+      // Optional quantifier.
+      int[] bound = { 1, 1 };
+      if (i < pattern.length() && pattern.charAt(i) == '?') {
+        bound = new int[] { 0, 1 };
+        i++;
+      } else if (i < pattern.length() && pattern.charAt(i) == '{') {
+        int end = pattern.indexOf('}', i);
+        if (end < 0) {
+          throw new IllegalArgumentException("Unterminated quantifier at " + i + " in " + pattern);
+        }
+        bound = parseBounds(pattern, i + 1, end);
+        i     = end + 1;
+      }
+      bounds.add(bound);
+    }
+
+    return new SuffixPattern(pattern, atoms, bounds);
+  }
+
+  private static CharClass literal(char ch) {
+    return new CharClass(new char[] { ch }, new char[] { ch }, false);
+  }
+
+  /**
+   * Parses the class that starts after the '[' at from - 1, adds it to the
+   * atoms and returns the index after its ']'.
+   */
+  private static int parseClass(String pattern, int from, List<CharClass> atoms) {
+    boolean negated = from < pattern.length() && pattern.charAt(from) == '^';
+    int i = negated ? from + 1 : from;
+
+    List<char[]> ranges = new ArrayList<char[]>();
+    while (true) {
+      if (i >= pattern.length()) {
+        throw new IllegalArgumentException("Unterminated class at " + (from - 1) + " in " + pattern);
+      }
+
+      char lo = pattern.charAt(i++);
+      if (lo == ']' && !ranges.isEmpty()) {
+        break;
+      }
+      if (lo == '\\' && i < pattern.length()) {
+        lo = pattern.charAt(i++);
+      }
+
+      char hi = lo;
+      if (i + 1 < pattern.length() && pattern.charAt(i) == '-' && pattern.charAt(i + 1) != ']') {
+        hi = pattern.charAt(i + 1);
+        i += 2;
+        if (hi == '\\' && i < pattern.length()) {
+          hi = pattern.charAt(i++);
+        }
+        if (hi < lo) {
+          throw new IllegalArgumentException("Invalid range " + lo + "-" + hi + " in " + pattern);
+        }
+      }
+
+      ranges.add(new char[] { lo, hi });
+    }
+
+    // Sort and merge the ranges.
+    ranges.sort((a, b) -> a[0] - b[0]);
+    List<char[]> merged = new ArrayList<char[]>();
+    for (char[] range : ranges) {
+      char[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+      if (last != null && range[0] <= last[1] + 1) {
+        last[1] = (char) Math.max(last[1], range[1]);
+      } else {
+        merged.add(range);
+      }
+    }
+
+    char[] lo = new char[merged.size()];
+    char[] hi = new char[merged.size()];
+    for (int r = 0; r < merged.size(); r++) {
+      lo[r] = merged.get(r)[0];
+      hi[r] = merged.get(r)[1];
+    }
+
+    atoms.add(new CharClass(lo, hi, negated));
+    return i;
+  }
+
+  /**
+   * Parses the bounds "n" or "m,n" of pattern[from..to).
+   */
+  private static int[] parseBounds(String pattern, int from, int to) {
+    String body  = pattern.substring(from, to);
+    int    comma = body.indexOf(',');
+
+    try {
+      int lo = Integer.parseInt(comma < 0 ? body : body.substring(0, comma));
+      int hi = (comma < 0) ? lo : Integer.parseInt(body.substring(comma + 1));
+
+      if (lo < 0 || hi < lo) {
+        throw new IllegalArgumentException("Invalid quantifier {" + body + "} in " + pattern);
+      }
+
+      return new int[] { lo, hi };
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid quantifier {" + body + "} in " + pattern);
+    }
+  }
+
+  /**
+   * Returns the set of states before any character is read.
+   */
+  BitSet start() {
+    BitSet states = new BitSet(first[atoms.length] + 1);
+    states.set(0);
+    return closure(states);
+  }
+
+  /**
+   * Adds to the states the ones reachable without reading a character, that
+   * is, the next atom of every atom that was repeated at least min times.
+   */
+  private BitSet closure(BitSet states) {
+    for (int a = 0; a < atoms.length; a++) {
+      int from = states.nextSetBit(first[a] + min[a]);
+
+      if (from >= 0 && from < first[a + 1]) {
+        states.set(first[a + 1]);
+      }
+    }
+
+    return states;
+  }
+
+  /**
+   * Returns the set of states after reading ch from the specified states,
+   * which is empty if the pattern cannot match.
+   */
+  BitSet step(BitSet states, char ch) {
+    BitSet next = new BitSet(first[atoms.length] + 1);
+
+    for (int a = 0; a < atoms.length; a++) {
+      // The atom can be repeated once more from the states first[a]..first[a]
+      // + max[a] - 1.
+      for (int s = states.nextSetBit(first[a]); s >= 0 && s < first[a] + max[a];
+           s = states.nextSetBit(s + 1)) {
+        if (atoms[a].contains(ch)) {
+          next.set(s + 1);
+        }
+      }
+    }
+
+    return closure(next);
+  }
+
+  /**
+   * Returns true if the states include the accepting one.
+   */
+  boolean accepts(BitSet states) {
+    return states.get(first[atoms.length]);
+  }
+
+  /**
+   * Returns the sorted characters that can be read from the specified states,
+   * or null if there are too many to list.
+   */
+  char[] candidates(BitSet states) {
+    char[] chars = new char[0];
+
+    for (int a = 0; a < atoms.length; a++) {
+      int s = states.nextSetBit(first[a]);
+      if (s < 0 || s >= first[a] + max[a]) {
+        continue;
+      }
+
+      CharClass atom = atoms[a];
+      if (atom.negated || chars.length + atom.size() > MAX_CANDIDATES) {
+        return null;
+      }
+
+      for (int r = 0; r < atom.lo.length; r++) {
+        for (int ch = atom.lo[r]; ch <= atom.hi[r]; ch++) {
+          chars = Arrays.copyOf(chars, chars.length + 1);
+          chars[chars.length - 1] = (char) ch;
+        }
+      }
+    }
+
+    // Several atoms may accept the same character.
+    Arrays.sort(chars);
+    int distinct = 0;
+    for (int i = 0; i < chars.length; i++) {
+      if (i == 0 || chars[i] != chars[i - 1]) {
+        chars[distinct++] = chars[i];
+      }
+    }
+
+    return Arrays.copyOf(chars, distinct);
+  }
+
+  /**
+   * Returns true if the pattern matches the whole specified string.
+   *
+   * @param s the string to match
+   * @return true if s matches the pattern
+   */
+  public boolean matches(CharSequence s) {
+    BitSet states = start();
+
+    for (int i = 0; i < s.length() && !states.isEmpty(); i++) {
+      states = step(states, s.charAt(i));
+    }
+
+    return accepts(states);
+  }
+
+  @Override
+  public String toString() {
+    return source;
+  }
+}
@@ -0,0 +1,159 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+public class CorpusGeneratorTest {
+
+  @Test
+  public void testSameSeedSameCorpora() {
+    CorpusGenerator a = new CorpusGenerator(7);
+    CorpusGenerator b = new CorpusGenerator(7);
+
+    assertEquals(a.random(1000, "xyz"), b.random(1000, "xyz"));
+    assertEquals(a.runs(1000, "xyz", 10), b.runs(1000, "xyz", 10));
+    assertEquals(a.dna(5000), b.dna(5000));
+    assertArrayEquals(a.dictionary(500), b.dictionary(500));
+
+    String[] dictionary = a.dictionary(100);
+    assertArrayEquals(dictionary, b.dictionary(100));
+    assertArrayEquals(a.zipf(dictionary, 1000, 1.0), b.zipf(dictionary, 1000, 1.0));
+    assertEquals(a.text(dictionary, 1000, 1.0), b.text(dictionary, 1000, 1.0));
+  }
+
+  @Test
+  public void testDifferentSeedsDifferentCorpora() {
+    assertNotEquals(new CorpusGenerator(1).random(1000, "ab"),
+                    new CorpusGenerator(2).random(1000, "ab"));
+  }
+
+  @Test
+  public void testRandom() {
+    String text = new CorpusGenerator(1).random(10000, "ACGT");
+
+    assertEquals(10000, text.length());
+    assertTrue(text.chars().allMatch(ch -> "ACGT".indexOf(ch) >= 0));
+    assertEquals(4, text.chars().distinct().count());
+  }
+
+  @Test
+  public void testRun() {
+    assertEquals("", CorpusGenerator.run(0, 'a'));
+    assertEquals("zzzz", CorpusGenerator.run(4, 'z'));
+  }
+
+  @Test
+  public void testRuns() {
+    String text = new CorpusGenerator(1).runs(100000, "abcdefghij", 20);
+
+    // A new character is drawn every 20 characters on the average, and it
+    // differs from the previous one 9 times out of 10.
+    int changes = 0;
+    for (int i = 1; i < text.length(); i++) {
+      if (text.charAt(i) != text.charAt(i - 1)) {
+        changes++;
+      }
+    }
+
+    assertEquals(100000 / 20 * 0.9, changes, 300);
+  }
+
+  @Test
+  public void testFibonacci() {
+    assertEquals("", CorpusGenerator.fibonacci(0));
+    assertEquals("a", CorpusGenerator.fibonacci(1));
+    assertEquals("abaababaabaababaababa", CorpusGenerator.fibonacci(21));
+
+    // s(k) = s(k-1) s(k-2).
+    String s = CorpusGenerator.fibonacci(89);
+    assertEquals(s, s.substring(0, 55) + s.substring(0, 34));
+  }
+
+  @Test
+  public void testThueMorse() {
+    assertEquals("abbabaabbaababba", CorpusGenerator.thueMorse(16));
+
+    // The second half of a prefix of length 2^k is the complement of the
+    // first half.
+    String s = CorpusGenerator.thueMorse(1024);
+    for (int i = 0; i < 512; i++) {
+      assertNotEquals(s.charAt(i), s.charAt(i + 512));
+    }
+  }
+
+  @Test
+  public void testDna() {
+    String dna = new CorpusGenerator(3).dna(50000);
+
+    assertEquals(50000, dna.length());
+    assertTrue(dna.chars().allMatch(ch -> CorpusGenerator.DNA.indexOf(ch) >= 0));
+
+    // A random text of this length would not repeat 40 characters.
+    SuffixArrayOptimized suffixArray = new SuffixArrayOptimized(
+      dna, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+    assertTrue(suffixArray.longestRepeatedSubstring().length() >= 40);
+  }
+
+  @Test
+  public void testDictionary() {
+    String[] words = new CorpusGenerator(5).dictionary(20000);
+
+    assertEquals(20000, new HashSet<String>(Arrays.asList(words)).size());
+    for (String word : words) {
+      assertTrue(word.length() >= 2 && word.length() <= 12);
+      assertTrue(word.chars().allMatch(ch -> ch >= 'a' && ch <= 'z'));
+    }
+  }
+
+  @Test
+  public void testZipf() {
+    CorpusGenerator generator = new CorpusGenerator(11);
+    String[] dictionary = generator.dictionary(1000);
+    String[] words = generator.zipf(dictionary, 100000, 1.0);
+
+    Map<String, Integer> counts = new HashMap<String, Integer>();
+    for (String word : words) {
+      counts.merge(word, 1, Integer::sum);
+    }
+
+    // The kth word is drawn about 1/k as often as the first one.
+    int first = counts.get(dictionary[0]);
+    assertEquals(first / 2.0, counts.get(dictionary[1]), first * 0.1);
+    assertEquals(first / 10.0, counts.get(dictionary[9]), first * 0.05);
+    assertTrue(counts.getOrDefault(dictionary[999], 0) < first / 100);
+  }
+
+  @Test
+  public void testText() {
+    CorpusGenerator generator = new CorpusGenerator(13);
+    String[] dictionary = generator.dictionary(100);
+    String text = generator.text(dictionary, 10000, 1.0);
+
+    assertEquals(10000, text.length());
+
+    List<String> words = Arrays.asList(text.split(" "));
+    assertTrue(Arrays.asList(dictionary).containsAll(words.subList(0, words.size() - 1)));
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testNegativeLength() {
+    new CorpusGenerator(1).random(-1, "ab");
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testEmptyAlphabet() {
+    new CorpusGenerator(1).random(10, "");
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testEmptyDictionary() {
+    new CorpusGenerator(1).zipf(new String[0], 10, 1.0);
+  }
+}
@@ -0,0 +1,301 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class EnhancedSuffixArrayTest {
+
+  private static final String TEXT = "ABRACADABRA!";
+
+  @Test
+  public void testLengthAndIndexOf() {
+    EnhancedSuffixArray esa = new EnhancedSuffixArray(TEXT);
+    SuffixArray expected = new SuffixArray(TEXT);
+
+    assertEquals(12, esa.length());
+    assertEquals(0, new EnhancedSuffixArray("").length());
+
+    for (int i = 0; i < TEXT.length(); i++) {
+      assertEquals(expected.indexOf(i), esa.indexOf(i));
+    }
+  }
+
+  @Test(expected=IndexOutOfBoundsException.class)
+  public void testIndexOfIndexOutOfBounds() {
+    new EnhancedSuffixArray(TEXT).indexOf(TEXT.length());
+  }
+
+  @Test
+  public void testCount() {
+    EnhancedSuffixArray esa = new EnhancedSuffixArray(TEXT);
+
+    assertEquals(5, esa.count("A"));
+    assertEquals(2, esa.count("ABRA"));
+    assertEquals(2, esa.count("BRA"));
+    assertEquals(1, esa.count("ABRACADABRA!"));
+    assertEquals(1, esa.count("A!"));
+    assertEquals(0, esa.count("ABRACADABRA!A"));
+    assertEquals(0, esa.count("AZ"));
+    assertEquals(0, esa.count("Z"));
+    assertEquals(12, esa.count(""));
+    assertEquals(0, new EnhancedSuffixArray("").count("A"));
+    assertEquals(1, new EnhancedSuffixArray("A").count("A"));
+  }
+
+  @Test
+  public void testOccurrences() {
+    EnhancedSuffixArray esa = new EnhancedSuffixArray(TEXT);
+
+    assertArrayEquals(new int[] { 0, 3, 5, 7, 10 }, esa.occurrences("A").sorted().toArray());
+    assertArrayEquals(new int[] { 0, 7 }, esa.occurrences("ABRA").sorted().toArray());
+    assertArrayEquals(new int[0], esa.occurrences("Z").toArray());
+  }
+
+  @Test
+  public void testLongestMatch() {
+    EnhancedSuffixArray esa = new EnhancedSuffixArray(TEXT);
+
+    Repeat match = esa.longestMatch("ABRAXAS");
+    assertEquals(4, match.length());
+    assertEquals(2, match.count());
+    assertEquals("ABRA", TEXT.substring(match.offset(), match.offset() + 4));
+
+    assertEquals(12, esa.longestMatch("ABRACADABRA!!").length());
+    assertEquals(0, esa.longestMatch("Z").length());
+    assertEquals(12, esa.longestMatch("Z").count());
+    assertEquals(0, new EnhancedSuffixArray("").longestMatch("A").length());
+  }
+
+  @Test
+  public void testRandomText() {
+    Random random = new Random(11);
+
+    for (int sigma : new int[] { 1, 2, 4, 26 }) {
+      for (int n : new int[] { 1, 2, 3, 50, 1000 }) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+          sb.append((char) ('a' + random.nextInt(sigma)));
+        }
+
+        String text = sb.toString();
+        EnhancedSuffixArray esa = new EnhancedSuffixArray(text);
+        SuffixArrayOptimized expected =
+          new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+
+        for (int q = 0; q < 200; q++) {
+          int from = random.nextInt(n);
+          int to   = from + random.nextInt(Math.min(n - from, 12) + 1);
+
+          // Half of the keys occur in the text, the others are perturbed.
+          char[] key = text.substring(from, to).toCharArray();
+          if (q % 2 == 1 && key.length > 0) {
+            key[random.nextInt(key.length)] = (char) ('a' + random.nextInt(sigma + 1));
+          }
+          String s = new String(key) + (q % 3 == 0 ? "b" : "");
+
+          assertEquals(expected.range(s), esa.range(s));
+
+          int length = s.length();
+          while (expected.count(s.substring(0, length)) == 0) {
+            length--;
+          }
+
+          Repeat match = esa.longestMatch(s);
+          assertEquals(length, match.length());
+          assertEquals(expected.range(s.substring(0, length)), match.range());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testLcpIntervals() {
+    Random random = new Random(5);
+
+    for (String text : new String[] { "", "a", "aaaa", "mississippi", TEXT, randomText(random, 2, 500),
+                                      randomText(random, 4, 2000) }) {
+      EnhancedSuffixArray esa = new EnhancedSuffixArray(text);
+      SuffixArrayOptimized sa =
+        new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+      for (int minLength : new int[] { 0, 1, 3 }) {
+        List<Repeat> intervals = esa.lcpIntervals(minLength);
+        assertEquals(bottomUpIntervals(sa, minLength), new HashSet<Repeat>(intervals));
+        assertEquals(intervals.size(), new HashSet<Repeat>(intervals).size());
+
+        // Preorder: every interval is nested in, or after, the previous one.
+        for (int i = 1; i < intervals.size(); i++) {
+          RankRange a = intervals.get(i - 1).range();
+          RankRange b = intervals.get(i).range();
+          assertEquals(true, b.from() >= a.from());
+        }
+
+        for (Repeat interval : intervals) {
+          String prefix = text.substring(interval.offset(), interval.offset() + interval.length());
+          assertEquals(sa.range(prefix), interval.range());
+        }
+      }
+    }
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testLcpIntervalsInvalidMinLength() {
+    new EnhancedSuffixArray(TEXT).lcpIntervals(-1);
+  }
+
+  @Test
+  public void testFromSuffixArrayWithoutLcp() {
+    SuffixArrayOptimized sa =
+      new SuffixArrayOptimized(TEXT, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+    EnhancedSuffixArray esa = new EnhancedSuffixArray(sa);
+
+    assertEquals(new EnhancedSuffixArray(TEXT).lcpIntervals(1), esa.lcpIntervals(1));
+    assertEquals(2, esa.count("ABRA"));
+  }
+
+  @Test
+  public void testApproximateOccurrences() {
+    EnhancedSuffixArray esa = new EnhancedSuffixArray("the cat sat on the hat");
+
+    List<Match> hamming = esa.approximateOccurrences("cat", 1, EnhancedSuffixArray.Distance.HAMMING);
+    assertEquals(Arrays.asList(new Match(4, 3, 0), new Match(8, 3, 1), new Match(19, 3, 1)),
+                 hamming);
+
+    List<Match> edits = esa.approximateOccurrences("cart", 1, EnhancedSuffixArray.Distance.EDIT);
+    assertEquals(Arrays.asList(new Match(4, 3, 1)), edits);
+
+    assertEquals(0, esa.approximateOccurrences("dog", 1, EnhancedSuffixArray.Distance.HAMMING).size());
+    assertEquals(0, new EnhancedSuffixArray("").approximateOccurrences("a", 1,
+                                                                        EnhancedSuffixArray.Distance.EDIT).size());
+  }
+
+  @Test
+  public void testApproximateOccurrencesRandomText() {
+    Random random = new Random(13);
+
+    for (int sigma : new int[] { 2, 4 }) {
+      String text = randomText(random, sigma, 300);
+      EnhancedSuffixArray esa = new EnhancedSuffixArray(text);
+
+      for (int q = 0; q < 30; q++) {
+        String key = randomText(random, sigma, 1 + random.nextInt(6));
+        int k = random.nextInt(3);
+
+        assertEquals(bruteForceHamming(text, key, k),
+                     esa.approximateOccurrences(key, k, EnhancedSuffixArray.Distance.HAMMING));
+        assertEquals(bruteForceEdits(text, key, k),
+                     esa.approximateOccurrences(key, k, EnhancedSuffixArray.Distance.EDIT));
+      }
+    }
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testApproximateOccurrencesInvalidDistance() {
+    new EnhancedSuffixArray(TEXT).approximateOccurrences("A", -1, EnhancedSuffixArray.Distance.EDIT);
+  }
+
+  private static List<Match> bruteForceHamming(String text, String key, int k) {
+    List<Match> matches = new ArrayList<Match>();
+
+    for (int i = 0; i + key.length() <= text.length(); i++) {
+      int d = 0;
+      for (int q = 0; q < key.length(); q++) {
+        if (text.charAt(i + q) != key.charAt(q)) {
+          d++;
+        }
+      }
+
+      if (d <= k) {
+        matches.add(new Match(i, key.length(), d));
+      }
+    }
+
+    return matches;
+  }
+
+  private static List<Match> bruteForceEdits(String text, String key, int k) {
+    List<Match> matches = new ArrayList<Match>();
+
+    for (int i = 0; i < text.length(); i++) {
+      Match best = null;
+
+      for (int length = 0; length <= key.length() + k && i + length <= text.length(); length++) {
+        int d = editDistance(key, text.substring(i, i + length));
+        if (d <= k && (best == null || d < best.distance())) {
+          best = new Match(i, length, d);
+        }
+      }
+
+      if (best != null) {
+        matches.add(best);
+      }
+    }
+
+    return matches;
+  }
+
+  private static int editDistance(String a, String b) {
+    int[][] d = new int[a.length() + 1][b.length() + 1];
+
+    for (int i = 0; i <= a.length(); i++) {
+      for (int j = 0; j <= b.length(); j++) {
+        if (i == 0 || j == 0) {
+          d[i][j] = i + j;
+        } else {
+          int cost = (a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1;
+          d[i][j] = Math.min(d[i-1][j-1] + cost, Math.min(d[i-1][j], d[i][j-1]) + 1);
+        }
+      }
+    }
+
+    return d[a.length()][b.length()];
+  }
+
+  private static String randomText(Random random, int sigma, int n) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < n; i++) {
+      sb.append((char) ('a' + random.nextInt(sigma)));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns the lcp-intervals of the text, found with a bottom-up traversal.
+   */
+  private static Set<Repeat> bottomUpIntervals(SuffixArrayOptimized sa, int minLength) {
+    Set<Repeat> intervals = new HashSet<Repeat>();
+    int n = sa.length();
+    if (n < 2) {
+      return intervals;
+    }
+
+    List<int[]> stack = new ArrayList<int[]>();
+    stack.add(new int[] { -1, 0 });
+
+    for (int i = 1; i <= n; i++) {
+      int h  = (i < n) ? sa.longestCommonPreffix(i) : -1;
+      int lb = i - 1;
+
+      while (h < stack.get(stack.size() - 1)[0]) {
+        int[] top = stack.remove(stack.size() - 1);
+        lb = top[1];
+
+        if (top[0] >= minLength) {
+          intervals.add(new Repeat(sa.indexOf(lb), top[0], new RankRange(lb, i)));
+        }
+      }
+
+      if (h > stack.get(stack.size() - 1)[0]) {
+        stack.add(new int[] { h, lb });
+      }
+    }
+
+    return intervals;
+  }
+}
@@ -0,0 +1,230 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ExternalSuffixArrayBuilderTest {
+
+  private File tempFile(String suffix) throws IOException {
+    File file = File.createTempFile("external-suffix-array", suffix);
+    file.deleteOnExit();
+    return file;
+  }
+
+  private MappedSuffixArray build(byte[] text, long memoryLimit, boolean withLcp,
+                                  ExternalSuffixArrayBuilder.Progress progress) throws IOException {
+    File input  = tempFile(".txt");
+    File output = tempFile(".sa");
+    Files.write(input.toPath(), text);
+
+    ExternalSuffixArrayBuilder builder =
+      new ExternalSuffixArrayBuilder(memoryLimit, input.getParentFile(), progress);
+    return builder.build(input, output, withLcp);
+  }
+
+  private LargeSuffixArray buildLarge(byte[] text, long memoryLimit) throws IOException {
+    File input  = tempFile(".txt");
+    File output = tempFile(".sa");
+    Files.write(input.toPath(), text);
+
+    ExternalSuffixArrayBuilder builder =
+      new ExternalSuffixArrayBuilder(memoryLimit, input.getParentFile(), null);
+    return builder.buildLarge(input, output, true);
+  }
+
+  private void assertSameSuffixArray(byte[] text, MappedSuffixArray actual) {
+    SuffixArrayCompact expected =
+      new SuffixArrayCompact(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+    assertEquals(expected.length(), actual.length());
+    for (int i = 0; i < text.length; i++) {
+      assertEquals(expected.indexOf(i), actual.indexOf(i));
+      if (actual.hasLcp() && i > 0) {
+        assertEquals(expected.longestCommonPreffix(i), actual.longestCommonPreffix(i));
+      }
+    }
+  }
+
+  @Test
+  public void testSingleRun() throws IOException {
+    byte[] text = "ABRACADABRA!".getBytes("ISO-8859-1");
+    MappedSuffixArray suffix = build(text, 1 << 20, false, null);
+
+    assertFalse(suffix.hasLcp());
+    assertSameSuffixArray(text, suffix);
+    assertEquals(2, suffix.count("ABRA"));
+  }
+
+  @Test
+  public void testManyRuns() throws IOException {
+    Random random = new Random(42);
+    byte[] text = new byte[20000];
+    for (int i = 0; i < text.length; i++) {
+      text[i] = (byte) ('a' + random.nextInt(4));
+    }
+
+    // 4096 bytes of memory hold runs of 341 suffixes.
+    MappedSuffixArray suffix = build(text, ExternalSuffixArrayBuilder.MIN_MEMORY_LIMIT, true, null);
+
+    assertTrue(suffix.hasLcp());
+    assertSameSuffixArray(text, suffix);
+  }
+
+  @Test
+  public void testMergePasses() throws IOException {
+    Random random = new Random(5);
+    byte[] text = new byte[20000];
+    for (int i = 0; i < text.length; i++) {
+      // Random text with repeats longer than DEPTH_LIMIT.
+      text[i] = i >= 10000 && i % 1000 < 200 ? text[i - 5000] : (byte) ('a' + random.nextInt(3));
+    }
+
+    // 4096 bytes of memory merge 2 runs at once, so the 59 runs of 341
+    // suffixes take 5 intermediate passes before the final merge.
+    final int[] passes = new int[1];
+    MappedSuffixArray suffix = build(text, ExternalSuffixArrayBuilder.MIN_MEMORY_LIMIT, true,
+                                     (phase, done, total) -> {
+      if (phase.equals("merge") && done == total) {
+        passes[0]++;
+      }
+    });
+
+    assertEquals(6, passes[0]);
+    assertSameSuffixArray(text, suffix);
+  }
+
+  @Test
+  public void testRepetitiveText() throws IOException {
+    byte[] text = new byte[5000];
+    for (int i = 0; i < text.length; i++) {
+      text[i] = (byte) (i % 7 == 6 ? 0xe9 : 'a');
+    }
+
+    MappedSuffixArray suffix = build(text, ExternalSuffixArrayBuilder.MIN_MEMORY_LIMIT, true, null);
+    assertSameSuffixArray(text, suffix);
+  }
+
+  @Test
+  public void testLongRepeats() throws IOException {
+    byte[][] texts = {
+      CorpusGenerator.run(3000, 'a').getBytes("ISO-8859-1"),
+      CorpusGenerator.run(3000, '\0').getBytes("ISO-8859-1"),
+      CorpusGenerator.fibonacci(3000).getBytes("ISO-8859-1"),
+      CorpusGenerator.thueMorse(3000).getBytes("ISO-8859-1"),
+      new CorpusGenerator(5).runs(3000, "ab", 200).getBytes("ISO-8859-1")
+    };
+
+    for (byte[] text : texts) {
+      // The suffixes that share 64 characters are spread over many runs.
+      MappedSuffixArray suffix = build(text, ExternalSuffixArrayBuilder.MIN_MEMORY_LIMIT, true, null);
+      assertSameSuffixArray(text, suffix);
+    }
+  }
+
+  @Test(timeout=20000)
+  public void testLongRun() throws IOException {
+    // Sorting the suffixes of a run by comparing them would take about 10^11
+    // character comparisons.
+    byte[] text = CorpusGenerator.run(500000, 'a').getBytes("ISO-8859-1");
+    MappedSuffixArray suffix = build(text, 1 << 20, true, null);
+
+    for (int i = 0; i < text.length; i++) {
+      assertEquals(text.length - 1 - i, suffix.indexOf(i));
+      if (i > 0) {
+        assertEquals(i, suffix.longestCommonPreffix(i));
+      }
+    }
+  }
+
+  @Test
+  public void testBuildLarge() throws IOException {
+    Random random = new Random(11);
+    byte[] random4 = new byte[5000];
+    for (int i = 0; i < random4.length; i++) {
+      random4[i] = (byte) ('a' + random.nextInt(4));
+    }
+    byte[][] texts = { random4, CorpusGenerator.fibonacci(5000).getBytes("ISO-8859-1") };
+
+    for (byte[] text : texts) {
+      LargeSuffixArray actual = buildLarge(text, ExternalSuffixArrayBuilder.MIN_MEMORY_LIMIT);
+      SuffixArrayCompact expected =
+        new SuffixArrayCompact(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+      assertTrue(actual.hasLcp());
+      assertEquals(expected.length(), actual.length());
+      for (int i = 0; i < text.length; i++) {
+        assertEquals(expected.indexOf(i), actual.indexOf(i));
+        if (i > 0) {
+          assertEquals(expected.longestCommonPreffix(i), actual.longestCommonPreffix(i));
+        }
+      }
+      assertEquals(expected.count("abaab"), actual.count("abaab"));
+    }
+  }
+
+  @Test(expected=IOException.class)
+  public void testLargeFormatNotMapped() throws IOException {
+    File input  = tempFile(".txt");
+    File output = tempFile(".sa");
+    Files.write(input.toPath(), "ABRACADABRA!".getBytes("ISO-8859-1"));
+
+    new ExternalSuffixArrayBuilder(1 << 20, input.getParentFile(), null)
+      .buildLarge(input, output, false);
+    MappedSuffixArray.open(output);
+  }
+
+  @Test
+  public void testEmptyText() throws IOException {
+    MappedSuffixArray suffix = build(new byte[0], 1 << 20, false, null);
+    assertEquals(0, suffix.length());
+  }
+
+  @Test
+  public void testProgress() throws IOException {
+    final List<String> phases = new ArrayList<String>();
+    final long[] last = new long[2];
+    byte[] text = new byte[10000];
+    new Random(7).nextBytes(text);
+
+    build(text, ExternalSuffixArrayBuilder.MIN_MEMORY_LIMIT, false, (phase, done, total) -> {
+      if (phases.isEmpty() || !phases.get(phases.size() - 1).equals(phase)) {
+        phases.add(phase);
+      }
+      last[0] = done;
+      last[1] = total;
+    });
+
+    assertEquals(2, phases.size());
+    assertEquals("sort", phases.get(0));
+    assertEquals("merge", phases.get(1));
+    assertEquals(text.length, last[0]);
+    assertEquals(text.length, last[1]);
+  }
+
+  @Test
+  public void testRefineProgress() throws IOException {
+    final List<String> phases = new ArrayList<String>();
+    byte[] text = CorpusGenerator.run(1000, 'a').getBytes("ISO-8859-1");
+
+    build(text, ExternalSuffixArrayBuilder.MIN_MEMORY_LIMIT, false, (phase, done, total) -> {
+      if (phases.isEmpty() || !phases.get(phases.size() - 1).equals(phase)) {
+        phases.add(phase);
+      }
+    });
+
+    assertEquals(3, phases.size());
+    assertEquals("refine", phases.get(2));
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testMemoryLimitTooSmall() {
+    new ExternalSuffixArrayBuilder(ExternalSuffixArrayBuilder.MIN_MEMORY_LIMIT - 1, null, null);
+  }
+}
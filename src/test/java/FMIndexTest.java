@@ -0,0 +1,191 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class FMIndexTest {
+
+  private static final String TEXT = "ABRACADABRA!";
+
+  @Test
+  public void testLength() {
+    assertEquals(12, new FMIndex(TEXT).length());
+    assertEquals(0, new FMIndex("").length());
+  }
+
+  @Test
+  public void testIndexOf() {
+    FMIndex index = new FMIndex(TEXT);
+    SuffixArray expected = new SuffixArray(TEXT);
+
+    for (int i = 0; i < TEXT.length(); i++) {
+      assertEquals(expected.indexOf(i), index.indexOf(i));
+    }
+  }
+
+  @Test(expected=IndexOutOfBoundsException.class)
+  public void testIndexOfIndexOutOfBounds() {
+    new FMIndex(TEXT).indexOf(TEXT.length());
+  }
+
+  @Test
+  public void testCount() {
+    FMIndex index = new FMIndex(TEXT);
+
+    assertEquals(5, index.count("A"));
+    assertEquals(2, index.count("ABRA"));
+    assertEquals(2, index.count("BRA"));
+    assertEquals(1, index.count("ABRACADABRA!"));
+    assertEquals(1, index.count("A!"));
+    assertEquals(0, index.count("ABRACADABRA!A"));
+    assertEquals(0, index.count("AZ"));
+    assertEquals(0, index.count("Z"));
+    assertEquals(12, index.count(""));
+    assertEquals(0, new FMIndex("").count("A"));
+  }
+
+  @Test
+  public void testOccurrences() {
+    FMIndex index = new FMIndex(TEXT);
+
+    assertArrayEquals(new int[] { 0, 3, 5, 7, 10 }, index.occurrences("A").sorted().toArray());
+    assertArrayEquals(new int[] { 0, 7 }, index.occurrences("ABRA").sorted().toArray());
+    assertArrayEquals(new int[0], index.occurrences("Z").toArray());
+  }
+
+  @Test
+  public void testRandomText() {
+    Random random = new Random(7);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 200000; i++) {
+      sb.append((char) ('a' + random.nextInt(4)));
+    }
+    String text = sb.toString();
+
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+    FMIndex index = new FMIndex(suffix);
+
+    for (int i = 0; i < text.length(); i += 97) {
+      assertEquals(suffix.indexOf(i), index.indexOf(i));
+    }
+
+    for (int q = 0; q < 500; q++) {
+      int from = random.nextInt(text.length());
+      String key = text.substring(from, Math.min(text.length(), from + 4 + random.nextInt(12)));
+
+      assertEquals(suffix.count(key), index.count(key));
+      assertArrayEquals(suffix.occurrences(key).toArray(), index.occurrences(key).toArray());
+    }
+  }
+
+  @Test
+  public void testRepetitiveText() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      sb.append("ab\u00e9");
+    }
+    String text = sb.toString();
+    SuffixArrayOptimized expected =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+    FMIndex index = new FMIndex(expected);
+
+    for (int i = 0; i < text.length(); i++) {
+      assertEquals(expected.indexOf(i), index.indexOf(i));
+    }
+    assertEquals(5000, index.count("ab\u00e9"));
+    assertEquals(4999, index.count("\u00e9a"));
+  }
+
+  @Test
+  public void testInverseIndexOfAndSubstring() {
+    FMIndex index = new FMIndex(TEXT);
+
+    for (int i = 0; i < TEXT.length(); i++) {
+      assertEquals(i, index.inverseIndexOf(index.indexOf(i)));
+    }
+
+    assertEquals(TEXT, index.substring(0, TEXT.length()));
+    assertEquals("CADA", index.substring(4, 8));
+    assertEquals("!", index.substring(11, 12));
+    assertEquals("", index.substring(5, 5));
+  }
+
+  @Test(expected=IndexOutOfBoundsException.class)
+  public void testSubstringIndexOutOfBounds() {
+    new FMIndex(TEXT).substring(3, TEXT.length() + 1);
+  }
+
+  @Test
+  public void testSampleRates() {
+    Random random = new Random(11);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      sb.append((char) ('a' + random.nextInt(3)));
+    }
+    String text = sb.toString();
+
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+
+    for (int rate : new int[] { 1, 3, 4, 64, 512 }) {
+      FMIndex index = new FMIndex(suffix, rate);
+
+      for (int i = 0; i < text.length(); i++) {
+        assertEquals(suffix.indexOf(i), index.indexOf(i));
+        assertEquals(i, index.inverseIndexOf(suffix.indexOf(i)));
+      }
+
+      for (int q = 0; q < 100; q++) {
+        int from = random.nextInt(text.length() + 1);
+        int to   = from + random.nextInt(text.length() - from + 1);
+        assertEquals(text.substring(from, to), index.substring(from, to));
+      }
+      assertEquals(text, index.substring(0, text.length()));
+    }
+  }
+
+  @Test
+  public void testLargeAlphabets() {
+    Random random = new Random(17);
+
+    // 256 distinct characters still fit the BWT in bytes, 257 do not.
+    for (int sigma : new int[] { 256, 257, 3000 }) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 20000; i++) {
+        sb.append((char) (0xff00 - sigma + random.nextInt(sigma)));
+      }
+      String text = sb.toString();
+
+      SuffixArrayOptimized suffix =
+        new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+      FMIndex index = new FMIndex(suffix, 4);
+
+      for (int i = 0; i < text.length(); i += 7) {
+        assertEquals(suffix.indexOf(i), index.indexOf(i));
+      }
+
+      for (int q = 0; q < 200; q++) {
+        int from = random.nextInt(text.length());
+        String key = text.substring(from, Math.min(text.length(), from + 1 + random.nextInt(3)));
+        assertEquals(key, suffix.count(key), index.count(key));
+      }
+      assertEquals(text, index.substring(0, text.length()));
+    }
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testTooManyDistinctCharacters() {
+    char[] text = new char[Character.MAX_VALUE + 1];
+    for (int ch = 0; ch < text.length; ch++) {
+      text[ch] = (char) ch;
+    }
+    new FMIndex(new String(text));
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidSampleRate() {
+    new FMIndex(TEXT, 0);
+  }
+}
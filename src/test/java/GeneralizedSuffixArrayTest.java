@@ -0,0 +1,239 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class GeneralizedSuffixArrayTest {
+
+  private static final String[] DOCUMENTS = { "banana", "", "bandana", "ana" };
+
+  /**
+   * Returns the sorted suffixes of the documents, each one bounded by the end
+   * of its document, with ties broken by document.
+   */
+  private static List<String> sortedSuffixes(String[] documents) {
+    List<String[]> suffixes = new ArrayList<String[]>();
+    for (int d = 0; d < documents.length; d++) {
+      for (int i = 0; i < documents[d].length(); i++) {
+        suffixes.add(new String[] { documents[d].substring(i), String.valueOf(d) });
+      }
+    }
+
+    suffixes.sort((a, b) -> {
+      int cmp = a[0].compareTo(b[0]);
+      return cmp != 0 ? cmp : Integer.parseInt(a[1]) - Integer.parseInt(b[1]);
+    });
+
+    List<String> sorted = new ArrayList<String>();
+    for (String[] suffix : suffixes) {
+      sorted.add(suffix[0]);
+    }
+    return sorted;
+  }
+
+  @Test
+  public void testLengthAndDocuments() {
+    GeneralizedSuffixArray suffix = new GeneralizedSuffixArray(DOCUMENTS);
+
+    assertEquals(16, suffix.length());
+    assertEquals(4, suffix.documentCount());
+    assertEquals(0, suffix.documentStart(0));
+    assertEquals(6, suffix.documentStart(1));
+    assertEquals(6, suffix.documentStart(2));
+    assertEquals(13, suffix.documentStart(3));
+
+    assertEquals(0, suffix.documentOf(5));
+    assertEquals(2, suffix.documentOf(6));
+    assertEquals(2, suffix.documentOf(12));
+    assertEquals(3, suffix.documentOf(13));
+    assertEquals(3, suffix.documentOf(15));
+  }
+
+  @Test(expected=IndexOutOfBoundsException.class)
+  public void testDocumentOfIndexOutOfBounds() {
+    new GeneralizedSuffixArray(DOCUMENTS).documentOf(16);
+  }
+
+  @Test
+  public void testSelectAsString() {
+    GeneralizedSuffixArray suffix = new GeneralizedSuffixArray(DOCUMENTS);
+    List<String> expected = sortedSuffixes(DOCUMENTS);
+
+    for (int i = 0; i < suffix.length(); i++) {
+      assertEquals(expected.get(i), suffix.selectAsString(i));
+    }
+
+    // "a" ends documents 0, 2 and 3, and never crosses into the next one.
+    assertEquals(5, suffix.indexOf(0));
+    assertEquals(12, suffix.indexOf(1));
+    assertEquals(15, suffix.indexOf(2));
+  }
+
+  @Test
+  public void testLongestCommonPreffix() {
+    GeneralizedSuffixArray withoutLcp = new GeneralizedSuffixArray(DOCUMENTS);
+    GeneralizedSuffixArray withLcp    = new GeneralizedSuffixArray(DOCUMENTS, true);
+    List<String> expected = sortedSuffixes(DOCUMENTS);
+
+    for (int i = 1; i < withLcp.length(); i++) {
+      String a = expected.get(i - 1);
+      String b = expected.get(i);
+      int size = 0;
+      while (size < a.length() && size < b.length() && a.charAt(size) == b.charAt(size)) {
+        size++;
+      }
+
+      assertEquals(size, withoutLcp.longestCommonPreffix(i));
+      assertEquals(size, withLcp.longestCommonPreffix(i));
+    }
+  }
+
+  @Test
+  public void testCountAndRange() {
+    GeneralizedSuffixArray suffix = new GeneralizedSuffixArray(DOCUMENTS);
+
+    assertEquals(0, suffix.rank("a"));
+    assertEquals(new RankRange(0, 8), suffix.range("a"));
+    assertEquals(8, suffix.count("a"));
+    assertEquals(5, suffix.count("an"));
+    assertEquals(4, suffix.count("ana"));
+    assertEquals(0, suffix.count("anab"));
+    assertEquals(0, suffix.count("aban"));
+    assertEquals(2, suffix.count("ban"));
+    assertEquals(0, suffix.count("z"));
+  }
+
+  @Test
+  public void testDocuments() {
+    GeneralizedSuffixArray suffix = new GeneralizedSuffixArray(DOCUMENTS);
+
+    assertEquals(3, suffix.documentFrequency("ana"));
+    assertArrayEquals(new int[] { 0, 2, 3 }, suffix.documents("ana").toArray());
+    assertEquals(2, suffix.documentFrequency("ban"));
+    assertArrayEquals(new int[] { 0, 2 }, suffix.documents("ban").toArray());
+    assertArrayEquals(new int[] { 2 }, suffix.documents("nd").toArray());
+    assertEquals(0, suffix.documentFrequency("anaa"));
+  }
+
+  @Test
+  public void testRandomDocuments() {
+    Random random = new Random(5);
+    String[] documents = new String[300];
+    for (int d = 0; d < documents.length; d++) {
+      StringBuilder sb = new StringBuilder();
+      int size = random.nextInt(40);
+      for (int i = 0; i < size; i++) {
+        sb.append((char) ('a' + random.nextInt(3)));
+      }
+      documents[d] = sb.toString();
+    }
+
+    GeneralizedSuffixArray suffix = new GeneralizedSuffixArray(documents, true);
+    List<String> expected = sortedSuffixes(documents);
+
+    for (int i = 0; i < suffix.length(); i++) {
+      assertEquals(expected.get(i), suffix.selectAsString(i));
+    }
+
+    for (int q = 0; q < 200; q++) {
+      StringBuilder key = new StringBuilder();
+      int size = 1 + random.nextInt(5);
+      for (int i = 0; i < size; i++) {
+        key.append((char) ('a' + random.nextInt(3)));
+      }
+
+      int count = 0;
+      int frequency = 0;
+      for (String document : documents) {
+        int found = 0;
+        for (int i = document.indexOf(key.toString()); i >= 0;
+             i = document.indexOf(key.toString(), i + 1)) {
+          found++;
+        }
+        count += found;
+        frequency += (found > 0) ? 1 : 0;
+      }
+
+      assertEquals(count, suffix.count(key.toString()));
+      assertEquals(frequency, suffix.documentFrequency(key.toString()));
+    }
+  }
+
+  @Test
+  public void testLongestCommonSubstring() {
+    GeneralizedSuffixArray suffix =
+      new GeneralizedSuffixArray(new String[] { "xabcdy", "zabcdw", "abq", "bcdv" }, true);
+
+    Repeat two = suffix.longestCommonSubstring(2);
+    assertEquals(4, two.length());
+    assertEquals(2, two.count());
+    assertEquals(7, two.offset());
+
+    Repeat three = suffix.longestCommonSubstring(3);
+    assertEquals(3, three.length());
+    assertEquals(3, three.count());
+
+    Repeat four = suffix.longestCommonSubstring(4);
+    assertEquals(1, four.length());
+
+    GeneralizedSuffixArray disjoint = new GeneralizedSuffixArray(new String[] { "ab", "cd" }, true);
+    assertNull(disjoint.longestCommonSubstring(2));
+  }
+
+  @Test
+  public void testLongestCommonSubstringRandomDocuments() {
+    Random random = new Random(9);
+    String[] documents = new String[6];
+    for (int d = 0; d < documents.length; d++) {
+      StringBuilder sb = new StringBuilder();
+      int size = 10 + random.nextInt(30);
+      for (int i = 0; i < size; i++) {
+        sb.append((char) ('a' + random.nextInt(3)));
+      }
+      documents[d] = sb.toString();
+    }
+
+    GeneralizedSuffixArray suffix = new GeneralizedSuffixArray(documents, true);
+    String text = String.join("", documents);
+
+    for (int k = 2; k <= documents.length; k++) {
+      int expected = 0;
+      for (String document : documents) {
+        for (int from = 0; from < document.length(); from++) {
+          for (int to = from + expected + 1; to <= document.length(); to++) {
+            String sub = document.substring(from, to);
+            int found = 0;
+            for (String other : documents) {
+              found += other.contains(sub) ? 1 : 0;
+            }
+            if (found >= k) {
+              expected = sub.length();
+            }
+          }
+        }
+      }
+
+      Repeat repeat = suffix.longestCommonSubstring(k);
+      assertEquals(expected, repeat.length());
+
+      String sub = text.substring(repeat.offset(), repeat.offset() + repeat.length());
+      assertTrue(suffix.documentFrequency(sub) >= k);
+      assertEquals(suffix.count(sub), repeat.count());
+    }
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testLongestCommonSubstringInvalidK() {
+    new GeneralizedSuffixArray(DOCUMENTS, true).longestCommonSubstring(5);
+  }
+
+  @Test(expected=IllegalStateException.class)
+  public void testLongestCommonSubstringWithoutLcpArray() {
+    new GeneralizedSuffixArray(DOCUMENTS).longestCommonSubstring(2);
+  }
+}
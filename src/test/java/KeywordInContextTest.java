@@ -0,0 +1,82 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class KeywordInContextTest {
+
+  private static final String TEXT = "a rose is a rose is a rose";
+
+  private KeywordInContext kwic(int context) {
+    return new KeywordInContext(
+      new SuffixArrayOptimized(TEXT, SuffixArrayOptimized.Algorithm.INDUCED_SORTING), context);
+  }
+
+  @Test
+  public void testCount() {
+    assertEquals(3, kwic(2).count("rose"));
+    assertEquals(0, kwic(2).count("tulip"));
+  }
+
+  @Test
+  public void testWindowsByPosition() {
+    List<String> windows = kwic(2).windows("rose", KeywordInContext.Order.POSITION)
+      .map(Object::toString).collect(Collectors.toList());
+
+    assertEquals(3, windows.size());
+    assertEquals("a rose i", windows.get(0));
+    assertEquals("a rose i", windows.get(1));
+    assertEquals("a rose", windows.get(2));
+  }
+
+  @Test
+  public void testWindowsByRank() {
+    SuffixArrayOptimized suffixArray =
+      new SuffixArrayOptimized(TEXT, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+    KeywordInContext kwic = new KeywordInContext(suffixArray, 0);
+
+    int[] offsets = kwic.windows("is", KeywordInContext.Order.RANK)
+      .mapToInt(KeywordInContext.Window::offset).toArray();
+
+    assertArrayEquals(suffixArray.occurrences("is").toArray(), offsets);
+  }
+
+  @Test
+  public void testPagination() {
+    KeywordInContext kwic = kwic(0);
+
+    int[] page = kwic.windows("a", KeywordInContext.Order.POSITION, 1, 2)
+      .mapToInt(KeywordInContext.Window::offset).toArray();
+    assertArrayEquals(new int[] { 10, 20 }, page);
+
+    assertEquals(0, kwic.windows("a", KeywordInContext.Order.POSITION, 10, 2).count());
+    assertEquals(1, kwic.windows("a", KeywordInContext.Order.RANK, 2, Integer.MAX_VALUE).count());
+  }
+
+  @Test
+  public void testWindowIsAView() {
+    KeywordInContext.Window window =
+      kwic(3).windows("is", KeywordInContext.Order.POSITION).findFirst().get();
+
+    assertEquals(7, window.offset());
+    assertEquals(4, window.from());
+    assertEquals(12, window.to());
+    assertEquals(8, window.length());
+    assertEquals('i', window.charAt(3));
+    assertEquals("se is a ", window.toString());
+    assertEquals("is", window.subSequence(3, 5).toString());
+    assertEquals(7, window.subSequence(3, 5).offset());
+  }
+
+  @Test(expected=IndexOutOfBoundsException.class)
+  public void testWindowIndexOutOfBounds() {
+    kwic(0).windows("is", KeywordInContext.Order.POSITION).findFirst().get().charAt(2);
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidContext() {
+    kwic(-1);
+  }
+}
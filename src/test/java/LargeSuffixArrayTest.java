@@ -0,0 +1,121 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+public class LargeSuffixArrayTest {
+
+  private static final String TEXT = "ABRACADABRA!";
+
+  private File write(byte[] text) throws IOException {
+    File file = File.createTempFile("large-suffix-array", ".txt");
+    file.deleteOnExit();
+    Files.write(file.toPath(), text);
+    return file;
+  }
+
+  private void assertSameSuffixArray(byte[] text, LargeSuffixArray actual) {
+    SuffixArrayCompact expected =
+      new SuffixArrayCompact(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, false);
+
+    assertEquals(expected.length(), actual.length());
+    for (int i = 0; i < text.length; i++) {
+      assertEquals(expected.indexOf(i), actual.indexOf(i));
+    }
+  }
+
+  @Test
+  public void testSmallText() throws IOException {
+    byte[] text = TEXT.getBytes("ISO-8859-1");
+    LargeSuffixArray suffixes = new LargeSuffixArray(write(text));
+
+    assertSameSuffixArray(text, suffixes);
+    assertEquals('C', suffixes.charAt(4));
+    assertEquals(5, suffixes.count("A"));
+    assertEquals(2, suffixes.count("ABRA"));
+    assertEquals(0, suffixes.count("ABRAX"));
+    assertEquals(12, suffixes.count(""));
+    assertEquals(2, suffixes.rank("AB"));
+
+    long[] occurrences = suffixes.occurrences("A").toArray();
+    Arrays.sort(occurrences);
+    assertArrayEquals(new long[] { 0, 3, 5, 7, 10 }, occurrences);
+  }
+
+  @Test
+  public void testEmptyText() throws IOException {
+    LargeSuffixArray suffixes = new LargeSuffixArray(write(new byte[0]));
+
+    assertEquals(0, suffixes.length());
+    assertEquals(0, suffixes.count("A"));
+    assertEquals(0, suffixes.rank("A"));
+  }
+
+  @Test
+  public void testChunkBoundaries() throws IOException {
+    Random random = new Random(3);
+
+    for (int sigma : new int[] { 1, 2, 4, 256 }) {
+      byte[] text = new byte[3000];
+      for (int i = 0; i < text.length; i++) {
+        text[i] = (byte) ('a' + random.nextInt(sigma));
+      }
+
+      // Chunks of 16 characters and 8 positions.
+      LargeSuffixArray suffixes = new LargeSuffixArray(write(text), 4, 3);
+      SuffixArrayCompact expected =
+        new SuffixArrayCompact(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, false);
+      String s = new String(text, "ISO-8859-1");
+
+      assertSameSuffixArray(text, suffixes);
+
+      for (int q = 0; q < 200; q++) {
+        int from = random.nextInt(text.length);
+        int to   = Math.min(text.length, from + 1 + random.nextInt(10));
+        String key = s.substring(from, to) + (q % 2 == 0 ? "" : "\u0100");
+
+        assertEquals(expected.rank(key), suffixes.rank(key));
+        assertEquals(expected.count(key), suffixes.count(key));
+      }
+    }
+  }
+
+  @Test
+  public void testRepetitiveText() throws IOException {
+    byte[][] texts = {
+      CorpusGenerator.run(3000, 'a').getBytes("ISO-8859-1"),
+      CorpusGenerator.run(3000, '\0').getBytes("ISO-8859-1"),
+      CorpusGenerator.fibonacci(3000).getBytes("ISO-8859-1"),
+      CorpusGenerator.thueMorse(3000).getBytes("ISO-8859-1"),
+      new CorpusGenerator(5).runs(3000, "ab", 200).getBytes("ISO-8859-1")
+    };
+
+    for (byte[] text : texts) {
+      // Chunks of 16 characters and 8 positions, so the groups left to
+      // prefix doubling cross chunk boundaries.
+      assertSameSuffixArray(text, new LargeSuffixArray(write(text), 4, 3));
+    }
+  }
+
+  @Test(timeout=20000)
+  public void testLongRepeats() throws IOException {
+    // Sorting the suffixes of a run by comparing them would take about 10^11
+    // character comparisons.
+    byte[] text = CorpusGenerator.run(500000, 'a').getBytes("ISO-8859-1");
+    LargeSuffixArray suffixes = new LargeSuffixArray(write(text));
+
+    for (int i = 0; i < text.length; i++) {
+      assertEquals(text.length - 1 - i, suffixes.indexOf(i));
+    }
+  }
+
+  @Test(expected=IndexOutOfBoundsException.class)
+  public void testIndexOfIndexOutOfBounds() throws IOException {
+    new LargeSuffixArray(write(TEXT.getBytes("ISO-8859-1"))).indexOf(TEXT.length());
+  }
+}
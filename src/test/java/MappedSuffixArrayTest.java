@@ -0,0 +1,110 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+public class MappedSuffixArrayTest {
+
+  private static final String TEXT = "ABRACADABRA!";
+
+  private File tempFile() throws IOException {
+    File file = File.createTempFile("mapped-suffix-array", ".sa");
+    file.deleteOnExit();
+    return file;
+  }
+
+  private MappedSuffixArray buildDefaultSuffix(boolean withLcp) throws IOException {
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized(TEXT, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, withLcp);
+    File file = tempFile();
+    suffix.save(file);
+    return MappedSuffixArray.open(file);
+  }
+
+  @Test
+  public void testLength() throws IOException {
+    MappedSuffixArray suffix = buildDefaultSuffix(false);
+    assertEquals(12, suffix.length());
+    assertFalse(suffix.hasLcp());
+  }
+
+  @Test
+  public void testIndexOfAndSelectAsString() throws IOException {
+    MappedSuffixArray suffix = buildDefaultSuffix(false);
+    SuffixArray expected = new SuffixArray(TEXT);
+
+    for (int i = 0; i < TEXT.length(); i++) {
+      assertEquals(expected.indexOf(i), suffix.indexOf(i));
+      assertEquals(expected.selectAsString(i), suffix.selectAsString(i));
+    }
+  }
+
+  @Test(expected=IndexOutOfBoundsException.class)
+  public void testIndexOfIndexOutOfBounds() throws IOException {
+    MappedSuffixArray suffix = buildDefaultSuffix(false);
+    suffix.indexOf(TEXT.length());
+  }
+
+  @Test
+  public void testLongestCommonPreffix() throws IOException {
+    MappedSuffixArray withoutLcp = buildDefaultSuffix(false);
+    MappedSuffixArray withLcp    = buildDefaultSuffix(true);
+    SuffixArray expected = new SuffixArray(TEXT);
+
+    assertTrue(withLcp.hasLcp());
+    for (int i = 1; i < TEXT.length(); i++) {
+      assertEquals(expected.longestCommonPreffix(i), withoutLcp.longestCommonPreffix(i));
+      assertEquals(expected.longestCommonPreffix(i), withLcp.longestCommonPreffix(i));
+    }
+  }
+
+  @Test
+  public void testRankAndCount() throws IOException {
+    MappedSuffixArray suffix = buildDefaultSuffix(false);
+
+    assertEquals(3, suffix.rank("ABRACADABRA"));
+    assertEquals(12, suffix.rank("Z"));
+    assertEquals(new RankRange(2, 4), suffix.range("ABRA"));
+    assertEquals(5, suffix.count("A"));
+    assertArrayEquals(new int[] { 0, 7 }, suffix.occurrences("ABRA").sorted().toArray());
+  }
+
+  @Test
+  public void testCompactText() throws IOException {
+    Random random = new Random(17);
+    byte[] bytes = new byte[4000];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (0x80 + random.nextInt(3));
+    }
+
+    SuffixArrayCompact compact =
+      new SuffixArrayCompact(bytes, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+    File file = tempFile();
+    compact.save(file);
+    MappedSuffixArray suffix = MappedSuffixArray.open(file);
+
+    assertEquals(compact.length(), suffix.length());
+    for (int i = 0; i < bytes.length; i++) {
+      assertEquals(compact.indexOf(i), suffix.indexOf(i));
+    }
+    for (int i = 1; i < bytes.length; i++) {
+      assertEquals(compact.longestCommonPreffix(i), suffix.longestCommonPreffix(i));
+    }
+
+    String key = compact.selectAsString(1234).substring(0, 5);
+    assertEquals(compact.range(key), suffix.range(key));
+  }
+
+  @Test(expected=IOException.class)
+  public void testOpenInvalidFile() throws IOException {
+    File file = tempFile();
+    Files.write(file.toPath(), "not a suffix array file at all".getBytes());
+    MappedSuffixArray.open(file);
+  }
+}
@@ -0,0 +1,27 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import org.junit.Test;
+
+public class MatchTest {
+
+  @Test
+  public void testAccessors() {
+    Match match = new Match(7, 4, 1);
+
+    assertEquals(7, match.offset());
+    assertEquals(4, match.length());
+    assertEquals(1, match.distance());
+  }
+
+  @Test
+  public void testEquals() {
+    assertEquals(new Match(1, 2, 0), new Match(1, 2, 0));
+    assertEquals(new Match(1, 2, 0).hashCode(), new Match(1, 2, 0).hashCode());
+    assertNotEquals(new Match(1, 2, 0), new Match(1, 2, 1));
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidMatch() {
+    new Match(0, 2, -1);
+  }
+}
@@ -0,0 +1,38 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class RankRangeTest {
+
+  @Test
+  public void testSize() {
+    RankRange range = new RankRange(3, 7);
+
+    assertEquals(3, range.from());
+    assertEquals(7, range.to());
+    assertEquals(4, range.size());
+    assertFalse(range.isEmpty());
+  }
+
+  @Test
+  public void testEmptyRange() {
+    RankRange range = new RankRange(5, 5);
+
+    assertEquals(0, range.size());
+    assertTrue(range.isEmpty());
+  }
+
+  @Test
+  public void testEquals() {
+    assertEquals(new RankRange(1, 2), new RankRange(1, 2));
+    assertEquals(new RankRange(1, 2).hashCode(), new RankRange(1, 2).hashCode());
+    assertNotEquals(new RankRange(1, 2), new RankRange(1, 3));
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidRange() {
+    new RankRange(4, 2);
+  }
+}
@@ -0,0 +1,29 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import org.junit.Test;
+
+public class RepeatTest {
+
+  @Test
+  public void testAccessors() {
+    Repeat repeat = new Repeat(7, 4, new RankRange(2, 5));
+
+    assertEquals(7, repeat.offset());
+    assertEquals(4, repeat.length());
+    assertEquals(new RankRange(2, 5), repeat.range());
+    assertEquals(3, repeat.count());
+  }
+
+  @Test
+  public void testEquals() {
+    assertEquals(new Repeat(1, 2, new RankRange(0, 2)), new Repeat(1, 2, new RankRange(0, 2)));
+    assertEquals(new Repeat(1, 2, new RankRange(0, 2)).hashCode(),
+                 new Repeat(1, 2, new RankRange(0, 2)).hashCode());
+    assertNotEquals(new Repeat(1, 2, new RankRange(0, 2)), new Repeat(1, 3, new RankRange(0, 2)));
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidRepeat() {
+    new Repeat(-1, 2, new RankRange(0, 2));
+  }
+}
@@ -0,0 +1,156 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class SegmentedSuffixIndexTest {
+
+  /**
+   * Returns the offsets of the occurrences of key in text, in text order.
+   */
+  private static int[] occurrences(String text, String key) {
+    IntStream.Builder builder = IntStream.builder();
+    for (int i = text.indexOf(key); i >= 0; i = text.indexOf(key, i + 1)) {
+      builder.add(i);
+    }
+    return builder.build().toArray();
+  }
+
+  @Test
+  public void testEmptyIndex() {
+    try (SegmentedSuffixIndex index = new SegmentedSuffixIndex()) {
+      assertEquals(0, index.length());
+      assertEquals(0, index.segmentCount());
+      assertEquals(0, index.count("a"));
+    }
+  }
+
+  @Test
+  public void testOccurrencesAcrossSegments() throws InterruptedException {
+    try (SegmentedSuffixIndex index = new SegmentedSuffixIndex(8)) {
+      index.append("ABRA");
+      index.append("CA");
+      index.append("D");
+      index.append("ABRA!");
+      index.awaitMerges();
+
+      String text = "ABRACADABRA!";
+      assertEquals(text.length(), index.length());
+      assertEquals(4, index.segmentCount());
+
+      SuffixArrayOptimized whole = new SuffixArrayOptimized(text);
+
+      for (String key : new String[] { "A", "ABRA", "ACADA", "RACADABRA!", "CAD", "Z", "AC", "CAE" }) {
+        assertEquals(key, whole.rank(key), index.rank(key));
+        assertEquals(key, occurrences(text, key).length, index.count(key));
+        assertArrayEquals(key, occurrences(text, key), index.occurrences(key).sorted().toArray());
+      }
+      assertEquals(text.length(), index.count(""));
+    }
+  }
+
+  @Test
+  public void testMerges() throws InterruptedException {
+    try (SegmentedSuffixIndex index = new SegmentedSuffixIndex(2)) {
+      for (int i = 0; i < 64; i++) {
+        index.append("ab");
+      }
+      index.awaitMerges();
+
+      // 64 segments of length 2 end up as a single segment of length 128.
+      assertEquals(1, index.segmentCount());
+      assertEquals(128, index.length());
+      assertEquals(64, index.count("ab"));
+      assertEquals(63, index.count("ba"));
+    }
+  }
+
+  @Test
+  public void testRandomChunks() throws InterruptedException {
+    Random random = new Random(13);
+    StringBuilder text = new StringBuilder();
+
+    try (SegmentedSuffixIndex index = new SegmentedSuffixIndex()) {
+      for (int c = 0; c < 200; c++) {
+        StringBuilder chunk = new StringBuilder();
+        int size = 1 + random.nextInt(20);
+        for (int i = 0; i < size; i++) {
+          chunk.append((char) ('a' + random.nextInt(3)));
+        }
+
+        index.append(chunk.toString());
+        text.append(chunk);
+
+        // Query while merges may be running.
+        if (c % 20 == 0) {
+          String key = "abc";
+          assertEquals(occurrences(text.toString(), key).length, index.count(key));
+        }
+      }
+      index.awaitMerges();
+
+      assertTrue(index.segmentCount() < 200);
+      SuffixArrayOptimized whole = new SuffixArrayOptimized(text.toString());
+
+      for (int q = 0; q < 200; q++) {
+        int from = random.nextInt(text.length());
+        String key = text.substring(from, Math.min(text.length(), from + 1 + random.nextInt(30)));
+
+        assertEquals(key, whole.rank(key), index.rank(key));
+        assertEquals(key, whole.rank(key + "b"), index.rank(key + "b"));
+
+        assertArrayEquals(occurrences(text.toString(), key),
+                          index.occurrences(key).sorted().toArray());
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrentAppends() throws InterruptedException {
+    try (SegmentedSuffixIndex index = new SegmentedSuffixIndex(2)) {
+      Thread[] threads = new Thread[4];
+      for (int t = 0; t < threads.length; t++) {
+        threads[t] = new Thread(() -> {
+          for (int i = 0; i < 50; i++) {
+            index.append("xyz");
+          }
+        });
+        threads[t].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      index.awaitMerges();
+
+      // The chunks are identical, so their order does not matter.
+      assertEquals(600, index.length());
+      assertEquals(200, index.count("xyz"));
+      assertEquals(199, index.count("zx"));
+    }
+  }
+
+  @Test
+  public void testAppendAfterClose() {
+    SegmentedSuffixIndex index = new SegmentedSuffixIndex();
+    index.append("ABRA");
+    index.close();
+
+    try {
+      index.append("CADABRA!");
+      fail("append() after close() must throw IllegalStateException");
+    } catch (IllegalStateException e) {
+      // The failed append leaves the text unchanged.
+      assertEquals(4, index.length());
+      assertEquals(2, index.count("A"));
+    }
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidFanOut() {
+    new SegmentedSuffixIndex(1);
+  }
+}
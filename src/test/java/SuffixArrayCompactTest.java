@@ -0,0 +1,200 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+public class SuffixArrayCompactTest {
+
+  private SuffixArrayCompact buildDefaultSuffix() {
+    String text = "ABRACADABRA!";
+    return new SuffixArrayCompact(text);
+  }
+
+  @Test
+  public void testSuffixArrayCompact() {
+    SuffixArrayCompact suffix = buildDefaultSuffix();
+    assertNotNull("should not be null", suffix);
+  }
+
+  @Test
+  public void testLength() {
+    SuffixArrayCompact suffix = buildDefaultSuffix();
+    assertEquals("should have length 12", 12, suffix.length());
+  }
+
+  @Test(expected=IndexOutOfBoundsException.class)
+  public void testIndexOfIndexOutOfBounds() {
+    SuffixArrayCompact suffix = buildDefaultSuffix();
+    suffix.indexOf(-1);
+  }
+
+  @Test
+  public void testIndexOf() {
+    SuffixArrayCompact suffix = buildDefaultSuffix();
+    SuffixArray expected = new SuffixArray("ABRACADABRA!");
+
+    for (int i = 0; i < suffix.length(); i++) {
+      assertEquals(expected.indexOf(i), suffix.indexOf(i));
+      assertEquals(expected.selectAsString(i), suffix.selectAsString(i));
+    }
+  }
+
+  @Test
+  public void testLongestCommonPreffix() {
+    SuffixArrayCompact suffix = buildDefaultSuffix();
+    SuffixArrayCompact withLcp = new SuffixArrayCompact(
+      "ABRACADABRA!".getBytes(StandardCharsets.ISO_8859_1),
+      SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+    SuffixArray expected = new SuffixArray("ABRACADABRA!");
+
+    for (int i = 1; i < suffix.length(); i++) {
+      assertEquals(expected.longestCommonPreffix(i), suffix.longestCommonPreffix(i));
+      assertEquals(expected.longestCommonPreffix(i), withLcp.longestCommonPreffix(i));
+      assertEquals(i, withLcp.inverseIndexOf(withLcp.indexOf(i)));
+    }
+  }
+
+  @Test
+  public void testUnsignedOrder() {
+    // 0xe9 (e acute) is negative as a signed byte but must sort after ASCII.
+    String text = "caf\u00e9 cafe";
+    SuffixArrayCompact suffix = new SuffixArrayCompact(text);
+    SuffixArray expected = new SuffixArray(text);
+
+    for (int i = 0; i < text.length(); i++) {
+      assertEquals(expected.indexOf(i), suffix.indexOf(i));
+    }
+    assertEquals(2, suffix.count("caf"));
+    assertEquals(1, suffix.count("caf\u00e9"));
+    assertEquals(text.length(), suffix.rank("\u0100"));
+  }
+
+  @Test
+  public void testRandomTextMatchesSuffixArrayOptimized() {
+    Random random = new Random(3);
+    byte[] bytes = new byte[5000];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (random.nextInt(4) * 60);
+    }
+
+    String text = new String(bytes, StandardCharsets.ISO_8859_1);
+    SuffixArrayCompact radix = new SuffixArrayCompact(bytes);
+    SuffixArrayCompact induced = new SuffixArrayCompact(
+      bytes, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, false);
+    SuffixArrayOptimized expected =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+
+    for (int i = 0; i < text.length(); i++) {
+      assertEquals(expected.indexOf(i), radix.indexOf(i));
+      assertEquals(expected.indexOf(i), induced.indexOf(i));
+    }
+
+    for (int t = 0; t < 200; t++) {
+      int from = random.nextInt(text.length());
+      String key = text.substring(from, Math.min(text.length(), from + random.nextInt(10)));
+      assertEquals(expected.range(key), radix.range(key));
+    }
+  }
+
+  @Test
+  public void testRadixSortRepetitiveText() {
+    byte[] bytes = new byte[40000];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) "\u0000abra\u00ff".charAt(i % 6);
+    }
+
+    SuffixArrayCompact radix = new SuffixArrayCompact(bytes);
+    SuffixArrayCompact induced = new SuffixArrayCompact(
+      bytes, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, false);
+
+    for (int i = 0; i < bytes.length; i++) {
+      assertEquals(induced.indexOf(i), radix.indexOf(i));
+    }
+  }
+
+  @Test
+  public void testGeneratedCorpora() {
+    CorpusGenerator generator = new CorpusGenerator(17);
+    String[] texts = {
+      generator.random(20000, "\u0000\u00ff"),
+      CorpusGenerator.run(20000, 'a'),
+      CorpusGenerator.fibonacci(20000),
+      generator.dna(20000),
+      generator.text(generator.dictionary(1000), 20000, 1.0)
+    };
+
+    for (String text : texts) {
+      byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+      SuffixArrayCompact radix = new SuffixArrayCompact(bytes);
+      SuffixArrayCompact induced = new SuffixArrayCompact(
+        bytes, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, false);
+
+      for (int i = 0; i < bytes.length; i++) {
+        assertEquals(induced.indexOf(i), radix.indexOf(i));
+      }
+    }
+  }
+
+  @Test
+  public void testRadixSortZeros() {
+    // The suffixes end within keys of zeros, down to the depth at which
+    // prefix doubling takes over.
+    for (int n = 1; n <= 100; n++) {
+      SuffixArrayCompact radix = new SuffixArrayCompact(new byte[n]);
+
+      for (int i = 0; i < n; i++) {
+        assertEquals(n - 1 - i, radix.indexOf(i));
+      }
+    }
+  }
+
+  @Test
+  public void testRadixSortDuplicatedText() {
+    Random random = new Random(3);
+    byte[] bytes = new byte[60000];
+    for (int i = 0; i < bytes.length / 2; i++) {
+      bytes[i] = (byte) random.nextInt(4);
+      bytes[i + bytes.length / 2] = bytes[i];
+    }
+
+    SuffixArrayCompact radix = new SuffixArrayCompact(bytes);
+    SuffixArrayCompact induced = new SuffixArrayCompact(
+      bytes, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, false);
+
+    for (int i = 0; i < bytes.length; i++) {
+      assertEquals(induced.indexOf(i), radix.indexOf(i));
+    }
+  }
+
+  @Test
+  public void testOccurrences() {
+    SuffixArrayCompact suffix = buildDefaultSuffix();
+    assertArrayEquals(new int[] { 1, 8 }, suffix.occurrences("BRA").sorted().toArray());
+  }
+
+  @Test
+  public void testFromFile() throws IOException {
+    File file = File.createTempFile("suffix-array-compact", ".txt");
+    file.deleteOnExit();
+    Files.write(file.toPath(), "ABRACADABRA!".getBytes(StandardCharsets.ISO_8859_1));
+
+    SuffixArrayCompact suffix =
+      new SuffixArrayCompact(file, SuffixArrayOptimized.Algorithm.RADIX_QUICKSORT, false);
+    SuffixArrayCompact expected = buildDefaultSuffix();
+
+    for (int i = 0; i < suffix.length(); i++) {
+      assertEquals(expected.indexOf(i), suffix.indexOf(i));
+    }
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testNonLatin1Text() {
+    new SuffixArrayCompact("\u20ac");
+  }
+}
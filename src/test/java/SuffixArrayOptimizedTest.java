@@ -1,7 +1,16 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
 public class SuffixArrayOptimizedTest {
 
   private SuffixArrayOptimized buildDefaultSuffix() {
@@ -33,17 +42,17 @@ public class SuffixArrayOptimizedTest {
     SuffixArrayOptimized suffix = buildDefaultSuffix();
 
     assertEquals(11, suffix.indexOf(0));
-    assertEquals(0,  suffix.indexOf(1));
-    assertEquals(10, suffix.indexOf(2));
-    assertEquals(3,  suffix.indexOf(3));
-    assertEquals(7,  suffix.indexOf(4));
+    assertEquals(10, suffix.indexOf(1));
+    assertEquals(7,  suffix.indexOf(2));
+    assertEquals(0,  suffix.indexOf(3));
+    assertEquals(3,  suffix.indexOf(4));
     assertEquals(5,  suffix.indexOf(5));
-    assertEquals(6,  suffix.indexOf(6));
-    assertEquals(8,  suffix.indexOf(7));
-    assertEquals(9,  suffix.indexOf(8));
-    assertEquals(4,  suffix.indexOf(9));
-    assertEquals(2,  suffix.indexOf(10));
-    assertEquals(1,  suffix.indexOf(11));
+    assertEquals(8,  suffix.indexOf(6));
+    assertEquals(1,  suffix.indexOf(7));
+    assertEquals(4,  suffix.indexOf(8));
+    assertEquals(6,  suffix.indexOf(9));
+    assertEquals(9,  suffix.indexOf(10));
+    assertEquals(2,  suffix.indexOf(11));
   }
 
   @Test(expected=IndexOutOfBoundsException.class)
@@ -58,17 +67,17 @@ public class SuffixArrayOptimizedTest {
     SuffixArrayOptimized suffix = buildDefaultSuffix();
 
     assertEquals("!",            suffix.selectAsString(0));
-    assertEquals("ABRACADABRA!", suffix.selectAsString(1));
-    assertEquals("A!",           suffix.selectAsString(2));
-    assertEquals("ACADABRA!",    suffix.selectAsString(3));
-    assertEquals("ABRA!",        suffix.selectAsString(4));
+    assertEquals("A!",           suffix.selectAsString(1));
+    assertEquals("ABRA!",        suffix.selectAsString(2));
+    assertEquals("ABRACADABRA!", suffix.selectAsString(3));
+    assertEquals("ACADABRA!",    suffix.selectAsString(4));
     assertEquals("ADABRA!",      suffix.selectAsString(5));
-    assertEquals("DABRA!",       suffix.selectAsString(6));
-    assertEquals("BRA!",         suffix.selectAsString(7));
-    assertEquals("RA!",          suffix.selectAsString(8));
-    assertEquals("CADABRA!",     suffix.selectAsString(9));
-    assertEquals("RACADABRA!",   suffix.selectAsString(10));
-    assertEquals("BRACADABRA!",  suffix.selectAsString(11));
+    assertEquals("BRA!",         suffix.selectAsString(6));
+    assertEquals("BRACADABRA!",  suffix.selectAsString(7));
+    assertEquals("CADABRA!",     suffix.selectAsString(8));
+    assertEquals("DABRA!",       suffix.selectAsString(9));
+    assertEquals("RA!",          suffix.selectAsString(10));
+    assertEquals("RACADABRA!",   suffix.selectAsString(11));
   }
 
   @Test(expected=IndexOutOfBoundsException.class)
@@ -83,15 +92,727 @@ public class SuffixArrayOptimizedTest {
 
     assertEquals(0, suffix.longestCommonPreffix(1));
     assertEquals(1, suffix.longestCommonPreffix(2));
-    assertEquals(1, suffix.longestCommonPreffix(3));
+    assertEquals(4, suffix.longestCommonPreffix(3));
     assertEquals(1, suffix.longestCommonPreffix(4));
     assertEquals(1, suffix.longestCommonPreffix(5));
     assertEquals(0, suffix.longestCommonPreffix(6));
-    assertEquals(0, suffix.longestCommonPreffix(7));
+    assertEquals(3, suffix.longestCommonPreffix(7));
     assertEquals(0, suffix.longestCommonPreffix(8));
     assertEquals(0, suffix.longestCommonPreffix(9));
     assertEquals(0, suffix.longestCommonPreffix(10));
-    assertEquals(0, suffix.longestCommonPreffix(11));
+    assertEquals(2, suffix.longestCommonPreffix(11));
+  }
+
+  @Test
+  public void testInducedSortingIndexOf() {
+    String text = "ABRACADABRA!";
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+    SuffixArray expected = new SuffixArray(text);
+
+    assertEquals(expected.length(), suffix.length());
+    for (int i = 0; i < text.length(); i++) {
+      assertEquals(expected.indexOf(i), suffix.indexOf(i));
+      assertEquals(expected.selectAsString(i), suffix.selectAsString(i));
+    }
+    for (int i = 1; i < text.length(); i++) {
+      assertEquals(expected.longestCommonPreffix(i), suffix.longestCommonPreffix(i));
+    }
+  }
+
+  @Test
+  public void testInducedSortingRandomText() {
+    Random random = new Random(42);
+
+    for (int t = 0; t < 200; t++) {
+      int length = random.nextInt(300);
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = (char) ('a' + random.nextInt(1 + t % 4));
+      }
+
+      String text = new String(chars);
+      SuffixArrayOptimized suffix =
+        new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+      SuffixArray expected = new SuffixArray(text);
+
+      for (int i = 0; i < length; i++) {
+        assertEquals(expected.indexOf(i), suffix.indexOf(i));
+      }
+    }
+  }
+
+  @Test
+  public void testInducedSortingRepetitiveText() {
+    int length = 1 << 20;
+    char[] chars = new char[length];
+    Arrays.fill(chars, 'a');
+
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized(new String(chars), SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+
+    // The shortest run of 'a's is the smallest suffix.
+    for (int i = 0; i < length; i++) {
+      assertEquals(length - 1 - i, suffix.indexOf(i));
+    }
+    assertEquals(0, suffix.rank("a"));
+    assertEquals(length, suffix.rank("b"));
+  }
+
+  @Test
+  public void testPrefixDoublingRandomText() {
+    Random random = new Random(43);
+
+    for (int t = 0; t < 200; t++) {
+      int length = random.nextInt(300);
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = (char) ('a' + random.nextInt(1 + t % 4));
+      }
+
+      String text = new String(chars);
+      SuffixArrayOptimized suffix =
+        new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.PREFIX_DOUBLING);
+      SuffixArray expected = new SuffixArray(text);
+
+      for (int i = 0; i < length; i++) {
+        assertEquals(expected.indexOf(i), suffix.indexOf(i));
+      }
+    }
+  }
+
+  @Test
+  public void testPrefixDoublingRepetitiveText() {
+    int length = 1 << 16;
+    char[] chars = new char[length];
+    Arrays.fill(chars, 'a');
+    chars[length / 2] = '\uffff';
+
+    String text = new String(chars);
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.PREFIX_DOUBLING);
+    SuffixArrayOptimized expected =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+
+    for (int i = 0; i < length; i++) {
+      assertEquals(expected.indexOf(i), suffix.indexOf(i));
+    }
+  }
+
+  @Test
+  public void testRadixSortRandomText() {
+    Random random = new Random(44);
+    char[] alphabet = { '\u0000', '\u0001', 'a', 'b', '\u7fff', '\u8000', '\uffff' };
+
+    for (int t = 0; t < 300; t++) {
+      int length = random.nextInt(t < 200 ? 40 : 2000);
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = alphabet[random.nextInt(1 + t % alphabet.length)];
+      }
+
+      String text = new String(chars);
+      SuffixArrayOptimized suffix = new SuffixArrayOptimized(text);
+      SuffixArrayOptimized expected =
+        new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+
+      for (int i = 0; i < length; i++) {
+        assertEquals(expected.indexOf(i), suffix.indexOf(i));
+      }
+    }
+  }
+
+  @Test
+  public void testRadixSortRepetitiveText() {
+    // Deep enough to overflow the call stack of a recursive sort.
+    StringBuilder periodic = new StringBuilder();
+    while (periodic.length() < 50000) {
+      periodic.append("abracadabra");
+    }
+
+    char[] chars = new char[20000];
+    Arrays.fill(chars, 'a');
+
+    for (String text : new String[] { periodic.toString(), new String(chars) }) {
+      SuffixArrayOptimized expected =
+        new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+      SuffixArrayOptimized sequential = new SuffixArrayOptimized(text);
+      SuffixArrayOptimized parallel   = new SuffixArrayOptimized(text, 2, 1024);
+
+      for (int i = 0; i < text.length(); i++) {
+        assertEquals(expected.indexOf(i), sequential.indexOf(i));
+        assertEquals(expected.indexOf(i), parallel.indexOf(i));
+      }
+    }
+  }
+
+  @Test
+  public void testGeneratedCorpora() {
+    CorpusGenerator generator = new CorpusGenerator(17);
+    String[] texts = {
+      generator.random(20000, "ab"),
+      CorpusGenerator.run(20000, 'a'),
+      generator.runs(20000, "abc", 50),
+      CorpusGenerator.fibonacci(20000),
+      CorpusGenerator.thueMorse(20000),
+      generator.dna(20000),
+      generator.text(generator.dictionary(1000), 20000, 1.0)
+    };
+
+    for (String text : texts) {
+      SuffixArrayOptimized expected =
+        new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+      SuffixArrayOptimized radix     = new SuffixArrayOptimized(text);
+      SuffixArrayOptimized doubling  =
+        new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.PREFIX_DOUBLING);
+      SuffixArrayOptimized parallel  = new SuffixArrayOptimized(text, 2, 1024);
+
+      for (int i = 0; i < text.length(); i++) {
+        assertEquals(expected.indexOf(i), radix.indexOf(i));
+        assertEquals(expected.indexOf(i), doubling.indexOf(i));
+        assertEquals(expected.indexOf(i), parallel.indexOf(i));
+      }
+    }
+  }
+
+  @Test
+  public void testRadixSortZeros() {
+    for (int n = 1; n <= 100; n++) {
+      SuffixArrayOptimized radix = new SuffixArrayOptimized(new String(new char[n]));
+
+      for (int i = 0; i < n; i++) {
+        assertEquals(n - 1 - i, radix.indexOf(i));
+      }
+    }
+  }
+
+  @Test
+  public void testRadixSortDuplicatedText() {
+    // Each suffix of the first half shares a long prefix with exactly one
+    // other suffix, so prefix doubling finishes many tiny subarrays.
+    Random random = new Random(3);
+    char[] chars = new char[60000];
+    for (int i = 0; i < chars.length / 2; i++) {
+      chars[i] = (char) ('a' + random.nextInt(4));
+      chars[i + chars.length / 2] = chars[i];
+    }
+
+    String text = new String(chars);
+    SuffixArrayOptimized expected =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+    SuffixArrayOptimized sequential = new SuffixArrayOptimized(text);
+    SuffixArrayOptimized parallel   = new SuffixArrayOptimized(text, 2, 1024);
+
+    for (int i = 0; i < text.length(); i++) {
+      assertEquals(expected.indexOf(i), sequential.indexOf(i));
+      assertEquals(expected.indexOf(i), parallel.indexOf(i));
+    }
+  }
+
+  @Test
+  public void testParallelSortMatchesSequentialSort() {
+    Random random = new Random(7);
+    char[] chars = new char[200000];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(26));
+    }
+
+    String text = new String(chars);
+    SuffixArrayOptimized sequential = new SuffixArrayOptimized(text);
+    SuffixArrayOptimized parallel   = new SuffixArrayOptimized(text, 4, 64);
+
+    for (int i = 0; i < text.length(); i++) {
+      assertEquals(sequential.indexOf(i), parallel.indexOf(i));
+    }
+  }
+
+  @Test
+  public void testParallelSortIndexOf() {
+    SuffixArrayOptimized sequential = buildDefaultSuffix();
+    SuffixArrayOptimized parallel   =
+      new SuffixArrayOptimized("ABRACADABRA!", 2, SuffixArrayOptimized.PARALLEL_CUT_OFF);
+
+    for (int i = 0; i < sequential.length(); i++) {
+      assertEquals(sequential.indexOf(i), parallel.indexOf(i));
+    }
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testParallelSortInvalidParallelism() {
+    new SuffixArrayOptimized("ABRACADABRA!", 0, SuffixArrayOptimized.PARALLEL_CUT_OFF);
+  }
+
+  @Test
+  public void testLongestCommonPreffixWithLcpArray() {
+    String text = "ABRACADABRA!";
+    SuffixArrayOptimized suffix = new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+    SuffixArray expected = new SuffixArray(text);
+
+    for (int i = 1; i < text.length(); i++) {
+      assertEquals(expected.longestCommonPreffix(i), suffix.longestCommonPreffix(i));
+    }
+  }
+
+  @Test
+  public void testInverseIndexOf() {
+    String text = "ABRACADABRA!";
+    SuffixArrayOptimized suffix = new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+    for (int i = 0; i < text.length(); i++) {
+      assertEquals(i, suffix.inverseIndexOf(suffix.indexOf(i)));
+    }
+  }
+
+  @Test(expected=IllegalStateException.class)
+  public void testInverseIndexOfWithoutLcpArray() {
+    SuffixArrayOptimized suffix = buildDefaultSuffix();
+    suffix.inverseIndexOf(0);
+  }
+
+  @Test
+  public void testRank() {
+    String text = "ABRACADABRA!";
+    SuffixArrayOptimized suffix = new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+    for (int i = 0; i < text.length(); i++) {
+      assertEquals(i, suffix.rank(suffix.selectAsString(i)));
+    }
+
+    assertEquals(0,  suffix.rank(""));
+    assertEquals(1,  suffix.rank("A"));
+    assertEquals(6,  suffix.rank("B"));
+    assertEquals(3,  suffix.rank("ABRACADABRA"));
+    assertEquals(12, suffix.rank("Z"));
+  }
+
+  @Test
+  public void testRankRandomKeys() {
+    Random random = new Random(11);
+    char[] chars = new char[2000];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(3));
+    }
+
+    String text = new String(chars);
+    List<SuffixArrayOptimized> suffixes = new ArrayList<SuffixArrayOptimized>();
+    suffixes.add(new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING));
+    suffixes.add(new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true));
+
+    for (int t = 0; t < 500; t++) {
+      int from = random.nextInt(text.length());
+      int to   = Math.min(text.length(), from + random.nextInt(40));
+      String key = text.substring(from, to) + (t % 2 == 0 ? "" : "b");
+
+      // Brute force: count the suffixes less than key.
+      int expected = 0;
+      for (int i = 0; i < text.length(); i++) {
+        if (text.substring(i).compareTo(key) < 0) {
+          expected++;
+        }
+      }
+
+      for (SuffixArrayOptimized suffix : suffixes) {
+        assertEquals(expected, suffix.rank(key));
+      }
+    }
+  }
+
+  @Test
+  public void testRange() {
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized("ABRACADABRA!", SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+
+    assertEquals(new RankRange(2, 4),  suffix.range("ABRA"));
+    assertEquals(new RankRange(1, 6),  suffix.range("A"));
+    assertEquals(new RankRange(0, 12), suffix.range(""));
+    assertEquals(new RankRange(6, 6),  suffix.range("AZ"));
+    assertEquals(new RankRange(12, 12), suffix.range("Z"));
+  }
+
+  @Test
+  public void testCount() {
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized("ABRACADABRA!", SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+    assertEquals(5, suffix.count("A"));
+    assertEquals(2, suffix.count("BRA"));
+    assertEquals(1, suffix.count("ABRACADABRA!"));
+    assertEquals(0, suffix.count("ABRACADABRA!!"));
+    assertEquals(0, suffix.count("CAB"));
+  }
+
+  @Test
+  public void testOccurrences() {
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized("ABRACADABRA!", SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+
+    assertArrayEquals(new int[] { 0, 7 }, suffix.occurrences("ABRA").sorted().toArray());
+    assertArrayEquals(new int[] { 0, 3, 5, 7, 10 }, suffix.occurrences("A").sorted().toArray());
+    assertEquals(0, suffix.occurrences("ABRAXAS").count());
+  }
+
+  @Test
+  public void testCountRandomKeys() {
+    Random random = new Random(5);
+    char[] chars = new char[3000];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(2));
+    }
+
+    String text = new String(chars);
+    SuffixArrayOptimized plain =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+    SuffixArrayOptimized withLcp =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+    for (int t = 0; t < 300; t++) {
+      int from = random.nextInt(text.length());
+      String key = text.substring(from, Math.min(text.length(), from + 1 + random.nextInt(16)));
+
+      int expected = 0;
+      for (int i = text.indexOf(key); i >= 0; i = text.indexOf(key, i + 1)) {
+        expected++;
+      }
+
+      assertEquals(expected, plain.count(key));
+      assertEquals(expected, withLcp.count(key));
+      assertEquals(plain.range(key), withLcp.range(key));
+    }
+  }
+
+  @Test
+  public void testLongestRepeatedSubstring() {
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized("ABRACADABRA!", SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+    // "ABRA!" and "ABRACADABRA!" have ranks 2 and 3.
+    assertEquals(new Repeat(7, 4, new RankRange(2, 4)), suffix.longestRepeatedSubstring());
+
+    SuffixArrayOptimized distinct =
+      new SuffixArrayOptimized("abc", SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+    assertNull(distinct.longestRepeatedSubstring());
+  }
+
+  @Test(expected=IllegalStateException.class)
+  public void testLongestRepeatedSubstringWithoutLcpArray() {
+    buildDefaultSuffix().longestRepeatedSubstring();
+  }
+
+  @Test
+  public void testMaximalRepeats() {
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized("ABRACADABRA!", SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+    // "A" is maximal, and "ABRA" is maximal, but "BRA" always follows 'A'.
+    List<String> repeats = new ArrayList<String>();
+    for (Repeat repeat : suffix.maximalRepeats(1)) {
+      repeats.add("ABRACADABRA!".substring(repeat.offset(), repeat.offset() + repeat.length())
+                  + "x" + repeat.count());
+    }
+    repeats.sort(null);
+    assertEquals(Arrays.asList("ABRAx2", "Ax5"), repeats);
+
+    assertEquals(1, suffix.maximalRepeats(2).size());
+    assertEquals(0, suffix.maximalRepeats(5).size());
+  }
+
+  @Test
+  public void testMaximalRepeatsRandomText() {
+    Random random = new Random(3);
+    char[] chars = new char[300];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(3));
+    }
+    String text = new String(chars);
+
+    // Brute force: every substring that occurs twice, and whose occurrences
+    // are neither all preceded nor all followed by the same character.
+    Map<String, Integer> expected = new HashMap<String, Integer>();
+    for (int from = 0; from < text.length(); from++) {
+      for (int to = from + 3; to <= text.length(); to++) {
+        String sub = text.substring(from, to);
+        if (expected.containsKey(sub)) {
+          continue;
+        }
+
+        int count = 0;
+        int before = -1;
+        int after  = -1;
+        boolean leftMaximal  = false;
+        boolean rightMaximal = false;
+        for (int i = text.indexOf(sub); i >= 0; i = text.indexOf(sub, i + 1)) {
+          int b = (i == 0) ? -2 - i : text.charAt(i - 1);
+          int a = (i + sub.length() == text.length()) ? -3 - i : text.charAt(i + sub.length());
+          leftMaximal  |= (count > 0 && b != before) || b < 0;
+          rightMaximal |= (count > 0 && a != after) || a < 0;
+          before = b;
+          after  = a;
+          count++;
+        }
+
+        if (count >= 2 && leftMaximal && rightMaximal) {
+          expected.put(sub, count);
+        } else {
+          expected.put(sub, 0);
+        }
+      }
+    }
+    expected.values().removeIf(count -> count == 0);
+
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+    Map<String, Integer> actual = new HashMap<String, Integer>();
+    for (Repeat repeat : suffix.maximalRepeats(3)) {
+      actual.put(text.substring(repeat.offset(), repeat.offset() + repeat.length()),
+                 repeat.count());
+    }
+
+    assertEquals(expected, actual);
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testMaximalRepeatsInvalidLength() {
+    new SuffixArrayOptimized("ABRACADABRA!", SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true)
+      .maximalRepeats(0);
+  }
+
+  @Test
+  public void testRanges() {
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized("ABRACADABRA!", SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+    String[] keys = { "ABRA", "A", "", "Z", "AB", "ABRA", "!", "ABRACADABRA!X", "CAD" };
+
+    RankRange[] ranges = suffix.ranges(keys);
+    for (int i = 0; i < keys.length; i++) {
+      assertEquals(keys[i], suffix.range(keys[i]), ranges[i]);
+    }
+  }
+
+  @Test
+  public void testRangesRandomKeys() {
+    Random random = new Random(17);
+    char[] chars = new char[20000];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(4));
+    }
+    String text = new String(chars);
+
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+    String[] keys = new String[3000];
+    for (int i = 0; i < keys.length; i++) {
+      int from = random.nextInt(text.length());
+      keys[i] = text.substring(from, Math.min(text.length(), from + random.nextInt(12)));
+      if (i % 10 == 0) {
+        keys[i] += 'e';
+      }
+    }
+
+    RankRange[] sequential = suffix.ranges(keys);
+    RankRange[] parallel   = suffix.ranges(keys, 4);
+    for (int i = 0; i < keys.length; i++) {
+      assertEquals(keys[i], suffix.range(keys[i]), sequential[i]);
+      assertEquals(keys[i], suffix.range(keys[i]), parallel[i]);
+    }
   }
-}
 
+  @Test(expected=IllegalArgumentException.class)
+  public void testRangesInvalidParallelism() {
+    buildDefaultSuffix().ranges(new String[] { "A" }, 0);
+  }
+  @Test
+  public void testFind() {
+    String text = "the cat sat on the mat with a hat";
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+
+    Map<String, Integer> found = new HashMap<String, Integer>();
+    for (Repeat match : suffix.find("[chms]at")) {
+      found.put(text.substring(match.offset(), match.offset() + match.length()), match.count());
+    }
+
+    Map<String, Integer> expected = new HashMap<String, Integer>();
+    expected.put("cat", 1);
+    expected.put("hat", 1);
+    expected.put("mat", 1);
+    expected.put("sat", 1);
+    assertEquals(expected, found);
+
+    assertEquals(2, suffix.find("th.").size());
+    assertEquals(0, suffix.find("dog").size());
+    assertEquals(0, new SuffixArrayOptimized("").find("a?").size());
+  }
+
+  @Test
+  public void testFindRandomText() {
+    Random random = new Random(17);
+    String[] patterns = { "ab.", "[ab]c?a", "a{2,4}", ".b{0,2}[^a]", "c.?.?a", "[a-c]{3}", "d" };
+
+    for (int sigma : new int[] { 2, 3, 4 }) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 400; i++) {
+        sb.append((char) ('a' + random.nextInt(sigma)));
+      }
+
+      String text = sb.toString();
+      SuffixArrayOptimized suffix =
+        new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+
+      for (String pattern : patterns) {
+        // Count the occurrences of every distinct substring that matches.
+        java.util.regex.Pattern regex = java.util.regex.Pattern.compile(pattern);
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        for (int i = 0; i < text.length(); i++) {
+          for (int j = i; j <= Math.min(text.length(), i + 6); j++) {
+            if (regex.matcher(text.substring(i, j)).matches()) {
+              expected.merge(text.substring(i, j), 1, Integer::sum);
+            }
+          }
+        }
+
+        Map<String, Integer> found = new HashMap<String, Integer>();
+        for (Repeat match : suffix.find(pattern)) {
+          String s = text.substring(match.offset(), match.offset() + match.length());
+          assertEquals(null, found.put(s, match.count()));
+          assertEquals(suffix.range(s), match.range());
+        }
+
+        assertEquals(expected, found);
+      }
+    }
+  }
+  @Test
+  public void testMostFrequentSubstrings() {
+    String text = "to be or not to be that is the question";
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+    List<Repeat> top = suffix.mostFrequentSubstrings(2, 4, 5);
+    assertEquals(2, top.size());
+    // Ties are in the order of the ranges, and ' ' < 't'.
+    assertEquals(" be ", substring(text, top.get(0)));
+    assertEquals("o be ", substring(text, top.get(1)));
+    assertEquals(2, top.get(1).count());
+
+    Repeat space = suffix.mostFrequentSubstrings(1, 1, 1).get(0);
+    assertEquals(" ", substring(text, space));
+    assertEquals(9, space.count());
+
+    assertEquals(0, suffix.mostFrequentSubstrings(0, 1, 3).size());
+  }
+
+  @Test
+  public void testMostFrequentSubstringsRandomText() {
+    Random random = new Random(23);
+
+    for (int sigma : new int[] { 2, 3, 5 }) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 300; i++) {
+        sb.append((char) ('a' + random.nextInt(sigma)));
+      }
+
+      String text = sb.toString();
+      SuffixArrayOptimized suffix =
+        new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+      for (int[] lengths : new int[][] { { 1, 1 }, { 2, 4 }, { 3, 3 }, { 5, 9 } }) {
+        // The counts of the repeated substrings in the range, one per set of
+        // occurrences.
+        Map<RankRange, Integer> ranges = new HashMap<RankRange, Integer>();
+        for (int i = 0; i < text.length(); i++) {
+          for (int l = lengths[0]; l <= lengths[1] && i + l <= text.length(); l++) {
+            RankRange range = suffix.range(text.substring(i, i + l));
+            if (range.size() > 1) {
+              ranges.put(range, range.size());
+            }
+          }
+        }
+
+        List<Integer> expected = new ArrayList<Integer>(ranges.values());
+        expected.sort((a, b) -> b - a);
+
+        for (int k : new int[] { 1, 5, 1000 }) {
+          List<Repeat> top = suffix.mostFrequentSubstrings(k, lengths[0], lengths[1]);
+          List<Integer> counts = new ArrayList<Integer>();
+
+          for (Repeat repeat : top) {
+            assertEquals(suffix.range(substring(text, repeat)), repeat.range());
+            assertEquals(true, repeat.length() >= lengths[0] && repeat.length() <= lengths[1]);
+            counts.add(repeat.count());
+          }
+
+          assertEquals(expected.subList(0, Math.min(k, expected.size())), counts);
+        }
+      }
+    }
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testMostFrequentSubstringsInvalidRange() {
+    new SuffixArrayOptimized("abab", SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true)
+      .mostFrequentSubstrings(1, 3, 2);
+  }
+
+  @Test
+  public void testSupermaximalRepeats() {
+    Random random = new Random(29);
+
+    for (String text : new String[] { "", "a", "aaaa", "abcabxabcd", "mississippi", randomText(random, 2, 200),
+                                      randomText(random, 4, 500) }) {
+      SuffixArrayOptimized suffix =
+        new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+      // A maximal repeat is supermaximal if it is in no other maximal repeat.
+      List<String> maximal = new ArrayList<String>();
+      for (Repeat repeat : suffix.maximalRepeats(1)) {
+        maximal.add(substring(text, repeat));
+      }
+
+      List<String> expected = new ArrayList<String>();
+      for (String s : maximal) {
+        boolean contained = false;
+        for (String t : maximal) {
+          contained |= t.length() > s.length() && t.contains(s);
+        }
+        if (!contained) {
+          expected.add(s);
+        }
+      }
+
+      List<String> actual = new ArrayList<String>();
+      for (Repeat repeat : suffix.supermaximalRepeats(1)) {
+        assertEquals(suffix.range(substring(text, repeat)), repeat.range());
+        actual.add(substring(text, repeat));
+      }
+
+      expected.sort(null);
+      actual.sort(null);
+      assertEquals(expected, actual);
+    }
+
+    assertEquals(Arrays.asList("abc"), supermaximal("abcabxabcd", 2));
+  }
+
+  private static List<String> supermaximal(String text, int minLength) {
+    SuffixArrayOptimized suffix =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+    List<String> repeats = new ArrayList<String>();
+    for (Repeat repeat : suffix.supermaximalRepeats(minLength)) {
+      repeats.add(substring(text, repeat));
+    }
+    return repeats;
+  }
+
+  private static String substring(String text, Repeat repeat) {
+    return text.substring(repeat.offset(), repeat.offset() + repeat.length());
+  }
+
+  private static String randomText(Random random, int sigma, int n) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < n; i++) {
+      sb.append((char) ('a' + random.nextInt(sigma)));
+    }
+    return sb.toString();
+  }
+}
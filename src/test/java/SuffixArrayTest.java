@@ -1,7 +1,10 @@
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import org.junit.Test;
 
+import java.util.Random;
+
 public class SuffixArrayTest {
 
   private SuffixArray buildDefaultSuffix() {
@@ -93,4 +96,111 @@ public class SuffixArrayTest {
     assertEquals(0, suffix.longestCommonPreffix(10));
     assertEquals(2, suffix.longestCommonPreffix(11));
   }
+
+  @Test
+  public void testLongestCommonPreffixWithLcpArray() {
+    String text = "ABRACADABRA!";
+    SuffixArray suffix = new SuffixArray(text, true);
+    SuffixArray expected = new SuffixArray(text);
+
+    for (int i = 1; i < text.length(); i++) {
+      assertEquals(expected.longestCommonPreffix(i), suffix.longestCommonPreffix(i));
+    }
+  }
+
+  @Test
+  public void testInverseIndexOf() {
+    String text = "ABRACADABRA!";
+    SuffixArray suffix = new SuffixArray(text, true);
+
+    for (int i = 0; i < text.length(); i++) {
+      assertEquals(i, suffix.inverseIndexOf(suffix.indexOf(i)));
+    }
+  }
+
+  @Test(expected=IllegalStateException.class)
+  public void testInverseIndexOfWithoutLcpArray() {
+    SuffixArray suffix = buildDefaultSuffix();
+    suffix.inverseIndexOf(0);
+  }
+
+  @Test
+  public void testRank() {
+    String text = "ABRACADABRA!";
+    SuffixArray suffix = new SuffixArray(text);
+
+    for (int i = 0; i < text.length(); i++) {
+      assertEquals(i, suffix.rank(suffix.selectAsString(i)));
+    }
+
+    assertEquals(0,  suffix.rank(""));
+    assertEquals(1,  suffix.rank("A"));
+    assertEquals(6,  suffix.rank("B"));
+    assertEquals(3,  suffix.rank("ABRACADABRA"));
+    assertEquals(12, suffix.rank("Z"));
+  }
+
+  @Test
+  public void testRankRandomKeys() {
+    Random random = new Random(11);
+    char[] chars = new char[2000];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(3));
+    }
+
+    String text = new String(chars);
+    SuffixArray suffix = new SuffixArray(text);
+
+    for (int t = 0; t < 500; t++) {
+      int from = random.nextInt(text.length());
+      int to   = Math.min(text.length(), from + random.nextInt(40));
+      String key = text.substring(from, to) + (t % 2 == 0 ? "" : "b");
+
+      // Brute force: count the suffixes less than key.
+      int expected = 0;
+      for (int i = 0; i < text.length(); i++) {
+        if (text.substring(i).compareTo(key) < 0) {
+          expected++;
+        }
+      }
+
+      assertEquals(expected, suffix.rank(key));
+    }
+  }
+
+  @Test
+  public void testRange() {
+    SuffixArray suffix = new SuffixArray("ABRACADABRA!");
+
+    assertEquals(new RankRange(1, 6),  suffix.range("A"));
+    assertEquals(new RankRange(2, 4),  suffix.range("ABRA"));
+    assertEquals(new RankRange(6, 8),  suffix.range("BRA"));
+    assertEquals(new RankRange(0, 12), suffix.range(""));
+    assertEquals(new RankRange(8, 8),  suffix.range("CAB"));
+    assertEquals(5, suffix.count("A"));
+    assertEquals(0, suffix.count("Z"));
+  }
+
+  @Test
+  public void testRangeRandomKeys() {
+    Random random = new Random(12);
+    char[] chars = new char[2000];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(3));
+    }
+
+    String text = new String(chars);
+    SuffixArray suffix = new SuffixArray(text);
+    SuffixArrayOptimized expected =
+      new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING);
+
+    for (int t = 0; t < 500; t++) {
+      int from = random.nextInt(text.length());
+      int to   = Math.min(text.length(), from + random.nextInt(12));
+      String key = text.substring(from, to) + (t % 2 == 0 ? "" : "b");
+
+      assertEquals(expected.range(key), suffix.range(key));
+      assertArrayEquals(expected.occurrences(key).toArray(), suffix.occurrences(key).toArray());
+    }
+  }
 }
@@ -0,0 +1,160 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class SuffixIndexFactoryTest {
+
+  private static String randomText(Random random, int length, int alphabet) {
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(alphabet));
+    }
+    return new String(chars);
+  }
+
+  @Test
+  public void testChooseRepetitiveText() {
+    char[] chars = new char[100000];
+    Arrays.fill(chars, 'a');
+    assertEquals(SuffixIndexFactory.Strategy.INDUCED_SORTING,
+                 SuffixIndexFactory.choose(new String(chars)));
+
+    String block = randomText(new Random(1), 5000, 26);
+    StringBuilder periodic = new StringBuilder();
+    while (periodic.length() < 100000) {
+      periodic.append(block);
+    }
+    assertEquals(SuffixIndexFactory.Strategy.INDUCED_SORTING,
+                 SuffixIndexFactory.choose(periodic.toString()));
+
+    assertEquals(SuffixIndexFactory.Strategy.INDUCED_SORTING,
+                 SuffixIndexFactory.choose(new String(chars, 0, 1000)));
+  }
+
+  @Test
+  public void testChooseRandomText() {
+    Random random = new Random(2);
+
+    assertEquals(SuffixIndexFactory.Strategy.PREFIX_DOUBLING,
+                 SuffixIndexFactory.choose(randomText(random, 1000, 26)));
+    assertEquals(SuffixIndexFactory.Strategy.PREFIX_DOUBLING,
+                 SuffixIndexFactory.choose(randomText(random, 100000, 4)));
+    assertEquals(SuffixIndexFactory.Strategy.INDUCED_SORTING,
+                 SuffixIndexFactory.choose(randomText(random, SuffixIndexFactory.DOUBLING_TEXT + 1, 4), false, 1));
+  }
+
+  @Test
+  public void testChooseParallel() {
+    String large = randomText(new Random(5), SuffixIndexFactory.DOUBLING_TEXT + 1, 4);
+    int    cores = SuffixIndexFactory.PARALLEL_PROCESSORS;
+
+    assertEquals(SuffixIndexFactory.Strategy.PARALLEL_RADIX_QUICKSORT,
+                 SuffixIndexFactory.choose(large, false, cores));
+    assertEquals(SuffixIndexFactory.Strategy.INDUCED_SORTING,
+                 SuffixIndexFactory.choose(large, false, cores - 1));
+
+    // The parallel sort does not compute the LCP array.
+    assertEquals(SuffixIndexFactory.Strategy.INDUCED_SORTING,
+                 SuffixIndexFactory.choose(large, true, cores));
+
+    // Repetitive and small texts do not depend on the number of processors.
+    char[] chars = new char[SuffixIndexFactory.DOUBLING_TEXT + 1];
+    Arrays.fill(chars, 'a');
+    assertEquals(SuffixIndexFactory.Strategy.INDUCED_SORTING,
+                 SuffixIndexFactory.choose(new String(chars), false, cores));
+    assertEquals(SuffixIndexFactory.Strategy.PREFIX_DOUBLING,
+                 SuffixIndexFactory.choose(large.substring(0, 100000), false, cores));
+  }
+
+  @Test
+  public void testRepetitiveness() {
+    Random random = new Random(3);
+
+    assertEquals(0.0, SuffixIndexFactory.repetitiveness("", 8), 0.0);
+    assertEquals(0.0, SuffixIndexFactory.repetitiveness("abc", 8), 0.0);
+    assertEquals(0.0, SuffixIndexFactory.repetitiveness(randomText(random, 50000, 26), 16), 0.0);
+
+    // Two copies of a text: every q-gram that does not straddle them repeats.
+    String half = randomText(random, 50000, 26);
+    assertTrue(SuffixIndexFactory.repetitiveness(half + half, 16) > 0.99);
+
+    // A tenth of the text is a copy of another tenth.
+    String text = randomText(random, 90000, 26);
+    double repeated = SuffixIndexFactory.repetitiveness(text + text.substring(0, 10000), 16);
+    assertTrue(repeated > 0.15 && repeated < 0.25);
+  }
+
+  @Test
+  public void testAlphabetSize() {
+    assertEquals(0, SuffixIndexFactory.alphabetSize(""));
+    assertEquals(5, SuffixIndexFactory.alphabetSize("ABRACADABRA"));
+    assertEquals(2, SuffixIndexFactory.alphabetSize("a\uffffa"));
+  }
+
+  @Test
+  public void testQgramLength() {
+    assertEquals(8, SuffixIndexFactory.qgramLength(0, 0));
+    assertEquals(28, SuffixIndexFactory.qgramLength(1 << 20, 4));
+    assertEquals(64, SuffixIndexFactory.qgramLength(1 << 30, 2));
+  }
+
+  @Test
+  public void testCreate() {
+    Random random = new Random(4);
+    List<String> texts = new ArrayList<String>();
+    texts.add("");
+    texts.add("a");
+    texts.add("ABRACADABRA!");
+    texts.add(randomText(random, 20000, 4));
+    texts.add(randomText(random, 2000, 2) + randomText(random, 2000, 2));
+
+    for (String text : texts) {
+      SuffixArrayOptimized expected =
+        new SuffixArrayOptimized(text, SuffixArrayOptimized.Algorithm.INDUCED_SORTING, true);
+
+      for (SuffixIndexFactory.Strategy strategy : SuffixIndexFactory.Strategy.values()) {
+        SuffixIndex suffix = SuffixIndexFactory.create(text, strategy);
+
+        assertEquals(text.length(), suffix.length());
+        for (int i = 0; i < text.length(); i++) {
+          assertEquals(expected.indexOf(i), suffix.indexOf(i));
+        }
+      }
+
+      SuffixArrayOptimized withLcp =
+        SuffixIndexFactory.createOptimized(text, SuffixIndexFactory.Strategy.AUTO, true);
+      for (int i = 1; i < text.length(); i++) {
+        assertEquals(expected.longestCommonPreffix(i), withLcp.longestCommonPreffix(i));
+      }
+      assertEquals(expected.longestRepeatedSubstring(), withLcp.longestRepeatedSubstring());
+    }
+  }
+
+  @Test
+  public void testSuffixIndexImplementations() {
+    String text = "ABRACADABRA!";
+    List<SuffixIndex> suffixes = new ArrayList<SuffixIndex>();
+    suffixes.add(new SuffixArray(text));
+    suffixes.add(SuffixIndexFactory.create(text));
+    suffixes.add(new SuffixArrayCompact(text));
+
+    for (SuffixIndex suffix : suffixes) {
+      assertEquals(12, suffix.length());
+      assertEquals(3, suffix.rank("ABRACADABRA"));
+      assertEquals(new RankRange(6, 8), suffix.range("BRA"));
+      assertEquals(5, suffix.count("A"));
+      assertEquals(Arrays.asList(8, 1), Arrays.asList(suffix.occurrences("BRA").boxed().toArray()));
+    }
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testCreateParallelWithLcp() {
+    SuffixIndexFactory.create("ABRACADABRA!", SuffixIndexFactory.Strategy.PARALLEL_RADIX_QUICKSORT,
+                              true);
+  }
+}
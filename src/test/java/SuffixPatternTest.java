@@ -0,0 +1,63 @@
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class SuffixPatternTest {
+
+  @Test
+  public void testLiteralsAndDot() {
+    SuffixPattern pattern = SuffixPattern.compile("c.t");
+
+    assertTrue(pattern.matches("cat"));
+    assertTrue(pattern.matches("cut"));
+    assertFalse(pattern.matches("ct"));
+    assertFalse(pattern.matches("cats"));
+  }
+
+  @Test
+  public void testClasses() {
+    SuffixPattern pattern = SuffixPattern.compile("[a-c][^x-z][\\]]");
+
+    assertTrue(pattern.matches("ba]"));
+    assertFalse(pattern.matches("da]"));
+    assertFalse(pattern.matches("by]"));
+    assertTrue(SuffixPattern.compile("[]a]").matches("]"));
+  }
+
+  @Test
+  public void testQuantifiers() {
+    SuffixPattern pattern = SuffixPattern.compile("colou?r a{2} b{1,3}c?");
+
+    assertTrue(pattern.matches("color aa b"));
+    assertTrue(pattern.matches("colour aa bbbc"));
+    assertFalse(pattern.matches("colour a b"));
+    assertFalse(pattern.matches("colour aa bbbb"));
+    assertTrue(SuffixPattern.compile("a{0,2}b?").matches(""));
+  }
+
+  @Test
+  public void testEscapes() {
+    assertTrue(SuffixPattern.compile("a\\.b\\*").matches("a.b*"));
+    assertFalse(SuffixPattern.compile("a\\.b").matches("axb"));
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testUnboundedRepeat() {
+    SuffixPattern.compile("ab*");
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidBounds() {
+    SuffixPattern.compile("a{3,2}");
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testUnterminatedClass() {
+    SuffixPattern.compile("[abc");
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testQuantifierWithoutAtom() {
+    SuffixPattern.compile("?a");
+  }
+}
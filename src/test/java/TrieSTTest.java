@@ -5,8 +5,10 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.Set;
 
 public class TrieSTTest {
   private static int DEFAULT_TRIE_ST_SIZE = 8;
@@ -231,4 +233,41 @@ public class TrieSTTest {
     // Specifying an empty string should return all keys
     assertEquals(expectedKeys, keys);
   }
+
+  @Test
+  public void testGeneratedDictionary() {
+    CorpusGenerator generator = new CorpusGenerator(19);
+    String[] words = generator.dictionary(5000);
+    TrieST<Integer> st = new TrieST<Integer>();
+
+    for (int i = 0; i < words.length; i++) {
+      st.put(words[i], i);
+    }
+    assertEquals(words.length, st.size());
+
+    // Zipf-distributed lookups, as in a stream of natural language queries.
+    for (String word : generator.zipf(words, 1000, 1.0)) {
+      assertTrue(st.contains(word));
+    }
+
+    for (int i = 0; i < words.length; i++) {
+      assertEquals(Integer.valueOf(i), st.get(words[i]));
+    }
+
+    for (String prefix : new String[] { "a", "qu", "zzz" }) {
+      Set<String> expected = new HashSet<String>();
+      for (String word : words) {
+        if (word.startsWith(prefix)) {
+          expected.add(word);
+        }
+      }
+
+      Set<String> actual = new HashSet<String>();
+      for (String key : st.keysWithPrefix(prefix)) {
+        actual.add(key);
+      }
+
+      assertEquals(expected, actual);
+    }
+  }
 }